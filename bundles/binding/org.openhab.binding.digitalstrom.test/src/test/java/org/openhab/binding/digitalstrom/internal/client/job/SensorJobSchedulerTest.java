@@ -0,0 +1,209 @@
+/**
+ * Copyright (c) 2010-2014, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.digitalstrom.internal.client.job;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.openhab.binding.digitalstrom.internal.client.DigitalSTROMAPI;
+import org.openhab.binding.digitalstrom.internal.client.entity.DSID;
+import org.openhab.binding.digitalstrom.internal.client.job.SensorJobScheduler.Priority;
+
+/**
+ * Tests the queueing and the rate limit of the {@link SensorJobScheduler}.
+ *
+ * @author Alex Maier
+ * @since 1.5.0
+ */
+public class SensorJobSchedulerTest {
+
+	private static final DSID DEVICE1 = new DSID("00000001");
+
+	private static final DSID DEVICE2 = new DSID("00000002");
+
+	/** a job which equals every other job of the same device and value */
+	private static class TestJob implements SensorJob {
+
+		private final DSID dsid;
+
+		private final String value;
+
+		TestJob(DSID dsid, String value) {
+			this.dsid = dsid;
+			this.value = value;
+		}
+
+		@Override
+		public DSID getDsid() {
+			return dsid;
+		}
+
+		@Override
+		public void execute(DigitalSTROMAPI digitalSTROM, String token) {
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (obj instanceof TestJob) {
+				TestJob other = (TestJob) obj;
+				return dsid.equals(other.dsid) && value.equals(other.value);
+			}
+			return false;
+		}
+
+		@Override
+		public int hashCode() {
+			return (dsid.getValue() + value).hashCode();
+		}
+
+		@Override
+		public String toString() {
+			return dsid + "/" + value;
+		}
+	}
+
+	@Test
+	public void testDuplicateReplacesPendingJob() {
+		SensorJobScheduler scheduler = new SensorJobScheduler(0);
+		TestJob first = new TestJob(DEVICE1, "power");
+		TestJob other = new TestJob(DEVICE2, "power");
+		TestJob replacement = new TestJob(DEVICE1, "power");
+
+		scheduler.addJob(first, Priority.MEDIUM);
+		scheduler.addJob(other, Priority.MEDIUM);
+		scheduler.addJob(replacement, Priority.MEDIUM);
+
+		assertEquals(2, scheduler.getPendingJobs());
+		assertEquals(2, scheduler.getQueuedCount());
+		assertEquals(1, scheduler.getReplacedCount());
+
+		// the replacing job keeps the queue position of the pending one
+		assertSame(replacement, scheduler.take(0));
+		assertSame(other, scheduler.take(0));
+		assertNull(scheduler.take(0));
+		assertEquals(0, scheduler.getPendingJobs());
+	}
+
+	@Test
+	public void testJobCanBeQueuedAgainAfterItHasBeenTaken() {
+		SensorJobScheduler scheduler = new SensorJobScheduler(0);
+		TestJob first = new TestJob(DEVICE1, "power");
+		TestJob second = new TestJob(DEVICE1, "power");
+
+		scheduler.addJob(first, Priority.LOW);
+		assertSame(first, scheduler.take(0));
+		scheduler.addJob(second, Priority.LOW);
+		assertSame(second, scheduler.take(0));
+		assertEquals(0, scheduler.getReplacedCount());
+	}
+
+	@Test
+	public void testJobsAreTakenByPriority() {
+		SensorJobScheduler scheduler = new SensorJobScheduler(0);
+		TestJob low1 = new TestJob(DEVICE1, "low1");
+		TestJob medium = new TestJob(DEVICE1, "medium");
+		TestJob high = new TestJob(DEVICE2, "high");
+		TestJob low2 = new TestJob(DEVICE2, "low2");
+
+		scheduler.addJob(low1, Priority.LOW);
+		scheduler.addJob(medium, Priority.MEDIUM);
+		scheduler.addJob(high, Priority.HIGH);
+		scheduler.addJob(low2, Priority.LOW);
+
+		assertSame(high, scheduler.take(0));
+		assertSame(medium, scheduler.take(0));
+		assertSame(low1, scheduler.take(0));
+		assertSame(low2, scheduler.take(0));
+		assertNull(scheduler.take(0));
+		assertEquals(4, scheduler.getTakenCount());
+	}
+
+	@Test
+	public void testRemoveJobsOfDevice() {
+		SensorJobScheduler scheduler = new SensorJobScheduler(0);
+		TestJob other = new TestJob(DEVICE2, "power");
+
+		scheduler.addJob(new TestJob(DEVICE1, "power"), Priority.HIGH);
+		scheduler.addJob(other, Priority.MEDIUM);
+		scheduler.addJob(new TestJob(DEVICE1, "output"), Priority.LOW);
+		assertEquals(3, scheduler.getPendingJobs());
+
+		scheduler.removeJobs(DEVICE1);
+		assertEquals(1, scheduler.getPendingJobs());
+		assertSame(other, scheduler.take(0));
+		assertNull(scheduler.take(0));
+
+		// the removed entries must not hide a job queued again for the device
+		TestJob again = new TestJob(DEVICE1, "power");
+		scheduler.addJob(again, Priority.LOW);
+		assertSame(again, scheduler.take(0));
+		assertNull(scheduler.take(0));
+	}
+
+	@Test
+	public void testBurstAndReadingPause() throws InterruptedException {
+		long readingPause = 200;
+		SensorJobScheduler scheduler = new SensorJobScheduler(readingPause);
+		scheduler.setBurst(3);
+		for (int i = 0; i < 5; i++) {
+			scheduler.addJob(new TestJob(DEVICE1, "value" + i), Priority.MEDIUM);
+		}
+
+		// after the scheduler has been idle, the whole burst is available at once
+		Thread.sleep(readingPause * 3);
+		for (int i = 0; i < 3; i++) {
+			assertEquals(new TestJob(DEVICE1, "value" + i), scheduler.take(0));
+		}
+		assertNull(scheduler.take(0));
+
+		// once the burst has been used up, the jobs are taken after the reading pause
+		long start = System.currentTimeMillis();
+		assertEquals(new TestJob(DEVICE1, "value3"), scheduler.take(5000));
+		assertEquals(new TestJob(DEVICE1, "value4"), scheduler.take(5000));
+		long elapsed = System.currentTimeMillis() - start;
+		assertTrue("jobs taken after " + elapsed + "ms", elapsed >= readingPause * 2 - 50);
+	}
+
+	@Test
+	public void testBurstIsAtLeastOne() {
+		SensorJobScheduler scheduler = new SensorJobScheduler(60000);
+		scheduler.setBurst(0);
+		scheduler.addJob(new TestJob(DEVICE1, "value1"), Priority.MEDIUM);
+		scheduler.addJob(new TestJob(DEVICE1, "value2"), Priority.MEDIUM);
+
+		assertEquals(new TestJob(DEVICE1, "value1"), scheduler.take(0));
+		assertNull(scheduler.take(0));
+	}
+
+	@Test
+	public void testTakeWaitsForNewJob() throws InterruptedException {
+		final SensorJobScheduler scheduler = new SensorJobScheduler(0);
+		final TestJob job = new TestJob(DEVICE1, "power");
+
+		Thread producer = new Thread() {
+			@Override
+			public void run() {
+				try {
+					Thread.sleep(100);
+				} catch (InterruptedException e) {
+					return;
+				}
+				scheduler.addJob(job, Priority.LOW);
+			}
+		};
+		producer.start();
+
+		assertSame(job, scheduler.take(5000));
+		producer.join();
+	}
+
+}
@@ -12,7 +12,6 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.Dictionary;
 import java.util.HashMap;
-import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -52,6 +51,8 @@ import org.openhab.binding.digitalstrom.internal.client.job.DeviceConsumptionSen
 import org.openhab.binding.digitalstrom.internal.client.job.DeviceOutputValueSensorJob;
 import org.openhab.binding.digitalstrom.internal.client.job.SceneOutputValueSensorJob;
 import org.openhab.binding.digitalstrom.internal.client.job.SensorJob;
+import org.openhab.binding.digitalstrom.internal.client.job.SensorJobScheduler;
+import org.openhab.binding.digitalstrom.internal.client.job.SensorJobScheduler.Priority;
 import org.openhab.binding.digitalstrom.internal.config.ConnectionConfig;
 import org.openhab.binding.digitalstrom.internal.config.ConsumptionConfig;
 import org.openhab.binding.digitalstrom.internal.config.ContextConfig;
@@ -109,6 +110,11 @@ public class DigitalSTROMBinding extends
 
 	private int readTimeout = ConnectionConfig.DEFAULT_READ_TIMEOUT;
 
+	/** the interval in milliseconds the sensor job statistics are logged */
+	private static final long STATISTICS_INTERVAL = 60000;
+
+	private long lastStatisticsLog = 0;
+
 	private String user = null;
 
 	private String password = null;
@@ -150,12 +156,8 @@ public class DigitalSTROMBinding extends
 	private List<String> echoBox = Collections
 			.synchronizedList(new LinkedList<String>());
 
-	private List<SensorJob> highPrioritySensorJobs = Collections
-			.synchronizedList(new LinkedList<SensorJob>());
-	private List<SensorJob> mediumPrioritySensorJobs = Collections
-			.synchronizedList(new LinkedList<SensorJob>());
-	private List<SensorJob> lowPrioritySensorJobs = Collections
-			.synchronizedList(new LinkedList<SensorJob>());
+	private SensorJobScheduler sensorJobScheduler = new SensorJobScheduler(
+			ConnectionConfig.DEFAULT_READ_TIMEOUT);
 
 	private SensorJobExecutor sensorJobExecutor = null;
 
@@ -204,6 +206,7 @@ public class DigitalSTROMBinding extends
 		digitalSTROMZoneGroupMap.clear();
 		lastUpdateMap.clear();
 		echoBox.clear();
+		sensorJobScheduler.clear();
 	}
 
 	@Override
@@ -238,6 +241,12 @@ public class DigitalSTROMBinding extends
 	 */
 	@Override
 	protected void execute() {
+		if (logger.isDebugEnabled()
+				&& System.currentTimeMillis() - lastStatisticsLog >= STATISTICS_INTERVAL) {
+			lastStatisticsLog = System.currentTimeMillis();
+			logger.debug("sensor jobs: {}", sensorJobScheduler.getStatistics());
+		}
+
 		if (!serverIsFound()) {
 			login();
 		} else {
@@ -409,6 +418,18 @@ public class DigitalSTROMBinding extends
 				readTimeout = Integer.parseInt(readTimeoutStr);
 			}
 
+			String sensorReadingPauseStr = (String) config.get("sensorReadingPause");
+			if (StringUtils.isNotBlank(sensorReadingPauseStr)) {
+				sensorJobScheduler.setReadingPause(Long.parseLong(sensorReadingPauseStr));
+			} else {
+				sensorJobScheduler.setReadingPause(readTimeout);
+			}
+
+			String sensorReadingBurstStr = (String) config.get("sensorReadingBurst");
+			if (StringUtils.isNotBlank(sensorReadingBurstStr)) {
+				sensorJobScheduler.setBurst(Integer.parseInt(sensorReadingBurstStr));
+			}
+
 			String applicationTokenStr = (String) config
 					.get("loginToken");
 			if (StringUtils.isNotBlank(applicationTokenStr)) {
@@ -1566,89 +1587,21 @@ public class DigitalSTROMBinding extends
 
 	private void addHighPriorityJob(
 			DeviceOutputValueSensorJob deviceOutputValueSensorJob) {
-		synchronized (highPrioritySensorJobs) {
-			if (!highPrioritySensorJobs.contains(deviceOutputValueSensorJob)) {
-				highPrioritySensorJobs.add(deviceOutputValueSensorJob);
-			}
-		}
+		sensorJobScheduler.addJob(deviceOutputValueSensorJob, Priority.HIGH);
 	}
 
 	private void addMediumPriorityJob(
 			SceneOutputValueSensorJob sceneOutputValueSensorJob) {
-		synchronized (mediumPrioritySensorJobs) {
-			if (!mediumPrioritySensorJobs.contains(sceneOutputValueSensorJob)) {
-				mediumPrioritySensorJobs.add(sceneOutputValueSensorJob);
-			}
-		}
+		sensorJobScheduler.addJob(sceneOutputValueSensorJob, Priority.MEDIUM);
 	}
 
 	private void addLowPriorityJob(
 			DeviceConsumptionSensorJob deviceConsumptionSensorJob) {
-		synchronized (lowPrioritySensorJobs) {
-			if (!lowPrioritySensorJobs.contains(deviceConsumptionSensorJob)) {
-				lowPrioritySensorJobs.add(deviceConsumptionSensorJob);
-			}
-		}
-	}
-
-	private SensorJob getLowPriorityJob() {
-		SensorJob job = null;
-		synchronized (lowPrioritySensorJobs) {
-			if (lowPrioritySensorJobs.size() > 0) {
-				job = lowPrioritySensorJobs.get(0);
-				lowPrioritySensorJobs.remove(job);
-			}
-		}
-		return job;
-	}
-
-	private SensorJob getMediumPriorityJob() {
-		SensorJob job = null;
-		synchronized (mediumPrioritySensorJobs) {
-			if (mediumPrioritySensorJobs.size() > 0) {
-				job = mediumPrioritySensorJobs.get(0);
-				mediumPrioritySensorJobs.remove(job);
-			}
-		}
-		return job;
-	}
-
-	private SensorJob getHighPriorityJob() {
-		SensorJob job = null;
-		synchronized (highPrioritySensorJobs) {
-			if (highPrioritySensorJobs.size() > 0) {
-				job = highPrioritySensorJobs.get(0);
-				highPrioritySensorJobs.remove(job);
-			}
-		}
-		return job;
+		sensorJobScheduler.addJob(deviceConsumptionSensorJob, Priority.LOW);
 	}
 
 	private void removeSensorJobs(DSID dsid) {
-		synchronized (lowPrioritySensorJobs) {
-			for (Iterator<SensorJob> iter = lowPrioritySensorJobs.iterator(); iter
-					.hasNext();) {
-				SensorJob job = iter.next();
-				if (job.getDsid().equals(dsid))
-					iter.remove();
-			}
-		}
-		synchronized (mediumPrioritySensorJobs) {
-			for (Iterator<SensorJob> iter = mediumPrioritySensorJobs.iterator(); iter
-					.hasNext();) {
-				SensorJob job = iter.next();
-				if (job.getDsid().equals(dsid))
-					iter.remove();
-			}
-		}
-		synchronized (highPrioritySensorJobs) {
-			for (Iterator<SensorJob> iter = highPrioritySensorJobs.iterator(); iter
-					.hasNext();) {
-				SensorJob job = iter.next();
-				if (job.getDsid().equals(dsid))
-					iter.remove();
-			}
-		}
+		sensorJobScheduler.removeJobs(dsid);
 	}
 
 	private void login() {
@@ -1692,6 +1645,10 @@ public class DigitalSTROMBinding extends
 	}
 
 	private void startSensorJobExecutor() {
+		// the scheduler must only be drained by a single executor
+		if (this.sensorJobExecutor != null) {
+			this.sensorJobExecutor.shutdown();
+		}
 		this.sensorJobExecutor = new SensorJobExecutor();
 		this.sensorJobExecutor.start();
 	}
@@ -1706,7 +1663,8 @@ public class DigitalSTROMBinding extends
 
 	/**
 	 * In order to avoid many sensor readings in a time, this thread starts the
-	 * jobs, after the old one is finished
+	 * jobs, after the old one is finished. The rate of the jobs is limited by
+	 * the {@link SensorJobScheduler}.
 	 * 
 	 * @author Alexander Betker
 	 * @since 1.3.0
@@ -1714,37 +1672,28 @@ public class DigitalSTROMBinding extends
 	 */
 	private class SensorJobExecutor extends Thread {
 
-		private boolean shutdown = false;
-
-		private final int sleepTime = readTimeout;
+		private volatile boolean shutdown = false;
 
 		@Override
 		public void run() {
 
 			while (!this.shutdown) {
-				SensorJob job = getHighPriorityJob();
+				SensorJob job = sensorJobScheduler.take(granularity);
 
-				if (job == null) {
-					job = getMediumPriorityJob();
-					if (job == null)
-						job = getLowPriorityJob();
-				}
 				if (job != null) {
-					job.execute(digitalSTROM, getSessionToken());
-				}
-
-				try {
-					sleep(this.sleepTime);
-				} catch (InterruptedException e) {
-					this.shutdown();
-					logger.error("InterruptedException in SensorJobExecutor Thread ... "
-							+ e.getStackTrace());
+					try {
+						job.execute(digitalSTROM, getSessionToken());
+					} catch (RuntimeException e) {
+						logger.error("Sensor job for dsid " + job.getDsid()
+								+ " failed: " + e.getMessage());
+					}
 				}
 			}
 		}
 
-		public synchronized void shutdown() {
+		public void shutdown() {
 			this.shutdown = true;
+			this.interrupt();
 		}
 	}
 
@@ -50,6 +50,11 @@ public class DSID {
 		return false;
 	}
 
+	@Override
+	public int hashCode() {
+		return dsid.hashCode();
+	}
+
 	@Override
 	public String toString() {
 		return dsid;
@@ -64,6 +64,11 @@ public class DeviceOutputValueSensorJob implements SensorJob {
 		return false;
 	}
 
+	@Override
+	public int hashCode() {
+		return (this.device.getDSID().getValue()+this.index).hashCode();
+	}
+
 	@Override
 	public DSID getDsid() {
 		return device.getDSID();
@@ -0,0 +1,335 @@
+/**
+ * Copyright (c) 2010-2014, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.digitalstrom.internal.client.job;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import org.openhab.binding.digitalstrom.internal.client.entity.DSID;
+
+/**
+ * The SensorJobScheduler queues the sensor jobs of the binding by priority
+ * and hands them out at a rate the digitalSTROM server (dSS) can handle.
+ * <p>
+ * Each priority has its own lock-free queue. A job which equals a pending
+ * job (same device and same value) replaces it, so a device's value is read
+ * only once, however often it has been requested in the meantime. The
+ * replacing job keeps the queue position of the pending one. All pending jobs
+ * of a device are indexed by its DSID, so they can be removed at once.
+ * <p>
+ * Jobs are handed out by {@link #take(long)}, which must only be called by a
+ * single executor thread. The rate is limited by a token bucket: a token is
+ * added every <code>readingPause</code> milliseconds up to
+ * <code>burst</code> tokens, and every job consumes one.
+ *
+ * @author Alex Maier
+ * @since 1.5.0
+ */
+public class SensorJobScheduler {
+
+	/** the priorities of sensor jobs, a job is only taken if no job of a higher priority is pending */
+	public enum Priority {
+		HIGH, MEDIUM, LOW
+	}
+
+	private static final Priority[] PRIORITIES = Priority.values();
+
+	/** a queued job, which stays in the queue when it is replaced or removed */
+	private static class Entry {
+
+		private volatile SensorJob job;
+
+		private final long queuedAt;
+
+		Entry(SensorJob job) {
+			this.job = job;
+			this.queuedAt = System.currentTimeMillis();
+		}
+	}
+
+	private final Queue<Entry>[] queues;
+
+	/** DSID - (job - queued entry) */
+	private final ConcurrentMap<DSID, ConcurrentMap<SensorJob, Entry>> pending = new ConcurrentHashMap<DSID, ConcurrentMap<SensorJob, Entry>>();
+
+	private volatile Thread waitingThread = null;
+
+	private volatile long readingPause;
+
+	private volatile int burst = 1;
+
+	// the token bucket is only accessed by the executor thread
+	private double tokens = 1;
+
+	private long lastRefill = System.currentTimeMillis();
+
+	private final long startTime = System.currentTimeMillis();
+
+	private final AtomicLong queuedCount = new AtomicLong();
+
+	private final AtomicLong replacedCount = new AtomicLong();
+
+	private final AtomicLong takenCount = new AtomicLong();
+
+	private final AtomicLong totalWaitTime = new AtomicLong();
+
+	private volatile long maxWaitTime = 0;
+
+	@SuppressWarnings("unchecked")
+	public SensorJobScheduler(long readingPause) {
+		this.readingPause = readingPause;
+		queues = new Queue[PRIORITIES.length];
+		for (int i = 0; i < queues.length; i++) {
+			queues[i] = new ConcurrentLinkedQueue<Entry>();
+		}
+	}
+
+	/**
+	 * Sets the minimum time between two sensor jobs, once the burst has been
+	 * used up.
+	 *
+	 * @param readingPause the pause in milliseconds
+	 */
+	public void setReadingPause(long readingPause) {
+		this.readingPause = readingPause;
+	}
+
+	/**
+	 * Sets the number of sensor jobs which may be taken without a pause after
+	 * the scheduler has been idle.
+	 *
+	 * @param burst the number of jobs, at least 1
+	 */
+	public void setBurst(int burst) {
+		this.burst = Math.max(1, burst);
+	}
+
+	/**
+	 * Queues a sensor job. If an equal job is pending already, it is replaced
+	 * by the given one.
+	 *
+	 * @param job the job to queue
+	 * @param priority the priority of the job
+	 */
+	public void addJob(SensorJob job, Priority priority) {
+		ConcurrentMap<SensorJob, Entry> jobs = pending.get(job.getDsid());
+		if (jobs == null) {
+			ConcurrentMap<SensorJob, Entry> newJobs = new ConcurrentHashMap<SensorJob, Entry>();
+			jobs = pending.putIfAbsent(job.getDsid(), newJobs);
+			if (jobs == null) {
+				jobs = newJobs;
+			}
+		}
+		Entry entry = new Entry(job);
+		Entry queued = jobs.putIfAbsent(job, entry);
+		if (queued != null) {
+			queued.job = job;
+			replacedCount.incrementAndGet();
+			return;
+		}
+		queues[priority.ordinal()].offer(entry);
+		queuedCount.incrementAndGet();
+
+		Thread waiting = waitingThread;
+		if (waiting != null) {
+			LockSupport.unpark(waiting);
+		}
+	}
+
+	/**
+	 * Removes all pending jobs of the device with the given DSID.
+	 *
+	 * @param dsid the DSID of the device
+	 */
+	public void removeJobs(DSID dsid) {
+		pending.remove(dsid);
+	}
+
+	/**
+	 * Removes all pending jobs.
+	 */
+	public void clear() {
+		pending.clear();
+		for (Queue<Entry> queue : queues) {
+			queue.clear();
+		}
+	}
+
+	/**
+	 * Waits until a job is pending and the rate limit allows to execute it.
+	 * Must only be called by one thread.
+	 *
+	 * @param timeout the maximum time to wait in milliseconds
+	 * @return the job with the highest priority which has been queued first,
+	 *         or null if there was none within the timeout or the thread has
+	 *         been interrupted
+	 */
+	public SensorJob take(long timeout) {
+		long deadline = System.currentTimeMillis() + timeout;
+		waitingThread = Thread.currentThread();
+		try {
+			while (!Thread.currentThread().isInterrupted()) {
+				long now = System.currentTimeMillis();
+				refill(now);
+				if (tokens >= 1 && hasJobs()) {
+					Entry entry = poll();
+					if (entry != null) {
+						tokens--;
+						recordTaken(now - entry.queuedAt);
+						return entry.job;
+					}
+				}
+				long wait = deadline - now;
+				if (wait <= 0) {
+					return null;
+				}
+				if (tokens < 1) {
+					wait = Math.min(wait, (long) Math.ceil((1 - tokens) * readingPause));
+				}
+				LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(Math.max(1, wait)));
+			}
+			return null;
+		} finally {
+			waitingThread = null;
+		}
+	}
+
+	private void refill(long now) {
+		if (readingPause <= 0) {
+			tokens = burst;
+		} else {
+			tokens = Math.min(burst, tokens + (double) (now - lastRefill) / readingPause);
+		}
+		lastRefill = now;
+	}
+
+	private boolean hasJobs() {
+		for (Queue<Entry> queue : queues) {
+			if (!queue.isEmpty()) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private Entry poll() {
+		for (Queue<Entry> queue : queues) {
+			Entry entry;
+			while ((entry = queue.poll()) != null) {
+				SensorJob job = entry.job;
+				ConcurrentMap<SensorJob, Entry> jobs = pending.get(job.getDsid());
+				// skip entries whose jobs have been removed in the meantime
+				if (jobs != null && jobs.remove(job, entry)) {
+					return entry;
+				}
+			}
+		}
+		return null;
+	}
+
+	private void recordTaken(long waitTime) {
+		takenCount.incrementAndGet();
+		totalWaitTime.addAndGet(waitTime);
+		if (waitTime > maxWaitTime) {
+			maxWaitTime = waitTime;
+		}
+	}
+
+	/**
+	 * @return the number of pending jobs
+	 */
+	public int getPendingJobs() {
+		int count = 0;
+		for (ConcurrentMap<SensorJob, Entry> jobs : pending.values()) {
+			count += jobs.size();
+		}
+		return count;
+	}
+
+	/**
+	 * Returns the age of the oldest job of the given priority, which is still
+	 * pending or has been removed in the meantime.
+	 *
+	 * @param priority the priority
+	 * @return the age in milliseconds, 0 if there is no job
+	 */
+	public long getOldestJobAge(Priority priority) {
+		Entry entry = queues[priority.ordinal()].peek();
+		return entry != null ? System.currentTimeMillis() - entry.queuedAt : 0;
+	}
+
+	/**
+	 * @return the number of jobs which have been queued
+	 */
+	public long getQueuedCount() {
+		return queuedCount.get();
+	}
+
+	/**
+	 * @return the number of jobs which have replaced a pending job
+	 */
+	public long getReplacedCount() {
+		return replacedCount.get();
+	}
+
+	/**
+	 * @return the number of jobs which have been handed out for execution
+	 */
+	public long getTakenCount() {
+		return takenCount.get();
+	}
+
+	/**
+	 * @return the average time in milliseconds a job has been queued before
+	 *         its execution
+	 */
+	public long getAverageWaitTime() {
+		long taken = takenCount.get();
+		return taken > 0 ? totalWaitTime.get() / taken : 0;
+	}
+
+	/**
+	 * @return the longest time in milliseconds a job has been queued before
+	 *         its execution
+	 */
+	public long getMaxWaitTime() {
+		return maxWaitTime;
+	}
+
+	/**
+	 * @return the number of jobs handed out per minute since the scheduler
+	 *         has been created
+	 */
+	public double getThroughput() {
+		long elapsed = System.currentTimeMillis() - startTime;
+		return elapsed > 0 ? takenCount.get() * 60000.0 / elapsed : 0;
+	}
+
+	public String getStatistics() {
+		StringBuilder sb = new StringBuilder();
+		sb.append("pending=").append(getPendingJobs());
+		for (Priority priority : PRIORITIES) {
+			sb.append(", oldest ").append(priority.name().toLowerCase()).append('=')
+					.append(getOldestJobAge(priority)).append("ms");
+		}
+		sb.append(", queued=").append(getQueuedCount());
+		sb.append(", replaced=").append(getReplacedCount());
+		sb.append(", executed=").append(getTakenCount());
+		sb.append(", average wait=").append(getAverageWaitTime()).append("ms");
+		sb.append(", max wait=").append(getMaxWaitTime()).append("ms");
+		sb.append(String.format(", throughput=%.1f/min", getThroughput()));
+		return sb.toString();
+	}
+
+}
@@ -0,0 +1,247 @@
+/**
+ * Copyright (c) 2010-2014, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.homematic.internal.ccu;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.xmlrpc.XmlRpcException;
+import org.apache.xmlrpc.XmlRpcHandler;
+import org.apache.xmlrpc.XmlRpcRequest;
+import org.apache.xmlrpc.server.XmlRpcHandlerMapping;
+import org.apache.xmlrpc.server.XmlRpcNoSuchHandlerException;
+import org.apache.xmlrpc.webserver.WebServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.openhab.binding.homematic.internal.device.physical.rf.HMRFDevice;
+import org.openhab.binding.homematic.internal.xmlrpc.XmlRpcConnectionRF;
+
+/**
+ * Loads devices from a local XML-RPC stub of the CCU, which counts the HTTP
+ * requests (round trips) it receives.
+ *
+ * @author Thomas Letsch (contact@thomas-letsch.de)
+ * @since 1.5.0
+ */
+public class CCURFTest {
+
+    private static final int DEVICES = 10;
+    private static final int CHANNELS = 2;
+
+    private CCUStub stub;
+    private WebServer server;
+    private XmlRpcConnectionRF connection;
+    private CCURF ccu;
+
+    @Before
+    public void startServer() throws Exception {
+        stub = new CCUStub();
+        server = new WebServer(0);
+        server.getXmlRpcServer().setHandlerMapping(stub);
+        server.start();
+        connection = new XmlRpcConnectionRF("127.0.0.1", server.getPort());
+        ccu = new CCURF(connection);
+    }
+
+    @After
+    public void stopServer() {
+        server.shutdown();
+    }
+
+    @Test
+    public void testLoadWithMulticall() {
+        connection.setMulticallSize(100);
+        List<HMRFDevice> devices = loadAll();
+
+        assertEquals(DEVICES, devices.size());
+        assertEquals(Boolean.TRUE, devices.get(0).getChannel(1).getValues().getValue("STATE"));
+        // one multicall for the device descriptions, one for everything else
+        assertEquals(2, stub.roundTrips.get());
+    }
+
+    @Test
+    public void testLoadWithSingleCalls() {
+        connection.setMulticallSize(0);
+        List<HMRFDevice> devices = loadAll();
+
+        assertEquals(DEVICES, devices.size());
+        // device and MASTER description per device, four calls per channel
+        assertEquals(DEVICES * (2 + 4 * CHANNELS), stub.roundTrips.get());
+    }
+
+    @Test
+    public void testMulticallChunks() {
+        connection.setMulticallSize(5);
+        loadAll();
+
+        int secondPhaseCalls = DEVICES * (1 + 4 * CHANNELS);
+        assertEquals(DEVICES / 5 + (secondPhaseCalls + 4) / 5, stub.roundTrips.get());
+    }
+
+    @Test
+    public void testLoadCachedDevices() {
+        loadAll();
+        stub.roundTrips.set(0);
+
+        assertEquals(DEVICES, loadAll().size());
+        assertEquals(0, stub.roundTrips.get());
+    }
+
+    @Test
+    public void testFallbackWithoutMulticall() {
+        stub.multicall = false;
+        List<HMRFDevice> devices = loadAll();
+
+        assertEquals(DEVICES, devices.size());
+        // the failed multicall and the single calls
+        assertEquals(1 + DEVICES * (2 + 4 * CHANNELS), stub.roundTrips.get());
+    }
+
+    @Test
+    public void testMulticallAfterFailure() {
+        connection.setMulticallSize(100);
+        stub.multicallFailures.set(1);
+        List<HMRFDevice> devices = loadAll();
+
+        assertEquals(DEVICES, devices.size());
+        // the failed multicall, the device descriptions as single calls and one multicall for everything else
+        assertEquals(1 + DEVICES + 1, stub.roundTrips.get());
+    }
+
+    @Test
+    public void testUnknownDevice() {
+        ccu.loadPhysicalDevices(Arrays.asList("UNKNOWN", "DEV0"));
+
+        assertNotNull(ccu.getPhysicalDevice("DEV0"));
+        assertEquals(2, stub.roundTrips.get());
+        // the fault has been cached by the multicall
+        assertNull(ccu.getPhysicalDevice("UNKNOWN"));
+        assertEquals(2, stub.roundTrips.get());
+    }
+
+    @Test
+    public void testSetValueInvalidatesCache() {
+        connection.getParamset("DEV0:1", "VALUES");
+        connection.getParamset("DEV0:1", "VALUES");
+        assertEquals(1, stub.roundTrips.get());
+
+        connection.setValue("DEV0:1", "STATE", Boolean.FALSE);
+        assertEquals(Boolean.FALSE, connection.getParamset("DEV0:1", "VALUES").getValue("STATE"));
+        assertEquals(3, stub.roundTrips.get());
+    }
+
+    private List<HMRFDevice> loadAll() {
+        List<String> addresses = new ArrayList<String>();
+        for (int i = 0; i < DEVICES; i++) {
+            addresses.add("DEV" + i);
+        }
+        List<HMRFDevice> devices = new ArrayList<HMRFDevice>(ccu.loadPhysicalDevices(addresses));
+        for (HMRFDevice device : devices) {
+            if (device.getAddress().equals("DEV0")) {
+                devices.remove(device);
+                devices.add(0, device);
+                break;
+            }
+        }
+        return devices;
+    }
+
+    /**
+     * A CCU with {@link CCURFTest#DEVICES} devices having
+     * {@link CCURFTest#CHANNELS} channels each.
+     */
+    private static class CCUStub implements XmlRpcHandlerMapping, XmlRpcHandler {
+
+        private final AtomicInteger roundTrips = new AtomicInteger();
+        private final Map<String, Boolean> states = new HashMap<String, Boolean>();
+        private volatile boolean multicall = true;
+        private final AtomicInteger multicallFailures = new AtomicInteger();
+
+        @Override
+        public XmlRpcHandler getHandler(String handlerName) throws XmlRpcNoSuchHandlerException, XmlRpcException {
+            return this;
+        }
+
+        @Override
+        public Object execute(XmlRpcRequest request) throws XmlRpcException {
+            roundTrips.incrementAndGet();
+            Object[] params = new Object[request.getParameterCount()];
+            for (int i = 0; i < params.length; i++) {
+                params[i] = request.getParameter(i);
+            }
+            if (request.getMethodName().equals("system.multicall")) {
+                if (!multicall) {
+                    throw new XmlRpcNoSuchHandlerException("No such handler: system.multicall");
+                }
+                if (multicallFailures.getAndDecrement() > 0) {
+                    throw new XmlRpcException(-1, "Generic error");
+                }
+                return executeMulticall((Object[]) params[0]);
+            }
+            return call(request.getMethodName(), params);
+        }
+
+        private Object[] executeMulticall(Object[] calls) {
+            Object[] results = new Object[calls.length];
+            for (int i = 0; i < calls.length; i++) {
+                Map<?, ?> call = (Map<?, ?>) calls[i];
+                try {
+                    results[i] = new Object[] { call((String) call.get("methodName"), (Object[]) call.get("params")) };
+                } catch (XmlRpcException e) {
+                    Map<String, Object> fault = new HashMap<String, Object>();
+                    fault.put("faultCode", e.code);
+                    fault.put("faultString", e.getMessage());
+                    results[i] = fault;
+                }
+            }
+            return results;
+        }
+
+        private synchronized Object call(String methodName, Object[] params) throws XmlRpcException {
+            String address = (String) params[0];
+            String deviceAddress = address.split(":")[0];
+            if (!deviceAddress.matches("DEV\\d+")) {
+                throw new XmlRpcException(-2, "Unknown instance");
+            }
+            Map<String, Object> result = new HashMap<String, Object>();
+            if (methodName.equals("getDeviceDescription")) {
+                result.put("ADDRESS", address);
+                result.put("TYPE", "HM-LC-Sw2-FM");
+                if (address.equals(deviceAddress)) {
+                    Object[] children = new Object[CHANNELS];
+                    for (int i = 0; i < CHANNELS; i++) {
+                        children[i] = address + ":" + i;
+                    }
+                    result.put("CHILDREN", children);
+                } else {
+                    result.put("PARENT", deviceAddress);
+                }
+            } else if (methodName.equals("getParamset")) {
+                Boolean state = states.get(address);
+                result.put("STATE", state != null ? state : Boolean.TRUE);
+            } else if (methodName.equals("setValue")) {
+                states.put(address, (Boolean) params[2]);
+                return "";
+            } else if (!methodName.equals("getParamsetDescription")) {
+                throw new XmlRpcException(-1, "Unknown method: " + methodName);
+            }
+            return result;
+        }
+    }
+
+}
@@ -9,6 +9,8 @@
 package org.openhab.binding.homematic.test;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Set;
 
@@ -41,6 +43,10 @@ public class CCUMock implements CCU<HMPhysicalDeviceMock>, CallbackReceiver {
         return null;
     }
 
+    public Set<HMPhysicalDeviceMock> loadPhysicalDevices(Collection<String> addresses) {
+        return Collections.singleton(device);
+    }
+
     public <S extends HMPhysicalDeviceMock> Set<S> getPhysicalDevices(Class<S> clazz) {
         // TODO Auto-generated method stub
         return null;
@@ -14,6 +14,7 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Dictionary;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -75,6 +76,8 @@ public class HomematicBinding extends AbstractActiveBinding<HomematicBindingProv
     private static final Integer DEFAULT_CALLBACK_PORT = 9123;
     private static final String CONFIG_KEY_CONNECTION_REFRESH_INTERVALL = "connection.refresh.ms";
     private static final long DEFAULT_INTERVALL_5_MINUTES = TimeUnit.MINUTES.toMillis(5);
+    private static final String CONFIG_KEY_RPC_MULTICALL_SIZE = "rpc.multicall.size";
+    private static final String CONFIG_KEY_RPC_CACHE_TIME = "rpc.cache.ms";
 
     private ConverterLookup converterLookup = new ConverterLookup();
 
@@ -254,7 +257,16 @@ public class HomematicBinding extends AbstractActiveBinding<HomematicBindingProv
             checkAlifeIntervallMS = Integer.valueOf(checkAliveIntervallStr);
         }
         ccuHost = (String) config.get(CONFIG_KEY_CCU_HOST);
-        ccu = new CCURF(new XmlRpcConnectionRF(ccuHost));
+        XmlRpcConnectionRF connection = new XmlRpcConnectionRF(ccuHost);
+        String multicallSizeStr = (String) config.get(CONFIG_KEY_RPC_MULTICALL_SIZE);
+        if (StringUtils.isNotBlank(multicallSizeStr)) {
+            connection.setMulticallSize(Integer.valueOf(multicallSizeStr));
+        }
+        String cacheTimeStr = (String) config.get(CONFIG_KEY_RPC_CACHE_TIME);
+        if (StringUtils.isNotBlank(cacheTimeStr)) {
+            connection.setCacheTime(Long.valueOf(cacheTimeStr));
+        }
+        ccu = new CCURF(connection);
         converterLookupByConfiguredDevices.setCcu(ccu);
         String callbackPortStr = (String) config.get(CONFIG_KEY_CALLBACK_PORT);
         if (StringUtils.isBlank(callbackPortStr)) {
@@ -346,11 +358,39 @@ public class HomematicBinding extends AbstractActiveBinding<HomematicBindingProv
 
     private void queryAndSendAllActualStates(HomematicBindingProvider provider) {
         logger.debug("Updating item state for items {}", provider.getItemNames());
+        loadDevices(provider);
         for (String itemName : provider.getItemNames()) {
             initializeDeviceAndParameters(provider, itemName);
         }
     }
 
+    /**
+     * Loads all devices of the provider's items at once, so that the items can
+     * be initialized without querying the CCU for each of them.
+     */
+    private void loadDevices(HomematicBindingProvider provider) {
+        if (!isCCUInitialized()) {
+            return;
+        }
+        Collection<String> deviceIds = new LinkedHashSet<String>();
+        for (String itemName : provider.getItemNames()) {
+            if (!provider.isAdminItem(itemName)) {
+                HomematicParameterAddress parameterAddress = provider.getParameterAddress(itemName);
+                if (parameterAddress != null) {
+                    deviceIds.add(parameterAddress.getDeviceId());
+                }
+            }
+        }
+        if (deviceIds.isEmpty()) {
+            return;
+        }
+        try {
+            ccu.loadPhysicalDevices(deviceIds);
+        } catch (RuntimeException e) {
+            logger.warn("Could not load devices " + deviceIds + ": " + e.getMessage());
+        }
+    }
+
     private void initializeDeviceAndParameters(HomematicBindingProvider provider, String itemName) {
         if (!isCCUInitialized()) {
             return;
@@ -8,6 +8,7 @@
  */
 package org.openhab.binding.homematic.internal.ccu;
 
+import java.util.Collection;
 import java.util.Set;
 
 import org.openhab.binding.homematic.internal.device.physical.HMPhysicalDevice;
@@ -29,6 +30,17 @@ public interface CCU<T extends HMPhysicalDevice> extends CallbackReceiver {
 
     public Set<T> getPhysicalDevices();
 
+    /**
+     * Loads the physical devices with the given addresses at once. Devices
+     * which are not loaded yet are retrieved from the CCU with as few round
+     * trips as possible.
+     * 
+     * @param addresses
+     *            the addresses of the physical devices
+     * @return the loaded devices, unknown devices are skipped
+     */
+    public Set<T> loadPhysicalDevices(Collection<String> addresses);
+
     public <S extends T> Set<S> getPhysicalDevices(Class<S> clazz);
 
     public void addCCUListener(CCUListener l);
@@ -8,13 +8,18 @@
  */
 package org.openhab.binding.homematic.internal.ccu;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Set;
 
 import org.openhab.binding.homematic.internal.device.HMDeviceFactory;
 import org.openhab.binding.homematic.internal.device.channel.HMChannel;
 import org.openhab.binding.homematic.internal.device.physical.HMPhysicalDevice;
 import org.openhab.binding.homematic.internal.device.physical.rf.HMRFDevice;
+import org.openhab.binding.homematic.internal.xmlrpc.MethodCall;
 import org.openhab.binding.homematic.internal.xmlrpc.XmlRpcConnectionRF;
 import org.openhab.binding.homematic.internal.xmlrpc.callback.CallbackReceiver;
 import org.openhab.binding.homematic.internal.xmlrpc.impl.DeviceDescription;
@@ -135,6 +140,66 @@ public class CCURF extends AbstractCCU<HMRFDevice> implements CallbackReceiver {
         return dev;
     }
 
+    /**
+     * Loads the physical devices with the given addresses. Creating a device
+     * needs several XML-RPC calls for the device and each of its channels, so
+     * the descriptions and paramsets of all devices which are not cached yet
+     * are prefetched in two batches first: the device descriptions, then
+     * everything which depends on their children. The devices are created
+     * from the prefetched results afterwards.
+     */
+    @Override
+    public Set<HMRFDevice> loadPhysicalDevices(Collection<String> addresses) {
+        if (addresses == null) {
+            throw new IllegalArgumentException("addresses must not be null");
+        }
+
+        Set<String> uncached = new LinkedHashSet<String>();
+        for (String address : addresses) {
+            if (!cache.isCached(address)) {
+                uncached.add(address);
+            }
+        }
+        logger.debug("loading " + addresses.size() + " physical devices, " + uncached.size() + " not cached");
+
+        if (!uncached.isEmpty()) {
+            List<MethodCall> calls = new ArrayList<MethodCall>();
+            for (String address : uncached) {
+                calls.add(new MethodCall("getDeviceDescription", address));
+            }
+            connection.prefetch(calls);
+
+            calls.clear();
+            for (String address : uncached) {
+                DeviceDescription description;
+                try {
+                    description = connection.getDeviceDescription(address);
+                } catch (RuntimeException e) {
+                    continue;
+                }
+                calls.add(new MethodCall("getParamsetDescription", address, "MASTER"));
+                if (description.getChildren() != null) {
+                    for (String child : description.getChildren()) {
+                        calls.add(new MethodCall("getDeviceDescription", child));
+                        calls.add(new MethodCall("getParamsetDescription", child, "VALUES"));
+                        calls.add(new MethodCall("getParamset", child, "VALUES"));
+                        calls.add(new MethodCall("getParamsetDescription", child, "MASTER"));
+                    }
+                }
+            }
+            connection.prefetch(calls);
+        }
+
+        Set<HMRFDevice> devices = new HashSet<HMRFDevice>();
+        for (String address : addresses) {
+            HMRFDevice dev = getPhysicalDevice(address);
+            if (dev != null) {
+                devices.add(dev);
+            }
+        }
+        return devices;
+    }
+
     /**
      * Allows to retrieve physical devices by type. Again, the cache is
      * consulted first.
@@ -0,0 +1,84 @@
+/**
+ * Copyright (c) 2010-2014, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.homematic.internal.xmlrpc;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A single XML-RPC method call. Calls with the same method name and parameters
+ * are equal, so a MethodCall can be used as key of the result cache of the
+ * {@link XmlRpcConnection} and as one entry of a system.multicall request.
+ *
+ * @author Thomas Letsch (contact@thomas-letsch.de)
+ * @since 1.5.0
+ */
+public class MethodCall {
+
+    private final String methodName;
+    private final Object[] params;
+
+    public MethodCall(String methodName, Object... params) {
+        if (methodName == null) {
+            throw new IllegalArgumentException("methodName must not be null");
+        }
+        this.methodName = methodName;
+        this.params = params;
+    }
+
+    public String getMethodName() {
+        return methodName;
+    }
+
+    public Object[] getParams() {
+        return params;
+    }
+
+    /**
+     * Returns the address of the device or channel which is the first
+     * parameter of all address related methods.
+     */
+    public Object getAddress() {
+        return params.length > 0 ? params[0] : null;
+    }
+
+    /**
+     * Returns the struct describing this call in a system.multicall request.
+     */
+    Map<String, Object> toMulticallStruct() {
+        Map<String, Object> struct = new HashMap<String, Object>();
+        struct.put("methodName", methodName);
+        struct.put("params", params);
+        return struct;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * methodName.hashCode() + Arrays.hashCode(params);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof MethodCall)) {
+            return false;
+        }
+        MethodCall other = (MethodCall) obj;
+        return methodName.equals(other.methodName) && Arrays.equals(params, other.params);
+    }
+
+    @Override
+    public String toString() {
+        return methodName + Arrays.toString(params);
+    }
+
+}
@@ -8,10 +8,18 @@
  */
 package org.openhab.binding.homematic.internal.xmlrpc;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
+import org.apache.xmlrpc.XmlRpcException;
 import org.apache.xmlrpc.client.TimingOutCallback;
 import org.apache.xmlrpc.client.XmlRpcClient;
 import org.openhab.binding.homematic.internal.xmlrpc.impl.DeviceDescription;
@@ -27,6 +35,12 @@ import org.slf4j.LoggerFactory;
  * Extending classes have to provide the getXmlRpcClient() method. The returned
  * XmlRpcClient object is used by the methods below.
  * 
+ * The results of the descriptive read methods (getDeviceDescription,
+ * getParamset and getParamsetDescription) are kept in a short-lived cache.
+ * {@link #prefetch(Collection)} fills this cache for many calls at once by
+ * batching them into system.multicall requests, so that loading a lot of
+ * devices doesn't need one round trip to the CCU per call.
+ * 
  * @author Mathias Ewald
  * @since 1.2.0
  */
@@ -34,6 +48,21 @@ public abstract class XmlRpcConnection {
 
     private final Logger log = LoggerFactory.getLogger(getClass());
 
+    public static final int DEFAULT_MULTICALL_SIZE = 50;
+    public static final long DEFAULT_CACHE_TIME_MS = 5000;
+
+    /** fault code for unknown methods of the XML-RPC fault code interoperability specification */
+    private static final int METHOD_NOT_FOUND = -32601;
+
+    /** fault code for unknown methods of the xmlrpc-c library */
+    private static final int XMLRPC_C_METHOD_NOT_FOUND = -506;
+
+    private int multicallSize = DEFAULT_MULTICALL_SIZE;
+    private long cacheTimeMS = DEFAULT_CACHE_TIME_MS;
+    private volatile boolean multicallSupported = true;
+
+    private final Map<MethodCall, CachedResult> resultCache = new ConcurrentHashMap<MethodCall, CachedResult>();
+
     protected abstract XmlRpcClient getXmlRpcClient();
 
     public abstract String getAddress();
@@ -59,7 +88,7 @@ public abstract class XmlRpcConnection {
         log.debug("called getDeviceDescription: " + address);
 
         Object[] params = { address };
-        Object result = executeRPC("getDeviceDescription", params);
+        Object result = executeCachedRPC("getDeviceDescription", params);
 
         return new DeviceDescription((Map<String, Object>) result);
     }
@@ -81,8 +110,9 @@ public abstract class XmlRpcConnection {
         log.info("called getParamset: {}, {}", address, paramsetType);
 
         Object[] params = { address, paramsetType };
-        Object result = executeRPC("getParamset", params);
-        return new Paramset((Map<String, Object>) result);
+        Object result = executeCachedRPC("getParamset", params);
+        // the channels modify their values, which must not change the cached result
+        return new Paramset(new HashMap<String, Object>((Map<String, Object>) result));
     }
 
     @SuppressWarnings("unchecked")
@@ -97,7 +127,7 @@ public abstract class XmlRpcConnection {
         log.debug("called getParamsetDescription: {}, {}", address, paramsetType);
 
         Object[] params = { address, paramsetType };
-        Object result = executeRPC("getParamsetDescription", params);
+        Object result = executeCachedRPC("getParamsetDescription", params);
         return new ParamsetDescription((Map<String, Object>) result);
     }
 
@@ -206,6 +236,7 @@ public abstract class XmlRpcConnection {
 
         log.debug("called putParamset: " + address + ", " + paramsetType + ", " + paramset);
         Object[] params = { address, paramsetType, paramset.getValues() };
+        invalidate(address);
         executeRPC("putParamset", params);
     }
 
@@ -226,9 +257,167 @@ public abstract class XmlRpcConnection {
 
         log.debug("called setValue: " + address + ", " + valueKey + ", " + value);
         Object[] params = { address, valueKey, value };
+        invalidate(address);
         executeRPC("setValue", params);
     }
 
+    /**
+     * Sets the maximum number of calls which are sent in one system.multicall
+     * request. A value below 2 disables multicalls.
+     */
+    public void setMulticallSize(int multicallSize) {
+        this.multicallSize = multicallSize;
+    }
+
+    /**
+     * Sets the time in milliseconds the results of descriptive read methods
+     * are cached. A value of 0 disables the cache.
+     */
+    public void setCacheTime(long cacheTimeMS) {
+        this.cacheTimeMS = cacheTimeMS;
+        if (cacheTimeMS <= 0) {
+            resultCache.clear();
+        }
+    }
+
+    /**
+     * Removes all cached results.
+     */
+    public void clearCache() {
+        resultCache.clear();
+    }
+
+    /**
+     * Executes the given calls in as few system.multicall requests as possible
+     * and caches their results, so that the following calls of the
+     * corresponding read methods are served without a round trip to the CCU.
+     * Calls whose results are still cached are skipped, duplicates are
+     * executed once. Faults of single calls are cached as well, so they are
+     * reported by the read methods as if the call was executed by them. If a
+     * multicall fails, the rest is not prefetched and the read methods fall
+     * back to single calls. Multicalls are only given up for good if the CCU
+     * doesn't know system.multicall.
+     * 
+     * @param calls
+     *            the calls to prefetch
+     * @return the number of round trips to the CCU
+     */
+    public int prefetch(Collection<MethodCall> calls) {
+        if (cacheTimeMS <= 0 || multicallSize < 2 || !multicallSupported) {
+            return 0;
+        }
+        List<MethodCall> pending = new ArrayList<MethodCall>();
+        for (MethodCall call : new LinkedHashSet<MethodCall>(calls)) {
+            if (getCachedResult(call) == null) {
+                pending.add(call);
+            }
+        }
+        int roundTrips = 0;
+        for (int start = 0; start < pending.size(); start += multicallSize) {
+            List<MethodCall> chunk = pending.subList(start, Math.min(start + multicallSize, pending.size()));
+            roundTrips++;
+            if (!executeMulticall(chunk)) {
+                break;
+            }
+        }
+        log.debug("prefetched {} calls with {} round trips", pending.size(), roundTrips);
+        return roundTrips;
+    }
+
+    /**
+     * @return false if the multicall failed
+     */
+    private boolean executeMulticall(List<MethodCall> calls) {
+        Object[] structs = new Object[calls.size()];
+        for (int i = 0; i < structs.length; i++) {
+            structs[i] = calls.get(i).toMulticallStruct();
+        }
+        Object[] results;
+        try {
+            Object[] params = { structs };
+            results = (Object[]) executeRPC("system.multicall", params);
+        } catch (RuntimeException e) {
+            if (isMethodNotFound(e)) {
+                log.info("CCU does not support system.multicall, using single calls: " + e.getMessage());
+                multicallSupported = false;
+            } else {
+                log.warn("system.multicall failed, falling back to single calls: " + e.getMessage());
+            }
+            return false;
+        }
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < calls.size() && i < results.length; i++) {
+            Object result = results[i];
+            if (result instanceof Object[] && ((Object[]) result).length == 1) {
+                resultCache.put(calls.get(i), new CachedResult(((Object[]) result)[0], null, now));
+            } else if (result instanceof Map) {
+                Map<?, ?> fault = (Map<?, ?>) result;
+                String faultString = fault.get("faultCode") + ": " + fault.get("faultString");
+                log.debug("multicall of {} failed with {}", calls.get(i), faultString);
+                resultCache.put(calls.get(i), new CachedResult(null, faultString, now));
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Checks whether the CCU answered with a fault because it doesn't know
+     * the called method, as opposed to a timeout or a failed connection.
+     */
+    private static boolean isMethodNotFound(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof XmlRpcException) {
+                XmlRpcException fault = (XmlRpcException) cause;
+                String message = fault.getMessage() != null ? fault.getMessage().toLowerCase() : "";
+                return fault.code == METHOD_NOT_FOUND || fault.code == XMLRPC_C_METHOD_NOT_FOUND
+                        || message.contains("unknown method") || message.contains("method not found")
+                        || message.contains("no such handler");
+            }
+            if (cause.getCause() == cause) {
+                break;
+            }
+        }
+        return false;
+    }
+
+    protected Object executeCachedRPC(String methodName, Object[] params) {
+        if (cacheTimeMS <= 0) {
+            return executeRPC(methodName, params);
+        }
+        MethodCall call = new MethodCall(methodName, params);
+        CachedResult cached = getCachedResult(call);
+        if (cached != null) {
+            if (cached.fault != null) {
+                throw new HomematicBindingException(cached.fault);
+            }
+            return cached.value;
+        }
+        Object result = executeRPC(methodName, params);
+        resultCache.put(call, new CachedResult(result, null, System.currentTimeMillis()));
+        return result;
+    }
+
+    private CachedResult getCachedResult(MethodCall call) {
+        CachedResult cached = resultCache.get(call);
+        if (cached != null && System.currentTimeMillis() - cached.time > cacheTimeMS) {
+            resultCache.remove(call);
+            return null;
+        }
+        return cached;
+    }
+
+    /**
+     * Removes the cached results of the given device or channel address, which
+     * are outdated after a value has been written to it.
+     */
+    private void invalidate(String address) {
+        for (Iterator<MethodCall> iterator = resultCache.keySet().iterator(); iterator.hasNext();) {
+            if (address.equals(iterator.next().getAddress())) {
+                iterator.remove();
+            }
+        }
+    }
+
     protected Object executeRPC(String methodName, Object[] params) {
         try {
             TimingOutCallback callback = new TimingOutCallback(5 * 1000);
@@ -241,4 +430,16 @@ public abstract class XmlRpcConnection {
             throw new HomematicBindingException("Throwable catched");
         }
     }
+
+    private static class CachedResult {
+        private final Object value;
+        private final String fault;
+        private final long time;
+
+        public CachedResult(Object value, String fault, long time) {
+            this.value = value;
+            this.fault = fault;
+            this.time = time;
+        }
+    }
 }
\ No newline at end of file
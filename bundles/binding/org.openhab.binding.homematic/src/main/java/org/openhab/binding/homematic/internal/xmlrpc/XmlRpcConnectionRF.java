@@ -18,7 +18,7 @@ import org.slf4j.LoggerFactory;
 
 /**
  * This class adds RF specific methods of the CCU interface. It connects to port
- * 2001 of the given address.
+ * 2001 of the given address by default.
  * 
  * @see XmlRpcConnection
  * 
@@ -29,19 +29,30 @@ public class XmlRpcConnectionRF extends XmlRpcConnection {
 
     private static final Logger logger = LoggerFactory.getLogger(XmlRpcConnectionRF.class);
 
+    public static final int DEFAULT_PORT = 2001;
+
     private final String address;
+    private final Integer port;
     private XmlRpcClient xmlRpcClient;
 
     public XmlRpcConnectionRF(String address) {
+        this(address, DEFAULT_PORT);
+    }
+
+    public XmlRpcConnectionRF(String address, Integer port) {
         if (address == null) {
             throw new IllegalArgumentException("address must not be null");
         }
+        if (port == null) {
+            throw new IllegalArgumentException("port must not be null");
+        }
         this.address = address;
+        this.port = port;
         URL url = null;
         try {
-            url = new URL("http://" + address + ":2001");
+            url = new URL("http://" + address + ":" + port);
         } catch (MalformedURLException e) {
-            throw new RuntimeException("Malformed homematic server url: http://" + address + ":2001", e);
+            throw new RuntimeException("Malformed homematic server url: http://" + address + ":" + port, e);
         }
 
         logger.debug("Connecting to " + url);
@@ -68,7 +79,7 @@ public class XmlRpcConnectionRF extends XmlRpcConnection {
 
     @Override
     public Integer getPort() {
-        return 2001;
+        return port;
     }
 
     public void activateLinkParamset() {
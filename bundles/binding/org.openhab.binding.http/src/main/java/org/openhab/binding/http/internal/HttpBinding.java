@@ -11,12 +11,25 @@ package org.openhab.binding.http.internal;
 import static org.apache.commons.lang.StringUtils.isNotBlank;
 import static org.openhab.binding.http.internal.HttpGenericBindingProvider.CHANGED_COMMAND_KEY;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Calendar;
+import java.util.Collections;
 import java.util.Dictionary;
 import java.util.Enumeration;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -42,6 +55,7 @@ import org.openhab.core.types.Command;
 import org.openhab.core.types.State;
 import org.openhab.core.types.Type;
 import org.openhab.core.types.TypeParser;
+import org.openhab.io.net.http.HttpHostStatistics;
 import org.openhab.io.net.http.HttpUtil;
 import org.osgi.service.cm.ConfigurationException;
 import org.osgi.service.cm.ManagedService;
@@ -68,7 +82,21 @@ public class HttpBinding extends AbstractActiveBinding<HttpBindingProvider> impl
 	/** the interval to find new refresh candidates (defaults to 1000 milliseconds)*/ 
 	private int granularity = 1000;
 	
-	private Map<String, Long> lastUpdateMap = new HashMap<String, Long>();
+	/** the maximum number of requests which are executed in parallel (defaults to 4) */
+	private int maxParallelRequests = 4;
+	
+	/** the interval in which the request statistics are logged (60000 milliseconds) */
+	private static final long STATISTICS_INTERVAL = 60000;
+	
+	private Map<String, Long> lastUpdateMap = new ConcurrentHashMap<String, Long>();
+	
+	/** the items which are currently being refreshed */
+	private Set<String> pendingItems = Collections.synchronizedSet(new HashSet<String>());
+	
+	/** executes the requests of the in-bindings, created on demand */
+	private ExecutorService executor = null;
+	
+	private long lastStatisticsLog = System.currentTimeMillis();
 	
 	/** RegEx to extract a parse a function String <code>'(.*?)\((.*)\)'</code> */
 	private static final Pattern EXTRACT_FUNCTION_PATTERN = 
@@ -78,6 +106,10 @@ public class HttpBinding extends AbstractActiveBinding<HttpBindingProvider> impl
 	private static final Pattern EXTRACT_CACHE_CONFIG_PATTERN = 
 			Pattern.compile("^(.*?)\\.(url|updateInterval)$");
 
+	/** the config keys which are not cache configurations */
+	private static final List<String> CONFIG_KEYS = 
+			Arrays.asList("timeout", "granularity", "maxParallelRequests", "maxConnectionsPerHost", "maxConnections");
+
 	/** Map table to store cache data */
 	private Map<String, CacheConfig> itemCache = new HashMap<String, CacheConfig>();
 	private Object itemCacheLock = new Object();
@@ -104,6 +136,12 @@ public class HttpBinding extends AbstractActiveBinding<HttpBindingProvider> impl
     	setProperlyConfigured(true);
     }
     
+    @Override
+    public void deactivate() {
+    	super.deactivate();
+    	shutdownExecutor();
+    }
+    
 	/**
 	 * @{inheritDoc}
 	 */
@@ -121,85 +159,159 @@ public class HttpBinding extends AbstractActiveBinding<HttpBindingProvider> impl
 	}
 	
 	/**
+	 * Collects all in-binding items which need to be refreshed and requests
+	 * their URLs in parallel. Items which share the same URL and headers are
+	 * refreshed with a single request. Items whose previous request has not
+	 * finished yet are skipped, so that a slow host only delays its own items.
+	 * 
 	 * @{inheritDoc}
 	 */
 	@Override
 	public void execute() {
 		
+		Map<String, PollRequest> requests = new LinkedHashMap<String, PollRequest>();
+		long now = System.currentTimeMillis();
+		
 		for (HttpBindingProvider provider : providers) {
 			for (String itemName : provider.getInBindingItemNames()) {
 				
+				if (pendingItems.contains(itemName)) {
+					logger.trace("item '{}' is still being refreshed", itemName);
+					continue;
+				}
+				
 				String url = provider.getUrl(itemName);
 				url = String.format(url, Calendar.getInstance().getTime());
 
 				Properties headers = provider.getHttpHeaders(itemName);
 				int refreshInterval = provider.getRefreshInterval(itemName);
-				String transformation = provider.getTransformation(itemName);
 				
 				Long lastUpdateTimeStamp = lastUpdateMap.get(itemName);
 				if (lastUpdateTimeStamp == null) {
 					lastUpdateTimeStamp = 0L;
 				}
 				
-				long age = System.currentTimeMillis() - lastUpdateTimeStamp;
+				long age = now - lastUpdateTimeStamp;
 				boolean needsUpdate = age >= refreshInterval;
 				
 				if (needsUpdate) {
 					
-					String response = null;
-					
 					// check if special URL is used and data should get from
 					// cache rather than directly from server
-					if (isCacheConfig(url)) {
+					boolean fromCache = isCacheConfig(url);
+					if (fromCache) {
 						logger.debug("item '{}' is fetched from cache", itemName);
-						response = getCacheData(url);
 					} else if (isValidUrl(url)) {
 						logger.debug("item '{}' is about to be refreshed now", itemName);
-						response = HttpUtil.executeUrl("GET", url, headers, null, null, timeout);
 					} else {
 						logger.debug("item '{}' is not a valid URL or is a cache id yet to be initialised ({})", itemName, url);
 						continue;
 					}
 					
-					if (response==null) {
-						logger.error("No response received from '{}'", url);
-					} else {
-						String transformedResponse;
-						try {
-							String[] parts = splitTransformationConfig(transformation);
-							String transformationType = parts[0];
-							String transformationFunction = parts[1];
-							
-							TransformationService transformationService = 
-								TransformationHelper.getTransformationService(HttpActivator.getContext(), transformationType);
-							if (transformationService != null) {
-								transformedResponse = transformationService.transform(transformationFunction, response);
-							} else {
-								transformedResponse = response;
-								logger.warn("couldn't transform response because transformationService of type '{}' is unavailable", transformationType);
-							}
-						}
-						catch (TransformationException te) {
-							logger.error("transformation throws exception [transformation="
-									+ transformation + ", response=" + response + "]", te);
-							
-							// in case of an error we return the response without any
-							// transformation
-							transformedResponse = response;
-						}
-						
-						logger.debug("transformed response is '{}'", transformedResponse);
-						
-						Class<? extends Item> itemType = provider.getItemType(itemName);
-						State state = createState(itemType, transformedResponse);
-						
-						if (state != null) {
-							eventPublisher.postUpdate(itemName, state);
-						}
+					String key = headers != null ? url + headers.toString() : url;
+					PollRequest request = requests.get(key);
+					if (request == null) {
+						request = new PollRequest(url, headers, fromCache);
+						requests.put(key, request);
 					}
-					
-					lastUpdateMap.put(itemName, System.currentTimeMillis());
-				}					
+					request.add(provider, itemName);
+				}
+			}
+		}
+		
+		for (PollRequest request : requests.values()) {
+			pendingItems.addAll(request.getItemNames());
+			try {
+				getExecutor().execute(request);
+			} catch (RejectedExecutionException ree) {
+				logger.debug("request for '{}' has been rejected", request.url);
+				pendingItems.removeAll(request.getItemNames());
+			}
+		}
+		
+		logStatistics(now);
+	}
+	
+	/**
+	 * Transforms the response of a request and posts it as an update for the given item.
+	 * 
+	 * @param provider the binding provider of the item
+	 * @param itemName the item to update
+	 * @param response the response of the request
+	 */
+	private void processResponse(HttpBindingProvider provider, String itemName, String response) {
+		String transformation = provider.getTransformation(itemName);
+		String transformedResponse;
+		try {
+			String[] parts = splitTransformationConfig(transformation);
+			String transformationType = parts[0];
+			String transformationFunction = parts[1];
+			
+			TransformationService transformationService = 
+				TransformationHelper.getTransformationService(HttpActivator.getContext(), transformationType);
+			if (transformationService != null) {
+				transformedResponse = transformationService.transform(transformationFunction, response);
+			} else {
+				transformedResponse = response;
+				logger.warn("couldn't transform response because transformationService of type '{}' is unavailable", transformationType);
+			}
+		}
+		catch (TransformationException te) {
+			logger.error("transformation throws exception [transformation="
+					+ transformation + ", response=" + response + "]", te);
+			
+			// in case of an error we return the response without any
+			// transformation
+			transformedResponse = response;
+		}
+		
+		logger.debug("transformed response is '{}'", transformedResponse);
+		
+		Class<? extends Item> itemType = provider.getItemType(itemName);
+		State state = createState(itemType, transformedResponse);
+		
+		if (state != null) {
+			eventPublisher.postUpdate(itemName, state);
+		}
+	}
+	
+	/**
+	 * Returns the executor for the requests and creates it, if necessary.
+	 * 
+	 * @return the executor
+	 */
+	private synchronized ExecutorService getExecutor() {
+		if (executor == null) {
+			final AtomicInteger threadNumber = new AtomicInteger(1);
+			executor = Executors.newFixedThreadPool(maxParallelRequests, new ThreadFactory() {
+				public Thread newThread(Runnable runnable) {
+					Thread thread = new Thread(runnable, "HTTP Refresh Worker " + threadNumber.getAndIncrement());
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		}
+		return executor;
+	}
+	
+	/**
+	 * Shuts down the executor, requests which are still running are finished.
+	 */
+	private synchronized void shutdownExecutor() {
+		if (executor != null) {
+			executor.shutdown();
+			executor = null;
+		}
+	}
+	
+	/**
+	 * Logs the request statistics of all hosts in a fixed interval.
+	 */
+	private void logStatistics(long now) {
+		if (logger.isDebugEnabled() && now - lastStatisticsLog >= STATISTICS_INTERVAL) {
+			lastStatisticsLog = now;
+			for (HttpHostStatistics statistics : HttpUtil.getHostStatistics().values()) {
+				logger.debug("request statistics of host {}", statistics);
 			}
 		}
 	}
@@ -393,6 +505,26 @@ public class HttpBinding extends AbstractActiveBinding<HttpBindingProvider> impl
 					granularity = Integer.parseInt(granularityString);
 				}
 				
+				String maxParallelRequestsString = (String) config.get("maxParallelRequests");
+				if (StringUtils.isNotBlank(maxParallelRequestsString)) {
+					int parallelRequests = Integer.parseInt(maxParallelRequestsString);
+					if (parallelRequests > 0 && parallelRequests != maxParallelRequests) {
+						maxParallelRequests = parallelRequests;
+						// the next refresh creates a new executor of the new size
+						shutdownExecutor();
+					}
+				}
+				
+				String maxConnectionsString = (String) config.get("maxConnectionsPerHost");
+				if (StringUtils.isNotBlank(maxConnectionsString)) {
+					HttpUtil.setMaxConnectionsPerHost(Integer.parseInt(maxConnectionsString));
+				}
+				
+				String maxTotalConnectionsString = (String) config.get("maxConnections");
+				if (StringUtils.isNotBlank(maxTotalConnectionsString)) {
+					HttpUtil.setMaxTotalConnections(Integer.parseInt(maxTotalConnectionsString));
+				}
+				
 				// Parse page cache config
 				
 				@SuppressWarnings("unchecked")
@@ -403,7 +535,7 @@ public class HttpBinding extends AbstractActiveBinding<HttpBindingProvider> impl
 	
 					// the config-key enumeration contains additional keys that we
 					// don't want to process here ...
-					if ("service.pid".equals(key)) {
+					if ("service.pid".equals(key) || CONFIG_KEYS.contains(key)) {
 						continue;
 					}
 	
@@ -445,6 +577,65 @@ public class HttpBinding extends AbstractActiveBinding<HttpBindingProvider> impl
 		}
 	}
 	
+	/**
+	 * A request for a URL and the items which are refreshed by its response.
+	 */
+	class PollRequest implements Runnable {
+		
+		final String url;
+		
+		final Properties headers;
+		
+		/** whether the url is the id of a cache item */
+		final boolean fromCache;
+		
+		final List<HttpBindingProvider> providers = new ArrayList<HttpBindingProvider>();
+		
+		final List<String> itemNames = new ArrayList<String>();
+		
+		PollRequest(String url, Properties headers, boolean fromCache) {
+			this.url = url;
+			this.headers = headers;
+			this.fromCache = fromCache;
+		}
+		
+		void add(HttpBindingProvider provider, String itemName) {
+			providers.add(provider);
+			itemNames.add(itemName);
+		}
+		
+		List<String> getItemNames() {
+			return itemNames;
+		}
+		
+		public void run() {
+			try {
+				String response;
+				if (fromCache) {
+					response = getCacheData(url);
+				} else {
+					response = HttpUtil.executeUrl("GET", url, headers, null, null, timeout);
+				}
+				
+				if (response==null) {
+					logger.error("No response received from '{}'", url);
+				} else {
+					for (int i = 0; i < itemNames.size(); i++) {
+						processResponse(providers.get(i), itemNames.get(i), response);
+					}
+				}
+			} catch (RuntimeException re) {
+				logger.error("Error while refreshing '" + url + "'", re);
+			} finally {
+				long now = System.currentTimeMillis();
+				for (String itemName : itemNames) {
+					lastUpdateMap.put(itemName, now);
+				}
+				pendingItems.removeAll(itemNames);
+			}
+		}
+	}
+	
 	/**
 	 * Internal data structure for data cache purposes
 	 * 
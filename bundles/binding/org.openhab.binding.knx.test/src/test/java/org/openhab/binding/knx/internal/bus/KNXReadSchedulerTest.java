@@ -0,0 +1,259 @@
+/**
+ * Copyright (c) 2010-2014, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.knx.internal.bus;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import tuwien.auto.calimero.GroupAddress;
+import tuwien.auto.calimero.datapoint.Datapoint;
+import tuwien.auto.calimero.datapoint.StateDP;
+import tuwien.auto.calimero.exception.KNXException;
+
+/**
+ * Tests the {@link KNXReadScheduler} against a manual clock. The read requests
+ * which are due are sent by {@link KNXReadScheduler#sendDueReads()}, so that
+ * the results don't depend on the timing of the scheduler thread.
+ *
+ * @author Kai Kreuzer
+ * @since 1.5.0
+ */
+public class KNXReadSchedulerTest {
+
+	private TestClock clock;
+
+	private TestSender sender;
+
+	private KNXReadScheduler scheduler;
+
+	@Before
+	public void init() {
+		clock = new TestClock();
+		sender = new TestSender();
+		scheduler = new KNXReadScheduler(sender, clock);
+		scheduler.setReadingPause(0);
+		scheduler.setBurst(1);
+		scheduler.setResponseTimeout(10000);
+		scheduler.setRetriesLimit(3);
+		scheduler.setMaxBusLoad(100);
+	}
+
+	@After
+	public void stop() {
+		scheduler.stop();
+	}
+
+	@Test
+	public void testInitialReads() throws Exception {
+		sender.answer = true;
+		for (int i = 0; i < 20; i++) {
+			scheduler.schedule(datapoint("item" + i, "1/1/" + i), 0);
+		}
+
+		assertEquals(20, scheduler.sendDueReads());
+		clock.advance(60000);
+		assertEquals(0, scheduler.sendDueReads());
+		assertEquals(20, sender.getSent().size());
+		assertEquals(0, scheduler.getPendingReads());
+		assertEquals(0, scheduler.getScheduledReads());
+		assertEquals(20, scheduler.getAnsweredCount());
+	}
+
+	@Test
+	public void testReadingPause() throws Exception {
+		scheduler.setReadingPause(50);
+		scheduler.setBurst(2);
+		sender.answer = true;
+		for (int i = 0; i < 6; i++) {
+			scheduler.schedule(datapoint("item" + i, "1/1/" + i), 0);
+		}
+
+		// the burst is sent at once, the remaining 4 read requests with a pause of 50ms
+		assertEquals(2, scheduler.sendDueReads());
+		for (int i = 0; i < 4; i++) {
+			clock.advance(49);
+			assertEquals(0, scheduler.sendDueReads());
+			clock.advance(1);
+			assertEquals(1, scheduler.sendDueReads());
+		}
+		assertEquals(6, sender.getSent().size());
+		assertEquals(0, scheduler.getScheduledReads());
+	}
+
+	@Test
+	public void testCoalescing() throws Exception {
+		scheduler.schedule(datapoint("item1", "1/1/1"), 0);
+		scheduler.schedule(datapoint("item2", "1/1/1"), 0);
+
+		assertEquals(1, scheduler.sendDueReads());
+		assertEquals(2, scheduler.getPendingReads());
+		assertEquals(1, scheduler.getCoalescedCount());
+
+		scheduler.telegramReceived(new GroupAddress("1/1/1"), 1);
+		assertEquals(0, scheduler.getPendingReads());
+		assertEquals(2, scheduler.getAnsweredCount());
+	}
+
+	@Test
+	public void testRetries() throws Exception {
+		scheduler.setResponseTimeout(20);
+		scheduler.setRetriesLimit(2);
+		scheduler.schedule(datapoint("item1", "1/1/1"), 0);
+
+		assertEquals(1, scheduler.sendDueReads());
+		clock.advance(19);
+		assertEquals(0, scheduler.sendDueReads());
+		for (int i = 0; i < 2; i++) {
+			clock.advance(i == 0 ? 1 : 20);
+			assertEquals(1, scheduler.sendDueReads());
+		}
+		clock.advance(20);
+		assertEquals(0, scheduler.sendDueReads());
+		assertEquals(3, sender.getSent().size());
+		assertEquals(3, scheduler.getTimeoutCount());
+		assertEquals(0, scheduler.getPendingReads());
+		assertEquals(0, scheduler.getScheduledReads());
+	}
+
+	@Test
+	public void testFailedSend() throws Exception {
+		sender.fail = true;
+		scheduler.setRetriesLimit(1);
+		scheduler.schedule(datapoint("item1", "1/1/1"), 0);
+
+		assertEquals(2, scheduler.sendDueReads());
+		assertEquals(2, sender.getSent().size());
+		assertEquals(0, scheduler.getPendingReads());
+		assertEquals(0, scheduler.getScheduledReads());
+	}
+
+	@Test
+	public void testRefreshBeforeInitialReads() throws Exception {
+		scheduler.setReadingPause(100);
+		sender.answer = true;
+		scheduler.schedule(datapoint("refresh", "1/1/1"), 1);
+		assertEquals(1, scheduler.sendDueReads());
+
+		for (int i = 0; i < 20; i++) {
+			scheduler.schedule(datapoint("item" + i, "1/2/" + i), 0);
+		}
+		for (int i = 0; i < 12; i++) {
+			clock.advance(100);
+			assertEquals(1, scheduler.sendDueReads());
+		}
+
+		// the refresh is due after 1s, when 9 initial reads have been sent, and is sent before the others
+		List<Datapoint> sent = sender.getSent();
+		assertEquals(13, sent.size());
+		for (int i = 0; i < sent.size(); i++) {
+			boolean refresh = sent.get(i).getName().equals("refresh");
+			assertEquals("read request " + i, i == 0 || i == 10, refresh);
+		}
+	}
+
+	@Test
+	public void testCancel() throws Exception {
+		sender.answer = true;
+		scheduler.schedule(datapoint("item1", "1/1/1"), 0);
+		scheduler.schedule(datapoint("item2", "1/1/2"), 60);
+		scheduler.cancel("item2");
+
+		assertEquals(1, scheduler.sendDueReads());
+		clock.advance(120000);
+		assertEquals(0, scheduler.sendDueReads());
+		assertEquals("item1", sender.getSent().get(0).getName());
+	}
+
+	@Test
+	public void testBusLoad() throws Exception {
+		scheduler.setMaxBusLoad(1);
+		// about 40ms of bus time within the current second
+		for (int i = 0; i < 2; i++) {
+			scheduler.telegramReceived(new GroupAddress("1/1/1"), 1);
+		}
+		scheduler.schedule(datapoint("item1", "1/1/1"), 0);
+
+		assertEquals(0, scheduler.sendDueReads());
+		clock.advance(999);
+		assertEquals(0, scheduler.sendDueReads());
+		clock.advance(1);
+		assertEquals(1, scheduler.sendDueReads());
+		assertTrue(scheduler.getBusLoad() > 0);
+	}
+
+	@Test
+	public void testSchedulerThread() throws Exception {
+		scheduler = new KNXReadScheduler(sender);
+		scheduler.setReadingPause(0);
+		sender.answer = true;
+		for (int i = 0; i < 5; i++) {
+			scheduler.schedule(datapoint("item" + i, "1/1/" + i), 0);
+		}
+		scheduler.start();
+
+		long deadline = System.currentTimeMillis() + 5000;
+		while (scheduler.getAnsweredCount() < 5 && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+		assertEquals(5, scheduler.getAnsweredCount());
+		assertEquals(5, sender.getSent().size());
+	}
+
+	private static Datapoint datapoint(String itemName, String groupAddress) throws Exception {
+		return new StateDP(new GroupAddress(groupAddress), itemName, 0, "1.001");
+	}
+
+	private static class TestClock implements KNXReadScheduler.Clock {
+
+		private volatile long time = 1000000;
+
+		public long currentTimeMillis() {
+			return time;
+		}
+
+		void advance(long millis) {
+			time += millis;
+		}
+	}
+
+	private class TestSender implements KNXReadScheduler.Sender {
+
+		private final List<Datapoint> sent = new ArrayList<Datapoint>();
+
+		/** whether the bus answers read requests immediately */
+		volatile boolean answer = false;
+
+		/** whether sending fails */
+		volatile boolean fail = false;
+
+		public void sendReadRequest(Datapoint datapoint) throws KNXException {
+			synchronized (this) {
+				sent.add(datapoint);
+			}
+			if (fail) {
+				throw new KNXException("test");
+			}
+			if (answer) {
+				scheduler.telegramReceived(datapoint.getMainAddress(), 1);
+			}
+		}
+
+		synchronized List<Datapoint> getSent() {
+			return new ArrayList<Datapoint>(sent);
+		}
+	}
+
+}
@@ -144,6 +144,45 @@ public class KNXGenericBindingProviderTest {
 		assertEquals(0, readableDatapoints.next().getMainAddress().getMainGroup());
 	}
 
+	@Test
+	public void testAutoRefreshTime() throws BindingConfigParseException, KNXFormatException {
+		
+		provider.processBindingConfiguration("text", item1, "<(300)1/1/10, 2/1/5+<(60)0/4/5");
+		provider.processBindingConfiguration("text", item2, "<1/1/11");
+
+		// method under Test
+		for (Datapoint datapoint : provider.getReadableDatapoints()) {
+			if (datapoint.getMainAddress().equals(new GroupAddress("1/1/10"))) {
+				assertEquals(300, provider.getAutoRefreshTime(datapoint));
+			} else if (datapoint.getMainAddress().equals(new GroupAddress("0/4/5"))) {
+				assertEquals(60, provider.getAutoRefreshTime(datapoint));
+			} else {
+				assertEquals(0, provider.getAutoRefreshTime(datapoint));
+			}
+		}
+	}
+
+	@Test(expected=BindingConfigParseException.class)
+	public void testInvalidAutoRefreshTime() throws BindingConfigParseException {
+		provider.processBindingConfiguration("text", item1, "<(abc)1/1/10");
+	}
+
+	@Test
+	public void testGetGroupAddresses() throws BindingConfigParseException, KNXFormatException {
+		
+		provider.processBindingConfiguration("text", item1, "<4/2/10+0/2/10, 5.005:4/2/11+0/2/10");
+
+		// method under Test
+		List<GroupAddress> groupAddresses = new ArrayList<GroupAddress>();
+		for (GroupAddress groupAddress : provider.getGroupAddresses(item1.getName())) {
+			groupAddresses.add(groupAddress);
+		}
+		assertEquals(3, groupAddresses.size());
+		assertTrue(groupAddresses.contains(new GroupAddress("4/2/10")));
+		assertTrue(groupAddresses.contains(new GroupAddress("4/2/11")));
+		assertTrue(groupAddresses.contains(new GroupAddress("0/2/10")));
+	}
+
 	@Test
 	public void testAutoUpdate() throws BindingConfigParseException, KNXFormatException {
 		
@@ -0,0 +1,405 @@
+/**
+ * Copyright (c) 2010-2014, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.knx.internal.dpt;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.math.BigDecimal;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+import org.openhab.core.library.types.DateTimeType;
+import org.openhab.core.library.types.DecimalType;
+import org.openhab.core.library.types.IncreaseDecreaseType;
+import org.openhab.core.library.types.OnOffType;
+import org.openhab.core.library.types.OpenClosedType;
+import org.openhab.core.library.types.PercentType;
+import org.openhab.core.library.types.StopMoveType;
+import org.openhab.core.library.types.StringType;
+import org.openhab.core.library.types.UpDownType;
+import org.openhab.core.types.Type;
+
+import tuwien.auto.calimero.dptxlator.DPTXlator;
+import tuwien.auto.calimero.dptxlator.TranslatorTypes;
+import tuwien.auto.calimero.exception.KNXFormatException;
+
+/**
+ * Checks every supported datapoint type of the {@link KNXDptCodec} against
+ * the Calimero translators: decoding must give the same openHAB types as
+ * parsing the value string of the translator did before, and encoding must
+ * give the same data as the translator produces for the value string of
+ * {@link KNXCoreTypeMapper#toDPTValue(Type, String)}.
+ *
+ * @author Kai Kreuzer
+ * @since 1.5.0
+ */
+public class KNXDptCodecTest {
+
+	private final KNXCoreTypeMapper typeMapper = new KNXCoreTypeMapper();
+
+	@Test
+	public void testBoolean() throws Exception {
+		String[] dpts = { "1.001", "1.007", "1.008", "1.010", "1.019" };
+		for (String dpt : dpts) {
+			for (int i = 0; i < 256; i++) {
+				byte[] data = { (byte) i };
+				Type type = assertDecodesLikeCalimero(dpt, data);
+				assertArrayEquals(new byte[] { (byte) (i & 0x01) }, KNXDptCodec.encode(type, dpt));
+				assertEncodesLikeCalimero(type, dpt);
+			}
+		}
+		assertNull(KNXDptCodec.encode(OnOffType.ON, "1.008"));
+		assertNull(KNXDptCodec.encode(new DecimalType(1), "1.001"));
+	}
+
+	@Test
+	public void testControlDimming() throws Exception {
+		for (int i = 0; i < 16; i++) {
+			byte[] data = { (byte) i };
+			Type type = assertDecodesLikeCalimero("3.007", data);
+			assertEquals(type, KNXDptCodec.decode("3.007", KNXDptCodec.encode(type, "3.007")));
+			assertEncodesLikeCalimero(type, "3.007");
+		}
+	}
+
+	@Test
+	public void test8BitUnsigned() throws Exception {
+		for (String dpt : new String[] { "5.001", "5.004", "5.005", "5.010" }) {
+			for (int i = 0; i < 256; i++) {
+				assertDecodesLikeCalimero(dpt, new byte[] { (byte) i });
+			}
+		}
+		for (int i = 0; i < 256; i++) {
+			byte[] data = { (byte) i };
+			assertArrayEquals(data, KNXDptCodec.encode(KNXDptCodec.decode("5.005", data), "5.005"));
+			assertArrayEquals(data, KNXDptCodec.encode(KNXDptCodec.decode("5.010", data), "5.010"));
+		}
+		for (int percent = 0; percent <= 100; percent++) {
+			PercentType type = new PercentType(percent);
+			// the scaled value keeps the percent value, the 8-bit percent value is truncated
+			assertEquals(type, KNXDptCodec.decode("5.001", KNXDptCodec.encode(type, "5.001")));
+			assertTrue(percent - ((DecimalType) KNXDptCodec.decode("5.004", KNXDptCodec.encode(type, "5.004")))
+					.intValue() <= 1);
+			assertEncodesLikeCalimero(type, "5.001");
+			assertEncodesLikeCalimero(type, "5.004");
+		}
+	}
+
+	@Test
+	public void test2ByteUnsigned() throws Exception {
+		for (String dpt : new String[] { "7.007", "7.012", "7.013" }) {
+			for (int i = 0; i < 0x10000; i++) {
+				byte[] data = { (byte) (i >> 8), (byte) i };
+				Type type = assertDecodesLikeCalimero(dpt, data);
+				assertArrayEquals(data, KNXDptCodec.encode(type, dpt));
+			}
+		}
+	}
+
+	@Test
+	public void test2ByteFloat() throws Exception {
+		for (String dpt : new String[] { "9.001", "9.004", "9.007", "9.020" }) {
+			for (int i = 0; i < 0x10000; i++) {
+				byte[] data = { (byte) (i >> 8), (byte) i };
+				Type type = assertDecodesLikeCalimero(dpt, data);
+				// the same value can be encoded with different exponents, so only
+				// the value has to survive the round trip
+				assertEquals(type, KNXDptCodec.decode(dpt, KNXDptCodec.encode(type, dpt)));
+				assertEncodesLikeCalimero(type, dpt);
+			}
+		}
+	}
+
+	@Test
+	public void test4Byte() throws Exception {
+		List<byte[]> samples = createSamples(4);
+		for (String dpt : new String[] { "12.001", "13.001", "13.010", "13.011", "13.013", "13.014" }) {
+			for (byte[] data : samples) {
+				Type type = assertDecodesLikeCalimero(dpt, data);
+				assertArrayEquals(data, KNXDptCodec.encode(type, dpt));
+				assertEncodesLikeCalimero(type, dpt);
+			}
+		}
+	}
+
+	@Test
+	public void test4ByteFloat() throws Exception {
+		for (String dpt : new String[] { "14.001", "14.019", "14.027", "14.033", "14.056" }) {
+			for (byte[] data : createSamples(4)) {
+				float value = Float.intBitsToFloat(((data[0] & 0xff) << 24) | ((data[1] & 0xff) << 16)
+						| ((data[2] & 0xff) << 8) | (data[3] & 0xff));
+				DecimalType type = (DecimalType) KNXDptCodec.decode(dpt, data);
+				if (Float.isNaN(value) || Float.isInfinite(value)) {
+					assertNull(type);
+					continue;
+				}
+				// Calimero formats the value with fewer digits, so the codec is more exact
+				float expected = Float.parseFloat(getCalimeroValue(dpt, data).split(" ")[0]);
+				assertEquals(expected, type.floatValue(), Math.abs(expected) * 1e-5f);
+				assertEquals(value, type.floatValue(), 0f);
+
+				byte[] encoded = KNXDptCodec.encode(type, dpt);
+				assertEquals(value, Float.intBitsToFloat(((encoded[0] & 0xff) << 24) | ((encoded[1] & 0xff) << 16)
+						| ((encoded[2] & 0xff) << 8) | (encoded[3] & 0xff)), 0f);
+			}
+		}
+	}
+
+	@Test
+	public void testString() throws Exception {
+		String[] values = { "", "a", "Hello KNX", "14 characters", "äöüß°C" };
+		for (String value : values) {
+			StringType type = new StringType(value);
+			byte[] data = KNXDptCodec.encode(type, "16.001");
+			assertEquals(14, data.length);
+			assertEquals(type, assertDecodesLikeCalimero("16.001", data));
+			assertEncodesLikeCalimero(type, "16.001");
+		}
+		try {
+			KNXDptCodec.encode(new StringType("more than 14 characters"), "16.001");
+			fail("IllegalArgumentException expected");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+
+	@Test
+	public void testSceneNumber() throws Exception {
+		for (int i = 0; i < 256; i++) {
+			byte[] data = { (byte) i };
+			Type type = assertDecodesLikeCalimero("17.001", data);
+			assertArrayEquals(new byte[] { (byte) (i & 0x3f) }, KNXDptCodec.encode(type, "17.001"));
+		}
+	}
+
+	@Test
+	public void testDate() throws Exception {
+		SimpleDateFormat formatter = new SimpleDateFormat("yyyy-MM-dd");
+		int dates = 0;
+		for (int year = 0; year < 100; year++) {
+			for (int month = 1; month <= 12; month++) {
+				for (int day = 1; day <= 31; day++) {
+					byte[] data = { (byte) day, (byte) month, (byte) year };
+					String value = getCalimeroValue("11.001", data);
+					DateTimeType type = (DateTimeType) KNXDptCodec.decode("11.001", data);
+					assertEquals(value, formatter.parse(value).getTime(), type.getCalendar().getTimeInMillis());
+					if (type.getCalendar().get(Calendar.DAY_OF_MONTH) != day) {
+						// invalid dates like February 30th are rolled over to the next month
+						continue;
+					}
+					assertArrayEquals(data, KNXDptCodec.encode(type, "11.001"));
+					assertEncodesLikeCalimero(type, "11.001");
+					dates++;
+				}
+			}
+		}
+		assertEquals(36525, dates);
+	}
+
+	@Test
+	public void testTimeOfDay() throws Exception {
+		SimpleDateFormat formatter = new SimpleDateFormat("EEE, HH:mm:ss", Locale.US);
+		for (int day = 0; day < 8; day++) {
+			for (int hour = 0; hour < 24; hour++) {
+				for (int minute = 0; minute < 60; minute++) {
+					for (int second : new int[] { 0, 1, 31, 59 }) {
+						byte[] data = { (byte) (day << 5 | hour), (byte) minute, (byte) second };
+						DateTimeType type = (DateTimeType) KNXDptCodec.decode("10.001", data);
+						Calendar calendar = type.getCalendar();
+						assertEquals(hour, calendar.get(Calendar.HOUR_OF_DAY));
+						assertEquals(minute, calendar.get(Calendar.MINUTE));
+						assertEquals(second, calendar.get(Calendar.SECOND));
+						if (day == 0) {
+							// Calimero does not give a parsable value without a day
+							assertEquals(1, calendar.get(Calendar.DAY_OF_MONTH));
+							continue;
+						}
+
+						String value = getCalimeroValue("10.001", data);
+						assertEquals(value, formatter.parse(value).getTime(), calendar.getTimeInMillis());
+						assertArrayEquals(data, KNXDptCodec.encode(type, "10.001"));
+						assertEncodesLikeCalimero(type, "10.001");
+					}
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testDateTimeIsThreadSafe() throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		try {
+			List<Future<Boolean>> results = new ArrayList<Future<Boolean>>();
+			for (int i = 0; i < 8; i++) {
+				final int hour = i;
+				results.add(executor.submit(new Callable<Boolean>() {
+					public Boolean call() throws Exception {
+						byte[] time = { (byte) (1 << 5 | hour), 30, 15 };
+						byte[] date = { (byte) (hour + 1), 2, 14 };
+						for (int j = 0; j < 10000; j++) {
+							Calendar calendar = ((DateTimeType) KNXDptCodec.decode("10.001", time)).getCalendar();
+							if (calendar.get(Calendar.HOUR_OF_DAY) != hour || calendar.get(Calendar.DAY_OF_MONTH) != 5) {
+								return false;
+							}
+							calendar = ((DateTimeType) KNXDptCodec.decode("11.001", date)).getCalendar();
+							if (calendar.get(Calendar.DAY_OF_MONTH) != hour + 1 || calendar.get(Calendar.YEAR) != 2014) {
+								return false;
+							}
+						}
+						return true;
+					}
+				}));
+			}
+			for (Future<Boolean> result : results) {
+				assertTrue(result.get());
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void testCompactLikeCalimero() throws Exception {
+		String[] dpts = { "1.001", "1.007", "1.008", "1.010", "1.019", "3.007", "5.001", "5.004", "5.005", "5.010",
+				"7.007", "9.001", "10.001", "11.001", "12.001", "13.001", "14.019", "16.001", "17.001" };
+		for (String dpt : dpts) {
+			// Calimero sends the data within the APCI for translators without a type size
+			DPTXlator translator = TranslatorTypes.createTranslator(0, dpt);
+			assertEquals(dpt, translator.getTypeSize() == 0, KNXDptCodec.isCompact(dpt));
+		}
+		assertFalse(KNXDptCodec.isCompact("20.102"));
+	}
+
+	@Test
+	public void testUnsupported() {
+		assertFalse(KNXDptCodec.isSupported("2.001"));
+		assertFalse(KNXDptCodec.isSupported("x.001"));
+		assertFalse(KNXDptCodec.isSupported(null));
+		assertTrue(KNXDptCodec.isSupported("9.021"));
+		assertNull(KNXDptCodec.decode("2.001", new byte[] { 1 }));
+		assertNull(KNXDptCodec.encode(OnOffType.ON, "2.001"));
+		// data too short
+		assertNull(KNXDptCodec.decode("9.001", new byte[] { 1 }));
+		assertNull(KNXDptCodec.decode("12.001", new byte[] { 1, 2, 3 }));
+		// values out of range
+		assertNull(KNXDptCodec.decode("11.001", new byte[] { 0, 1, 14 }));
+		assertNull(KNXDptCodec.decode("10.001", new byte[] { 24, 0, 0 }));
+		try {
+			KNXDptCodec.encode(new DecimalType(256), "5.010");
+			fail("IllegalArgumentException expected");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+
+	/**
+	 * Decodes the data with the codec and compares the result with the type
+	 * the Calimero value string was parsed to by the type mapper.
+	 */
+	private Type assertDecodesLikeCalimero(String dpt, byte[] data) throws Exception {
+		Type type = KNXDptCodec.decode(dpt, data);
+		String value = getCalimeroValue(dpt, data);
+		Type expected = parseCalimeroValue(dpt, value);
+		assertEquals(dpt + " " + value, expected, type);
+		// also check the representation, as the value is shown on the UI
+		assertEquals(dpt + " " + value, expected.toString(), type.toString());
+		return type;
+	}
+
+	/**
+	 * Encodes the type with the codec and compares the result with the data
+	 * Calimero creates for the value string of the type mapper. Values which
+	 * Calimero rejects (like 1.007 "increase 5" or temperatures below the
+	 * absolute zero for 9.001) are not compared.
+	 */
+	private void assertEncodesLikeCalimero(Type type, String dpt) throws Exception {
+		String value = typeMapper.toDPTValue(type, dpt);
+		DPTXlator translator = TranslatorTypes.createTranslator(0, dpt);
+		try {
+			translator.setValue(value);
+		} catch (KNXFormatException e) {
+			return;
+		}
+		assertArrayEquals(dpt + " " + value, translator.getData(), KNXDptCodec.encode(type, dpt));
+	}
+
+	private String getCalimeroValue(String dpt, byte[] data) throws Exception {
+		DPTXlator translator = TranslatorTypes.createTranslator(0, dpt);
+		translator.setData(data);
+		return translator.getValue();
+	}
+
+	/**
+	 * Parses a value string of a Calimero translator the same way the type
+	 * mapper did before the codec existed.
+	 */
+	private Type parseCalimeroValue(String dpt, String value) {
+		String number = value.split(" ")[0];
+		if (dpt.startsWith("9.")) {
+			return DecimalType.valueOf(number);
+		}
+		Class<? extends Type> typeClass = KNXCoreTypeMapper.toTypeClass(dpt);
+		if (typeClass.equals(UpDownType.class)) return UpDownType.valueOf(value.toUpperCase());
+		if (typeClass.equals(IncreaseDecreaseType.class)) return IncreaseDecreaseType.valueOf(number.toUpperCase());
+		if (typeClass.equals(OnOffType.class)) return OnOffType.valueOf(value.toUpperCase());
+		if (typeClass.equals(PercentType.class)) {
+			if (dpt.equals("5.004")) {
+				return new PercentType(Integer.parseInt(number) * 100 / 255);
+			}
+			return PercentType.valueOf(number);
+		}
+		if (typeClass.equals(DecimalType.class)) return new DecimalType(new BigDecimal(number));
+		if (typeClass.equals(StringType.class)) return StringType.valueOf(value);
+		if (typeClass.equals(OpenClosedType.class)) return OpenClosedType.valueOf(value.toUpperCase());
+		if (typeClass.equals(StopMoveType.class)) return value.equals("start") ? StopMoveType.MOVE : StopMoveType.STOP;
+		throw new IllegalArgumentException(dpt);
+	}
+
+	/**
+	 * @return the edge values and random values of the given size
+	 */
+	private List<byte[]> createSamples(int size) {
+		List<byte[]> samples = new ArrayList<byte[]>();
+		for (int b : new int[] { 0x00, 0x01, 0x7f, 0x80, 0xfe, 0xff }) {
+			byte[] data = new byte[size];
+			for (int i = 0; i < size; i++) {
+				data[i] = (byte) b;
+			}
+			samples.add(data);
+			data = new byte[size];
+			data[0] = (byte) b;
+			samples.add(data);
+			data = new byte[size];
+			data[size - 1] = (byte) b;
+			samples.add(data);
+		}
+		Random random = new Random(0);
+		for (int i = 0; i < 100000; i++) {
+			byte[] data = new byte[size];
+			random.nextBytes(data);
+			samples.add(data);
+		}
+		return samples;
+	}
+
+}
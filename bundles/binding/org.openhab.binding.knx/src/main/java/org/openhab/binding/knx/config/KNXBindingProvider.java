@@ -54,6 +54,15 @@ public interface KNXBindingProvider extends BindingProvider {
 	 */
 	public Iterable<String> getListeningItemNames(GroupAddress groupAddress);
 	
+	/**
+	 * This method returns all group addresses an item is bound to, i.e. the main group addresses
+	 * as well as the listening group addresses of all its datapoints.
+	 * 
+	 * @param itemName the item name for which the group addresses are requested
+	 * @return all group addresses of the item
+	 */
+	public Iterable<GroupAddress> getGroupAddresses(String itemName);
+	
 	/**
 	 * This method returns all datapoints, which accept a read request on the KNX bus,
 	 * i.e. their current status can be requested (which is not necessarily always possible
@@ -63,6 +72,15 @@ public interface KNXBindingProvider extends BindingProvider {
 	 */
 	public Iterable<Datapoint> getReadableDatapoints();
 	
+	/**
+	 * This method returns the interval in which a readable datapoint should be read
+	 * from the KNX bus again after its initial read request.
+	 * 
+	 * @param datapoint a readable datapoint
+	 * @return the auto refresh interval in seconds, 0 if the datapoint is only read once
+	 */
+	public int getAutoRefreshTime(Datapoint datapoint);
+	
 	/**
 	 * Checks whether the given <code>groupAddress</code> is to be interpreted as
 	 * CommandGA or not. Returns <code>true</code> if <code>groupAddress</code>
@@ -10,11 +10,8 @@ package org.openhab.binding.knx.internal.bus;
 
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Collections;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
 import java.util.Set;
 
 import org.apache.commons.lang.IllegalClassException;
@@ -22,6 +19,7 @@ import org.openhab.binding.knx.config.KNXBindingProvider;
 import org.openhab.binding.knx.config.KNXTypeMapper;
 import org.openhab.binding.knx.internal.connection.KNXConnectionListener;
 import org.openhab.binding.knx.internal.connection.KNXConnection;
+import org.openhab.binding.knx.internal.dpt.KNXDptCodec;
 import org.openhab.core.autoupdate.AutoUpdateBindingProvider;
 import org.openhab.core.binding.AbstractBinding;
 import org.openhab.core.binding.BindingProvider;
@@ -36,7 +34,7 @@ import tuwien.auto.calimero.DetachEvent;
 import tuwien.auto.calimero.GroupAddress;
 import tuwien.auto.calimero.datapoint.Datapoint;
 import tuwien.auto.calimero.exception.KNXException;
-import tuwien.auto.calimero.exception.KNXIllegalArgumentException;
+import tuwien.auto.calimero.link.KNXLinkClosedException;
 import tuwien.auto.calimero.process.ProcessCommunicator;
 import tuwien.auto.calimero.process.ProcessEvent;
 import tuwien.auto.calimero.process.ProcessListener;
@@ -67,19 +65,27 @@ public class KNXBinding extends AbstractBinding<KNXBindingProvider>
 	private List<String> ignoreEventList = new ArrayList<String>();
 
 	/**
-	 * keeps track of all datapoints for which we should send a read request to the KNX bus
+	 * the index of all group addresses, which is rebuilt on the next incoming telegram after a binding has changed
 	 */
-	private Map<Datapoint, Integer> datapointsToInitialize = Collections.synchronizedMap(new HashMap<Datapoint, Integer>());
-	
+	private volatile KNXGroupAddressIndex index = null;
+
+	/** the number of binding changes, an index which has been built before the last change is not published */
+	private long indexGeneration = 0;
+
+	private final Object indexLock = new Object();
 
-	/** the datapoint initializer, which runs in a separate thread */
-	private DatapointInitializer initializer = new DatapointInitializer();
+	/** sends the read requests to the KNX bus, for all datapoints for which we should request the current status */
+	private KNXReadScheduler readScheduler = new KNXReadScheduler(new KNXReadScheduler.Sender() {
+		public void sendReadRequest(Datapoint datapoint) throws KNXException {
+			KNXConnection.sendReadRequest(datapoint);
+		}
+	});
 	
 
 	public void activate(ComponentContext componentContext) {
 		KNXConnection.addConnectionEstablishedListener(this);
-		initializer = new DatapointInitializer();
-		initializer.start();
+		configureReadScheduler();
+		readScheduler.start();
 	}
 
 	public void deactivate(ComponentContext componentContext) {
@@ -88,16 +94,30 @@ public class KNXBinding extends AbstractBinding<KNXBindingProvider>
 			provider.removeBindingChangeListener(this);
 		}
 		providers.clear();
-		initializer.setInterrupted(true);
+		invalidateIndex();
+		readScheduler.stop();
+		logger.debug("KNX read scheduler statistics: {}", readScheduler.getStatistics());
 		KNXConnection.disconnect();
 	}
 	
 	public void addKNXTypeMapper(KNXTypeMapper typeMapper) {
 		this.typeMappers.add(typeMapper);
+		invalidateIndex();
 	}
 
 	public void removeKNXTypeMapper(KNXTypeMapper typeMapper) {
 		this.typeMappers.remove(typeMapper);
+		invalidateIndex();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void removeBindingProvider(KNXBindingProvider provider) {
+		super.removeBindingProvider(provider);
+		invalidateIndex();
+		readScheduler.retain(getReadableDatapoints());
 	}
 
 	/**
@@ -141,15 +161,17 @@ public class KNXBinding extends AbstractBinding<KNXBindingProvider>
 			if (pc != null) {
 				for (Datapoint datapoint : datapoints) {
 					try {
-						pc.write(datapoint, toDPTValue(value, datapoint.getDPT()));
+						write(datapoint, value);
 						logger.debug("Wrote value '{}' to datapoint '{}'", value, datapoint);
+					} catch (IllegalArgumentException e) {
+						logger.warn("Value '{}' could not be converted for datapoint '{}': {}",
+								new Object[]{value, datapoint, e.getMessage()});
 					} catch (KNXException e) {
 						logger.warn("Value '{}' could not be sent to the KNX bus using datapoint '{}' - retrying one time: {}",
 								new Object[]{value, datapoint, e.getMessage()});
 						try {
 							// do a second try, maybe the reconnection was successful
-							pc = KNXConnection.getCommunicator();
-							pc.write(datapoint, toDPTValue(value, datapoint.getDPT()));
+							write(datapoint, value);
 							logger.debug("Wrote value '{}' to datapoint '{}' on second try", value, datapoint);
 						} catch (KNXException e1) {
 							logger.error("Value '{}' could not be sent to the KNX bus using datapoint '{}' - giving up after second try: {}",
@@ -161,6 +183,32 @@ public class KNXBinding extends AbstractBinding<KNXBindingProvider>
 		}
 	}
 
+	/**
+	 * Writes a value to a datapoint. If the {@link KNXDptCodec} supports the datapoint type, the
+	 * telegram is built from its raw data, otherwise the value is converted into a string by the
+	 * type mappers, which is parsed by Calimero.
+	 * 
+	 * @param datapoint the datapoint to write to
+	 * @param value the openHAB command or state to write
+	 * @throws KNXException if the value could not be sent
+	 * @throws IllegalArgumentException if the value is out of the range of the datapoint type
+	 */
+	private void write(Datapoint datapoint, Type value) throws KNXException {
+		String dpt = datapoint.getDPT();
+		byte[] asdu = KNXDptCodec.encode(value, dpt);
+		if (asdu != null) {
+			KNXConnection.sendGroupWrite(datapoint, asdu, KNXDptCodec.isCompact(dpt));
+			readScheduler.telegramSent(asdu.length);
+		} else {
+			ProcessCommunicator pc = KNXConnection.getCommunicator();
+			if (pc == null) {
+				throw new KNXLinkClosedException("no connection to the KNX bus");
+			}
+			pc.write(datapoint, toDPTValue(value, dpt));
+			readScheduler.telegramSent(KNXDptCodec.getSize(dpt));
+		}
+	}
+
 	
 	/**
 	 * {@inheritDoc}
@@ -179,7 +227,7 @@ public class KNXBinding extends AbstractBinding<KNXBindingProvider>
 	
 	/**
 	 * Handles the given {@link ProcessEvent}. After finding the corresponding
-	 * Item (by iterating through all known group addresses) this Item is updated.
+	 * Item (by looking up the group address in the index) this Item is updated.
 	 * Each item is added to a special list to identify and avoid echo's in
 	 * the <code>receiveUpdate</code> and <code>receiveCommand</code> methods.  
 	 *  
@@ -192,29 +240,27 @@ public class KNXBinding extends AbstractBinding<KNXBindingProvider>
 			if (asdu.length==0) {
 				return;
 			}
-			for (String itemName : getItemNames(destination)) {
-				Iterable<Datapoint> datapoints = getDatapoints(itemName, destination);
-				if (datapoints != null) {
-					for (Datapoint datapoint : datapoints) {
-						Type type = getType(datapoint, asdu);					
-						if (type!=null) {
-							// we need to make sure that we won't send out this event to
-							// the knx bus again, when receiving it on the openHAB bus
-							ignoreEventList.add(itemName + type.toString());
-							logger.trace("Added event (item='{}', type='{}') to the ignore event list", itemName, type.toString());
-							
-							if (type instanceof Command && isCommandGA(destination)) {
-								eventPublisher.postCommand(itemName, (Command) type);
-							} else if (type instanceof State) {
-								eventPublisher.postUpdate(itemName, (State) type);
-							} else {
-								throw new IllegalClassException("Cannot process datapoint of type " + type.toString());
-							}								
-								
-							logger.trace("Processed event (item='{}', type='{}', destination='{}')", new String[] {itemName, type.toString(), destination.toString()});
-							return;
-						}
+			readScheduler.telegramReceived(destination, asdu.length);
+			KNXGroupAddressIndex currentIndex = getIndex();
+			for (KNXGroupAddressIndex.Entry entry : currentIndex.getEntries(destination)) {
+				String itemName = entry.getItemName();
+				Type type = getType(entry, asdu);
+				if (type!=null) {
+					// we need to make sure that we won't send out this event to
+					// the knx bus again, when receiving it on the openHAB bus
+					ignoreEventList.add(itemName + type.toString());
+					logger.trace("Added event (item='{}', type='{}') to the ignore event list", itemName, type.toString());
+					
+					if (type instanceof Command && currentIndex.isCommandGA(destination)) {
+						eventPublisher.postCommand(itemName, (Command) type);
+					} else if (type instanceof State) {
+						eventPublisher.postUpdate(itemName, (State) type);
+					} else {
+						throw new IllegalClassException("Cannot process datapoint of type " + type.toString());
 					}
+					
+					logger.trace("Processed event (item='{}', type='{}', destination='{}')", new String[] {itemName, type.toString(), destination.toString()});
+					return;
 				}
 			}
 			logger.debug("Received telegram for unknown group address {}", destination.toString());
@@ -228,11 +274,13 @@ public class KNXBinding extends AbstractBinding<KNXBindingProvider>
 	 * {@inheritDoc}
 	 */
 	public void bindingChanged(BindingProvider provider, String itemName) {
+		invalidateIndex();
 		if (provider instanceof KNXBindingProvider) {
 			KNXBindingProvider knxProvider = (KNXBindingProvider) provider;
+			readScheduler.cancel(itemName);
 			for (Datapoint datapoint : knxProvider.getReadableDatapoints()) {
 				if(datapoint.getName().equals(itemName)) {
-					datapointsToInitialize.put(datapoint, 0);
+					readScheduler.schedule(datapoint, knxProvider.getAutoRefreshTime(datapoint));
 				}
 			}
 		}
@@ -242,10 +290,12 @@ public class KNXBinding extends AbstractBinding<KNXBindingProvider>
 	 * {@inheritDoc}
 	 */
 	public void allBindingsChanged(BindingProvider provider) {
+		invalidateIndex();
 		if (provider instanceof KNXBindingProvider) {
 			KNXBindingProvider knxProvider = (KNXBindingProvider) provider;
+			readScheduler.retain(getReadableDatapoints());
 			for (Datapoint datapoint : knxProvider.getReadableDatapoints()) {
-				datapointsToInitialize.put(datapoint, 0);
+				readScheduler.schedule(datapoint, knxProvider.getAutoRefreshTime(datapoint));
 			}
 		}
 	}
@@ -256,82 +306,111 @@ public class KNXBinding extends AbstractBinding<KNXBindingProvider>
 	 */
 	@Override
 	public void connectionEstablished() {
+		configureReadScheduler();
 		for (KNXBindingProvider knxProvider : providers) {
 			for (Datapoint datapoint : knxProvider.getReadableDatapoints()) {
-				datapointsToInitialize.put(datapoint, 0);
+				readScheduler.schedule(datapoint, knxProvider.getAutoRefreshTime(datapoint));
 			}
 		}
 	}
-	
+
 	/**
-	 * Determines whether the given <code>groupAddress</code> is the address which
-	 * will be interpreted as the command type. This method iterates over all 
-	 * registered KNX binding providers to find the result.
+	 * @return the number of read requests which have not yet been answered by the KNX bus
+	 */
+	public int getPendingReads() {
+		return readScheduler.getPendingReads();
+	}
 
-	 * @param groupAddress the group address to check
-	 * @return true, if it is a command GA
+	/**
+	 * @return the estimated load of the KNX bus in percent
 	 */
-	private boolean isCommandGA(GroupAddress groupAddress) {
-		for (KNXBindingProvider provider : providers) {
-			if(!provider.isCommandGA(groupAddress)) {
-				return false;
-			}
-		}
-		return true;
+	public int getBusLoad() {
+		return readScheduler.getBusLoad();
 	}
-	
+
+	private void configureReadScheduler() {
+		readScheduler.setReadingPause(KNXConnection.getReadingPause());
+		readScheduler.setBurst(KNXConnection.getReadingBurst());
+		readScheduler.setResponseTimeout(KNXConnection.getResponseTimeout());
+		readScheduler.setRetriesLimit(KNXConnection.getReadRetriesLimit());
+		readScheduler.setMaxBusLoad(KNXConnection.getMaxBusLoad());
+	}
+
 	/**
-	 * Returns all listening item names. This method iterates over all registered KNX binding providers and aggregates
-	 * the result.
+	 * Returns the index of all group addresses and builds it, if the bindings have changed since it was last used.
 	 * 
-	 * @param groupAddress
-	 *            the group address that the items are listening to
-	 * @return an array of all listening items
+	 * @return the current group address index
 	 */
-	private String[] getItemNames(GroupAddress groupAddress) {
-		List<String> itemNames = new ArrayList<String>();
-		for (KNXBindingProvider provider : providers) {
-			for (String itemName : provider.getListeningItemNames(groupAddress)) {
-				itemNames.add(itemName);
+	private KNXGroupAddressIndex getIndex() {
+		KNXGroupAddressIndex currentIndex = index;
+		if (currentIndex == null) {
+			long generation;
+			synchronized (indexLock) {
+				generation = indexGeneration;
+			}
+			currentIndex = KNXGroupAddressIndex.build(providers);
+			logger.debug("Built KNX group address index with {} group addresses", currentIndex.size());
+			synchronized (indexLock) {
+				// the bindings may have changed while the index has been built
+				if (generation == indexGeneration) {
+					index = currentIndex;
+				}
 			}
 		}
-		return itemNames.toArray(new String[itemNames.size()]);
+		return currentIndex;
 	}
 
 	/**
-	 * Returns the datapoints for a given item and group address. This method iterates over all registered KNX binding
-	 * providers to find the result.
+	 * Drops the index, so that it is rebuilt on the next incoming telegram.
+	 */
+	private void invalidateIndex() {
+		synchronized (indexLock) {
+			indexGeneration++;
+			index = null;
+		}
+	}
+
+	/**
+	 * Returns all readable datapoints of all registered KNX binding providers.
 	 * 
-	 * @param itemName
-	 *            the item name for the datapoint
-	 * @param groupAddress
-	 *            the group address associated to the datapoint
-	 * @return the datapoints which corresponds to the given item and group address
+	 * @return the readable datapoints
 	 */
-	private Iterable<Datapoint> getDatapoints(String itemName, GroupAddress groupAddress) {
+	private List<Datapoint> getReadableDatapoints() {
+		List<Datapoint> datapoints = new ArrayList<Datapoint>();
 		for (KNXBindingProvider provider : providers) {
-			Iterable<Datapoint> datapoints = provider.getDatapoints(itemName, groupAddress);
-			if (datapoints != null)
-				return datapoints;
+			for (Datapoint datapoint : provider.getReadableDatapoints()) {
+				datapoints.add(datapoint);
+			}
 		}
-		return null;
+		return datapoints;
 	}
 
 	/**
-	 * Transforms the raw KNX bus data of a given datapoint into an openHAB type (command or state)
+	 * Transforms the raw KNX bus data of a given datapoint into an openHAB type (command or state).
+	 * The type mapper which was able to transform the data is remembered for the next telegram.
 	 * 
-	 * @param datapoint
-	 *            the datapoint to which the data belongs
+	 * @param entry
+	 *            the index entry of the datapoint to which the data belongs
 	 * @param asdu
 	 *            the byte array of the raw data from the KNX bus
 	 * @return the openHAB command or state that corresponds to the data
 	 */
-	private Type getType(Datapoint datapoint, byte[] asdu) {
-		for (KNXTypeMapper typeMapper : typeMappers) {
-			Type type = typeMapper.toType(datapoint, asdu);
+	private Type getType(KNXGroupAddressIndex.Entry entry, byte[] asdu) {
+		KNXTypeMapper cachedMapper = entry.getTypeMapper();
+		if (cachedMapper != null) {
+			Type type = cachedMapper.toType(entry.getDatapoint(), asdu);
 			if (type != null)
 				return type;
 		}
+		for (KNXTypeMapper typeMapper : typeMappers) {
+			if (typeMapper == cachedMapper)
+				continue;
+			Type type = typeMapper.toType(entry.getDatapoint(), asdu);
+			if (type != null) {
+				entry.setTypeMapper(typeMapper);
+				return type;
+			}
+		}
 		return null;
 	}
 
@@ -374,101 +453,4 @@ public class KNXBinding extends AbstractBinding<KNXBindingProvider>
 		return null;
 	}
 
-	/**
-	 * The DatapointInitializer runs as a separate thread. Whenever new KNX bindings are added, it takes care that read
-	 * requests are sent to all new datapoints, which support this request. By this, the initial status can be
-	 * determined and one does not have to stay in an "undefined" state until the first telegram is sent on the NX bus
-	 * for this datapoint. As there might be hundreds of datapoints added at the same time and we do not want to flood
-	 * the KNX bus with read requests, we wait a configurable period of milliseconds between two requests. As a result,
-	 * this might be quite long running and thus is executed in its own thread.
-	 * 
-	 * @author Kai Kreuzer
-	 * @since 0.3.0
-	 * 
-	 */
-	private class DatapointInitializer extends Thread {
-		
-		private boolean interrupted = false;
-		
-		public DatapointInitializer() {
-			super("KNX datapoint initializer");
-		}
-
-		public void setInterrupted(boolean interrupted) {
-			this.interrupted = interrupted;
-		}
-
-		@Override
-		public void run() {
-			// as long as no interrupt is requested, continue running
-			while (!interrupted && !KNXConnection.shutdown) {
-				if (datapointsToInitialize.size() > 0) {
-					// we first clone the map, so that it stays unmodified
-					HashMap<Datapoint,Integer> clonedMap =
-						new HashMap<Datapoint, Integer>(datapointsToInitialize);
-					initializeDatapoints(clonedMap);
-				}
-				// just wait before looping again
-				try {
-					sleep(1000L);
-				} catch (InterruptedException e) {
-					interrupted = true;
-				}
-			}
-		}
-
-		private void initializeDatapoints(HashMap<Datapoint,Integer> clonedMap) {
-			for (Datapoint datapoint : clonedMap.keySet()) {
-				try {
-					ProcessCommunicator pc = KNXConnection.getCommunicator();
-					if (pc != null) {
-						logger.debug("Sending read request to KNX for item {}", datapoint.getName());
-						pc.read(datapoint);
-					}
-					datapointsToInitialize.remove(datapoint);
-				} catch (KNXException e) {
-					logger.warn("Cannot read value for item '{}' from KNX bus: {}", new String[] { datapoint.getName(), e.getMessage() });
-					increaseReadLimitCounter(datapoint);
-				} catch (KNXIllegalArgumentException e) {
-					logger.warn("Error sending KNX read request for '{}': {}", new String[] { datapoint.getName(), e.getMessage() });
-					increaseReadLimitCounter(datapoint);
-				} catch (InterruptedException e) {
-					logger.warn("Cannot read value for item '{}' from KNX bus: {}", new String[] { datapoint.getName(), e.getMessage() });
-					increaseReadLimitCounter(datapoint);
-				}
-
-				int retriesLimit = KNXConnection.getReadRetriesLimit();
-				// it is possible that a key contained in the clonedMap disappeared
-				// from the original datapointMap!
-				int retriesCounter = datapointsToInitialize.get(datapoint) != null ? 
-									 datapointsToInitialize.get(datapoint) : Integer.MIN_VALUE;
-				if (retriesLimit < retriesCounter) {
-					datapointsToInitialize.remove(datapoint);
-					logger.debug("Giving up initialization of item {} - retries ({}) exeeded.", datapoint.getName(), retriesLimit);
-				}
-
-				long readingPause = KNXConnection.getReadingPause();
-				if (readingPause > 0) {
-					try {
-						sleep(readingPause);
-					} catch (InterruptedException e) {
-						logger.debug("KNX reading pause has been interrupted: {}", e.getMessage());
-					}
-				}
-				if(KNXConnection.shutdown) {
-					return;
-				}
-			}
-		}
-
-		private synchronized void increaseReadLimitCounter(Datapoint datapoint) {
-			if (datapointsToInitialize.containsKey(datapoint)) {
-				Integer counter = datapointsToInitialize.get(datapoint);
-				datapointsToInitialize.put(datapoint, counter + 1);
-			}
-		}		
-		
-	}
-	
-
 }
@@ -0,0 +1,168 @@
+/**
+ * Copyright (c) 2010-2014, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.knx.internal.bus;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.openhab.binding.knx.config.KNXBindingProvider;
+import org.openhab.binding.knx.config.KNXTypeMapper;
+
+import tuwien.auto.calimero.GroupAddress;
+import tuwien.auto.calimero.datapoint.Datapoint;
+
+/**
+ * The KNXGroupAddressIndex maps every group address to the items and datapoints
+ * which are listening to it, so that an incoming telegram can be dispatched
+ * without asking all binding providers. The index is built from the binding
+ * providers once and has to be rebuilt whenever a binding changes.
+ *
+ * @author Kai Kreuzer
+ * @since 1.5.0
+ */
+public class KNXGroupAddressIndex {
+
+	/** an item and datapoint listening to a group address */
+	public static class Entry {
+
+		private final String itemName;
+
+		private final Datapoint datapoint;
+
+		/** the type mapper which has been able to convert data for this datapoint */
+		private volatile KNXTypeMapper typeMapper;
+
+		Entry(String itemName, Datapoint datapoint) {
+			this.itemName = itemName;
+			this.datapoint = datapoint;
+		}
+
+		public String getItemName() {
+			return itemName;
+		}
+
+		public Datapoint getDatapoint() {
+			return datapoint;
+		}
+
+		public KNXTypeMapper getTypeMapper() {
+			return typeMapper;
+		}
+
+		public void setTypeMapper(KNXTypeMapper typeMapper) {
+			this.typeMapper = typeMapper;
+		}
+	}
+
+	private static final Entry[] NO_ENTRIES = new Entry[0];
+
+	private final Map<GroupAddress, Entry[]> entries;
+
+	private final Set<GroupAddress> commandGAs;
+
+	private KNXGroupAddressIndex(Map<GroupAddress, Entry[]> entries, Set<GroupAddress> commandGAs) {
+		this.entries = entries;
+		this.commandGAs = commandGAs;
+	}
+
+	/**
+	 * Builds the index for all bindings of the given providers. The entries of
+	 * a group address are in the order in which the providers report their items.
+	 *
+	 * @param providers the KNX binding providers
+	 * @return the new index
+	 */
+	public static KNXGroupAddressIndex build(Collection<KNXBindingProvider> providers) {
+		Map<GroupAddress, List<Entry>> lists = new HashMap<GroupAddress, List<Entry>>();
+		for (KNXBindingProvider provider : providers) {
+			for (String itemName : provider.getItemNames()) {
+				for (GroupAddress groupAddress : provider.getGroupAddresses(itemName)) {
+					Iterable<Datapoint> datapoints = getDatapoints(providers, itemName, groupAddress);
+					if (datapoints == null) {
+						continue;
+					}
+					List<Entry> list = lists.get(groupAddress);
+					if (list == null) {
+						list = new ArrayList<Entry>();
+						lists.put(groupAddress, list);
+					}
+					for (Datapoint datapoint : datapoints) {
+						list.add(new Entry(itemName, datapoint));
+					}
+				}
+			}
+		}
+
+		Map<GroupAddress, Entry[]> entries = new HashMap<GroupAddress, Entry[]>();
+		Set<GroupAddress> commandGAs = new HashSet<GroupAddress>();
+		for (Map.Entry<GroupAddress, List<Entry>> list : lists.entrySet()) {
+			GroupAddress groupAddress = list.getKey();
+			entries.put(groupAddress, list.getValue().toArray(new Entry[list.getValue().size()]));
+			if (isCommandGA(providers, groupAddress)) {
+				commandGAs.add(groupAddress);
+			}
+		}
+		return new KNXGroupAddressIndex(entries, commandGAs);
+	}
+
+	/**
+	 * Returns the items and datapoints listening to the given group address.
+	 *
+	 * @param groupAddress the group address of a telegram
+	 * @return the entries for the group address, an empty array if there are none
+	 */
+	public Entry[] getEntries(GroupAddress groupAddress) {
+		Entry[] result = entries.get(groupAddress);
+		return result != null ? result : NO_ENTRIES;
+	}
+
+	/**
+	 * Determines whether the given <code>groupAddress</code> is the address which
+	 * will be interpreted as the command type by all binding providers.
+	 *
+	 * @param groupAddress the group address to check
+	 * @return true, if it is a command GA
+	 */
+	public boolean isCommandGA(GroupAddress groupAddress) {
+		return commandGAs.contains(groupAddress);
+	}
+
+	/**
+	 * @return the number of group addresses in the index
+	 */
+	public int size() {
+		return entries.size();
+	}
+
+	private static Iterable<Datapoint> getDatapoints(Collection<KNXBindingProvider> providers, String itemName,
+			GroupAddress groupAddress) {
+		for (KNXBindingProvider provider : providers) {
+			Iterable<Datapoint> datapoints = provider.getDatapoints(itemName, groupAddress);
+			if (datapoints != null) {
+				return datapoints;
+			}
+		}
+		return null;
+	}
+
+	private static boolean isCommandGA(Collection<KNXBindingProvider> providers, GroupAddress groupAddress) {
+		for (KNXBindingProvider provider : providers) {
+			if (!provider.isCommandGA(groupAddress)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+}
@@ -0,0 +1,722 @@
+/**
+ * Copyright (c) 2010-2014, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.knx.internal.bus;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import tuwien.auto.calimero.GroupAddress;
+import tuwien.auto.calimero.datapoint.Datapoint;
+import tuwien.auto.calimero.exception.KNXException;
+
+/**
+ * The KNXReadScheduler sends read requests for datapoints to the KNX bus, both
+ * the initial read requests for new datapoints and the periodic read requests
+ * for datapoints with an auto refresh interval. It runs in a separate thread.
+ *
+ * Read requests are sent without waiting for the response, which is received
+ * like any other telegram for the group address. A read request which is not
+ * answered within the response timeout is retried up to the configured number
+ * of times. Read requests for a group address which is already being read are
+ * not sent again, but answered by the pending response.
+ *
+ * Two limits protect the KNX bus from being flooded:
+ * <ul>
+ * <li>a token bucket, which allows a burst of read requests and then one read
+ * request per reading pause</li>
+ * <li>the estimated bus load, which is calculated from the size of all telegrams
+ * seen on the bus within the last second. No read request is sent while it is
+ * above the maximum bus load.</li>
+ * </ul>
+ *
+ * Auto refresh reads which are due are sent before the initial reads, which are
+ * sent before the retries.
+ *
+ * @author Kai Kreuzer
+ * @since 1.5.0
+ */
+public class KNXReadScheduler implements Runnable {
+
+	private static final Logger logger = LoggerFactory.getLogger(KNXReadScheduler.class);
+
+	/** priority of auto refresh reads which are due */
+	static final int PRIORITY_REFRESH = 0;
+
+	/** priority of the first read of a datapoint */
+	static final int PRIORITY_INITIAL = 1;
+
+	/** priority of reads which did not get a response before */
+	static final int PRIORITY_RETRY = 2;
+
+	/** length of the time window in milliseconds for calculating the bus load */
+	private static final long LOAD_WINDOW = 1000;
+
+	/** maximum time in milliseconds the scheduler thread waits without checking its queues */
+	private static final long MAX_WAIT = 1000;
+
+	/**
+	 * Sends read requests to the KNX bus.
+	 */
+	public interface Sender {
+
+		/**
+		 * Sends a read request for the given datapoint without waiting for the response.
+		 *
+		 * @param datapoint the datapoint to read
+		 * @throws KNXException if the read request could not be sent
+		 */
+		void sendReadRequest(Datapoint datapoint) throws KNXException;
+	}
+
+	/**
+	 * The source of the current time, which is replaced by the tests.
+	 */
+	interface Clock {
+
+		long currentTimeMillis();
+	}
+
+	private static final Clock SYSTEM_CLOCK = new Clock() {
+		public long currentTimeMillis() {
+			return System.currentTimeMillis();
+		}
+	};
+
+	/**
+	 * A datapoint to read, either once or periodically.
+	 */
+	private static class ReadRequest {
+
+		final String key;
+
+		final Datapoint datapoint;
+
+		/** auto refresh interval in milliseconds, 0 to read only once */
+		final long refreshInterval;
+
+		int priority;
+
+		/** time at which the request should be sent */
+		long due;
+
+		int retries = 0;
+
+		ReadRequest(String key, Datapoint datapoint, long refreshInterval) {
+			this.key = key;
+			this.datapoint = datapoint;
+			this.refreshInterval = refreshInterval;
+		}
+	}
+
+	/** read requests which have been sent and are waiting for a response */
+	private static class PendingRead {
+
+		final List<ReadRequest> requests = new ArrayList<ReadRequest>();
+
+		final long timeout;
+
+		PendingRead(long timeout) {
+			this.timeout = timeout;
+		}
+	}
+
+	private static final Comparator<ReadRequest> BY_DUE = new Comparator<ReadRequest>() {
+		public int compare(ReadRequest r1, ReadRequest r2) {
+			return r1.due < r2.due ? -1 : (r1.due > r2.due ? 1 : 0);
+		}
+	};
+
+	private static final Comparator<ReadRequest> BY_PRIORITY = new Comparator<ReadRequest>() {
+		public int compare(ReadRequest r1, ReadRequest r2) {
+			if (r1.priority != r2.priority) {
+				return r1.priority - r2.priority;
+			}
+			return BY_DUE.compare(r1, r2);
+		}
+	};
+
+	private final Sender sender;
+
+	private final Clock clock;
+
+	private final Object lock = new Object();
+
+	/** all scheduled datapoints by their key */
+	private final Map<String, ReadRequest> requests = new HashMap<String, ReadRequest>();
+
+	/** auto refresh reads which are not yet due */
+	private final PriorityQueue<ReadRequest> waiting = new PriorityQueue<ReadRequest>(16, BY_DUE);
+
+	/** reads which can be sent as soon as the limits allow it */
+	private final PriorityQueue<ReadRequest> ready = new PriorityQueue<ReadRequest>(16, BY_PRIORITY);
+
+	/** reads which have been sent, by group address */
+	private final Map<GroupAddress, PendingRead> pending = new HashMap<GroupAddress, PendingRead>();
+
+	private Thread thread;
+
+	private boolean running = false;
+
+	/** read requests per second, 0 for no limit */
+	private double readRate = 20;
+
+	private int burst = 1;
+
+	private double tokens = 1;
+
+	private long lastRefill = 0;
+
+	private long responseTimeout = 10000;
+
+	private int retriesLimit = 3;
+
+	/** maximum bus load as a fraction of the bus capacity */
+	private double maxBusLoad = 0.5;
+
+	/** bus time in milliseconds used by the telegrams of the current load window */
+	private double busTime = 0;
+
+	private long windowStart = 0;
+
+	private double busLoad = 0;
+
+	private long sentCount = 0;
+
+	private long answeredCount = 0;
+
+	private long coalescedCount = 0;
+
+	private long timeoutCount = 0;
+
+	private long failedCount = 0;
+
+	public KNXReadScheduler(Sender sender) {
+		this(sender, SYSTEM_CLOCK);
+	}
+
+	KNXReadScheduler(Sender sender, Clock clock) {
+		this.sender = sender;
+		this.clock = clock;
+	}
+
+	/**
+	 * Sets the pause between two read requests, once the burst has been sent.
+	 *
+	 * @param readingPause pause in milliseconds, 0 for no pause
+	 */
+	public void setReadingPause(long readingPause) {
+		synchronized (lock) {
+			readRate = readingPause > 0 ? 1000.0 / readingPause : 0;
+		}
+	}
+
+	/**
+	 * Sets the number of read requests which may be sent without a pause.
+	 */
+	public void setBurst(int burst) {
+		synchronized (lock) {
+			this.burst = Math.max(1, burst);
+			tokens = Math.min(tokens, this.burst);
+		}
+	}
+
+	/**
+	 * Sets the time in milliseconds after which a read request without a response is retried.
+	 */
+	public void setResponseTimeout(long responseTimeout) {
+		synchronized (lock) {
+			this.responseTimeout = responseTimeout;
+		}
+	}
+
+	/**
+	 * Sets how often a read request without a response is retried.
+	 */
+	public void setRetriesLimit(int retriesLimit) {
+		synchronized (lock) {
+			this.retriesLimit = retriesLimit;
+		}
+	}
+
+	/**
+	 * Sets the estimated bus load up to which read requests are sent.
+	 *
+	 * @param maxBusLoad the maximum bus load in percent
+	 */
+	public void setMaxBusLoad(int maxBusLoad) {
+		synchronized (lock) {
+			this.maxBusLoad = maxBusLoad / 100.0;
+		}
+	}
+
+	/**
+	 * Starts the scheduler thread.
+	 */
+	public void start() {
+		synchronized (lock) {
+			if (running) {
+				return;
+			}
+			running = true;
+			thread = new Thread(this, "KNX read scheduler");
+			thread.setDaemon(true);
+			thread.start();
+		}
+	}
+
+	/**
+	 * Stops the scheduler thread. The scheduled datapoints are kept.
+	 */
+	public void stop() {
+		synchronized (lock) {
+			running = false;
+			thread = null;
+			lock.notifyAll();
+		}
+	}
+
+	/**
+	 * Schedules the initial read request for a datapoint. If the datapoint is
+	 * already scheduled, its previous read requests are replaced.
+	 *
+	 * @param datapoint the datapoint to read
+	 * @param autoRefreshInSecs interval in seconds in which the datapoint is read
+	 * again, 0 to read it only once
+	 */
+	public void schedule(Datapoint datapoint, int autoRefreshInSecs) {
+		synchronized (lock) {
+			String key = getKey(datapoint);
+			ReadRequest previous = requests.get(key);
+			if (previous != null) {
+				remove(previous);
+			}
+
+			ReadRequest request = new ReadRequest(key, datapoint, autoRefreshInSecs * 1000L);
+			request.priority = PRIORITY_INITIAL;
+			request.due = clock.currentTimeMillis();
+			requests.put(key, request);
+			ready.add(request);
+			lock.notifyAll();
+		}
+	}
+
+	/**
+	 * Removes all read requests of the given item.
+	 *
+	 * @param itemName the name of the item
+	 */
+	public void cancel(String itemName) {
+		synchronized (lock) {
+			for (ReadRequest request : new ArrayList<ReadRequest>(requests.values())) {
+				if (itemName.equals(request.datapoint.getName())) {
+					remove(request);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Removes the read requests of all datapoints which are not in the given collection.
+	 *
+	 * @param datapoints the datapoints to keep
+	 */
+	public void retain(Collection<Datapoint> datapoints) {
+		synchronized (lock) {
+			Set<String> keys = new HashSet<String>();
+			for (Datapoint datapoint : datapoints) {
+				keys.add(getKey(datapoint));
+			}
+			for (ReadRequest request : new ArrayList<ReadRequest>(requests.values())) {
+				if (!keys.contains(request.key)) {
+					remove(request);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Notifies the scheduler of a telegram which has been received from the bus.
+	 * This answers all pending read requests for the group address.
+	 *
+	 * @param groupAddress the destination of the telegram
+	 * @param dataLength the length of the ASDU of the telegram
+	 */
+	public void telegramReceived(GroupAddress groupAddress, int dataLength) {
+		synchronized (lock) {
+			long now = clock.currentTimeMillis();
+			PendingRead read = pending.remove(groupAddress);
+			if (read == null) {
+				addBusTime(dataLength, now);
+				return;
+			}
+			// the bus time of the response was already taken into account with the read request
+			for (ReadRequest request : read.requests) {
+				answeredCount++;
+				request.retries = 0;
+				reschedule(request, now);
+			}
+		}
+	}
+
+	/**
+	 * Notifies the scheduler of a telegram which has been sent to the bus by the binding.
+	 *
+	 * @param dataLength the length of the ASDU of the telegram
+	 */
+	public void telegramSent(int dataLength) {
+		synchronized (lock) {
+			addBusTime(dataLength, clock.currentTimeMillis());
+		}
+	}
+
+	/**
+	 * @return the number of read requests which are ready to be sent or waiting for a response
+	 */
+	public int getPendingReads() {
+		synchronized (lock) {
+			int count = ready.size();
+			for (PendingRead read : pending.values()) {
+				count += read.requests.size();
+			}
+			return count;
+		}
+	}
+
+	/**
+	 * @return the number of scheduled datapoints, including the auto refresh reads which are not yet due
+	 */
+	public int getScheduledReads() {
+		synchronized (lock) {
+			return requests.size();
+		}
+	}
+
+	/**
+	 * @return the estimated bus load of the last seconds in percent
+	 */
+	public int getBusLoad() {
+		synchronized (lock) {
+			rollWindow(clock.currentTimeMillis());
+			return (int) Math.round(busLoad * 100);
+		}
+	}
+
+	public long getSentCount() {
+		synchronized (lock) {
+			return sentCount;
+		}
+	}
+
+	public long getAnsweredCount() {
+		synchronized (lock) {
+			return answeredCount;
+		}
+	}
+
+	public long getCoalescedCount() {
+		synchronized (lock) {
+			return coalescedCount;
+		}
+	}
+
+	public long getTimeoutCount() {
+		synchronized (lock) {
+			return timeoutCount;
+		}
+	}
+
+	/**
+	 * @return summary of the scheduler counters, for logging
+	 */
+	public String getStatistics() {
+		int busLoad = getBusLoad();
+		synchronized (lock) {
+			return "pending=" + getPendingReads() + ", scheduled=" + requests.size() + ", sent=" + sentCount
+					+ ", answered=" + answeredCount + ", coalesced=" + coalescedCount + ", timeouts=" + timeoutCount
+					+ ", failed=" + failedCount + ", busLoad=" + busLoad + "%";
+		}
+	}
+
+	/**
+	 * Sends the read requests as soon as they are due and the limits allow it.
+	 */
+	public void run() {
+		while (true) {
+			ReadRequest request;
+			synchronized (lock) {
+				while (true) {
+					if (!running || Thread.currentThread() != thread) {
+						return;
+					}
+					long now = clock.currentTimeMillis();
+					long delay = prepare(now);
+					if (delay == 0) {
+						request = ready.poll();
+						// register the request before sending it, the response might arrive at any time
+						sent(request, now);
+						break;
+					}
+					try {
+						lock.wait(delay);
+					} catch (InterruptedException e) {
+						running = false;
+					}
+				}
+			}
+
+			send(request);
+		}
+	}
+
+	/**
+	 * Sends all read requests which are due and allowed by the limits at the
+	 * current time, without waiting for further ones. This does the work of
+	 * the scheduler thread for the tests.
+	 *
+	 * @return the number of read requests which have been sent
+	 */
+	int sendDueReads() {
+		int count = 0;
+		while (true) {
+			ReadRequest request;
+			synchronized (lock) {
+				long now = clock.currentTimeMillis();
+				if (prepare(now) > 0) {
+					return count;
+				}
+				request = ready.poll();
+				sent(request, now);
+			}
+			send(request);
+			count++;
+		}
+	}
+
+	private void send(ReadRequest request) {
+		try {
+			logger.debug("Sending read request to KNX for item {}", request.datapoint.getName());
+			sender.sendReadRequest(request.datapoint);
+		} catch (KNXException e) {
+			logger.warn("Cannot read value for item '{}' from KNX bus: {}", request.datapoint.getName(),
+					e.getMessage());
+			notSent(request);
+		} catch (RuntimeException e) {
+			logger.warn("Error sending KNX read request for '{}': {}", request.datapoint.getName(), e.getMessage());
+			notSent(request);
+		}
+	}
+
+	/**
+	 * Updates the queues and checks whether the next read request can be sent.
+	 * Must be called while holding the lock.
+	 *
+	 * @return 0 if the head of the ready queue can be sent, otherwise the time
+	 * in milliseconds to wait before checking again
+	 */
+	private long prepare(long now) {
+		expirePendingReads(now);
+		while (!waiting.isEmpty() && waiting.peek().due <= now) {
+			ReadRequest request = waiting.poll();
+			request.priority = PRIORITY_REFRESH;
+			ready.add(request);
+		}
+
+		// there is no need to read a group address which is already being read
+		while (!ready.isEmpty() && pending.containsKey(ready.peek().datapoint.getMainAddress())) {
+			ReadRequest request = ready.poll();
+			pending.get(request.datapoint.getMainAddress()).requests.add(request);
+			coalescedCount++;
+		}
+
+		long delay = MAX_WAIT;
+		if (!waiting.isEmpty()) {
+			delay = Math.min(delay, waiting.peek().due - now);
+		}
+		for (PendingRead read : pending.values()) {
+			delay = Math.min(delay, read.timeout - now);
+		}
+		delay = Math.max(delay, 1);
+		if (ready.isEmpty()) {
+			return delay;
+		}
+
+		rollWindow(now);
+		if (busTime / LOAD_WINDOW >= maxBusLoad) {
+			// wait for the next load window
+			return Math.max(1, Math.min(delay, windowStart + LOAD_WINDOW - now));
+		}
+
+		if (readRate > 0) {
+			tokens = Math.min(burst, tokens + (now - lastRefill) * readRate / 1000);
+			lastRefill = now;
+			if (tokens < 1) {
+				return Math.max(1, Math.min(delay, (long) Math.ceil((1 - tokens) * 1000 / readRate)));
+			}
+			tokens -= 1;
+		}
+		return 0;
+	}
+
+	/**
+	 * Registers a read request which has been sent. Must be called while holding the lock.
+	 */
+	private void sent(ReadRequest request, long now) {
+		sentCount++;
+		// the read request and the expected response
+		addBusTime(0, now);
+		addBusTime(2, now);
+		if (requests.get(request.key) != request) {
+			// cancelled in the meantime
+			return;
+		}
+		GroupAddress groupAddress = request.datapoint.getMainAddress();
+		PendingRead read = pending.get(groupAddress);
+		if (read == null) {
+			read = new PendingRead(now + responseTimeout);
+			pending.put(groupAddress, read);
+		}
+		read.requests.add(request);
+	}
+
+	/**
+	 * Unregisters a read request which could not be sent and retries it.
+	 */
+	private void notSent(ReadRequest request) {
+		synchronized (lock) {
+			failedCount++;
+			PendingRead read = pending.get(request.datapoint.getMainAddress());
+			if (read != null && read.requests.remove(request) && read.requests.isEmpty()) {
+				pending.remove(request.datapoint.getMainAddress());
+			}
+			failed(request, clock.currentTimeMillis());
+		}
+	}
+
+	/**
+	 * Retries all read requests which did not get a response in time. Must be
+	 * called while holding the lock.
+	 */
+	private void expirePendingReads(long now) {
+		Iterator<PendingRead> it = pending.values().iterator();
+		List<ReadRequest> expired = null;
+		while (it.hasNext()) {
+			PendingRead read = it.next();
+			if (read.timeout <= now) {
+				it.remove();
+				if (expired == null) {
+					expired = new ArrayList<ReadRequest>();
+				}
+				expired.addAll(read.requests);
+			}
+		}
+		if (expired != null) {
+			for (ReadRequest request : expired) {
+				timeoutCount++;
+				failed(request, now);
+			}
+		}
+	}
+
+	/**
+	 * Retries a read request or gives up on it. Must be called while holding the lock.
+	 */
+	private void failed(ReadRequest request, long now) {
+		if (requests.get(request.key) != request) {
+			return;
+		}
+		if (request.retries < retriesLimit) {
+			request.retries++;
+			request.priority = PRIORITY_RETRY;
+			request.due = now;
+			ready.add(request);
+		} else {
+			logger.debug("Giving up reading item {} - retries ({}) exceeded.", request.datapoint.getName(),
+					retriesLimit);
+			request.retries = 0;
+			reschedule(request, now);
+		}
+	}
+
+	/**
+	 * Schedules the next auto refresh of a read request or removes it. Must be
+	 * called while holding the lock.
+	 */
+	private void reschedule(ReadRequest request, long now) {
+		if (requests.get(request.key) != request) {
+			return;
+		}
+		if (request.refreshInterval > 0) {
+			request.due = now + request.refreshInterval;
+			waiting.add(request);
+		} else {
+			requests.remove(request.key);
+		}
+		if (logger.isDebugEnabled() && ready.isEmpty() && pending.isEmpty()) {
+			logger.debug("All KNX read requests have been processed: {}", getStatistics());
+		}
+	}
+
+	/**
+	 * Removes a read request from all queues. Must be called while holding the lock.
+	 */
+	private void remove(ReadRequest request) {
+		requests.remove(request.key);
+		ready.remove(request);
+		waiting.remove(request);
+		PendingRead read = pending.get(request.datapoint.getMainAddress());
+		if (read != null) {
+			read.requests.remove(request);
+		}
+	}
+
+	/**
+	 * Adds the bus time of a telegram on a TP1 line to the current load window.
+	 * A telegram has 8 octets plus its data, every octet takes 13 bit times. The
+	 * telegram is preceded by a pause of 50 bit times and followed by the
+	 * acknowledgement which takes 15 + 13 bit times. Must be called while
+	 * holding the lock.
+	 *
+	 * @param dataLength the length of the ASDU, 0 for a read request
+	 */
+	private void addBusTime(int dataLength, long now) {
+		rollWindow(now);
+		int bits = (8 + Math.max(dataLength, 1)) * 13 + 50 + 15 + 13;
+		busTime += bits / 9.6;
+	}
+
+	private void rollWindow(long now) {
+		if (windowStart == 0) {
+			windowStart = now;
+			return;
+		}
+		long elapsed = now - windowStart;
+		if (elapsed >= LOAD_WINDOW) {
+			double load = busTime / elapsed;
+			busLoad = (busLoad + Math.min(load, 1)) / 2;
+			busTime = 0;
+			windowStart = now;
+		}
+	}
+
+	private static String getKey(Datapoint datapoint) {
+		return datapoint.getName() + ":" + datapoint.getMainAddress();
+	}
+
+}
@@ -8,8 +8,10 @@
  */
 package org.openhab.binding.knx.internal.config;
 
+import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.NoSuchElementException;
 
 import org.openhab.binding.knx.config.KNXBindingProvider;
@@ -40,8 +42,8 @@ import com.google.common.collect.Lists;
  * 
  * <p>The syntax of the binding configuration strings accepted is the following:<p>
  * <p><code>
- * 	knx="[&lt;dptId&gt;:][&lt;]&lt;mainGA&gt;[[+&lt;listeningGA&gt;]+&lt;listeningGA&gt;..],
- *  [&lt;dptId&gt;:][&lt;]&lt;mainGA&gt;[[+&lt;listeningGA&gt;]+&lt;listeningGA&gt;..]"
+ * 	knx="[&lt;dptId&gt;:][&lt;[(&lt;refresh&gt;)]]&lt;mainGA&gt;[[+&lt;listeningGA&gt;]+&lt;listeningGA&gt;..],
+ *  [&lt;dptId&gt;:][&lt;[(&lt;refresh&gt;)]]&lt;mainGA&gt;[[+&lt;listeningGA&gt;]+&lt;listeningGA&gt;..]"
  * </code></p>
  * where parts in brackets [] signify an optional information.
  * 
@@ -49,7 +51,8 @@ import com.google.common.collect.Lists;
  * command type of an openHAB item. If no datapoint type id is defined for the datapoint, this is automatically derived
  * from the list of accepted command types of the item - i.e. the second datapoint definition is mapped to the second
  * accepted command type of the item.</p>
- * <p> The optional '&lt;' sign tells whether the datapoint accepts read requests on the KNX bus (it does, if the sign is there)</p>
+ * <p> The optional '&lt;' sign tells whether the datapoint accepts read requests on the KNX bus (it does, if the sign is there).
+ * It can be followed by an auto refresh interval in seconds in parentheses, in which the datapoint is read again.</p>
  * 
  * <p>Here are some examples for valid binding configuration strings:
  * <ul>
@@ -59,6 +62,7 @@ import com.google.common.collect.Lists;
  * 		<li><code>knx="1.001:1/1/10"</code></li>
  * 		<li><code>knx="<1/1/10"/code></li>
  * 		<li><code>knx="<1/1/10+0/1/13+0/1/14+0/1/15"</code></li>
+ * 		<li><code>knx="<(300)1/1/10"</code></li>
  *	</ul>
  *	</li>
  *	<li> For a RollershutterItem:
@@ -205,6 +209,27 @@ public class KNXGenericBindingProvider extends AbstractGenericBindingProvider im
 		}
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	public Iterable<GroupAddress> getGroupAddresses(String itemName) {
+		List<GroupAddress> groupAddresses = new ArrayList<GroupAddress>();
+		synchronized(bindingConfigs) {
+			BindingConfig config = bindingConfigs.get(itemName);
+			if (config instanceof KNXBindingConfig) {
+				for (KNXBindingConfigItem configItem : (KNXBindingConfig) config) {
+					for (Object datapoint : configItem.allDataPoints.getDatapoints()) {
+						GroupAddress groupAddress = ((Datapoint) datapoint).getMainAddress();
+						if (!groupAddresses.contains(groupAddress)) {
+							groupAddresses.add(groupAddress);
+						}
+					}
+				}
+			}
+		}
+		return groupAddresses;
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -257,6 +282,23 @@ public class KNXGenericBindingProvider extends AbstractGenericBindingProvider im
 		}
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	public int getAutoRefreshTime(Datapoint datapoint) {
+		synchronized(bindingConfigs) {
+			BindingConfig config = bindingConfigs.get(datapoint.getName());
+			if (config instanceof KNXBindingConfig) {
+				for (KNXBindingConfigItem configItem : (KNXBindingConfig) config) {
+					if (configItem.readableDataPoint == datapoint) {
+						return configItem.autoRefreshInSecs;
+					}
+				}
+			}
+		}
+		return 0;
+	}
+
 	@Override
 	public Boolean autoUpdate(String itemName) {
 		BindingConfig config = bindingConfigs.get(itemName);
@@ -320,9 +362,26 @@ public class KNXGenericBindingProvider extends AbstractGenericBindingProvider im
 					
 					// check for the readable flag
 					boolean isReadable = false;
+					int autoRefreshInSecs = 0;
 					if (dataPoint.startsWith("<")) {
 						isReadable = true;
 						dataPoint = dataPoint.substring(1);
+						
+						// check for the auto refresh interval
+						if (dataPoint.startsWith("(")) {
+							int end = dataPoint.indexOf(')');
+							try {
+								autoRefreshInSecs = Integer.parseInt(dataPoint.substring(1, end).trim());
+							} catch (RuntimeException e) {
+								throw new BindingConfigParseException(
+									"Invalid auto refresh interval in '" + dataPoint + "'.");
+							}
+							if (autoRefreshInSecs < 0) {
+								throw new BindingConfigParseException(
+									"The auto refresh interval must not be negative.");
+							}
+							dataPoint = dataPoint.substring(end + 1).trim();
+						}
 					}
 					
 					// find the DPT for this entry
@@ -355,6 +414,7 @@ public class KNXGenericBindingProvider extends AbstractGenericBindingProvider im
 					}
 					if (isReadable) {
 						configItem.readableDataPoint = dp;
+						configItem.autoRefreshInSecs = autoRefreshInSecs;
 					}
 					configItem.allDataPoints.add(dp);
 				}
@@ -401,6 +461,7 @@ public class KNXGenericBindingProvider extends AbstractGenericBindingProvider im
 		public String itemName;
 		public Datapoint mainDataPoint = null;
 		public Datapoint readableDataPoint = null;
+		public int autoRefreshInSecs = 0;
 		public DatapointMap allDataPoints = new DatapointMap();
 	}
 }
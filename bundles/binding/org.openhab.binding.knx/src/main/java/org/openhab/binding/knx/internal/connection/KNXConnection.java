@@ -28,9 +28,12 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import tuwien.auto.calimero.CloseEvent;
+import tuwien.auto.calimero.DataUnitBuilder;
 import tuwien.auto.calimero.FrameEvent;
+import tuwien.auto.calimero.datapoint.Datapoint;
 import tuwien.auto.calimero.exception.KNXException;
 import tuwien.auto.calimero.knxnetip.KNXnetIPConnection;
+import tuwien.auto.calimero.link.KNXLinkClosedException;
 import tuwien.auto.calimero.link.KNXNetworkLink;
 import tuwien.auto.calimero.link.KNXNetworkLinkFT12;
 import tuwien.auto.calimero.link.KNXNetworkLinkIP;
@@ -51,6 +54,12 @@ public class KNXConnection implements ManagedService {
 
 	private static final Logger logger = LoggerFactory.getLogger(KNXConnection.class);
 
+	/** APCI of a group value read request */
+	private static final int GROUP_READ = 0x00;
+
+	/** APCI of a group value write */
+	private static final int GROUP_WRITE = 0x80;
+
 	private static ProcessCommunicator pc = null;
 	
 	private static ProcessListener listener = null;
@@ -87,6 +96,12 @@ public class KNXConnection implements ManagedService {
 	/** limits the read retries while initialization from the KNX bus. Default value is <code>3</code> */
 	private static int readRetriesLimit = 3;
 
+	/** number of read requests which may be sent without pause. Default value is <code>1</code> */
+	private static int readingBurst = 1;
+
+	/** maximum estimated bus load in percent up to which read requests are sent. Default value is <code>50</code> */
+	private static int maxBusLoad = 50;
+
 	/** seconds between connect retries when KNX link has been lost, 0 means never retry. Default value is <code>0</code> */
 	private static int autoReconnectPeriod = 0;
 	
@@ -104,6 +119,46 @@ public class KNXConnection implements ManagedService {
 		return pc;
 	}
 
+	/**
+	 * Sends a read request for the given datapoint to the KNX bus without waiting for
+	 * the response. The response is passed to the process listener like any other
+	 * group telegram.
+	 * 
+	 * @param datapoint the datapoint to read
+	 * @throws KNXException if the request could not be sent
+	 */
+	public static void sendReadRequest(Datapoint datapoint) throws KNXException {
+		getOpenLink().sendRequestWait(datapoint.getMainAddress(), datapoint.getPriority(),
+			DataUnitBuilder.createCompactAPDU(GROUP_READ, null));
+	}
+
+	/**
+	 * Writes the raw data of a telegram to the given datapoint, so that the value does
+	 * not have to be formatted and parsed by a Calimero translator.
+	 * 
+	 * @param datapoint the datapoint to write to
+	 * @param asdu the data of the telegram
+	 * @param compact <code>true</code> if the data has less than 7 bits and is sent within the APCI
+	 * @throws KNXException if the telegram could not be sent
+	 */
+	public static void sendGroupWrite(Datapoint datapoint, byte[] asdu, boolean compact) throws KNXException {
+		byte[] apdu = compact ? DataUnitBuilder.createCompactAPDU(GROUP_WRITE, asdu)
+			: DataUnitBuilder.createAPDU(GROUP_WRITE, asdu);
+		getOpenLink().sendRequestWait(datapoint.getMainAddress(), datapoint.getPriority(), apdu);
+	}
+
+	private static KNXNetworkLink getOpenLink() throws KNXLinkClosedException {
+		KNXNetworkLink currentLink;
+		synchronized (KNXConnection.class) {
+			if(link!=null && !link.isOpen()) connect();
+			currentLink = link;
+		}
+		if (currentLink == null || !currentLink.isOpen()) {
+			throw new KNXLinkClosedException("no connection to the KNX bus");
+		}
+		return currentLink;
+	}
+
 	public void setProcessListener(ProcessListener listener) {
 		if (pc != null) {
 			pc.removeProcessListener(KNXConnection.listener);
@@ -325,6 +380,22 @@ public class KNXConnection implements ManagedService {
 				}
 			}
 			
+			String readingBurstString = (String) config.get("readBurst");
+			if (StringUtils.isNotBlank(readingBurstString)) {
+				int burst = Integer.parseInt(readingBurstString);
+				if (burst > 0) {
+					readingBurst = burst;
+				}
+			}
+			
+			String maxBusLoadString = (String) config.get("maxBusLoad");
+			if (StringUtils.isNotBlank(maxBusLoadString)) {
+				int busLoad = Integer.parseInt(maxBusLoadString);
+				if (busLoad > 0 && busLoad <= 100) {
+					maxBusLoad = busLoad;
+				}
+			}
+			
 			String autoReconnectPeriodString = (String) config.get("autoReconnectPeriod");
 			if (StringUtils.isNotBlank(autoReconnectPeriodString)) {
 				int autoReconnectPeriodValue = Integer.parseInt(autoReconnectPeriodString);
@@ -346,6 +417,18 @@ public class KNXConnection implements ManagedService {
 		return readRetriesLimit;
 	}
 	
+	public static long getResponseTimeout() {
+		return responseTimeout;
+	}
+	
+	public static int getReadingBurst() {
+		return readingBurst;
+	}
+	
+	public static int getMaxBusLoad() {
+		return maxBusLoad;
+	}
+	
 	public static int getAutoReconnectPeriod() {
 		return autoReconnectPeriod;
 	}
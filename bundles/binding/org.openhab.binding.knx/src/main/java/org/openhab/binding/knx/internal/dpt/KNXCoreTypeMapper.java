@@ -8,14 +8,10 @@
  */
 package org.openhab.binding.knx.internal.dpt;
 
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
-import java.util.Date;
 import java.util.HashMap;
 import java.util.Locale;
 import java.util.Map;
 
-import org.apache.commons.lang.StringUtils;
 import org.openhab.binding.knx.config.KNXTypeMapper;
 import org.openhab.core.library.types.DateTimeType;
 import org.openhab.core.library.types.DecimalType;
@@ -31,7 +27,6 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import tuwien.auto.calimero.datapoint.Datapoint;
-import tuwien.auto.calimero.dptxlator.DPTXlator;
 import tuwien.auto.calimero.dptxlator.DPTXlator2ByteUnsigned;
 import tuwien.auto.calimero.dptxlator.DPTXlator3BitControlled;
 import tuwien.auto.calimero.dptxlator.DPTXlator4ByteFloat;
@@ -42,8 +37,6 @@ import tuwien.auto.calimero.dptxlator.DPTXlatorDate;
 import tuwien.auto.calimero.dptxlator.DPTXlatorSceneNumber;
 import tuwien.auto.calimero.dptxlator.DPTXlatorString;
 import tuwien.auto.calimero.dptxlator.DPTXlatorTime;
-import tuwien.auto.calimero.dptxlator.TranslatorTypes;
-import tuwien.auto.calimero.exception.KNXException;
 
 /** 
  * This class provides type mapping between all openHAB core types and KNX data point types.
@@ -56,9 +49,6 @@ public class KNXCoreTypeMapper implements KNXTypeMapper {
 	
 	static private final Logger logger = LoggerFactory.getLogger(KNXCoreTypeMapper.class);
 	
-	private final static SimpleDateFormat TIME_FORMATTER = new SimpleDateFormat("EEE, HH:mm:ss", Locale.US);
-	private final static SimpleDateFormat DATE_FORMATTER = new SimpleDateFormat("yyyy-MM-dd");
-	
 	/** stores the openHAB type class for all (supported) KNX datapoint types */
 	static private Map<String, Class<? extends Type>> dptTypeMap;
 
@@ -131,41 +121,17 @@ public class KNXCoreTypeMapper implements KNXTypeMapper {
 	}
 
 	public Type toType(Datapoint datapoint, byte[] data) {
-		try {
-			DPTXlator translator = TranslatorTypes.createTranslator(datapoint.getMainNumber(), datapoint.getDPT());
-			translator.setData(data);
-			String value = translator.getValue();
-			String id = translator.getType().getID();
-			logger.trace("toType datapoint DPT = " + datapoint.getDPT());
-			logger.trace("toType datapoint getMainNumber = " + datapoint.getMainNumber());
-			if(datapoint.getMainNumber()==9) id = "9.001"; // we do not care about the unit of a value, so map everything to 9.001
-			if(datapoint.getMainNumber()==14) id = "14.001"; // we do not care about the unit of a value, so map everything to 14.001
-			Class<? extends Type> typeClass = toTypeClass(id);
-			if (typeClass == null) {
-				return null;
-			}
-	
-			if(typeClass.equals(UpDownType.class)) return UpDownType.valueOf(value.toUpperCase());
-			if(typeClass.equals(IncreaseDecreaseType.class)) return IncreaseDecreaseType.valueOf(StringUtils.substringBefore(value.toUpperCase(), " "));
-			if(typeClass.equals(OnOffType.class)) return OnOffType.valueOf(value.toUpperCase());
-			if(typeClass.equals(PercentType.class)) {
-				if(id.equals(DPTXlator8BitUnsigned.DPT_PERCENT_U8.getID())) {
-					return PercentType.valueOf(mapToPercent(value));
-				} else {
-					return PercentType.valueOf(value.split(" ")[0]);
-				}
-			}
-			if(typeClass.equals(DecimalType.class)) return DecimalType.valueOf(value.split(" ")[0]);
-			if(typeClass.equals(StringType.class)) return StringType.valueOf(value);
-			if(typeClass.equals(OpenClosedType.class)) return OpenClosedType.valueOf(value.toUpperCase());
-			if(typeClass.equals(StopMoveType.class)) return value.equals("start")?StopMoveType.MOVE:StopMoveType.STOP;
-			if(typeClass.equals(DateTimeType.class)) return DateTimeType.valueOf(formatDateTime(value, datapoint.getDPT()));
-		} 
-		catch (KNXException e) {
-			logger.warn("Failed creating a translator for datapoint type ‘{}‘.", datapoint.getDPT(), e);
+		String id = datapoint.getDPT();
+		logger.trace("toType datapoint DPT = " + id);
+		if (!KNXDptCodec.isSupported(id)) {
+			return null;
 		}
-		
-		return null;
+
+		Type type = KNXDptCodec.decode(id, data);
+		if (type == null) {
+			logger.warn("Could not decode data of datapoint type '{}'", id);
+		}
+		return type;
 	}
 	
 	/**
@@ -201,17 +167,6 @@ public class KNXCoreTypeMapper implements KNXTypeMapper {
 		return defaultDptMap.get(typeClass);
 	}
 
-	/**
-	 * Maps an 8-bit KNX percent value (range 0-255) to a "real" percent value as a string.
-	 * 
-	 * @param value the 8-bit KNX percent value
-	 * @return the real value as a string (e.g. "99.5")
-	 */
-	static private String mapToPercent(String value) {
-		int percent = Integer.parseInt(StringUtils.substringBefore(value.toString(), " "));
-		return Integer.toString(percent * 100 / 255);
-	}
-
 	/**
 	 * Maps an openHAB percent value to an 8-bit KNX percent value (0-255) as a string.
 	 * The mapping is linear and starts with 0->0 and ends with 100->255.
@@ -224,35 +179,6 @@ public class KNXCoreTypeMapper implements KNXTypeMapper {
 		return Integer.toString(value * 255 / 100);
 	}
 
-	/**
-	 * Formats the given <code>value</code> according to the datapoint type
-	 * <code>dpt</code> to a String which can be processed by {@link DateTimeType}.
-	 * 
-	 * @param value
-	 * @param dpt
-	 * 
-	 * @return a formatted String like </code>yyyy-MM-dd'T'HH:mm:ss</code> which
-	 * is target format of the {@link DateTimeType}
-	 */
-	private String formatDateTime(String value, String dpt) {
-		Date date = null;
-		
-		try {
-			if (DPTXlatorDate.DPT_DATE.getID().equals(dpt)) {
-				date = DATE_FORMATTER.parse(value);
-			}
-			else if (DPTXlatorTime.DPT_TIMEOFDAY.getID().equals(dpt)) {
-				date = TIME_FORMATTER.parse(value);
-			}
-		}
-		catch (ParseException pe) {
-			// do nothing but logging
-			logger.warn("Could not parse '{}' to a valid date", value);
-		}
-
-		return date != null ? DateTimeType.DATE_FORMATTER.format(date) : "";
-	}
-
 	/**
 	 * Formats the given internal <code>dateType</code> to a knx readable String
 	 * according to the target datapoint type <code>dpt</code>.
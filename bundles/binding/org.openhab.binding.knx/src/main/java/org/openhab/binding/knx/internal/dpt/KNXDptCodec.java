@@ -0,0 +1,651 @@
+/**
+ * Copyright (c) 2010-2014, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.knx.internal.dpt;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.Calendar;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.openhab.core.library.types.DateTimeType;
+import org.openhab.core.library.types.DecimalType;
+import org.openhab.core.library.types.IncreaseDecreaseType;
+import org.openhab.core.library.types.OnOffType;
+import org.openhab.core.library.types.OpenClosedType;
+import org.openhab.core.library.types.PercentType;
+import org.openhab.core.library.types.StopMoveType;
+import org.openhab.core.library.types.StringType;
+import org.openhab.core.library.types.UpDownType;
+import org.openhab.core.types.Type;
+
+/**
+ * This class converts the raw data of KNX telegrams (the ASDU) directly into
+ * openHAB types and vice versa, without creating a Calimero translator and
+ * without formatting and parsing an intermediate string for every telegram.
+ *
+ * The encoding of all datapoint types follows the KNX specification and
+ * produces the same results as the Calimero translators. For datapoint types
+ * with less than 7 bits, the value is stored in the low bits of the first byte.
+ *
+ * All codecs are stateless, dates and times are converted with a new
+ * {@link Calendar} instance per call, so the codecs can be used by any number
+ * of threads concurrently.
+ *
+ * @author Kai Kreuzer
+ * @since 1.5.0
+ */
+public class KNXDptCodec {
+
+	private static final Charset ISO_8859_1 = Charset.forName("ISO-8859-1");
+
+	/** stores the codecs for all supported datapoint type ids */
+	static private Map<String, Codec> codecs;
+
+	/** stores the codecs for main numbers where the sub number (the unit) does not matter */
+	static private Map<Integer, Codec> mainNumberCodecs;
+
+	static {
+		codecs = new HashMap<String, Codec>();
+		codecs.put("1.001", new BooleanCodec(OnOffType.ON, OnOffType.OFF));
+		codecs.put("1.007", new BooleanCodec(IncreaseDecreaseType.INCREASE, IncreaseDecreaseType.DECREASE));
+		codecs.put("1.008", new BooleanCodec(UpDownType.DOWN, UpDownType.UP));
+		codecs.put("1.010", new BooleanCodec(StopMoveType.MOVE, StopMoveType.STOP));
+		codecs.put("1.019", new BooleanCodec(OpenClosedType.OPEN, OpenClosedType.CLOSED));
+		codecs.put("3.007", new ControlDimmingCodec());
+		codecs.put("5.001", new ScalingCodec());
+		codecs.put("5.004", new PercentU8Codec());
+		codecs.put("5.005", new Unsigned8BitCodec());
+		codecs.put("5.010", new Unsigned8BitCodec());
+		codecs.put("7.007", new Unsigned16BitCodec());
+		codecs.put("7.012", new Unsigned16BitCodec());
+		codecs.put("7.013", new Unsigned16BitCodec());
+		codecs.put("10.001", new TimeOfDayCodec());
+		codecs.put("11.001", new DateCodec());
+		codecs.put("12.001", new Unsigned32BitCodec());
+		codecs.put("13.001", new Signed32BitCodec());
+		codecs.put("13.010", new Signed32BitCodec());
+		codecs.put("13.011", new Signed32BitCodec());
+		codecs.put("13.013", new Signed32BitCodec());
+		codecs.put("13.014", new Signed32BitCodec());
+		codecs.put("16.001", new StringCodec());
+		codecs.put("17.001", new SceneNumberCodec());
+
+		// we do not care about the unit of a value, so all sub numbers are mapped the same way
+		mainNumberCodecs = new HashMap<Integer, Codec>();
+		mainNumberCodecs.put(9, new Float16BitCodec());
+		mainNumberCodecs.put(14, new Float32BitCodec());
+	}
+
+	private KNXDptCodec() {
+	}
+
+	/**
+	 * Checks whether the given datapoint type can be converted by this class.
+	 *
+	 * @param dptId the datapoint type id, e.g. <code>9.001</code>
+	 * @return <code>true</code> if a codec exists for the datapoint type
+	 */
+	static public boolean isSupported(String dptId) {
+		return getCodec(dptId) != null;
+	}
+
+	/**
+	 * Returns the length of the data of a telegram for the given datapoint type.
+	 *
+	 * @param dptId the datapoint type id, e.g. <code>9.001</code>
+	 * @return the length in bytes or 0 if the datapoint type is not supported
+	 */
+	static public int getSize(String dptId) {
+		Codec codec = getCodec(dptId);
+		return codec != null ? codec.size : 0;
+	}
+
+	/**
+	 * Checks whether the data of the given datapoint type has less than 7 bits,
+	 * so that it is sent in the low bits of the APCI instead of separate bytes.
+	 *
+	 * @param dptId the datapoint type id, e.g. <code>1.001</code>
+	 * @return <code>true</code> if the datapoint type is supported and its data is compact
+	 */
+	static public boolean isCompact(String dptId) {
+		Codec codec = getCodec(dptId);
+		return codec != null && codec.isCompact();
+	}
+
+	/**
+	 * Converts the raw data of a telegram into an openHAB type.
+	 *
+	 * @param dptId the datapoint type id of the data
+	 * @param data the ASDU of the telegram
+	 * @return the openHAB type or <code>null</code> if the datapoint type is not
+	 * supported, the data is too short or does not contain a valid value
+	 */
+	static public Type decode(String dptId, byte[] data) {
+		Codec codec = getCodec(dptId);
+		if (codec == null || data == null || data.length < codec.size) {
+			return null;
+		}
+		return codec.decode(data);
+	}
+
+	/**
+	 * Converts an openHAB type into the raw data of a telegram.
+	 *
+	 * @param type the openHAB type to convert
+	 * @param dptId the target datapoint type id
+	 * @return the ASDU or <code>null</code> if the datapoint type is not
+	 * supported or the type can not be converted to it
+	 *
+	 * @throws IllegalArgumentException if the value is out of the range of the
+	 * datapoint type
+	 */
+	static public byte[] encode(Type type, String dptId) {
+		Codec codec = getCodec(dptId);
+		if (codec == null || type == null) {
+			return null;
+		}
+		return codec.encode(type);
+	}
+
+	static private Codec getCodec(String dptId) {
+		if (dptId == null) {
+			return null;
+		}
+		Codec codec = codecs.get(dptId);
+		if (codec == null) {
+			int dot = dptId.indexOf('.');
+			if (dot > 0) {
+				try {
+					codec = mainNumberCodecs.get(Integer.valueOf(dptId.substring(0, dot)));
+				} catch (NumberFormatException e) {
+					// not a valid datapoint type id
+				}
+			}
+		}
+		return codec;
+	}
+
+	static private int unsigned(byte[] data, int index) {
+		return data[index] & 0xff;
+	}
+
+	static private int signed32(byte[] data) {
+		return (unsigned(data, 0) << 24) | (unsigned(data, 1) << 16) | (unsigned(data, 2) << 8) | unsigned(data, 3);
+	}
+
+	static private byte[] toBytes32(int value) {
+		return new byte[] { (byte) (value >> 24), (byte) (value >> 16), (byte) (value >> 8), (byte) value };
+	}
+
+	static private long checkRange(DecimalType type, long min, long max) {
+		long value = type.longValue();
+		if (value < min || value > max) {
+			throw new IllegalArgumentException("Value " + type + " is out of range [" + min + ".." + max + "]");
+		}
+		return value;
+	}
+
+	/**
+	 * Converts the data of a single datapoint type.
+	 */
+	private abstract static class Codec {
+
+		/** minimum number of bytes of the ASDU */
+		final int size;
+
+		Codec(int size) {
+			this.size = size;
+		}
+
+		abstract Type decode(byte[] data);
+
+		abstract byte[] encode(Type type);
+
+		/** @return <code>true</code> if the data has less than 7 bits */
+		boolean isCompact() {
+			return false;
+		}
+	}
+
+	/**
+	 * DPT 1.xxx, a single bit mapped to one of two constants
+	 */
+	private static class BooleanCodec extends Codec {
+
+		private final Type one;
+
+		private final Type zero;
+
+		BooleanCodec(Type one, Type zero) {
+			super(1);
+			this.one = one;
+			this.zero = zero;
+		}
+
+		@Override
+		boolean isCompact() {
+			return true;
+		}
+
+		@Override
+		Type decode(byte[] data) {
+			return (data[0] & 0x01) != 0 ? one : zero;
+		}
+
+		@Override
+		byte[] encode(Type type) {
+			if (type == one) {
+				return new byte[] { 1 };
+			} else if (type == zero) {
+				return new byte[] { 0 };
+			}
+			return null;
+		}
+	}
+
+	/**
+	 * DPT 3.007, direction bit and a 3 bit step code of which only the
+	 * direction is used
+	 */
+	private static class ControlDimmingCodec extends Codec {
+
+		/** step code used for commands, 5 means 16 steps */
+		private static final int STEPCODE = 5;
+
+		ControlDimmingCodec() {
+			super(1);
+		}
+
+		@Override
+		boolean isCompact() {
+			return true;
+		}
+
+		@Override
+		Type decode(byte[] data) {
+			return (data[0] & 0x08) != 0 ? IncreaseDecreaseType.INCREASE : IncreaseDecreaseType.DECREASE;
+		}
+
+		@Override
+		byte[] encode(Type type) {
+			if (type == IncreaseDecreaseType.INCREASE) {
+				return new byte[] { 0x08 | STEPCODE };
+			} else if (type == IncreaseDecreaseType.DECREASE) {
+				return new byte[] { STEPCODE };
+			}
+			return null;
+		}
+	}
+
+	/**
+	 * DPT 5.xxx without a scaling of the value
+	 */
+	private static class Unsigned8BitCodec extends Codec {
+
+		Unsigned8BitCodec() {
+			super(1);
+		}
+
+		@Override
+		Type decode(byte[] data) {
+			return new DecimalType(unsigned(data, 0));
+		}
+
+		@Override
+		byte[] encode(Type type) {
+			if (type instanceof DecimalType) {
+				return new byte[] { (byte) checkRange((DecimalType) type, 0, 255) };
+			}
+			return null;
+		}
+	}
+
+	/**
+	 * DPT 5.001, the range 0-255 is scaled to 0-100 percent with rounding
+	 */
+	private static class ScalingCodec extends Codec {
+
+		ScalingCodec() {
+			super(1);
+		}
+
+		@Override
+		Type decode(byte[] data) {
+			return new PercentType(Math.round(unsigned(data, 0) * 100f / 255));
+		}
+
+		@Override
+		byte[] encode(Type type) {
+			if (type instanceof DecimalType) {
+				float value = ((DecimalType) type).floatValue();
+				if (value < 0 || value > 100) {
+					throw new IllegalArgumentException("Value " + type + " is out of range [0..100]");
+				}
+				return new byte[] { (byte) Math.round(value * 255 / 100) };
+			}
+			return null;
+		}
+	}
+
+	/**
+	 * DPT 5.004, the range 0-255 is mapped linearly to 0-100 percent without
+	 * rounding
+	 */
+	private static class PercentU8Codec extends Codec {
+
+		PercentU8Codec() {
+			super(1);
+		}
+
+		@Override
+		Type decode(byte[] data) {
+			return new PercentType(unsigned(data, 0) * 100 / 255);
+		}
+
+		@Override
+		byte[] encode(Type type) {
+			if (type instanceof PercentType) {
+				return new byte[] { (byte) (checkRange((DecimalType) type, 0, 100) * 255 / 100) };
+			} else if (type instanceof DecimalType) {
+				return new byte[] { (byte) checkRange((DecimalType) type, 0, 255) };
+			}
+			return null;
+		}
+	}
+
+	/**
+	 * DPT 7.xxx without a scaling of the value
+	 */
+	private static class Unsigned16BitCodec extends Codec {
+
+		Unsigned16BitCodec() {
+			super(2);
+		}
+
+		@Override
+		Type decode(byte[] data) {
+			return new DecimalType((unsigned(data, 0) << 8) | unsigned(data, 1));
+		}
+
+		@Override
+		byte[] encode(Type type) {
+			if (type instanceof DecimalType) {
+				long value = checkRange((DecimalType) type, 0, 0xffff);
+				return new byte[] { (byte) (value >> 8), (byte) value };
+			}
+			return null;
+		}
+	}
+
+	/**
+	 * DPT 9.xxx, value = 0.01 * mantissa * 2^exponent with an 11 bit mantissa,
+	 * a sign bit and a 4 bit exponent
+	 */
+	private static class Float16BitCodec extends Codec {
+
+		private static final float MIN = -671088.64f;
+
+		private static final float MAX = 670760.96f;
+
+		Float16BitCodec() {
+			super(2);
+		}
+
+		@Override
+		Type decode(byte[] data) {
+			int exponent = (data[0] >> 3) & 0x0f;
+			int mantissa = ((data[0] & 0x07) << 8) | unsigned(data, 1);
+			if ((data[0] & 0x80) != 0) {
+				mantissa -= 2048;
+			}
+			// same precision as the Calimero translator, so that the values look the same
+			float value = (float) (0.01 * mantissa * (1 << exponent));
+			return new DecimalType(new BigDecimal(Float.toString(value)));
+		}
+
+		@Override
+		byte[] encode(Type type) {
+			if (!(type instanceof DecimalType)) {
+				return null;
+			}
+			float value = ((DecimalType) type).floatValue();
+			if (value < MIN || value > MAX) {
+				throw new IllegalArgumentException("Value " + type + " is out of range [" + MIN + ".." + MAX + "]");
+			}
+			float mantissa = value * 100;
+			int exponent = 0;
+			while (mantissa < -2048 || mantissa > 2047) {
+				exponent++;
+				mantissa /= 2;
+			}
+			int bits = Math.round(mantissa) & 0x7ff;
+			int high = (exponent << 3) | (bits >> 8);
+			if (value < 0) {
+				high |= 0x80;
+			}
+			return new byte[] { (byte) high, (byte) bits };
+		}
+	}
+
+	/**
+	 * DPT 12.001
+	 */
+	private static class Unsigned32BitCodec extends Codec {
+
+		Unsigned32BitCodec() {
+			super(4);
+		}
+
+		@Override
+		Type decode(byte[] data) {
+			return new DecimalType(signed32(data) & 0xffffffffL);
+		}
+
+		@Override
+		byte[] encode(Type type) {
+			if (type instanceof DecimalType) {
+				return toBytes32((int) checkRange((DecimalType) type, 0, 0xffffffffL));
+			}
+			return null;
+		}
+	}
+
+	/**
+	 * DPT 13.xxx
+	 */
+	private static class Signed32BitCodec extends Codec {
+
+		Signed32BitCodec() {
+			super(4);
+		}
+
+		@Override
+		Type decode(byte[] data) {
+			return new DecimalType(signed32(data));
+		}
+
+		@Override
+		byte[] encode(Type type) {
+			if (type instanceof DecimalType) {
+				return toBytes32((int) checkRange((DecimalType) type, Integer.MIN_VALUE, Integer.MAX_VALUE));
+			}
+			return null;
+		}
+	}
+
+	/**
+	 * DPT 14.xxx, IEEE 754 single precision
+	 */
+	private static class Float32BitCodec extends Codec {
+
+		Float32BitCodec() {
+			super(4);
+		}
+
+		@Override
+		Type decode(byte[] data) {
+			float value = Float.intBitsToFloat(signed32(data));
+			if (Float.isNaN(value) || Float.isInfinite(value)) {
+				return null;
+			}
+			return new DecimalType(new BigDecimal(Float.toString(value)));
+		}
+
+		@Override
+		byte[] encode(Type type) {
+			if (type instanceof DecimalType) {
+				return toBytes32(Float.floatToIntBits(((DecimalType) type).floatValue()));
+			}
+			return null;
+		}
+	}
+
+	/**
+	 * DPT 16.xxx, up to 14 characters padded with zeros
+	 */
+	private static class StringCodec extends Codec {
+
+		private static final int LENGTH = 14;
+
+		StringCodec() {
+			super(0);
+		}
+
+		@Override
+		Type decode(byte[] data) {
+			int length = 0;
+			while (length < data.length && length < LENGTH && data[length] != 0) {
+				length++;
+			}
+			return new StringType(ISO_8859_1.decode(ByteBuffer.wrap(data, 0, length)).toString());
+		}
+
+		@Override
+		byte[] encode(Type type) {
+			if (!(type instanceof StringType) && !(type instanceof DecimalType)) {
+				return null;
+			}
+			ByteBuffer chars = ISO_8859_1.encode(type.toString());
+			if (chars.remaining() > LENGTH) {
+				throw new IllegalArgumentException("String '" + type + "' exceeds " + LENGTH + " characters");
+			}
+			byte[] data = new byte[LENGTH];
+			chars.get(data, 0, chars.remaining());
+			return data;
+		}
+	}
+
+	/**
+	 * DPT 17.001, scene number 0-63
+	 */
+	private static class SceneNumberCodec extends Codec {
+
+		SceneNumberCodec() {
+			super(1);
+		}
+
+		@Override
+		Type decode(byte[] data) {
+			return new DecimalType(data[0] & 0x3f);
+		}
+
+		@Override
+		byte[] encode(Type type) {
+			if (type instanceof DecimalType) {
+				return new byte[] { (byte) checkRange((DecimalType) type, 0, 63) };
+			}
+			return null;
+		}
+	}
+
+	/**
+	 * DPT 10.001, day of week (1 = Monday, 0 = no day), hour, minutes and
+	 * seconds. The time is mapped to the first week of January 1970 (Thursday
+	 * to Wednesday), if no day of week is given to January 1st 1970.
+	 */
+	private static class TimeOfDayCodec extends Codec {
+
+		TimeOfDayCodec() {
+			super(3);
+		}
+
+		@Override
+		Type decode(byte[] data) {
+			int day = (data[0] >> 5) & 0x07;
+			int hour = data[0] & 0x1f;
+			int minute = data[1] & 0x3f;
+			int second = data[2] & 0x3f;
+			if (hour > 23 || minute > 59 || second > 59) {
+				return null;
+			}
+			// January 1st 1970 was a Thursday (day 4)
+			int dayOfMonth = day == 0 ? 1 : 1 + (day + 3) % 7;
+
+			Calendar calendar = Calendar.getInstance();
+			calendar.clear();
+			calendar.set(1970, Calendar.JANUARY, dayOfMonth, hour, minute, second);
+			return new DateTimeType(calendar);
+		}
+
+		@Override
+		byte[] encode(Type type) {
+			if (!(type instanceof DateTimeType)) {
+				return null;
+			}
+			Calendar calendar = ((DateTimeType) type).getCalendar();
+			// Calendar starts the week with Sunday = 1, KNX with Monday = 1
+			int day = (calendar.get(Calendar.DAY_OF_WEEK) + 5) % 7 + 1;
+			return new byte[] { (byte) ((day << 5) | calendar.get(Calendar.HOUR_OF_DAY)),
+					(byte) calendar.get(Calendar.MINUTE), (byte) calendar.get(Calendar.SECOND) };
+		}
+	}
+
+	/**
+	 * DPT 11.001, day, month and a two digit year where values below 90 mean
+	 * the 21st century. The date is mapped to midnight.
+	 */
+	private static class DateCodec extends Codec {
+
+		DateCodec() {
+			super(3);
+		}
+
+		@Override
+		Type decode(byte[] data) {
+			int day = data[0] & 0x1f;
+			int month = data[1] & 0x0f;
+			int year = data[2] & 0x7f;
+			if (day < 1 || month < 1 || month > 12 || year > 99) {
+				return null;
+			}
+
+			Calendar calendar = Calendar.getInstance();
+			calendar.clear();
+			calendar.set(year < 90 ? 2000 + year : 1900 + year, month - 1, day);
+			return new DateTimeType(calendar);
+		}
+
+		@Override
+		byte[] encode(Type type) {
+			if (!(type instanceof DateTimeType)) {
+				return null;
+			}
+			Calendar calendar = ((DateTimeType) type).getCalendar();
+			int year = calendar.get(Calendar.YEAR);
+			if (year < 1990 || year > 2089) {
+				throw new IllegalArgumentException("Year " + year + " is out of range [1990..2089]");
+			}
+			return new byte[] { (byte) calendar.get(Calendar.DAY_OF_MONTH),
+					(byte) (calendar.get(Calendar.MONTH) + 1), (byte) (year % 100) };
+		}
+	}
+
+}
@@ -8,12 +8,17 @@
  */
 package org.openhab.binding.modbus.internal;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Dictionary;
 import java.util.Enumeration;
-import java.util.HashSet;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -52,7 +57,7 @@ public class ModbusBinding extends AbstractActiveBinding<ModbusBindingProvider>
 	private static final String SERIAL_PREFIX = "serial";
 
 	private static final Pattern EXTRACT_MODBUS_CONFIG_PATTERN =
-		Pattern.compile("^("+TCP_PREFIX+"|"+SERIAL_PREFIX+"|)\\.(.*?)\\.(connection|id|pollInterval|start|length|type)$");
+		Pattern.compile("^("+TCP_PREFIX+"|"+SERIAL_PREFIX+"|)\\.(.*?)\\.(connection|id|pollInterval|deadband|start|length|type)$");
 
 	/** Stores instances of all the slaves defined in cfg file */
 	private static Map<String, ModbusSlave> modbusSlaves = new ConcurrentHashMap<String, ModbusSlave>();
@@ -60,17 +65,35 @@ public class ModbusBinding extends AbstractActiveBinding<ModbusBindingProvider>
 	/** slaves update interval in milliseconds, defaults to 200ms */
 	public static int pollInterval = 200;
 
+	/** slaves grouped by their endpoint, each group is polled by its own worker */
+	private Map<String, ModbusPollingGroup> pollingGroups = new ConcurrentHashMap<String, ModbusPollingGroup>();
+
+	private ExecutorService pollingExecutor = null;
+
+	/** item configurations grouped by slave name, rebuilt when the bindings change */
+	private volatile Map<String, List<ModbusBindingConfig>> itemConfigs = null;
+
+	/** number of binding changes, an index built before the last change is not published */
+	private long itemConfigsGeneration = 0;
+
+	private final Object itemConfigsLock = new Object();
+
+	/** interval of the polling thread, the shortest poll interval of all slaves */
+	private long refreshInterval = pollInterval;
+
 	
 	public void activate() {
 	}
 
 	public void deactivate() {
+		logStatistics();
+		shutdownPollingExecutor();
 	}
 	
 	
 	@Override
 	protected long getRefreshInterval() {
-		return 	pollInterval;
+		return 	refreshInterval;
 	}
 
 	@Override
@@ -95,54 +118,122 @@ public class ModbusBinding extends AbstractActiveBinding<ModbusBindingProvider>
 
 	/**
 	 * Posts update event to OpenHAB bus for "holding" type slaves
-	 * @param binding ModbusBinding to get item configuration from BindingProviding
 	 * @param registers data received from slave device in the last pollInterval
-	 * @param itemName item to update
+	 * @param config configuration of the item to update
+	 * @param deadband minimum change of the register value to post an update for Number items
 	 */
-	protected void internalUpdateItem(String slaveName, InputRegister[] registers,
-			String itemName) {
-		for (ModbusBindingProvider provider : providers) {
-			if (provider.providesBindingFor(itemName)) {
-				ModbusBindingConfig config = provider.getConfig(itemName);
-				if (config.slaveName.equals(slaveName)) {
-					InputRegister value = registers[config.readRegister];
-					if (config.getItem() instanceof SwitchItem) {
-						if (value.getValue() == 0 && (provider.getConfig(itemName).getItemState() != OnOffType.OFF)) {
-							eventPublisher.postUpdate(itemName, OnOffType.OFF);
-						} else if (value.getValue() != 0 && (provider.getConfig(itemName).getItemState() != OnOffType.ON)) {
-							eventPublisher.postUpdate(itemName, OnOffType.ON);							
-						}
-					} else {
-					DecimalType newState = new DecimalType(value.getValue());
-					if (!newState.equals(provider.getConfig(itemName).getItemState()))
-						eventPublisher.postUpdate(itemName, newState);
-					}
-				}
+	protected void internalUpdateItem(InputRegister[] registers, ModbusBindingConfig config, int deadband) {
+		String itemName = config.getItem().getName();
+		int value = registers[config.readRegister].getValue();
+		State currentState = config.getItemState();
+
+		if (config.getItem() instanceof SwitchItem) {
+			if (value == 0 && currentState != OnOffType.OFF) {
+				eventPublisher.postUpdate(itemName, OnOffType.OFF);
+			} else if (value != 0 && currentState != OnOffType.ON) {
+				eventPublisher.postUpdate(itemName, OnOffType.ON);
+			}
+		} else {
+			// skip unchanged registers as long as nobody else changed the item state
+			if (config.lastState != null && config.lastState.equals(currentState)
+					&& Math.abs(value - config.lastValue) <= deadband) {
+				return;
+			}
+			DecimalType newState = new DecimalType(value);
+			if (!newState.equals(currentState)) {
+				eventPublisher.postUpdate(itemName, newState);
 			}
+			config.lastValue = value;
+			config.lastState = newState;
 		}
 	}
 
 	/**
 	 * Posts update event to OpenHAB bus for "coil" type slaves
-	 * @param binding ModbusBinding to get item configuration from BindingProviding
-	 * @param registers data received from slave device in the last pollInterval
-	 * @param item item to update
+	 * @param coils data received from slave device in the last pollInterval
+	 * @param config configuration of the item to update
+	 */
+	protected void internalUpdateItem(BitVector coils, ModbusBindingConfig config) {
+		boolean state = coils.getBit(config.readRegister);
+		State currentState = config.getItemState();
+		State newState = config.translateBoolean2State(state);
+		if (!newState.equals(currentState)) {
+			eventPublisher.postUpdate(config.getItem().getName(), newState);
+		}
+	}
+
+	/**
+	 * Returns the configurations of all the items bound to the given slave
+	 * @param slaveName name of the slave
+	 * @return list of item configurations, empty if there are none
+	 */
+	public List<ModbusBindingConfig> getItemConfigs(String slaveName) {
+		Map<String, List<ModbusBindingConfig>> configs = itemConfigs;
+		if (configs == null) {
+			long generation;
+			synchronized (itemConfigsLock) {
+				generation = itemConfigsGeneration;
+			}
+			configs = indexItemConfigs();
+			synchronized (itemConfigsLock) {
+				// the bindings may have changed while the index has been built
+				if (generation == itemConfigsGeneration) {
+					itemConfigs = configs;
+				}
+			}
+		}
+		List<ModbusBindingConfig> result = configs.get(slaveName);
+		if (result == null) {
+			return Collections.emptyList();
+		}
+		return result;
+	}
+
+	/**
+	 * Groups the configurations of all the items by slave name
 	 */
-	protected void internalUpdateItem(String slaveName, BitVector coils,
-			String itemName) {
+	private Map<String, List<ModbusBindingConfig>> indexItemConfigs() {
+		Map<String, List<ModbusBindingConfig>> configs = new HashMap<String, List<ModbusBindingConfig>>();
 		for (ModbusBindingProvider provider : providers) {
-			if (provider.providesBindingFor(itemName)) {
+			for (String itemName : provider.getItemNames()) {
 				ModbusBindingConfig config = provider.getConfig(itemName);
-				if (config.slaveName.equals(slaveName)) {
-					boolean state = coils.getBit(config.readRegister);
-					State currentState = provider.getConfig(itemName).getItemState();
-					State newState = provider.getConfig(itemName).translateBoolean2State(state);
-					if (!newState.equals(currentState)) {
-						eventPublisher.postUpdate(itemName, newState);
-					}
+				if (config == null) {
+					continue;
 				}
+				List<ModbusBindingConfig> slaveConfigs = configs.get(config.slaveName);
+				if (slaveConfigs == null) {
+					slaveConfigs = new ArrayList<ModbusBindingConfig>();
+					configs.put(config.slaveName, slaveConfigs);
+				}
+				slaveConfigs.add(config);
 			}
 		}
+		return configs;
+	}
+
+	private void invalidateItemConfigs() {
+		synchronized (itemConfigsLock) {
+			itemConfigsGeneration++;
+			itemConfigs = null;
+		}
+	}
+
+	@Override
+	public void bindingChanged(BindingProvider provider, String itemName) {
+		invalidateItemConfigs();
+		super.bindingChanged(provider, itemName);
+	}
+
+	@Override
+	public void allBindingsChanged(BindingProvider provider) {
+		invalidateItemConfigs();
+		super.allBindingsChanged(provider);
+	}
+
+	@Override
+	public void removeBindingProvider(ModbusBindingProvider provider) {
+		invalidateItemConfigs();
+		super.removeBindingProvider(provider);
 	}
 	
 
@@ -163,16 +254,40 @@ public class ModbusBinding extends AbstractActiveBinding<ModbusBindingProvider>
 	
 	
 	/**
-	 * updates all slaves from the modbusSlaves
+	 * hands all polling groups with slaves that are due over to the polling executor
 	 */
 	@Override
 	protected void execute() {
-		Collection<ModbusSlave> slaves = new HashSet<ModbusSlave>();
-		synchronized (slaves) {
-			slaves.addAll(modbusSlaves.values());
+		ExecutorService executor = getPollingExecutor();
+		long now = System.currentTimeMillis();
+		for (ModbusPollingGroup group : pollingGroups.values()) {
+			group.poll(executor, now);
 		}
-		for (ModbusSlave slave : slaves) {
-			slave.update(this);
+	}
+
+	private synchronized ExecutorService getPollingExecutor() {
+		if (pollingExecutor == null) {
+			// at most one worker per polling group is busy at any time
+			pollingExecutor = Executors.newCachedThreadPool();
+		}
+		return pollingExecutor;
+	}
+
+	/**
+	 * Logs the transaction statistics of all polling groups
+	 */
+	private void logStatistics() {
+		for (ModbusPollingGroup group : pollingGroups.values()) {
+			logger.debug("ModbusPollingGroup '{}': {} requests and {} bytes per cycle, {} ms average latency",
+				new Object[] { group.getEndpoint(), group.getTransactionsPerCycle(),
+					group.getBytesPerCycle(), group.getAverageLatency() });
+		}
+	}
+
+	private synchronized void shutdownPollingExecutor() {
+		if (pollingExecutor != null) {
+			pollingExecutor.shutdownNow();
+			pollingExecutor = null;
 		}
 	}
 	
@@ -180,9 +295,13 @@ public class ModbusBinding extends AbstractActiveBinding<ModbusBindingProvider>
 	@Override
 	public void updated(Dictionary<String, ?> config) throws ConfigurationException {
 		// remove all known items if configuration changed
+		logStatistics();
 		modbusSlaves.clear();
+		pollingGroups.clear();
+		shutdownPollingExecutor();
 
 		if (config != null) {
+			int maxGap = ModbusPollingGroup.DEFAULT_MAX_GAP;
 			Enumeration<String> keys = config.keys();
 			while (keys.hasMoreElements()) {
 				String key = (String) keys.nextElement();
@@ -201,9 +320,13 @@ public class ModbusBinding extends AbstractActiveBinding<ModbusBindingProvider>
 						}
 					} else if ("writemultipleregisters".equals(key)) {
 						ModbusSlave.setWriteMultipleRegisters(Boolean.valueOf(config.get(key).toString()));
+					} else if ("coalescegap".equals(key)) {
+						if (StringUtils.isNotBlank((String) config.get(key))) {
+							maxGap = Integer.valueOf((String) config.get(key));
+						}
 					} else {
 						logger.debug("given modbus-slave-config-key '" + key
-							+ "' does not follow the expected pattern 'pollInterval' or '<slaveId>.<connection|id|start|length|type>'");
+							+ "' does not follow the expected pattern 'pollInterval' or '<slaveId>.<connection|id|pollInterval|deadband|start|length|type>'");
 					}
 					continue;
 				}
@@ -247,6 +370,10 @@ public class ModbusBinding extends AbstractActiveBinding<ModbusBindingProvider>
 					modbusSlave.setLength(Integer.valueOf(value));
 				} else if ("id".equals(configKey)) {
 					modbusSlave.setId(Integer.valueOf(value));
+				} else if ("pollInterval".equals(configKey)) {
+					modbusSlave.setPollInterval(Integer.valueOf(value));
+				} else if ("deadband".equals(configKey)) {
+					modbusSlave.setDeadband(Integer.valueOf(value));
 				} else if ("type".equals(configKey)) {
 					if (ArrayUtils.contains(ModbusBindingProvider.SLAVE_DATA_TYPES, value)) {
 						modbusSlave.setType(value);
@@ -259,9 +386,21 @@ public class ModbusBinding extends AbstractActiveBinding<ModbusBindingProvider>
 				}
 			}
 
-			// connect instances to modbus slaves
+			// connect instances to modbus slaves and group them by endpoint
+			refreshInterval = pollInterval;
 			for (ModbusSlave slave : modbusSlaves.values()) {
 				slave.connect();
+
+				ModbusPollingGroup group = pollingGroups.get(slave.getEndpoint());
+				if (group == null) {
+					group = new ModbusPollingGroup(slave.getEndpoint(), this, maxGap);
+					pollingGroups.put(slave.getEndpoint(), group);
+				}
+				group.addSlave(slave);
+
+				if (slave.getPollInterval() > 0 && slave.getPollInterval() < refreshInterval) {
+					refreshInterval = slave.getPollInterval();
+				}
 			}
 
 			setProperlyConfigured(true);
@@ -131,6 +131,13 @@ public class ModbusGenericBindingProvider extends AbstractGenericBindingProvider
 		 * OpenHAB Item to be configured 
 		 */
 		private Item item = null;
+
+		/**
+		 * Register value and state of the last update posted for this item,
+		 * used to skip unchanged registers while polling
+		 */
+		int lastValue;
+		State lastState = null;
 		
 		public Item getItem() {
 			return item;
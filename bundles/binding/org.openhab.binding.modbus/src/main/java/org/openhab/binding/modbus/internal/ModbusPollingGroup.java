@@ -0,0 +1,196 @@
+/**
+ * Copyright (c) 2010-2014, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.modbus.internal;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * ModbusPollingGroup contains all slaves which are reached through the same
+ * physical endpoint (TCP host and port or serial line). The slaves of a group
+ * are polled one after the other by a single worker, while different groups
+ * are polled in parallel, so that a slow or unreachable device only delays
+ * the slaves sharing its endpoint.
+ * 
+ * The ranges of the due slaves are merged into as few read requests as
+ * possible, see {@link ModbusReadBlock}.
+ *
+ * @author Dmitry Krasnov
+ * @since 1.5.0
+ */
+public class ModbusPollingGroup implements Runnable {
+
+	private static final Logger logger = LoggerFactory.getLogger(ModbusPollingGroup.class);
+
+	/** default number of unused coils or registers between merged ranges, only adjacent ranges are merged */
+	public static final int DEFAULT_MAX_GAP = 0;
+
+	/** endpoint shared by all slaves of this group */
+	private final String endpoint;
+
+	/** maximum number of unused coils or registers between merged ranges, negative to disable merging */
+	private final int maxGap;
+
+	private final List<ModbusSlave> slaves = new CopyOnWriteArrayList<ModbusSlave>();
+
+	/** true while a worker is polling the slaves of this group */
+	private final AtomicBoolean polling = new AtomicBoolean(false);
+
+	private final ModbusBinding binding;
+
+	/** statistics since the group was created */
+	private long transactions = 0;
+	private long transactionTime = 0;
+	private long bytes = 0;
+	private long cycles = 0;
+
+	public ModbusPollingGroup(String endpoint, ModbusBinding binding, int maxGap) {
+		this.endpoint = endpoint;
+		this.binding = binding;
+		this.maxGap = maxGap;
+	}
+
+	public String getEndpoint() {
+		return endpoint;
+	}
+
+	void addSlave(ModbusSlave slave) {
+		slaves.add(slave);
+	}
+
+	List<ModbusSlave> getSlaves() {
+		return slaves;
+	}
+
+	/**
+	 * Hands the group over to <code>executor</code> if any of its slaves is due
+	 * for polling. Nothing is done while the previous poll of the group is still
+	 * running, so that requests never pile up on a slow endpoint.
+	 *
+	 * @param executor executor to run the poll on
+	 * @param now current time in milliseconds
+	 */
+	void poll(Executor executor, long now) {
+		if (!isDue(now)) {
+			return;
+		}
+		if (polling.compareAndSet(false, true)) {
+			try {
+				executor.execute(this);
+			} catch (RuntimeException e) {
+				polling.set(false);
+				logger.debug("ModbusPollingGroup: could not schedule poll of '" + endpoint + "': " + e.getMessage());
+			}
+		} else {
+			logger.trace("ModbusPollingGroup: previous poll of '{}' still running", endpoint);
+		}
+	}
+
+	private boolean isDue(long now) {
+		for (ModbusSlave slave : slaves) {
+			if (slave.isDue(now)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Polls all slaves of the group which are due
+	 */
+	public void run() {
+		try {
+			long now = System.currentTimeMillis();
+			List<ModbusSlave> dueSlaves = new ArrayList<ModbusSlave>();
+			for (ModbusSlave slave : slaves) {
+				if (slave.isDue(now)) {
+					slave.scheduleNextPoll(now, ModbusBinding.pollInterval);
+					dueSlaves.add(slave);
+				}
+			}
+			if (dueSlaves.isEmpty()) {
+				return;
+			}
+
+			int cycleTransactions = 0;
+			long cycleTime = 0;
+			int cycleBytes = 0;
+			for (ModbusReadBlock block : ModbusReadBlock.plan(dueSlaves, maxGap)) {
+				ModbusSlave leader = block.getSlaves().get(0);
+				if (!leader.connect()) {
+					leader.resetConnection();
+					logger.info("ModbusSlave not connected");
+					continue;
+				}
+
+				Object data = null;
+				long started = System.nanoTime();
+				try {
+					data = block.read();
+				} catch (Exception e) {
+					leader.resetConnection();
+					logger.info("ModbusSlave error getting responce from slave");
+					continue;
+				} finally {
+					cycleTransactions++;
+					cycleTime += System.nanoTime() - started;
+					cycleBytes += leader.getLastTransferSize();
+				}
+
+				for (ModbusSlave slave : block.getSlaves()) {
+					slave.apply(binding, block.slice(data, slave));
+				}
+			}
+
+			synchronized (this) {
+				cycles++;
+				transactions += cycleTransactions;
+				transactionTime += cycleTime;
+				bytes += cycleBytes;
+			}
+			if (logger.isDebugEnabled()) {
+				logger.debug("ModbusPollingGroup '{}': polled {} slaves with {} requests, {} bytes, {} ms average latency",
+					new Object[] { endpoint, dueSlaves.size(), cycleTransactions, cycleBytes,
+						cycleTransactions > 0 ? cycleTime / cycleTransactions / 1000000 : 0 });
+			}
+		} catch (RuntimeException e) {
+			logger.info("ModbusPollingGroup: error polling '" + endpoint + "': " + e.getMessage());
+		} finally {
+			polling.set(false);
+		}
+	}
+
+	/**
+	 * @return average duration of a read request in milliseconds
+	 */
+	public synchronized double getAverageLatency() {
+		return transactions > 0 ? transactionTime / (double) transactions / 1000000 : 0;
+	}
+
+	/**
+	 * @return average number of bytes sent and received per polling cycle
+	 */
+	public synchronized long getBytesPerCycle() {
+		return cycles > 0 ? bytes / cycles : 0;
+	}
+
+	/**
+	 * @return average number of read requests per polling cycle
+	 */
+	public synchronized double getTransactionsPerCycle() {
+		return cycles > 0 ? transactions / (double) cycles : 0;
+	}
+
+}
@@ -0,0 +1,178 @@
+/**
+ * Copyright (c) 2010-2014, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.modbus.internal;
+
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import net.wimpi.modbus.Modbus;
+import net.wimpi.modbus.ModbusIOException;
+import net.wimpi.modbus.util.BitVector;
+
+import org.openhab.binding.modbus.ModbusBindingProvider;
+
+/**
+ * ModbusReadBlock is a single read request that covers the ranges of one or
+ * more slaves which share the same endpoint, unit id and data type. The data
+ * read for the whole block is split up again and handed to every slave as if
+ * it had read its own range.
+ *
+ * @author Dmitry Krasnov
+ * @since 1.5.0
+ */
+public class ModbusReadBlock {
+
+	/** maximum number of registers that can be read with FC03 and FC04 */
+	public static final int MAX_REGISTERS = 125;
+
+	/** maximum number of coils or discrete inputs that can be read with FC01 and FC02 */
+	public static final int MAX_BITS = Modbus.MAX_BITS;
+
+	private static final Comparator<ModbusSlave> BY_START = new Comparator<ModbusSlave>() {
+		public int compare(ModbusSlave s1, ModbusSlave s2) {
+			return s1.getStart() - s2.getStart();
+		}
+	};
+
+	private final int start;
+
+	private int length;
+
+	private final List<ModbusSlave> slaves = new ArrayList<ModbusSlave>();
+
+	private ModbusReadBlock(ModbusSlave slave) {
+		this.start = slave.getStart();
+		this.length = slave.getLength();
+		this.slaves.add(slave);
+	}
+
+	public int getStart() {
+		return start;
+	}
+
+	public int getLength() {
+		return length;
+	}
+
+	public List<ModbusSlave> getSlaves() {
+		return slaves;
+	}
+
+	/**
+	 * Merges the ranges of the given slaves into the smallest number of read
+	 * requests. Slaves are only merged if they have the same unit id and type,
+	 * if the number of unused coils or registers between them does not exceed
+	 * <code>maxGap</code> and if the resulting request does not exceed the
+	 * maximum length of the Modbus protocol.
+	 *
+	 * @param slaves slaves sharing the same endpoint
+	 * @param maxGap maximum number of unused coils or registers between two
+	 * merged ranges, a negative value disables merging
+	 * @return the read requests to execute
+	 */
+	public static List<ModbusReadBlock> plan(List<ModbusSlave> slaves, int maxGap) {
+		List<ModbusReadBlock> blocks = new ArrayList<ModbusReadBlock>();
+		if (maxGap < 0) {
+			for (ModbusSlave slave : slaves) {
+				blocks.add(new ModbusReadBlock(slave));
+			}
+			return blocks;
+		}
+
+		// ranges can only be merged for the same unit id and function code
+		Map<String, List<ModbusSlave>> partitions = new LinkedHashMap<String, List<ModbusSlave>>();
+		for (ModbusSlave slave : slaves) {
+			String key = slave.getId() + ":" + slave.getType();
+			List<ModbusSlave> partition = partitions.get(key);
+			if (partition == null) {
+				partition = new ArrayList<ModbusSlave>();
+				partitions.put(key, partition);
+			}
+			partition.add(slave);
+		}
+
+		for (List<ModbusSlave> partition : partitions.values()) {
+			Collections.sort(partition, BY_START);
+			int maxLength = getMaxLength(partition.get(0).getType());
+
+			ModbusReadBlock block = null;
+			for (ModbusSlave slave : partition) {
+				if (block != null && block.canMerge(slave, maxGap, maxLength)) {
+					block.merge(slave);
+				} else {
+					block = new ModbusReadBlock(slave);
+					blocks.add(block);
+				}
+			}
+		}
+		return blocks;
+	}
+
+	private static int getMaxLength(String type) {
+		if (ModbusBindingProvider.TYPE_COIL.equals(type) || ModbusBindingProvider.TYPE_DISCRETE.equals(type)) {
+			return MAX_BITS;
+		}
+		return MAX_REGISTERS;
+	}
+
+	private boolean canMerge(ModbusSlave slave, int maxGap, int maxLength) {
+		int end = start + length;
+		int slaveEnd = slave.getStart() + slave.getLength();
+		return slave.getStart() - end <= maxGap && Math.max(end, slaveEnd) - start <= maxLength;
+	}
+
+	private void merge(ModbusSlave slave) {
+		length = Math.max(start + length, slave.getStart() + slave.getLength()) - start;
+		slaves.add(slave);
+	}
+
+	/**
+	 * Reads the block through the connection of its first slave
+	 *
+	 * @return data of the whole block
+	 * @throws ModbusIOException if the device did not respond
+	 */
+	Object read() throws ModbusIOException {
+		return slaves.get(0).read(start, length);
+	}
+
+	/**
+	 * Extracts the range of <code>slave</code> from the data read for this block
+	 *
+	 * @param data data returned by {@link #read()}
+	 * @param slave one of the slaves of this block
+	 * @return BitVector or InputRegister[] for the range of the slave
+	 */
+	Object slice(Object data, ModbusSlave slave) {
+		if (slaves.size() == 1) {
+			return data;
+		}
+
+		int offset = slave.getStart() - start;
+		if (data instanceof BitVector) {
+			BitVector bits = (BitVector) data;
+			BitVector result = new BitVector(slave.getLength());
+			for (int i = 0; i < slave.getLength(); i++) {
+				result.setBit(i, bits.getBit(offset + i));
+			}
+			return result;
+		}
+
+		// keep the component type, "holding" slaves store Register objects
+		Object result = Array.newInstance(data.getClass().getComponentType(), slave.getLength());
+		System.arraycopy(data, offset, result, 0, slave.getLength());
+		return result;
+	}
+
+}
@@ -103,4 +103,9 @@ public class ModbusSerialSlave extends ModbusSlave {
 		connection = null;
 	}
 
+	public String getEndpoint() {
+		// all serial slaves share the same serial line
+		return "serial:" + port;
+	}
+
 }
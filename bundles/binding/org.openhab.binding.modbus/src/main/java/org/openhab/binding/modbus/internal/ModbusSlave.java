@@ -8,8 +8,9 @@
  */
 package org.openhab.binding.modbus.internal;
 
-import java.util.Collection;
+import java.util.List;
 
+import net.wimpi.modbus.ModbusIOException;
 import net.wimpi.modbus.io.ModbusTransaction;
 import net.wimpi.modbus.msg.ModbusRequest;
 import net.wimpi.modbus.msg.ModbusResponse;
@@ -29,6 +30,7 @@ import net.wimpi.modbus.procimg.Register;
 import net.wimpi.modbus.util.BitVector;
 
 import org.openhab.binding.modbus.ModbusBindingProvider;
+import org.openhab.binding.modbus.internal.ModbusGenericBindingProvider.ModbusBindingConfig;
 import org.openhab.core.library.types.DecimalType;
 import org.openhab.core.library.types.IncreaseDecreaseType;
 import org.openhab.core.library.types.OnOffType;
@@ -75,6 +77,15 @@ public abstract class ModbusSlave implements ModbusSlaveConnection {
 
 	private int length = 0;
 
+	/** poll interval in milliseconds, 0 to use the poll interval of the binding */
+	private int pollInterval = 0;
+
+	/** minimum change of a register value that is published to the bus, 0 to publish every change */
+	private int deadband = 0;
+
+	/** time of the next poll in milliseconds */
+	private volatile long nextPoll = 0;
+
 	private Object storage;
 	protected ModbusTransaction transaction = null; 
 
@@ -232,76 +243,120 @@ public abstract class ModbusSlave implements ModbusSlaveConnection {
 	}
 
 	/**
-	 * Reads data from the connected device and updates items with the new data
+	 * Reads a range of data of the type of this slave from the connected device
 	 * 
-	 * @param binding ModbusBindig that stores providers information
+	 * @param start reference of the first coil or register to read
+	 * @param length number of coils or registers to read
+	 * @return BitVector for "coil" and "discrete" types, InputRegister[] for
+	 * "holding" and "input" types
+	 * @throws ModbusIOException if the device did not respond
 	 */
-	public void update(ModbusBinding binding) {
-		if (!connect()) {
-			resetConnection();
-			logger.info("ModbusSlave not connected");
-			return;
-		}
-		
-		try {
-
+	Object read(int start, int length) throws ModbusIOException {
 		Object local = null;
 
-
-			if (ModbusBindingProvider.TYPE_COIL.equals(getType())) {
-				ModbusRequest request = new ReadCoilsRequest(getStart(), getLength());
-				if (this instanceof ModbusSerialSlave) {
-					request.setHeadless();
-				}
-				request.setUnitID(id);
-				ReadCoilsResponse responce = (ReadCoilsResponse) getModbusData(request);
+		if (ModbusBindingProvider.TYPE_COIL.equals(getType())) {
+			ModbusRequest request = new ReadCoilsRequest(start, length);
+			if (this instanceof ModbusSerialSlave) {
+				request.setHeadless();
+			}
+			request.setUnitID(id);
+			ReadCoilsResponse responce = (ReadCoilsResponse) getModbusData(request);
+			if (responce != null) {
 				local = responce.getCoils();
-			} else if (ModbusBindingProvider.TYPE_DISCRETE.equals(getType())) {
-				ModbusRequest request = new ReadInputDiscretesRequest(getStart(), getLength());
-				ReadInputDiscretesResponse responce = (ReadInputDiscretesResponse) getModbusData(request);
+			}
+		} else if (ModbusBindingProvider.TYPE_DISCRETE.equals(getType())) {
+			ModbusRequest request = new ReadInputDiscretesRequest(start, length);
+			ReadInputDiscretesResponse responce = (ReadInputDiscretesResponse) getModbusData(request);
+			if (responce != null) {
 				local = responce.getDiscretes();
-			} else if (ModbusBindingProvider.TYPE_HOLDING.equals(getType())) {
-				ModbusRequest request = new ReadMultipleRegistersRequest(getStart(), getLength());
-				ReadMultipleRegistersResponse responce = (ReadMultipleRegistersResponse) getModbusData(request);
+			}
+		} else if (ModbusBindingProvider.TYPE_HOLDING.equals(getType())) {
+			ModbusRequest request = new ReadMultipleRegistersRequest(start, length);
+			ReadMultipleRegistersResponse responce = (ReadMultipleRegistersResponse) getModbusData(request);
+			if (responce != null) {
 				local = responce.getRegisters();
-			} else if (ModbusBindingProvider.TYPE_INPUT.equals(getType())) {
-				ModbusRequest request = new ReadInputRegistersRequest(getStart(), getLength());
-				ReadInputRegistersResponse responce = (ReadInputRegistersResponse) getModbusData(request);
+			}
+		} else if (ModbusBindingProvider.TYPE_INPUT.equals(getType())) {
+			ModbusRequest request = new ReadInputRegistersRequest(start, length);
+			ReadInputRegistersResponse responce = (ReadInputRegistersResponse) getModbusData(request);
+			if (responce != null) {
 				local = responce.getRegisters();
 			}
-			if (storage == null) 
+		}
+
+		if (local == null) {
+			throw new ModbusIOException("no valid response for " + getType() + " " + start + "+" + length);
+		}
+		return local;
+	}
+
+	/**
+	 * @return number of bytes of the last request and response sent through
+	 * the transaction of this slave
+	 */
+	int getLastTransferSize() {
+		int size = 0;
+		if (transaction.getRequest() != null) {
+			size += transaction.getRequest().getOutputLength();
+		}
+		if (transaction.getResponse() != null) {
+			size += transaction.getResponse().getOutputLength();
+		}
+		return size;
+	}
+
+	/**
+	 * Stores data read from the device and updates the items of this slave
+	 * 
+	 * @param binding ModbusBindig that stores providers information
+	 * @param local data as returned by {@link #read(int, int)} for the range of this slave
+	 */
+	void apply(ModbusBinding binding, Object local) {
+		if (storage == null) 
+			storage = local;
+		else {
+			synchronized(storage) {
 				storage = local;
-			else {
-				synchronized(storage) {
-					storage = local;
-				}
-			}
-			Collection<String> items = binding.getItemNames();
-			for (String item : items) {
-				updateItem(binding, item);
 			}
-		} catch (Exception e) {
-			resetConnection();
-			logger.info("ModbusSlave error getting responce from slave");
 		}
-
+		List<ModbusBindingConfig> configs = binding.getItemConfigs(name);
+		for (ModbusBindingConfig config : configs) {
+			updateItem(binding, config);
+		}
 	}
 
 	/**
 	 * Updates OpenHAB item with data read from slave device
 	 * works only for type "coil" and "holding"
 	 * @param binding ModbusBinding
-	 * @param item item to update
+	 * @param config configuration of the item to update
 	 */
-	private void updateItem(ModbusBinding binding, String item) {
+	private void updateItem(ModbusBinding binding, ModbusBindingConfig config) {
 		if (ModbusBindingProvider.TYPE_COIL.equals(getType()) || ModbusBindingProvider.TYPE_DISCRETE.equals(getType())) {
-			binding.internalUpdateItem(name, (BitVector)storage,	item);
+			binding.internalUpdateItem((BitVector)storage, config);
 		}
 		if (ModbusBindingProvider.TYPE_HOLDING.equals(getType()) || ModbusBindingProvider.TYPE_INPUT.equals(getType())) {
-			binding.internalUpdateItem(name, (InputRegister[])storage, item);
+			binding.internalUpdateItem((InputRegister[])storage, config, deadband);
 		}
 	}
 
+	/**
+	 * @param now current time in milliseconds
+	 * @return true if the slave has to be polled
+	 */
+	boolean isDue(long now) {
+		return now >= nextPoll;
+	}
+
+	/**
+	 * Calculates the time of the next poll
+	 * @param now current time in milliseconds
+	 * @param defaultInterval poll interval to use if the slave has none configured
+	 */
+	void scheduleNextPoll(long now, int defaultInterval) {
+		nextPoll = now + (pollInterval > 0 ? pollInterval : defaultInterval);
+	}
+
 	/**
 	 * Executes Modbus transaction that reads data from the device and returns response data
 	 * @param request describes what data are requested from the device
@@ -358,4 +413,20 @@ public abstract class ModbusSlave implements ModbusSlaveConnection {
 		this.type = type;
 	}
 
+	int getPollInterval() {
+		return pollInterval;
+	}
+
+	void setPollInterval(int pollInterval) {
+		this.pollInterval = pollInterval;
+	}
+
+	int getDeadband() {
+		return deadband;
+	}
+
+	void setDeadband(int deadband) {
+		this.deadband = deadband;
+	}
+
 }
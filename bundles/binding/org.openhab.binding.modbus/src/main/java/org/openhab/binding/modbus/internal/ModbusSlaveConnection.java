@@ -13,4 +13,10 @@ public interface ModbusSlaveConnection {
 	public void resetConnection();
 	public boolean isConnected();
 
+	/**
+	 * @return identifier of the physical connection, slaves with the same
+	 * endpoint can not be accessed in parallel
+	 */
+	public String getEndpoint();
+
 }
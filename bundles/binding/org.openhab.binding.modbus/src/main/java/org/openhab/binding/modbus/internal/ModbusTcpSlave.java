@@ -81,6 +81,10 @@ public class ModbusTcpSlave extends ModbusSlave {
 		connection = null;
 	}
 
+	public String getEndpoint() {
+		return "tcp:" + getHost() + ":" + getPort();
+	}
+
 	String getHost() {
 		return host;
 	}
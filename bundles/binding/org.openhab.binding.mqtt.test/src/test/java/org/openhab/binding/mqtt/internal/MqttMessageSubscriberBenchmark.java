@@ -0,0 +1,83 @@
+/**
+ * Copyright (c) 2010-2014, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.mqtt.internal;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.openhab.core.library.types.DateTimeType;
+import org.openhab.core.library.types.DecimalType;
+import org.openhab.core.library.types.HSBType;
+import org.openhab.core.library.types.OnOffType;
+import org.openhab.core.library.types.OpenClosedType;
+import org.openhab.core.library.types.PercentType;
+import org.openhab.core.library.types.StringType;
+import org.openhab.core.library.types.UpDownType;
+import org.openhab.core.types.State;
+import org.openhab.core.types.TypeParser;
+
+/**
+ * Compares the time the {@link MqttMessageSubscriber} needs to parse typical
+ * energy meter readings with its parse plan to the time the
+ * {@link TypeParser} needs for them. It is not run by the test suite, but has
+ * to be started manually.
+ *
+ * @author Kai Kreuzer
+ * @since 1.5.0
+ */
+public class MqttMessageSubscriberBenchmark {
+
+	private static final int MESSAGES = 1000000;
+
+	private static final String[] VALUES = { "1234.5", "230.1", "ON", "0.25", "meter ok" };
+
+	public static void main(String[] args) throws Exception {
+		MqttMessageSubscriber subscriber = new MqttMessageSubscriber("mybroker:/mytopic:state:default");
+
+		List<Class<? extends State>> stateList = new ArrayList<Class<? extends State>>();
+		stateList.add(OnOffType.class);
+		stateList.add(OpenClosedType.class);
+		stateList.add(UpDownType.class);
+		stateList.add(HSBType.class);
+		stateList.add(PercentType.class);
+		stateList.add(DecimalType.class);
+		stateList.add(DateTimeType.class);
+		stateList.add(StringType.class);
+
+		// warm up, so that the measurement is done with compiled code
+		parseWithTypeParser(stateList);
+		parseWithSubscriber(subscriber);
+
+		long start = System.nanoTime();
+		parseWithTypeParser(stateList);
+		long typeParser = System.nanoTime() - start;
+
+		start = System.nanoTime();
+		parseWithSubscriber(subscriber);
+		long parsePlan = System.nanoTime() - start;
+
+		System.out.println(String.format("TypeParser: %d values in %d ms, %.1f ns/value", MESSAGES,
+				typeParser / 1000000, (double) typeParser / MESSAGES));
+		System.out.println(String.format("parse plan: %d values in %d ms, %.1f ns/value", MESSAGES,
+				parsePlan / 1000000, (double) parsePlan / MESSAGES));
+	}
+
+	private static void parseWithTypeParser(List<Class<? extends State>> stateList) {
+		for (int i = 0; i < MESSAGES; i++) {
+			TypeParser.parseState(stateList, VALUES[i % VALUES.length]);
+		}
+	}
+
+	private static void parseWithSubscriber(MqttMessageSubscriber subscriber) {
+		for (int i = 0; i < MESSAGES; i++) {
+			subscriber.getState(VALUES[i % VALUES.length]);
+		}
+	}
+
+}
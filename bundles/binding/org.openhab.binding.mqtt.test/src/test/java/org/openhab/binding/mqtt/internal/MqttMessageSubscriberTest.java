@@ -9,19 +9,34 @@
 package org.openhab.binding.mqtt.internal;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.fail;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
 import org.openhab.binding.mqtt.internal.AbstractMqttMessagePubSub.MessageType;
+import org.openhab.core.items.Item;
+import org.openhab.core.library.types.DateTimeType;
 import org.openhab.core.library.types.DecimalType;
 import org.openhab.core.library.types.HSBType;
+import org.openhab.core.library.types.IncreaseDecreaseType;
 import org.openhab.core.library.types.OnOffType;
+import org.openhab.core.library.types.OpenClosedType;
 import org.openhab.core.library.types.PercentType;
+import org.openhab.core.library.types.StopMoveType;
 import org.openhab.core.library.types.StringType;
+import org.openhab.core.library.types.UpDownType;
 import org.openhab.core.transform.TransformationService;
+import org.openhab.core.types.Command;
+import org.openhab.core.types.State;
+import org.openhab.core.types.TypeParser;
 import org.openhab.model.item.binding.BindingConfigParseException;
 
 /**
@@ -34,6 +49,9 @@ public class MqttMessageSubscriberTest {
 	@Mock
 	private TransformationService transformer;
 
+	@Mock
+	private Item item;
+
 	private void validateConfig(String configString, String broker,
 			String topic, MessageType type, String transformString)
 			throws BindingConfigParseException {
@@ -148,4 +166,70 @@ public class MqttMessageSubscriberTest {
 				subscriber.getState("{\"person\"{\"name\":\"me\"}}"));
 	}
 
+	@Test
+	public void parsesLikeTypeParser() throws Exception {
+
+		MqttMessageSubscriber subscriber = new MqttMessageSubscriber(
+				"mybroker:/mytopic:state:default");
+
+		List<Class<? extends State>> stateList = new ArrayList<Class<? extends State>>();
+		stateList.add(OnOffType.class);
+		stateList.add(OpenClosedType.class);
+		stateList.add(UpDownType.class);
+		stateList.add(HSBType.class);
+		stateList.add(PercentType.class);
+		stateList.add(DecimalType.class);
+		stateList.add(DateTimeType.class);
+		stateList.add(StringType.class);
+
+		List<Class<? extends Command>> commandList = new ArrayList<Class<? extends Command>>();
+		commandList.add(OnOffType.class);
+		commandList.add(OpenClosedType.class);
+		commandList.add(UpDownType.class);
+		commandList.add(IncreaseDecreaseType.class);
+		commandList.add(StopMoveType.class);
+		commandList.add(HSBType.class);
+		commandList.add(PercentType.class);
+		commandList.add(DecimalType.class);
+		commandList.add(StringType.class);
+
+		for (String value : new String[] { "ON", "off", "OPEN", "UP", "INCREASE", "STOP", "5,6,5", "5,6",
+				"5,6,5,", "1,a,3", "80", "100", "101", "-1", "1.5e3", "+3", "-", ".", "e", "12.3.4",
+				"2014-04-01T10:20:30", "2014-04-01", "T-:", "", "test", " 12" }) {
+			assertEquals(value, TypeParser.parseState(stateList, value), subscriber.getState(value));
+			assertEquals(value, TypeParser.parseCommand(commandList, value), subscriber.getCommand(value));
+		}
+	}
+
+	@Test
+	public void onlyParsesTypesAcceptedByItem() throws Exception {
+
+		List<Class<? extends State>> stateTypes = new ArrayList<Class<? extends State>>();
+		stateTypes.add(DecimalType.class);
+		List<Class<? extends Command>> commandTypes = new ArrayList<Class<? extends Command>>();
+		commandTypes.add(DecimalType.class);
+		when(item.getName()).thenReturn("number");
+		when(item.getAcceptedDataTypes()).thenReturn(stateTypes);
+		when(item.getAcceptedCommandTypes()).thenReturn(commandTypes);
+
+		MqttMessageSubscriber subscriber = new MqttMessageSubscriber(
+				"mybroker:/mytopic:state:default");
+		subscriber.setItem(item);
+
+		assertEquals("number", subscriber.getItemName());
+		// subtypes are accepted, just like the ItemUpdater does
+		assertEquals(PercentType.valueOf("80"), subscriber.getState("80"));
+		assertEquals(DecimalType.valueOf("180.5"), subscriber.getState("180.5"));
+		assertNull(subscriber.getState("ON"));
+		assertNull(subscriber.getState("test"));
+		assertNull(subscriber.getCommand("INCREASE"));
+		assertEquals(DecimalType.valueOf("-3"), subscriber.getCommand("-3"));
+
+		stateTypes.clear();
+		stateTypes.addAll(Arrays.asList(OnOffType.class, StringType.class));
+		subscriber.setItem(item);
+		assertEquals(OnOffType.OFF, subscriber.getState("OFF"));
+		assertEquals(StringType.valueOf("80"), subscriber.getState("80"));
+	}
+
 }
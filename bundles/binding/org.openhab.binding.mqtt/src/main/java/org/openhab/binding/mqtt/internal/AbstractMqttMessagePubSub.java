@@ -39,6 +39,10 @@ public abstract class AbstractMqttMessagePubSub implements BindingConfig {
 
 	private String transformationRule;
 
+	private String transformationServiceName;
+
+	private String transformationServiceParam;
+
 	private MessageType messageType;
 
 	private String itemName;
@@ -163,6 +167,20 @@ public abstract class AbstractMqttMessagePubSub implements BindingConfig {
 
 	public void setTransformationRule(String transformationRule) {
 		this.transformationRule = transformationRule;
+
+		// parse the rule once, as it is needed for every message
+		transformationServiceName = null;
+		transformationServiceParam = null;
+		if (StringUtils.isEmpty(transformationRule) || transformationRule.equalsIgnoreCase("default")) {
+			return;
+		}
+		int pos = transformationRule.indexOf('(');
+		if (pos != -1) {
+			transformationServiceName = transformationRule.substring(0, pos);
+			if (StringUtils.isNotEmpty(transformationServiceName)) {
+				transformationServiceParam = transformationRule.substring(pos + 1, transformationRule.length() - 1);
+			}
+		}
 	}
 
 	/**
@@ -170,34 +188,14 @@ public abstract class AbstractMqttMessagePubSub implements BindingConfig {
 	 *         transformation rule.
 	 */
 	public String getTransformationServiceName() {
-		if (StringUtils.isEmpty(getTransformationRule())
-				|| getTransformationRule().equalsIgnoreCase("default")) {
-			return null;
-		}
-
-		int pos = getTransformationRule().indexOf('(');
-		if (pos != -1) {
-			return getTransformationRule().substring(0, pos);
-		} else {
-			return null;
-		}
+		return transformationServiceName;
 	}
 
 	/**
 	 * @return param to provide to the transformation service.
 	 */
 	public String getTransformationServiceParam() {
-
-		if (StringUtils.isEmpty(getTransformationServiceName())) {
-			return null;
-		}
-
-		int pos = getTransformationRule().indexOf('(');
-		if (pos != -1) {
-			return getTransformationRule().substring(pos + 1, getTransformationRule().length() - 1);
-		} else {
-			return null;
-		}
+		return transformationServiceParam;
 	}
 
 	/**
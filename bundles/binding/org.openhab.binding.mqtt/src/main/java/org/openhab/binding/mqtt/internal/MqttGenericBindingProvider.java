@@ -60,7 +60,7 @@ public class MqttGenericBindingProvider extends AbstractGenericBindingProvider i
 
 		// register all message consumers
 		for (MqttMessageSubscriber subscriber : itemConfig.getMessageSubscribers()) {
-			subscriber.setItemName(item.getName());
+			subscriber.setItem(item);
 			mqttService.registerMessageConsumer(subscriber.getBroker(), subscriber);
 		}
 
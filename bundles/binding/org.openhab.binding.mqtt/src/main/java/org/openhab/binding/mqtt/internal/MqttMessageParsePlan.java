@@ -0,0 +1,342 @@
+/**
+ * Copyright (c) 2010-2014, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.mqtt.internal;
+
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.openhab.core.items.Item;
+import org.openhab.core.library.types.DateTimeType;
+import org.openhab.core.library.types.DecimalType;
+import org.openhab.core.library.types.HSBType;
+import org.openhab.core.library.types.IncreaseDecreaseType;
+import org.openhab.core.library.types.OnOffType;
+import org.openhab.core.library.types.OpenClosedType;
+import org.openhab.core.library.types.PercentType;
+import org.openhab.core.library.types.StopMoveType;
+import org.openhab.core.library.types.StringType;
+import org.openhab.core.library.types.UpDownType;
+import org.openhab.core.types.Command;
+import org.openhab.core.types.State;
+import org.openhab.core.types.Type;
+
+/**
+ * Immutable plan for converting the payload of inbound MQTT messages into
+ * openHAB states and commands. The plan is compiled once when the binding
+ * configuration is read, so that processing a message does not need to
+ * look up types or parse the transformation rule again.
+ *
+ * The type converters are tried in the same order as the TypeParser would do
+ * for the default type lists, but only the types accepted by the target item
+ * are included. The converters call the static valueOf methods directly and
+ * skip values which can not be valid for a type without raising an exception.
+ *
+ * @author Davy Vanherbergen
+ * @since 1.5.0
+ */
+public class MqttMessageParsePlan {
+
+	// Not sure if the sequence below is the best one..
+	private static final List<Converter<? extends State>> DEFAULT_STATE_CONVERTERS = Collections
+			.unmodifiableList(new ArrayList<Converter<? extends State>>() {
+				private static final long serialVersionUID = 1L;
+				{
+					add(new EnumConverter<OnOffType>(OnOffType.class));
+					add(new EnumConverter<OpenClosedType>(OpenClosedType.class));
+					add(new EnumConverter<UpDownType>(UpDownType.class));
+					add(new HSBConverter());
+					add(new PercentConverter());
+					add(new DecimalConverter());
+					add(new DateTimeConverter());
+					add(new StringConverter());
+				}
+			});
+
+	private static final List<Converter<? extends Command>> DEFAULT_COMMAND_CONVERTERS = Collections
+			.unmodifiableList(new ArrayList<Converter<? extends Command>>() {
+				private static final long serialVersionUID = 1L;
+				{
+					add(new EnumConverter<OnOffType>(OnOffType.class));
+					add(new EnumConverter<OpenClosedType>(OpenClosedType.class));
+					add(new EnumConverter<UpDownType>(UpDownType.class));
+					add(new EnumConverter<IncreaseDecreaseType>(IncreaseDecreaseType.class));
+					add(new EnumConverter<StopMoveType>(StopMoveType.class));
+					add(new HSBConverter());
+					add(new PercentConverter());
+					add(new DecimalConverter());
+					add(new StringConverter());
+				}
+			});
+
+	/** Plan used when the target item is not known. */
+	public static final MqttMessageParsePlan DEFAULT = new MqttMessageParsePlan(Charset.defaultCharset(),
+			DEFAULT_STATE_CONVERTERS, DEFAULT_COMMAND_CONVERTERS);
+
+	private final Charset charset;
+
+	private final Converter<? extends State>[] stateConverters;
+
+	private final Converter<? extends Command>[] commandConverters;
+
+	@SuppressWarnings("unchecked")
+	private MqttMessageParsePlan(Charset charset, List<Converter<? extends State>> stateConverters,
+			List<Converter<? extends Command>> commandConverters) {
+		this.charset = charset;
+		this.stateConverters = stateConverters.toArray(new Converter[stateConverters.size()]);
+		this.commandConverters = commandConverters.toArray(new Converter[commandConverters.size()]);
+	}
+
+	/**
+	 * Compile the plan for messages which are sent to the given item.
+	 *
+	 * @param item
+	 *            target item of the messages.
+	 * @return plan which only produces types accepted by the item. If the item
+	 *         accepts none of the supported types, the default plan is
+	 *         returned.
+	 */
+	public static MqttMessageParsePlan compile(Item item) {
+		if (item == null) {
+			return DEFAULT;
+		}
+		List<Converter<? extends State>> states = filter(DEFAULT_STATE_CONVERTERS, item.getAcceptedDataTypes());
+		List<Converter<? extends Command>> commands = filter(DEFAULT_COMMAND_CONVERTERS,
+				item.getAcceptedCommandTypes());
+		return new MqttMessageParsePlan(Charset.defaultCharset(), states.isEmpty() ? DEFAULT_STATE_CONVERTERS
+				: states, commands.isEmpty() ? DEFAULT_COMMAND_CONVERTERS : commands);
+	}
+
+	private static <T extends Type> List<Converter<? extends T>> filter(List<Converter<? extends T>> converters,
+			List<? extends Class<? extends T>> acceptedTypes) {
+		List<Converter<? extends T>> result = new ArrayList<Converter<? extends T>>();
+		if (acceptedTypes == null) {
+			return result;
+		}
+		for (Converter<? extends T> converter : converters) {
+			for (Class<? extends T> acceptedType : acceptedTypes) {
+				// subtypes are accepted as well, like the ItemUpdater does
+				if (acceptedType.isAssignableFrom(converter.type)) {
+					result.add(converter);
+					break;
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Convert the raw message payload to a string.
+	 */
+	public String decode(byte[] payload) {
+		return new String(payload, charset);
+	}
+
+	/**
+	 * Convert a string representation of a state to an openHAB State.
+	 *
+	 * @return State or null if the value is not valid for any of the types.
+	 */
+	public State parseState(String value) {
+		if (value == null) {
+			return null;
+		}
+		for (Converter<? extends State> converter : stateConverters) {
+			State state = converter.convert(value);
+			if (state != null) {
+				return state;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Convert a string representation of a command to an openHAB Command.
+	 *
+	 * @return Command or null if the value is not valid for any of the types.
+	 */
+	public Command parseCommand(String value) {
+		if (value == null) {
+			return null;
+		}
+		for (Converter<? extends Command> converter : commandConverters) {
+			Command command = converter.convert(value);
+			if (command != null) {
+				return command;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Converts a string to a single openHAB type.
+	 */
+	private abstract static class Converter<T extends Type> {
+
+		private final Class<T> type;
+
+		Converter(Class<T> type) {
+			this.type = type;
+		}
+
+		/**
+		 * @return the converted value or null if the value is not valid for
+		 *         the type.
+		 */
+		T convert(String value) {
+			if (!isCandidate(value)) {
+				return null;
+			}
+			try {
+				return valueOf(value);
+			} catch (IllegalArgumentException e) {
+				// also covers NumberFormatException
+				return null;
+			}
+		}
+
+		/**
+		 * Cheap check which returns false for values that can never be valid
+		 * for the type, so that valueOf does not need to throw an exception.
+		 */
+		boolean isCandidate(String value) {
+			return true;
+		}
+
+		abstract T valueOf(String value);
+	}
+
+	private static class EnumConverter<T extends Enum<T> & Type> extends Converter<T> {
+
+		private final Map<String, T> constants = new HashMap<String, T>();
+
+		EnumConverter(Class<T> type) {
+			super(type);
+			for (T constant : type.getEnumConstants()) {
+				constants.put(constant.name(), constant);
+			}
+		}
+
+		@Override
+		T convert(String value) {
+			return constants.get(value);
+		}
+
+		@Override
+		T valueOf(String value) {
+			return constants.get(value);
+		}
+	}
+
+	private static class DecimalConverter extends Converter<DecimalType> {
+
+		DecimalConverter() {
+			super(DecimalType.class);
+		}
+
+		@Override
+		boolean isCandidate(String value) {
+			return isNumber(value);
+		}
+
+		@Override
+		DecimalType valueOf(String value) {
+			return DecimalType.valueOf(value);
+		}
+	}
+
+	private static class PercentConverter extends Converter<PercentType> {
+
+		PercentConverter() {
+			super(PercentType.class);
+		}
+
+		@Override
+		boolean isCandidate(String value) {
+			return isNumber(value);
+		}
+
+		@Override
+		PercentType valueOf(String value) {
+			return PercentType.valueOf(value);
+		}
+	}
+
+	private static class HSBConverter extends Converter<HSBType> {
+
+		HSBConverter() {
+			super(HSBType.class);
+		}
+
+		@Override
+		boolean isCandidate(String value) {
+			// at least hue, saturation and brightness separated by ','
+			int first = value.indexOf(',');
+			return first > 0 && value.indexOf(',', first + 1) > first + 1;
+		}
+
+		@Override
+		HSBType valueOf(String value) {
+			return HSBType.valueOf(value);
+		}
+	}
+
+	private static class DateTimeConverter extends Converter<DateTimeType> {
+
+		DateTimeConverter() {
+			super(DateTimeType.class);
+		}
+
+		@Override
+		boolean isCandidate(String value) {
+			// the date pattern requires the 'T' separator between date and time
+			return value.indexOf('T') > 0 && value.indexOf('-') > 0 && value.indexOf(':') > 0;
+		}
+
+		@Override
+		DateTimeType valueOf(String value) {
+			return DateTimeType.valueOf(value);
+		}
+	}
+
+	private static class StringConverter extends Converter<StringType> {
+
+		StringConverter() {
+			super(StringType.class);
+		}
+
+		@Override
+		StringType valueOf(String value) {
+			return StringType.valueOf(value);
+		}
+	}
+
+	/**
+	 * @return false if the value can not be parsed by BigDecimal.
+	 */
+	private static boolean isNumber(String value) {
+		if (value.length() == 0) {
+			return false;
+		}
+		boolean digit = false;
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			if (c >= '0' && c <= '9') {
+				digit = true;
+			} else if (c != '.' && c != '-' && c != '+' && c != 'e' && c != 'E') {
+				return false;
+			}
+		}
+		return digit;
+	}
+
+}
@@ -8,24 +8,11 @@
  */
 package org.openhab.binding.mqtt.internal;
 
-import java.util.ArrayList;
-import java.util.List;
-
 import org.apache.commons.lang.StringUtils;
 import org.openhab.core.events.EventPublisher;
-import org.openhab.core.library.types.DateTimeType;
-import org.openhab.core.library.types.DecimalType;
-import org.openhab.core.library.types.HSBType;
-import org.openhab.core.library.types.IncreaseDecreaseType;
-import org.openhab.core.library.types.OnOffType;
-import org.openhab.core.library.types.OpenClosedType;
-import org.openhab.core.library.types.PercentType;
-import org.openhab.core.library.types.StopMoveType;
-import org.openhab.core.library.types.StringType;
-import org.openhab.core.library.types.UpDownType;
+import org.openhab.core.items.Item;
 import org.openhab.core.types.Command;
 import org.openhab.core.types.State;
-import org.openhab.core.types.TypeParser;
 import org.openhab.io.transport.mqtt.MqttMessageConsumer;
 import org.openhab.model.item.binding.BindingConfigParseException;
 import org.slf4j.Logger;
@@ -46,6 +33,10 @@ public class MqttMessageSubscriber extends AbstractMqttMessagePubSub implements
 
 	private EventPublisher eventPublisher;
 
+	private MqttMessageParsePlan parsePlan = MqttMessageParsePlan.DEFAULT;
+
+	private String fixedValue;
+
 	/**
 	 * Create new MqttMessageSubscriber from config string.
 	 * 
@@ -93,6 +84,10 @@ public class MqttMessageSubscriber extends AbstractMqttMessagePubSub implements
 						"Missing transformation configuration.");
 			} else {
 				setTransformationRule(config[3].trim());
+				if (getTransformationServiceName() == null
+						&& !getTransformationRule().equalsIgnoreCase("default")) {
+					fixedValue = getTransformationRule();
+				}
 			}
 
 		} catch (BindingConfigParseException e) {
@@ -104,6 +99,18 @@ public class MqttMessageSubscriber extends AbstractMqttMessagePubSub implements
 
 	}
 
+	/**
+	 * Set the item which receives the messages and compile the parse plan
+	 * for it.
+	 * 
+	 * @param item
+	 *            target item
+	 */
+	public void setItem(Item item) {
+		setItemName(item.getName());
+		parsePlan = MqttMessageParsePlan.compile(item);
+	}
+
 	@Override
 	public void processMessage(String topic, byte[] message) {
 
@@ -113,23 +120,32 @@ public class MqttMessageSubscriber extends AbstractMqttMessagePubSub implements
 				initTransformService();
 			}
 
-			String value = new String(message);
+			String value = parsePlan.decode(message);
 
 			if (getTransformationService() != null) {
 				value = getTransformationService().transform(
 						getTransformationServiceParam(), value);
-			} else if (getTransformationRule() != null
-					&& !getTransformationRule().equalsIgnoreCase("default")) {
-				value = getTransformationRule();
+			} else if (fixedValue != null) {
+				value = fixedValue;
 			}
 
 			value = StringUtils.replace(value, "${itemName}", getItemName());
 
 			if (getMessageType().equals(MessageType.COMMAND)) {
 				Command command = getCommand(value);
+				if (command == null) {
+					logger.debug("Ignoring MQTT message on topic '{}': '{}' is not a valid command for item '{}'",
+							new Object[] { topic, value, getItemName() });
+					return;
+				}
 				eventPublisher.postCommand(getItemName(), command);
 			} else {
 				State state = getState(value);
+				if (state == null) {
+					logger.debug("Ignoring MQTT message on topic '{}': '{}' is not a valid state for item '{}'",
+							new Object[] { topic, value, getItemName() });
+					return;
+				}
 				eventPublisher.postUpdate(getItemName(), state);
 			}
 		} catch (Exception e) {
@@ -157,21 +173,7 @@ public class MqttMessageSubscriber extends AbstractMqttMessagePubSub implements
 	 * @return State
 	 */
 	protected State getState(String value) {
-
-		List<Class<? extends State>> stateList = new ArrayList<Class<? extends State>>();
-
-		// Not sure if the sequence below is the best one..
-		stateList.add(OnOffType.class);
-		stateList.add(OpenClosedType.class);
-		stateList.add(UpDownType.class);
-		stateList.add(HSBType.class);
-		stateList.add(PercentType.class);
-		stateList.add(DecimalType.class);
-		stateList.add(DateTimeType.class);
-		stateList.add(StringType.class);
-
-		return TypeParser.parseState(stateList, value);
-
+		return parsePlan.parseState(value);
 	}
 
 	/**
@@ -182,21 +184,7 @@ public class MqttMessageSubscriber extends AbstractMqttMessagePubSub implements
 	 * @return Command
 	 */
 	protected Command getCommand(String value) {
-
-		List<Class<? extends Command>> commandList = new ArrayList<Class<? extends Command>>();
-
-		commandList.add(OnOffType.class);
-		commandList.add(OpenClosedType.class);
-		commandList.add(UpDownType.class);
-		commandList.add(IncreaseDecreaseType.class);
-		commandList.add(StopMoveType.class);
-		commandList.add(HSBType.class);
-		commandList.add(PercentType.class);
-		commandList.add(DecimalType.class);
-		commandList.add(StringType.class);
-
-		return TypeParser.parseCommand(commandList, value);
-
+		return parsePlan.parseCommand(value);
 	}
 
 	@Override
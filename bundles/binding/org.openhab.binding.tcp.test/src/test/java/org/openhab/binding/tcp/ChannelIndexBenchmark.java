@@ -0,0 +1,131 @@
+/**
+ * Copyright (c) 2010-2014, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.tcp;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.openhab.binding.tcp.protocol.TCPBindingProvider;
+import org.openhab.binding.tcp.protocol.internal.TCPBinding;
+import org.openhab.core.library.types.OnOffType;
+import org.openhab.core.types.Command;
+
+/**
+ * Compares the time the ChannelTracker of the
+ * {@link AbstractSocketChannelBinding} needs to look up a Channel by Item,
+ * direction and address through its {@link ChannelIndex} to the time the
+ * linear scan over all Channels, which the tracker used before, needs for it.
+ * It is not run by the test suite, but has to be started manually.
+ *
+ * @author Karel Goderis
+ * @since 1.5.0
+ */
+public class ChannelIndexBenchmark {
+
+	private static final int LOOKUPS = 1000000;
+
+	private static final int[] CHANNELS = { 10, 100, 1000 };
+
+	/** the tracked Channels and the lookups done for them */
+	private static class Setup {
+
+		final List<AbstractSocketChannelBinding<TCPBindingProvider>.Channel> all = new ArrayList<AbstractSocketChannelBinding<TCPBindingProvider>.Channel>();
+
+		final AbstractSocketChannelBinding<TCPBindingProvider>.ChannelTracker<AbstractSocketChannelBinding<TCPBindingProvider>.Channel> tracker;
+
+		final String[] items;
+
+		final InetSocketAddress[] remotes;
+
+		Setup(int channels) {
+			AbstractSocketChannelBinding<TCPBindingProvider> binding = new TCPBinding();
+			tracker = binding.channels;
+			items = new String[channels / 2];
+			remotes = new InetSocketAddress[channels / 2];
+			for (int i = 0; i < channels / 2; i++) {
+				items[i] = "Item" + i;
+				remotes[i] = new InetSocketAddress("192.168." + (i / 250) + "." + (i % 250 + 1), 4001);
+				// an inbound and an outbound Channel per Item
+				for (Direction direction : new Direction[] { Direction.IN, Direction.OUT }) {
+					AbstractSocketChannelBinding<TCPBindingProvider>.Channel channel = binding.new Channel(items[i],
+							OnOffType.ON, remotes[i], direction, false, null, false, null);
+					tracker.add(channel);
+					all.add(channel);
+				}
+			}
+		}
+
+		/** the lookup of the ChannelTracker before it had indexes */
+		synchronized AbstractSocketChannelBinding<TCPBindingProvider>.Channel scan(String item, Command command,
+				Direction direction, InetSocketAddress remote) {
+			Iterator<AbstractSocketChannelBinding<TCPBindingProvider>.Channel> it = all.iterator();
+			while (it.hasNext()) {
+				AbstractSocketChannelBinding<TCPBindingProvider>.Channel aChannel = it.next();
+				if (item.equals(aChannel.item) && command.equals(aChannel.command)
+						&& direction.equals(aChannel.direction) && remote.equals(aChannel.remote)) {
+					return aChannel;
+				}
+			}
+
+			return null;
+		}
+	}
+
+	public static void main(String[] args) {
+		for (int channels : CHANNELS) {
+			Setup setup = new Setup(channels);
+
+			// warm up, so that the measurement is done with compiled code
+			lookUpWithScan(setup);
+			lookUpWithIndex(setup);
+
+			long start = System.nanoTime();
+			int found = lookUpWithScan(setup);
+			long scan = System.nanoTime() - start;
+
+			start = System.nanoTime();
+			found += lookUpWithIndex(setup);
+			long indexed = System.nanoTime() - start;
+
+			if (found != 2 * LOOKUPS) {
+				throw new IllegalStateException("Not all Channels have been found");
+			}
+
+			System.out.println(String.format("%d channels, linear scan: %d lookups in %d ms, %.1f ns/lookup", channels,
+					LOOKUPS, scan / 1000000, (double) scan / LOOKUPS));
+			System.out.println(String.format("%d channels, index: %d lookups in %d ms, %.1f ns/lookup", channels,
+					LOOKUPS, indexed / 1000000, (double) indexed / LOOKUPS));
+		}
+	}
+
+	private static int lookUpWithScan(Setup setup) {
+		int found = 0;
+		for (int i = 0; i < LOOKUPS; i++) {
+			int n = i % setup.items.length;
+			if (setup.scan(setup.items[n], OnOffType.ON, Direction.OUT, setup.remotes[n]) != null) {
+				found++;
+			}
+		}
+		return found;
+	}
+
+	private static int lookUpWithIndex(Setup setup) {
+		int found = 0;
+		for (int i = 0; i < LOOKUPS; i++) {
+			int n = i % setup.items.length;
+			if (setup.tracker.get(setup.items[n], OnOffType.ON, Direction.OUT, setup.remotes[n]) != null) {
+				found++;
+			}
+		}
+		return found;
+	}
+
+}
@@ -0,0 +1,227 @@
+/**
+ * Copyright (c) 2010-2014, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.tcp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.SocketChannel;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.openhab.binding.tcp.protocol.TCPBindingProvider;
+import org.openhab.binding.tcp.protocol.internal.TCPBinding;
+import org.openhab.core.library.types.OnOffType;
+
+/**
+ * Tests the {@link ChannelIndex} on its own, and the lookups of Channels by
+ * Item, direction and address which the ChannelTracker of the
+ * {@link AbstractSocketChannelBinding} answers with it.
+ *
+ * @author Karel Goderis
+ * @since 1.5.0
+ */
+public class ChannelIndexTest {
+
+	private static final Comparator<String> LENGTH = new Comparator<String>() {
+		public int compare(String first, String second) {
+			return first.length() - second.length();
+		}
+	};
+
+	private static final InetSocketAddress REMOTE1 = new InetSocketAddress("192.168.0.1", 4001);
+
+	private static final InetSocketAddress REMOTE2 = new InetSocketAddress("192.168.0.2", 4001);
+
+	private ChannelIndex<String, String> index;
+
+	private AbstractSocketChannelBinding<TCPBindingProvider> binding;
+
+	private AbstractSocketChannelBinding<TCPBindingProvider>.ChannelTracker<AbstractSocketChannelBinding<TCPBindingProvider>.Channel> tracker;
+
+	@Before
+	public void setUp() {
+		index = new ChannelIndex<String, String>(LENGTH);
+		binding = new TCPBinding();
+		tracker = binding.channels;
+	}
+
+	private AbstractSocketChannelBinding<TCPBindingProvider>.Channel track(String item, Direction direction,
+			InetSocketAddress remote) {
+		AbstractSocketChannelBinding<TCPBindingProvider>.Channel channel = binding.new Channel(item, OnOffType.ON,
+				remote, direction, false, null, false, null);
+		assertTrue(tracker.add(channel));
+		return channel;
+	}
+
+	@Test
+	public void testGetUnknownKey() {
+		assertTrue(index.get("unknown").isEmpty());
+		assertTrue(index.get(null).isEmpty());
+	}
+
+	@Test
+	public void testAddKeepsOrder() {
+		index.add("key", "ccc");
+		index.add("key", "a");
+		index.add("key", "bb");
+		index.add("other", "dddd");
+
+		assertEquals(Arrays.asList("a", "bb", "ccc"), index.get("key"));
+		assertEquals(Arrays.asList("dddd"), index.get("other"));
+	}
+
+	@Test
+	public void testNullKeyIsIgnored() {
+		index.add(null, "a");
+		assertTrue(index.get(null).isEmpty());
+	}
+
+	@Test
+	public void testRemoveByIdentity() {
+		String value = new String("a");
+		String equalValue = new String("a");
+		index.add("key", value);
+		index.add("key", "bb");
+
+		// an equal, but different value is not removed
+		index.remove("key", equalValue);
+		assertEquals(2, index.get("key").size());
+
+		index.remove("key", value);
+		assertEquals(Arrays.asList("bb"), index.get("key"));
+
+		index.remove("key", "bb");
+		assertTrue(index.get("key").isEmpty());
+
+		// removing from an unknown key does nothing
+		index.remove("unknown", value);
+		index.remove(null, value);
+	}
+
+	@Test
+	public void testResultIsSnapshot() {
+		index.add("key", "a");
+		List<String> values = index.get("key");
+
+		index.add("key", "bb");
+		index.remove("key", "a");
+		assertEquals(Arrays.asList("a"), values);
+		assertEquals(Arrays.asList("bb"), index.get("key"));
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void testResultIsImmutable() {
+		index.add("key", "a");
+		index.get("key").add("bb");
+	}
+
+	@Test
+	public void testClear() {
+		index.add("key", "a");
+		index.add("other", "bb");
+		index.clear();
+
+		assertTrue(index.get("key").isEmpty());
+		assertTrue(index.get("other").isEmpty());
+	}
+
+	@Test
+	public void testMerge() {
+		List<String> first = Arrays.asList("a", "ccc", "eeeee");
+		List<String> second = Arrays.asList("bb", "ccc", "dddd");
+
+		assertEquals(Arrays.asList("a", "bb", "ccc", "dddd", "eeeee"), index.merge(first, second));
+		assertSame(second, index.merge(index.get("unknown"), second));
+		assertSame(first, index.merge(first, index.get("unknown")));
+	}
+
+	@Test
+	public void testLookupByItemDirectionAndAddress() {
+		AbstractSocketChannelBinding<TCPBindingProvider>.Channel in1 = track("Light", Direction.IN, REMOTE1);
+		AbstractSocketChannelBinding<TCPBindingProvider>.Channel out1 = track("Light", Direction.OUT, REMOTE1);
+		AbstractSocketChannelBinding<TCPBindingProvider>.Channel out2 = track("Light", Direction.OUT, REMOTE2);
+		AbstractSocketChannelBinding<TCPBindingProvider>.Channel other = track("Heating", Direction.OUT, REMOTE1);
+
+		assertSame(in1, tracker.get("Light", OnOffType.ON, Direction.IN, REMOTE1));
+		assertSame(out1, tracker.get("Light", OnOffType.ON, Direction.OUT, REMOTE1));
+		assertSame(out2, tracker.get("Light", OnOffType.ON, Direction.OUT, REMOTE2));
+		assertSame(other, tracker.get("Heating", OnOffType.ON, Direction.OUT, REMOTE1));
+		assertNull(tracker.get("Light", OnOffType.OFF, Direction.IN, REMOTE1));
+		assertNull(tracker.get("Heating", OnOffType.ON, Direction.IN, REMOTE1));
+		assertNull(tracker.get("Unknown", OnOffType.ON, Direction.IN, REMOTE1));
+
+		assertSame(out2, tracker.get("Light", OnOffType.ON, Direction.OUT, "192.168.0.2", "4001"));
+		assertSame(out2, tracker.getFirst("Light", Direction.OUT, REMOTE2));
+		assertTrue(tracker.contains("Light", OnOffType.ON, Direction.IN, REMOTE1));
+
+		// the first Channel of an address that is not bound to a Java NIO channel, in the order they were added
+		assertSame(out1, tracker.getFirst(Direction.OUT, REMOTE1));
+		assertSame(in1, tracker.getFirst(Direction.IN, REMOTE1));
+		assertNull(tracker.getFirstServed(REMOTE1));
+		assertEquals(4, tracker.size());
+	}
+
+	@Test
+	public void testLookupByNioChannel() throws IOException {
+		AbstractSocketChannelBinding<TCPBindingProvider>.Channel in1 = track("Light", Direction.IN, REMOTE1);
+		AbstractSocketChannelBinding<TCPBindingProvider>.Channel out1 = track("Light", Direction.OUT, REMOTE1);
+		SocketChannel first = SocketChannel.open();
+		SocketChannel second = SocketChannel.open();
+		try {
+			tracker.setChannel(in1, first);
+			tracker.setChannel(out1, first);
+			assertSame(in1, tracker.get(first));
+			assertEquals(Arrays.asList(out1), tracker.getAll(Direction.OUT, first));
+			assertSame(in1, tracker.getFirstServed("Light", Direction.IN, REMOTE1));
+
+			// moving a Channel to another Java NIO channel updates the index
+			tracker.replace("Light", Direction.IN, first, second);
+			assertSame(out1, tracker.get(first));
+			assertSame(in1, tracker.get(second));
+			assertTrue(tracker.getAll(Direction.IN, first).isEmpty());
+			assertEquals(1, tracker.getAll(first).size());
+			assertEquals(1, tracker.getAll(second).size());
+		} finally {
+			first.close();
+			second.close();
+		}
+	}
+
+	@Test
+	public void testLookupAfterClear() {
+		AbstractSocketChannelBinding<TCPBindingProvider>.Channel channel = track("Light", Direction.IN, REMOTE1);
+		tracker.clear();
+
+		assertNull(tracker.get("Light", OnOffType.ON, Direction.IN, REMOTE1));
+		assertNull(tracker.getFirst(Direction.IN, REMOTE1));
+		assertEquals(0, tracker.size());
+
+		// a cleared Channel can be tracked again
+		assertTrue(tracker.add(channel));
+		assertSame(channel, tracker.get("Light", OnOffType.ON, Direction.IN, REMOTE1));
+	}
+
+	@Test
+	public void testChannelIsTrackedOnce() {
+		AbstractSocketChannelBinding<TCPBindingProvider>.Channel channel = track("Light", Direction.IN, REMOTE1);
+
+		assertFalse(tracker.add(channel));
+		assertEquals(1, tracker.size());
+	}
+
+}
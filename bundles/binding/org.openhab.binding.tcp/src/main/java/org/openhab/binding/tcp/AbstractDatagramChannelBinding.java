@@ -19,9 +19,11 @@ import java.nio.channels.DatagramChannel;
 import java.nio.channels.SocketChannel;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.Dictionary;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 import org.apache.commons.lang.StringUtils;
 import org.openhab.core.binding.AbstractActiveBinding;
 import org.openhab.core.library.types.StringType;
@@ -107,19 +109,21 @@ public abstract class AbstractDatagramChannelBinding<P extends ChannelBindingPro
 		// the direction, in our out, of this channel
 		public Direction direction;
 		// flag to indicate if the channel is in a blocking write/read operation
-		public boolean isBlocking;
+		public volatile boolean isBlocking;
 		// placeholder to store the received data as the result of a blocking write/read operation
-		public ByteBuffer buffer;
+		public volatile ByteBuffer buffer;
 		// flag to indicate if the channel is reconnecting / recovering from a previous communication error
-		public boolean isReconnecting;
-		// reference to the underlying Java NIO DatagramChannel that represents this UDP/IP connection
-		public DatagramChannel channel;
+		public volatile boolean isReconnecting;
+		// reference to the underlying Java NIO DatagramChannel that represents this UDP/IP connection. Use ChannelTracker.setChannel() to change it
+		public volatile DatagramChannel channel;
 		// remote host name to use. Could be "*" when using masked addresses
 		public String host;
 		// remote port number to use. Could be "*" when using masked addresses
 		public String port;
 		// the address of the last remote host:ip that this Channel received data from
-		public InetSocketAddress lastRemote;
+		public volatile InetSocketAddress lastRemote;
+		// position of this channel in the ChannelTracker, or -1 if it is not tracked
+		long sequence = -1;
 
 		public Channel(String item, Command command, InetSocketAddress remote,
 				Direction direction, boolean isBlocking, ByteBuffer buffer,
@@ -206,7 +210,7 @@ public abstract class AbstractDatagramChannelBinding<P extends ChannelBindingPro
 
 	/**
 	 * The ChannelTracker acts as a little dB that stores all the information on the state of the
-	 * underlying NIO SocketChannels in use. It comes with a bunch of get... methods that allow a caller to 
+	 * underlying NIO DatagramChannels in use. It comes with a bunch of get... methods that allow a caller to 
 	 * query Channels. 
 	 * 
 	 * get() - get the channel that matches the provided criteria for the given {Item,Command}
@@ -216,145 +220,193 @@ public abstract class AbstractDatagramChannelBinding<P extends ChannelBindingPro
 	 * contains() - return true if a channel that matches the provided criteria exists in the ChannelTracker
 	 * replace() - replaces the underlying Java NIO channel on the Channels that match the provided criteria 
 	 * 
+	 * Channels are indexed by their Java NIO channel, their remote address and their Item, and the Channels that 
+	 * use address masks are kept apart, so that queries only have to evaluate the few Channels that can possibly match 
+	 * instead of all of them. The indexes are immutable snapshots, so that the queries do not need to lock. Changes to 
+	 * the index are serialised, and the Java NIO channel of a tracked Channel must therefore always be changed
+	 * through setChannel()
+	 * 
 	 * @author Karel Goderis
 	 * @since  1.4.0
 	 * 
 	 **/
-	protected class ChannelTracker<C extends Channel> extends ArrayList<C> {
-
-		private static final long serialVersionUID = 1543958347565096785L;
-
-		public boolean contains(String item, Command command, Direction direction, InetSocketAddress remote) {
+	protected class ChannelTracker<C extends Channel> {
+
+		// all the Channels, in the order they were added to the tracker
+		private final List<C> allChannels = new CopyOnWriteArrayList<C>();
+		private final Comparator<Channel> insertionOrder = new Comparator<Channel>() {
+			@Override
+			public int compare(Channel first, Channel second) {
+				return first.sequence < second.sequence ? -1 : (first.sequence == second.sequence ? 0 : 1);
+			}
+		};
+		private final ChannelIndex<DatagramChannel, C> byDatagramChannel = new ChannelIndex<DatagramChannel, C>(insertionOrder);
+		private final ChannelIndex<InetSocketAddress, C> byRemote = new ChannelIndex<InetSocketAddress, C>(insertionOrder);
+		private final ChannelIndex<String, C> byItem = new ChannelIndex<String, C>(insertionOrder);
+		// the Channels that are defined with a "*" host or port, in the order they were added to the tracker
+		private final List<C> maskedChannels = new CopyOnWriteArrayList<C>();
+		private long nextSequence = 0;
+
+		public boolean add(C aChannel) {
 			synchronized(this) {
-				Iterator<C> it = iterator();
-				while(it.hasNext()) {
-					C aChannel = it.next();
-					if(item.equals(aChannel.item) && command.equals(aChannel.command) && direction.equals(aChannel.direction)&& remote.equals(aChannel.remote)) {
-						return true;
-					}
+				if(aChannel.sequence >= 0) {
+					return false;
 				}
 
-				return false;
+				aChannel.sequence = nextSequence++;
+				allChannels.add(aChannel);
+				byDatagramChannel.add(aChannel.channel, aChannel);
+				byRemote.add(aChannel.remote, aChannel);
+				byItem.add(aChannel.item, aChannel);
+				if(isMasked(aChannel)) {
+					maskedChannels.add(aChannel);
+				}
+				return true;
 			}
 		}
 
-		public Channel get(String item, Command command, Direction direction, InetSocketAddress remote) {
+		/**
+		 * Binds the given Channel to a new Java NIO channel, and keeps the index up to date if 
+		 * the Channel is tracked
+		 */
+		public void setChannel(Channel aChannel, DatagramChannel channel) {
 			synchronized(this) {
-				Iterator<C> it = iterator();
-				while(it.hasNext()) {
-					C aChannel = it.next();
-					if(item.equals(aChannel.item) && command.equals(aChannel.command) && direction.equals(aChannel.direction)&& remote.equals(aChannel.remote)) {
-						return aChannel;
-					}
+				if(aChannel.sequence >= 0 && aChannel.channel != channel) {
+					@SuppressWarnings("unchecked")
+					C trackedChannel = (C) aChannel;
+					byDatagramChannel.remove(aChannel.channel, trackedChannel);
+					aChannel.channel = channel;
+					byDatagramChannel.add(channel, trackedChannel);
+				} else {
+					aChannel.channel = channel;
 				}
-
-				return null;
 			}
 		}
 
-		public Channel get(String item, Command command, Direction direction, String host, String port) {
+		public int size() {
+			return allChannels.size();
+		}
+
+		public List<C> getAll() {
+			return Collections.unmodifiableList(allChannels);
+		}
+
+		public void clear() {
 			synchronized(this) {
-				Iterator<C> it = iterator();
-				while(it.hasNext()) {
-					C aChannel = it.next();
-					if(item.equals(aChannel.item) && command.equals(aChannel.command) && direction.equals(aChannel.direction)) {
-						if(aChannel.host.equals(host) && aChannel.port.equals(port)) {
-							return aChannel;
-						}
-					}
+				for(C aChannel : allChannels) {
+					aChannel.sequence = -1;
 				}
+				allChannels.clear();
+				byDatagramChannel.clear();
+				byRemote.clear();
+				byItem.clear();
+				maskedChannels.clear();
+			}
+		}
 
-				return null;
+		private boolean isMasked(Channel aChannel) {
+			return "*".equals(aChannel.host) || "*".equals(aChannel.port);
+		}
 
+		private boolean matchesMask(Channel aChannel, InetSocketAddress remoteAddress) {
+			if(aChannel.host.equals("*") && aChannel.port.equals(Integer.toString(remoteAddress.getPort()))) {
+				return true;
+			} else 	if(aChannel.port.equals("*") && aChannel.host.equals(remoteAddress.getHostString())) {
+				return true;
+			} else if(aChannel.port.equals("*") && aChannel.host.equals("*")) {
+				return true;
 			}
+			return false;
 		}
 
+		public boolean contains(String item, Command command, Direction direction, InetSocketAddress remote) {
+			return get(item, command, direction, remote) != null;
+		}
 
-		public Channel get(DatagramChannel theDatagramChannel) {
-			synchronized(this) {
-				Iterator<C> it = iterator();
-				while(it.hasNext()) {
-					C aChannel = it.next();
-					if(theDatagramChannel.equals(aChannel.channel)) {
-						return aChannel;
-					}
+		public Channel get(String item, Command command, Direction direction, InetSocketAddress remote) {
+			for(C aChannel : byItem.get(item)) {
+				if(command.equals(aChannel.command) && direction.equals(aChannel.direction)&& remote.equals(aChannel.remote)) {
+					return aChannel;
 				}
-				return null;
 			}
+
+			return null;
 		}
 
-		public Channel getFirst(Direction direction, InetSocketAddress remoteAddress) {
-			synchronized(this) {
-				Iterator<C> it = iterator();
-				while(it.hasNext()) {
-					C aChannel = it.next();
-					if(remoteAddress.equals(aChannel.remote) && aChannel.channel == null && direction.equals(aChannel.direction)) {
+		public Channel get(String item, Command command, Direction direction, String host, String port) {
+			for(C aChannel : byItem.get(item)) {
+				if(command.equals(aChannel.command) && direction.equals(aChannel.direction)) {
+					if(aChannel.host.equals(host) && aChannel.port.equals(port)) {
 						return aChannel;
 					}
 				}
+			}
 
-				Iterator<C> it2 = iterator();
-				while(it2.hasNext()) {
-					C aChannel = it2.next();
-					if(remoteAddress.equals(aChannel.remote)) {
-						return aChannel;
-					}
+			return null;
+		}
+
+
+		public Channel get(DatagramChannel theDatagramChannel) {
+			for(C aChannel : byDatagramChannel.get(theDatagramChannel)) {
+				if(theDatagramChannel.equals(aChannel.channel)) {
+					return aChannel;
 				}
+			}
+			return null;
+		}
 
-				return null;
+		public Channel getFirst(Direction direction, InetSocketAddress remoteAddress) {
+			List<C> candidates = byRemote.get(remoteAddress);
+			for(C aChannel : candidates) {
+				if(aChannel.channel == null && direction.equals(aChannel.direction)) {
+					return aChannel;
+				}
 			}
+
+			if(!candidates.isEmpty()) {
+				return candidates.get(0);
+			}
+
+			return null;
 		}
 
 		public Channel getFirst(String itemName, Direction direction, InetSocketAddress remoteAddress) {
-			synchronized(this) {
-				Iterator<C> it = iterator();
-				while(it.hasNext()) {
-					C aChannel = it.next();
-					if(itemName.equals(aChannel.item) && remoteAddress.equals(aChannel.remote) && direction.equals(aChannel.direction)) {
-						return aChannel;
-					}
+			for(C aChannel : byItem.get(itemName)) {
+				if(remoteAddress.equals(aChannel.remote) && direction.equals(aChannel.direction)) {
+					return aChannel;
 				}
-
-				return null;
 			}
+
+			return null;
 		}
 
 		public Channel getFirstServed(String itemName, Direction direction, InetSocketAddress remoteAddress) {
-			synchronized(this) {
-				Iterator<C> it = iterator();
-				while(it.hasNext()) {
-					C aChannel = it.next();
-					if(itemName.equals(aChannel.item) && remoteAddress.equals(aChannel.remote) &&aChannel.channel != null && direction.equals(aChannel.direction)) {
-						return aChannel;
-					}
+			for(C aChannel : byItem.get(itemName)) {
+				if(remoteAddress.equals(aChannel.remote) &&aChannel.channel != null && direction.equals(aChannel.direction)) {
+					return aChannel;
 				}
-
-				return null;
 			}
+
+			return null;
 		}
 
 		public void replace(String itemName, Direction direction, DatagramChannel theDatagramChannel,
 				DatagramChannel channel) {
 			synchronized(this) {
-				Iterator<C> it = iterator();
-				while(it.hasNext()) {
-					C aChannel = it.next();
+				for(C aChannel : byDatagramChannel.get(theDatagramChannel)) {
 					if(itemName.equals(aChannel.item) &&theDatagramChannel.equals(aChannel.channel) && direction.equals(aChannel.direction)) {
-						aChannel.channel = channel;
+						setChannel(aChannel, channel);
 					}
-				}	
-
+				}
 			}
 		}
 
 		public void replace(String itemName, Direction direction, InetSocketAddress remoteAddress,
 				DatagramChannel channel) {
 			synchronized(this) {
-				Iterator<C> it = iterator();
-				while(it.hasNext()) {
-					C aChannel = it.next();
-					if(itemName.equals(aChannel.item) &&remoteAddress.equals(aChannel.remote) && direction.equals(aChannel.direction) && !channel.equals(aChannel.channel)) {
-						aChannel.channel = channel;
+				for(C aChannel : byItem.get(itemName)) {
+					if(remoteAddress.equals(aChannel.remote) && direction.equals(aChannel.direction) && !channel.equals(aChannel.channel)) {
+						setChannel(aChannel, channel);
 					}
 				}
 			}
@@ -362,278 +414,190 @@ public abstract class AbstractDatagramChannelBinding<P extends ChannelBindingPro
 		}
 
 		public ArrayList<Channel> getAll(String itemName, Direction direction, DatagramChannel theDatagramChannel) {
-			synchronized(this) {
+			ArrayList<Channel> selectedChannels = new ArrayList<Channel>();
 
-				ArrayList<Channel> selectedChannels = new ArrayList<Channel>();
-
-				Iterator<C> it = iterator();
-				while(it.hasNext()) {
-					C aChannel = it.next();
-					if(itemName.equals(aChannel.item) &&theDatagramChannel.equals(aChannel.channel) && direction.equals(aChannel.direction)) {
-						selectedChannels.add(aChannel);
-					}
+			for(C aChannel : byDatagramChannel.get(theDatagramChannel)) {
+				if(itemName.equals(aChannel.item) &&theDatagramChannel.equals(aChannel.channel) && direction.equals(aChannel.direction)) {
+					selectedChannels.add(aChannel);
 				}
-
-				return selectedChannels;
 			}
+
+			return selectedChannels;
 		}
 
 		public ArrayList<Channel> getAll(Direction direction, InetSocketAddress remote ) {
-			synchronized(this) {
+			ArrayList<Channel> selectedChannels = new ArrayList<Channel>();
 
-				ArrayList<Channel> selectedChannels = new ArrayList<Channel>();
-
-				if(useAddressMask) {
-					Iterator<C> it = iterator();
-					while(it.hasNext()) {
-						C aChannel = it.next();
-						if(direction.equals(aChannel.direction)) {
-							if(aChannel.host.equals("*") && aChannel.port.equals(Integer.toString(remote.getPort()))) {
-								selectedChannels.add(aChannel);
-							} else 	if(aChannel.port.equals("*") && aChannel.host.equals(remote.getHostString())) {
-								selectedChannels.add(aChannel);
-							} else if(aChannel.port.equals("*") && aChannel.host.equals("*")) {
-								selectedChannels.add(aChannel);
-							}
-						}
+			if(useAddressMask) {
+				for(C aChannel : maskedChannels) {
+					if(direction.equals(aChannel.direction) && matchesMask(aChannel, remote)) {
+						selectedChannels.add(aChannel);
 					}
-				} else {
-					Iterator<C> it = iterator();
-					while(it.hasNext()) {
-						C aChannel = it.next();
-						if(remote.equals(aChannel.remote) && direction.equals(aChannel.direction)) {
-							selectedChannels.add(aChannel);
-						}
+				}
+			} else {
+				for(C aChannel : byRemote.get(remote)) {
+					if(direction.equals(aChannel.direction)) {
+						selectedChannels.add(aChannel);
 					}
 				}
-
-
-				return selectedChannels;
 			}
+
+			return selectedChannels;
 		}
 
 		public void setAll(String itemName, Direction direction, DatagramChannel theDatagramChannel, boolean b) {
-			synchronized(this) {
-				Iterator<C> it = iterator();
-				while(it.hasNext()) {
-					C aChannel = it.next();
-					if(itemName.equals(aChannel.item) &&theDatagramChannel.equals(aChannel.channel) && direction.equals(aChannel.direction)) {
-						aChannel.isBlocking = b;
-					}
-				}		
+			for(C aChannel : byDatagramChannel.get(theDatagramChannel)) {
+				if(itemName.equals(aChannel.item) &&theDatagramChannel.equals(aChannel.channel) && direction.equals(aChannel.direction)) {
+					aChannel.isBlocking = b;
+				}
 			}
 		}
 
 		public Channel getFirstServed(InetSocketAddress remoteAddress) {
-			synchronized(this) {
-				Iterator<C> it = iterator();
-				while(it.hasNext()) {
-					C aChannel = it.next();
-					if(remoteAddress.equals(aChannel.remote) &&aChannel.channel != null) {
-						return aChannel;
-					}
+			for(C aChannel : byRemote.get(remoteAddress)) {
+				if(aChannel.channel != null) {
+					return aChannel;
 				}
-
-				return null;
 			}
+
+			return null;
 		}
 
 		public void replace(Direction direction,
 				SocketChannel oldSocketChannel, DatagramChannel channel) {
-			synchronized(this) {
-				Iterator<C> it = iterator();
-				while(it.hasNext()) {
-					C aChannel = it.next();
-					if(oldSocketChannel.equals(aChannel.channel) && direction.equals(aChannel.direction)) {
-						aChannel.channel = channel;
-					}
-				}		
-			}
+			// a SocketChannel is never bound to a Channel of this tracker, so there is nothing to replace
 		}
 
 		public void replace(Direction direction, InetSocketAddress remoteAddress,
 				DatagramChannel channel) {
 			synchronized(this) {
-				Iterator<C> it = iterator();
-				while(it.hasNext()) {
-					C aChannel = it.next();
-					if(remoteAddress.equals(aChannel.remote) && direction.equals(aChannel.direction) && !channel.equals(aChannel.channel)) {
-						aChannel.channel = channel;
+				for(C aChannel : byRemote.get(remoteAddress)) {
+					if(direction.equals(aChannel.direction) && !channel.equals(aChannel.channel)) {
+						setChannel(aChannel, channel);
 					}
-				}		
+				}
 			}
 		}
 
 		public ArrayList<Channel> getAll(Direction direction,
 				DatagramChannel theDatagramChannel) {
-			synchronized(this) {
-				ArrayList<Channel> selectedChannels = new ArrayList<Channel>();
+			ArrayList<Channel> selectedChannels = new ArrayList<Channel>();
 
-				Iterator<C> it = iterator();
-				while(it.hasNext()) {
-					C aChannel = it.next();
-					if(theDatagramChannel.equals(aChannel.channel) && direction.equals(aChannel.direction)) {
-						selectedChannels.add(aChannel);
-					}
+			for(C aChannel : byDatagramChannel.get(theDatagramChannel)) {
+				if(theDatagramChannel.equals(aChannel.channel) && direction.equals(aChannel.direction)) {
+					selectedChannels.add(aChannel);
 				}
-
-				return selectedChannels;	
 			}
+
+			return selectedChannels;
 		}
 
 		public void setAllBlocking(Direction direction, DatagramChannel theDatagramChannel,
 				boolean b) {
-			synchronized(this) {
-				Iterator<C> it = iterator();
-				while(it.hasNext()) {
-					C aChannel = it.next();
-					if(theDatagramChannel.equals(aChannel.channel) && direction.equals(aChannel.direction)) {
-						aChannel.isBlocking = true;
-					}
-				}	
+			for(C aChannel : byDatagramChannel.get(theDatagramChannel)) {
+				if(theDatagramChannel.equals(aChannel.channel) && direction.equals(aChannel.direction)) {
+					aChannel.isBlocking = true;
+				}
 			}
 		}
 
 		public Channel getFirstServed(Direction direction,
 				InetSocketAddress remoteAddress) {
-			synchronized(this) {
-				Iterator<C> it = iterator();
-				while(it.hasNext()) {
-					C aChannel = it.next();
-					if(remoteAddress.equals(aChannel.remote) &&aChannel.channel != null && direction.equals(aChannel.direction)) {
-						return aChannel;
-					}
+			for(C aChannel : byRemote.get(remoteAddress)) {
+				if(aChannel.channel != null && direction.equals(aChannel.direction)) {
+					return aChannel;
 				}
-
-				return null;
 			}
+
+			return null;
 		}
 
 		public void replace(DatagramChannel oldDatagramChannel,
 				DatagramChannel channel) {
 			synchronized(this) {
-				Iterator<C> it = iterator();
-				while(it.hasNext()) {
-					C aChannel = it.next();
+				for(C aChannel : byDatagramChannel.get(oldDatagramChannel)) {
 					if(oldDatagramChannel.equals(aChannel.channel)) {
-						aChannel.channel = channel;
+						setChannel(aChannel, channel);
 					}
-				}	
-
-			}			
+				}
+			}
 		}
 
 		public void replace(InetSocketAddress remoteAddress, DatagramChannel channel) {
 			synchronized(this) {
-				Iterator<C> it = iterator();
-				while(it.hasNext()) {
-					C aChannel = it.next();
-					if(remoteAddress.equals(aChannel.remote) && !channel.equals(aChannel.channel)) {
-						aChannel.channel = channel;
+				for(C aChannel : byRemote.get(remoteAddress)) {
+					if(!channel.equals(aChannel.channel)) {
+						setChannel(aChannel, channel);
 					}
-				}		
+				}
 			}
 
 		}
 
 		public ArrayList<Channel> getAll(DatagramChannel theDatagramChannel) {
-			synchronized(this) {
-				ArrayList<Channel> selectedChannels = new ArrayList<Channel>();
+			ArrayList<Channel> selectedChannels = new ArrayList<Channel>();
 
-				Iterator<C> it = iterator();
-				while(it.hasNext()) {
-					C aChannel = it.next();
-					if(theDatagramChannel.equals(aChannel.channel)) {
-						selectedChannels.add(aChannel);
-					}
+			for(C aChannel : byDatagramChannel.get(theDatagramChannel)) {
+				if(theDatagramChannel.equals(aChannel.channel)) {
+					selectedChannels.add(aChannel);
 				}
-
-				return selectedChannels;	
 			}
+
+			return selectedChannels;
 		}
 
 		public void setAllBlocking(DatagramChannel theDatagramChannel, boolean b) {
-			synchronized(this) {
-				Iterator<C> it = iterator();
-				while(it.hasNext()) {
-					C aChannel = it.next();
-					if(theDatagramChannel.equals(aChannel.channel) ) {
-						aChannel.isBlocking = b;
-					}
-				}	
-			}			
+			for(C aChannel : byDatagramChannel.get(theDatagramChannel)) {
+				if(theDatagramChannel.equals(aChannel.channel) ) {
+					aChannel.isBlocking = b;
+				}
+			}
 		}
 
 		public void setAllReconnecting(DatagramChannel theDatagramChannel, boolean b) {
-			synchronized(this) {
-				Iterator<C> it = iterator();
-				while(it.hasNext()) {
-					C aChannel = it.next();
-					if(theDatagramChannel.equals(aChannel.channel) ) {
-						aChannel.isReconnecting = b;
-					}
-				}	
-			}			
+			for(C aChannel : byDatagramChannel.get(theDatagramChannel)) {
+				if(theDatagramChannel.equals(aChannel.channel) ) {
+					aChannel.isReconnecting = b;
+				}
+			}
 		}
 
 		public Channel getFirstNotServed(Direction direction,
 				InetSocketAddress remoteAddress) {
-			synchronized(this) {
-				Iterator<C> it = iterator();
-				while(it.hasNext()) {
-					C aChannel = it.next();
-					if(remoteAddress.equals(aChannel.remote) && direction.equals(aChannel.direction) && (aChannel.channel == null || !aChannel.channel.isOpen()) ) {
-						return aChannel;
-					}
+			for(C aChannel : byRemote.get(remoteAddress)) {
+				if(direction.equals(aChannel.direction) && (aChannel.channel == null || !aChannel.channel.isOpen()) ) {
+					return aChannel;
 				}
-
-				return null;
 			}
+
+			return null;
 		}
 
 		public ArrayList<Channel> getAll(Direction direction,
 				DatagramChannel theDatagramChannel,
 				InetSocketAddress clientAddress) {
-			synchronized(this) {
-
-				ArrayList<Channel> selectedChannels = new ArrayList<Channel>();
+			ArrayList<Channel> selectedChannels = new ArrayList<Channel>();
 
-				Iterator<C> it = iterator();
-				while(it.hasNext()) {
-					C aChannel = it.next();
-					if(clientAddress.equals(aChannel.remote) &&theDatagramChannel.equals(aChannel.channel) && direction.equals(aChannel.direction)) {
-						selectedChannels.add(aChannel);
-					}
+			for(C aChannel : byDatagramChannel.get(theDatagramChannel)) {
+				if(clientAddress.equals(aChannel.remote) &&theDatagramChannel.equals(aChannel.channel) && direction.equals(aChannel.direction)) {
+					selectedChannels.add(aChannel);
 				}
-
-				return selectedChannels;
 			}
+
+			return selectedChannels;
 		}
 
 		public boolean isBlocking(DatagramChannel theDatagramChannel) {
-			synchronized(this) {
-				Iterator<C> it = iterator();
-				while(it.hasNext()) {
-					C aChannel = it.next();
-					if(theDatagramChannel.equals(aChannel.channel) && aChannel.isBlocking) {
-						return true;
-					}
-				}
-				return false;
-			}
+			return getBlocking(theDatagramChannel) != null;
 		}
 
 		public Channel getBlocking(DatagramChannel theDatagramChannel) {
-			synchronized(this) {
-				Iterator<C> it = iterator();
-				while(it.hasNext()) {
-					C aChannel = it.next();
-					if(theDatagramChannel.equals(aChannel.channel) && aChannel.isBlocking) {
-						return aChannel;
-					}
+			for(C aChannel : byDatagramChannel.get(theDatagramChannel)) {
+				if(theDatagramChannel.equals(aChannel.channel) && aChannel.isBlocking) {
+					return aChannel;
 				}
-				return null;
 			}
+			return null;
 		}
 
 	}
@@ -1088,7 +1052,7 @@ public abstract class AbstractDatagramChannelBinding<P extends ChannelBindingPro
 						}
 
 						try {
-							theChannel.channel = DatagramChannel.open();
+							theBinding.channels.setChannel(theChannel, DatagramChannel.open());
 						} catch (IOException e) {
 							logger.error("An exception occurred while opening a channel: {}",e.getMessage());
 						}
@@ -1225,7 +1189,7 @@ public abstract class AbstractDatagramChannelBinding<P extends ChannelBindingPro
 									if(itemShareChannels) {
 										Channel firstChannel = channels.getFirstServed(itemName, direction,remoteAddress);
 										if(firstChannel != null) {
-											newChannel.channel = firstChannel.channel;
+											channels.setChannel(newChannel, firstChannel.channel);
 											assigned = true;
 										}
 									} 
@@ -1233,7 +1197,7 @@ public abstract class AbstractDatagramChannelBinding<P extends ChannelBindingPro
 									if(bindingShareChannels) {
 										Channel firstChannel = channels.getFirstServed(direction,remoteAddress);
 										if(firstChannel != null) {
-											newChannel.channel = firstChannel.channel;
+											channels.setChannel(newChannel, firstChannel.channel);
 											assigned = true;
 										}					
 									}
@@ -1241,7 +1205,7 @@ public abstract class AbstractDatagramChannelBinding<P extends ChannelBindingPro
 									if(directionsShareChannels) {
 										Channel firstChannel = channels.getFirstServed(remoteAddress);
 										if(firstChannel != null) {
-											newChannel.channel = firstChannel.channel;
+											channels.setChannel(newChannel, firstChannel.channel);
 											assigned = true;
 										}					
 									}
@@ -1249,7 +1213,7 @@ public abstract class AbstractDatagramChannelBinding<P extends ChannelBindingPro
 							}
 
 							if(!assigned) {
-								newChannel.channel = listenerChannel;
+								channels.setChannel(newChannel, listenerChannel);
 							}
 
 							if(useAddressMask && (remoteHost.equals("*") || remotePort.equals("*"))) {
@@ -1276,7 +1240,7 @@ public abstract class AbstractDatagramChannelBinding<P extends ChannelBindingPro
 									if(itemShareChannels) {
 										Channel firstChannel = channels.getFirstServed(itemName, direction,remoteAddress);
 										if(firstChannel != null) {
-											newChannel.channel = firstChannel.channel;
+											channels.setChannel(newChannel, firstChannel.channel);
 											assigned = true;
 										}
 									} 
@@ -1284,7 +1248,7 @@ public abstract class AbstractDatagramChannelBinding<P extends ChannelBindingPro
 									if(bindingShareChannels) {
 										Channel firstChannel = channels.getFirstServed(direction,remoteAddress);
 										if(firstChannel != null) {
-											newChannel.channel = firstChannel.channel;
+											channels.setChannel(newChannel, firstChannel.channel);
 											assigned = true;
 										}					
 									}
@@ -1296,7 +1260,7 @@ public abstract class AbstractDatagramChannelBinding<P extends ChannelBindingPro
 									//					if(directionsShareChannels) {
 									//						Channel firstChannel = channels.getFirstServed(remoteAddress);
 									//						if(firstChannel != null) {
-									//							newChannel.channel = firstChannel.channel;
+									//							channels.setChannel(newChannel, firstChannel.channel);
 									//							assigned = true;
 									//						}					
 									//	
@@ -1333,7 +1297,7 @@ public abstract class AbstractDatagramChannelBinding<P extends ChannelBindingPro
 											}
 										}
 
-										newChannel.channel = newDatagramChannel;
+										channels.setChannel(newChannel, newDatagramChannel);
 										logger.debug("Setting up the outbound channel {}", newChannel);
 
 
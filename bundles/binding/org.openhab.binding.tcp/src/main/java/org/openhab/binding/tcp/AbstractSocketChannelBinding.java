@@ -20,9 +20,11 @@ import java.nio.channels.ServerSocketChannel;
 import java.nio.channels.SocketChannel;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.Dictionary;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 import org.apache.commons.lang.StringUtils;
 import org.openhab.core.binding.AbstractActiveBinding;
 import org.openhab.core.library.types.StringType;
@@ -112,17 +114,19 @@ public abstract class AbstractSocketChannelBinding<P extends ChannelBindingProvi
 		// the direction, in our out, of this channel
 		public Direction direction;
 		// flag to indicate if the channel is in a blocking write/read operation
-		public boolean isBlocking;
+		public volatile boolean isBlocking;
 		// placeholder to store the received data as the result of a blocking write/read operation
-		public ByteBuffer buffer;
+		public volatile ByteBuffer buffer;
 		// flag to indicate if the channel is reconnecting / recovering from a previous communication error
-		public boolean isReconnecting;
-		// reference to the underlying Java NIO SocketChannel that represents this TCP/IP connection
-		public SocketChannel channel;
+		public volatile boolean isReconnecting;
+		// reference to the underlying Java NIO SocketChannel that represents this TCP/IP connection. Use ChannelTracker.setChannel() to change it
+		public volatile SocketChannel channel;
 		// remote host name to use. Could be "*" when using masked addresses
 		public String host;
 		// remote port number to use. Could be "*" when using masked addresses
 		public String port;
+		// position of this channel in the ChannelTracker, or -1 if it is not tracked
+		long sequence = -1;
 
 		public Channel(String item, Command command, InetSocketAddress remote,
 				Direction direction, boolean isBlocking, ByteBuffer buffer,
@@ -221,152 +225,197 @@ public abstract class AbstractSocketChannelBinding<P extends ChannelBindingProvi
 	 * contains() - return true if a channel that matches the provided criteria exists in the ChannelTracker
 	 * replace() - replaces the underlying Java NIO channel on the Channels that match the provided criteria 
 	 * 
+	 * Channels are indexed by their Java NIO channel, their remote address and their Item, and the Channels that 
+	 * use address masks are kept apart, so that queries only have to evaluate the few Channels that can possibly match 
+	 * instead of all of them. The indexes are immutable snapshots, so that the queries do not need to lock. Changes to 
+	 * the index are serialised, and the Java NIO channel of a tracked Channel must therefore always be changed
+	 * through setChannel()
+	 * 
 	 * @author Karel Goderis
 	 * @since  1.4.0
 	 * 
 	 **/
-	protected class ChannelTracker<C extends Channel> extends ArrayList<C> {
-
-		private static final long serialVersionUID = 1543958347565096785L;
-
-		public boolean contains(String item, Command command, Direction direction, InetSocketAddress remote) {
+	protected class ChannelTracker<C extends Channel> {
+
+		// all the Channels, in the order they were added to the tracker
+		private final List<C> allChannels = new CopyOnWriteArrayList<C>();
+		private final Comparator<Channel> insertionOrder = new Comparator<Channel>() {
+			@Override
+			public int compare(Channel first, Channel second) {
+				return first.sequence < second.sequence ? -1 : (first.sequence == second.sequence ? 0 : 1);
+			}
+		};
+		private final ChannelIndex<SocketChannel, C> bySocketChannel = new ChannelIndex<SocketChannel, C>(insertionOrder);
+		private final ChannelIndex<InetSocketAddress, C> byRemote = new ChannelIndex<InetSocketAddress, C>(insertionOrder);
+		private final ChannelIndex<String, C> byItem = new ChannelIndex<String, C>(insertionOrder);
+		// the Channels that are defined with a "*" host or port, in the order they were added to the tracker
+		private final List<C> maskedChannels = new CopyOnWriteArrayList<C>();
+		private long nextSequence = 0;
+
+		public boolean add(C aChannel) {
 			synchronized(this) {
-				Iterator<C> it = iterator();
-				while(it.hasNext()) {
-					C aChannel = it.next();
-					if(item.equals(aChannel.item) && command.equals(aChannel.command) && direction.equals(aChannel.direction)&& remote.equals(aChannel.remote)) {
-						return true;
-					}
+				if(aChannel.sequence >= 0) {
+					return false;
 				}
 
-				return false;
+				aChannel.sequence = nextSequence++;
+				allChannels.add(aChannel);
+				bySocketChannel.add(aChannel.channel, aChannel);
+				byRemote.add(aChannel.remote, aChannel);
+				byItem.add(aChannel.item, aChannel);
+				if(isMasked(aChannel)) {
+					maskedChannels.add(aChannel);
+				}
+				return true;
 			}
 		}
 
-		public Channel get(String item, Command command, Direction direction, InetSocketAddress remote) {
+		/**
+		 * Binds the given Channel to a new Java NIO channel, and keeps the index up to date if 
+		 * the Channel is tracked
+		 */
+		public void setChannel(Channel aChannel, SocketChannel channel) {
 			synchronized(this) {
-				Iterator<C> it = iterator();
-				while(it.hasNext()) {
-					C aChannel = it.next();
-					if(item.equals(aChannel.item) && command.equals(aChannel.command) && direction.equals(aChannel.direction)&& remote.equals(aChannel.remote)) {
-						return aChannel;
-					}
+				if(aChannel.sequence >= 0 && aChannel.channel != channel) {
+					@SuppressWarnings("unchecked")
+					C trackedChannel = (C) aChannel;
+					bySocketChannel.remove(aChannel.channel, trackedChannel);
+					aChannel.channel = channel;
+					bySocketChannel.add(channel, trackedChannel);
+				} else {
+					aChannel.channel = channel;
 				}
-
-				return null;
 			}
 		}
 
-		public Channel get(String item, Command command, Direction direction, String host, String port) {
+		public int size() {
+			return allChannels.size();
+		}
+
+		public List<C> getAll() {
+			return Collections.unmodifiableList(allChannels);
+		}
+
+		public void clear() {
 			synchronized(this) {
-				Iterator<C> it = iterator();
-				while(it.hasNext()) {
-					C aChannel = it.next();
-					if(item.equals(aChannel.item) && command.equals(aChannel.command) && direction.equals(aChannel.direction)) {
-						if(aChannel.host.equals(host) && aChannel.port.equals(port)) {
-							return aChannel;
-						}
-					}
+				for(C aChannel : allChannels) {
+					aChannel.sequence = -1;
 				}
+				allChannels.clear();
+				bySocketChannel.clear();
+				byRemote.clear();
+				byItem.clear();
+				maskedChannels.clear();
+			}
+		}
 
-				return null;
+		private boolean isMasked(Channel aChannel) {
+			return "*".equals(aChannel.host) || "*".equals(aChannel.port);
+		}
 
+		private boolean matchesMask(Channel aChannel, InetSocketAddress remoteAddress) {
+			if(aChannel.host.equals("*") && aChannel.port.equals(Integer.toString(remoteAddress.getPort()))) {
+				return true;
+			} else 	if(aChannel.port.equals("*") && aChannel.host.equals(remoteAddress.getHostString())) {
+				return true;
+			} else if(aChannel.port.equals("*") && aChannel.host.equals("*")) {
+				return true;
 			}
+			return false;
 		}
 
-		public Channel get(SocketChannel theChannel) {
-			synchronized(this) {
-				Iterator<C> it = iterator();
-				while(it.hasNext()) {
-					C aChannel = it.next();
-					if(theChannel.equals(aChannel.channel)) {
-						return aChannel;
-					}
+		public boolean contains(String item, Command command, Direction direction, InetSocketAddress remote) {
+			return get(item, command, direction, remote) != null;
+		}
+
+		public Channel get(String item, Command command, Direction direction, InetSocketAddress remote) {
+			for(C aChannel : byItem.get(item)) {
+				if(command.equals(aChannel.command) && direction.equals(aChannel.direction)&& remote.equals(aChannel.remote)) {
+					return aChannel;
 				}
-				return null;
 			}
+
+			return null;
 		}
 
-		public Channel getFirst(Direction direction, InetSocketAddress remoteAddress) {
-			synchronized(this) {
-				Iterator<C> it = iterator();
-				while(it.hasNext()) {
-					C aChannel = it.next();
-					if(remoteAddress.equals(aChannel.remote) && aChannel.channel == null && direction.equals(aChannel.direction)) {
+		public Channel get(String item, Command command, Direction direction, String host, String port) {
+			for(C aChannel : byItem.get(item)) {
+				if(command.equals(aChannel.command) && direction.equals(aChannel.direction)) {
+					if(aChannel.host.equals(host) && aChannel.port.equals(port)) {
 						return aChannel;
 					}
 				}
+			}
 
-				Iterator<C> it2 = iterator();
-				while(it2.hasNext()) {
-					C aChannel = it2.next();
-					if(remoteAddress.equals(aChannel.remote)) {
-						return aChannel;
-					}
+			return null;
+		}
+
+		public Channel get(SocketChannel theChannel) {
+			List<C> candidates = bySocketChannel.get(theChannel);
+			for(C aChannel : candidates) {
+				if(theChannel.equals(aChannel.channel)) {
+					return aChannel;
+				}
+			}
+			return null;
+		}
+
+		public Channel getFirst(Direction direction, InetSocketAddress remoteAddress) {
+			List<C> candidates = byRemote.get(remoteAddress);
+			for(C aChannel : candidates) {
+				if(aChannel.channel == null && direction.equals(aChannel.direction)) {
+					return aChannel;
 				}
+			}
 
-				return null;
+			if(!candidates.isEmpty()) {
+				return candidates.get(0);
 			}
+
+			return null;
 		}
 
 		public Channel getFirst(String itemName, Direction direction, InetSocketAddress remoteAddress) {
-			synchronized(this) {
-				Iterator<C> it = iterator();
-				while(it.hasNext()) {
-					C aChannel = it.next();
-					if(itemName.equals(aChannel.item) && remoteAddress.equals(aChannel.remote) && direction.equals(aChannel.direction)) {
-						return aChannel;
-					}
+			for(C aChannel : byItem.get(itemName)) {
+				if(remoteAddress.equals(aChannel.remote) && direction.equals(aChannel.direction)) {
+					return aChannel;
 				}
-
-				return null;
 			}
+
+			return null;
 		}
 
 		public Channel getFirstServed(String itemName, Direction direction, InetSocketAddress remoteAddress) {
-			synchronized(this) {
-				Iterator<C> it = iterator();
-				while(it.hasNext()) {
-					C aChannel = it.next();
-					if(itemName.equals(aChannel.item) && remoteAddress.equals(aChannel.remote) &&aChannel.channel != null && direction.equals(aChannel.direction)) {
-						return aChannel;
-					}
+			for(C aChannel : byItem.get(itemName)) {
+				if(remoteAddress.equals(aChannel.remote) &&aChannel.channel != null && direction.equals(aChannel.direction)) {
+					return aChannel;
 				}
-
-				return null;
 			}
+
+			return null;
 		}
 
 		public void replace(String itemName, Direction direction, SocketChannel oldSocketChannel,
 				SocketChannel channel) {
 			synchronized(this) {
-				Iterator<C> it = iterator();
-				while(it.hasNext()) {
-					C aChannel = it.next();
+				for(C aChannel : bySocketChannel.get(oldSocketChannel)) {
 					if(itemName.equals(aChannel.item) &&oldSocketChannel.equals(aChannel.channel) && direction.equals(aChannel.direction)) {
-						aChannel.channel = channel;
+						setChannel(aChannel, channel);
 					}
-				}	
-
+				}
 			}
 		}
 
 		public void replace(String itemName, Direction direction, InetSocketAddress remoteAddress,
 				SocketChannel channel) {
 			synchronized(this) {
-				Iterator<C> it = iterator();
-				while(it.hasNext()) {
-					C aChannel = it.next();
-					if(useAddressMask && (aChannel.host.equals("*") || aChannel.port.equals("*")) && direction.equals(aChannel.direction) && itemName.equals(aChannel.item) && !channel.equals(aChannel.channel)) {
-						if(aChannel.host.equals("*") && aChannel.port.equals(Integer.toString(remoteAddress.getPort()))) {
-							aChannel.channel = channel;
-						} else 	if(aChannel.port.equals("*") && aChannel.host.equals(remoteAddress.getHostString())) {
-							aChannel.channel = channel;
-						} else if(aChannel.port.equals("*") && aChannel.host.equals("*")) {
-							aChannel.channel = channel;
-						}	
-					} else if(itemName.equals(aChannel.item) &&remoteAddress.equals(aChannel.remote) && direction.equals(aChannel.direction) && !channel.equals(aChannel.channel)) {
-						aChannel.channel = channel;
+				for(C aChannel : byItem.get(itemName)) {
+					if(useAddressMask && isMasked(aChannel) && direction.equals(aChannel.direction) && !channel.equals(aChannel.channel)) {
+						if(matchesMask(aChannel, remoteAddress)) {
+							setChannel(aChannel, channel);
+						}
+					} else if(remoteAddress.equals(aChannel.remote) && direction.equals(aChannel.direction) && !channel.equals(aChannel.channel)) {
+						setChannel(aChannel, channel);
 					}
 				}
 			}
@@ -374,249 +423,174 @@ public abstract class AbstractSocketChannelBinding<P extends ChannelBindingProvi
 		}
 
 		public ArrayList<Channel> getAll(String itemName, Direction direction, SocketChannel theSocketChannel) {
-			synchronized(this) {
-
-				ArrayList<Channel> selectedChannels = new ArrayList<Channel>();
+			ArrayList<Channel> selectedChannels = new ArrayList<Channel>();
 
-				Iterator<C> it = iterator();
-				while(it.hasNext()) {
-					C aChannel = it.next();
-					if(itemName.equals(aChannel.item) &&theSocketChannel.equals(aChannel.channel) && direction.equals(aChannel.direction)) {
-						selectedChannels.add(aChannel);
-					}
+			for(C aChannel : bySocketChannel.get(theSocketChannel)) {
+				if(itemName.equals(aChannel.item) &&theSocketChannel.equals(aChannel.channel) && direction.equals(aChannel.direction)) {
+					selectedChannels.add(aChannel);
 				}
-
-				return selectedChannels;
 			}
+
+			return selectedChannels;
 		}
 
 		public void setAllBlocking(String itemName, Direction direction, SocketChannel theSocketChannel, boolean b) {
-			synchronized(this) {
-				Iterator<C> it = iterator();
-				while(it.hasNext()) {
-					C aChannel = it.next();
-					if(itemName.equals(aChannel.item) &&theSocketChannel.equals(aChannel.channel) && direction.equals(aChannel.direction)) {
-						aChannel.isBlocking = b;
-					}
-				}		
+			for(C aChannel : bySocketChannel.get(theSocketChannel)) {
+				if(itemName.equals(aChannel.item) &&theSocketChannel.equals(aChannel.channel) && direction.equals(aChannel.direction)) {
+					aChannel.isBlocking = b;
+				}
 			}
 		}
 
 		public Channel getFirstServed(InetSocketAddress remoteAddress) {
-			synchronized(this) {
-				Iterator<C> it = iterator();
-				while(it.hasNext()) {
-					C aChannel = it.next();
-					if(remoteAddress.equals(aChannel.remote) &&aChannel.channel != null) {
-						return aChannel;
-					}
+			for(C aChannel : byRemote.get(remoteAddress)) {
+				if(aChannel.channel != null) {
+					return aChannel;
 				}
-
-				return null;
 			}
+
+			return null;
 		}
 
 		public void replace(Direction direction,
 				SocketChannel oldSocketChannel, SocketChannel channel) {
 			synchronized(this) {
-				Iterator<C> it = iterator();
-				while(it.hasNext()) {
-					C aChannel = it.next();
+				for(C aChannel : bySocketChannel.get(oldSocketChannel)) {
 					if(oldSocketChannel.equals(aChannel.channel) && direction.equals(aChannel.direction)) {
-						aChannel.channel = channel;
+						setChannel(aChannel, channel);
 					}
-				}		
+				}
 			}
 		}
 
 		public void replace(Direction direction, InetSocketAddress remoteAddress,
 				SocketChannel channel) {
 			synchronized(this) {
-				Iterator<C> it = iterator();
-				while(it.hasNext()) {
-					C aChannel = it.next();
-					if(useAddressMask && (aChannel.host.equals("*") || aChannel.port.equals("*")) && remoteAddress.equals(aChannel.remote) && direction.equals(aChannel.direction) && !channel.equals(aChannel.channel)) {
-						if(aChannel.host.equals("*") && aChannel.port.equals(Integer.toString(remoteAddress.getPort()))) {
-							aChannel.channel = channel;
-						} else 	if(aChannel.port.equals("*") && aChannel.host.equals(remoteAddress.getHostString())) {
-							aChannel.channel = channel;
-						} else if(aChannel.port.equals("*") && aChannel.host.equals("*")) {
-							aChannel.channel = channel;
+				for(C aChannel : byRemote.get(remoteAddress)) {
+					if(useAddressMask && isMasked(aChannel) && direction.equals(aChannel.direction) && !channel.equals(aChannel.channel)) {
+						if(matchesMask(aChannel, remoteAddress)) {
+							setChannel(aChannel, channel);
 						}
-					} else if(remoteAddress.equals(aChannel.remote) && direction.equals(aChannel.direction) && !channel.equals(aChannel.channel)) {
-						aChannel.channel = channel;
+					} else if(direction.equals(aChannel.direction) && !channel.equals(aChannel.channel)) {
+						setChannel(aChannel, channel);
 					}
-				}		
+				}
 			}
 		}
 
 		public ArrayList<Channel> getAll(Direction direction,
 				SocketChannel theSocketChannel) {
-			synchronized(this) {
-				ArrayList<Channel> selectedChannels = new ArrayList<Channel>();
+			ArrayList<Channel> selectedChannels = new ArrayList<Channel>();
 
-				Iterator<C> it = iterator();
-				while(it.hasNext()) {
-					C aChannel = it.next();
-					if(theSocketChannel.equals(aChannel.channel) && direction.equals(aChannel.direction)) {
-						selectedChannels.add(aChannel);
-					}
+			for(C aChannel : bySocketChannel.get(theSocketChannel)) {
+				if(theSocketChannel.equals(aChannel.channel) && direction.equals(aChannel.direction)) {
+					selectedChannels.add(aChannel);
 				}
-
-				return selectedChannels;	
 			}
+
+			return selectedChannels;
 		}
 
 		public void setAllBlocking(Direction direction, SocketChannel theSocketChannel,
 				boolean b) {
-			synchronized(this) {
-				Iterator<C> it = iterator();
-				while(it.hasNext()) {
-					C aChannel = it.next();
-					if(theSocketChannel.equals(aChannel.channel) && direction.equals(aChannel.direction)) {
-						aChannel.isBlocking = b;
-					}
-				}	
+			for(C aChannel : bySocketChannel.get(theSocketChannel)) {
+				if(theSocketChannel.equals(aChannel.channel) && direction.equals(aChannel.direction)) {
+					aChannel.isBlocking = b;
+				}
 			}
 		}
 
 		public Channel getFirstServed(Direction direction,
 				InetSocketAddress remoteAddress) {
-			synchronized(this) {
-				Iterator<C> it = iterator();
-				while(it.hasNext()) {
-					C aChannel = it.next();
-					if(remoteAddress.equals(aChannel.remote) &&aChannel.channel != null && direction.equals(aChannel.direction)) {
-						return aChannel;
-					}
+			for(C aChannel : byRemote.get(remoteAddress)) {
+				if(aChannel.channel != null && direction.equals(aChannel.direction)) {
+					return aChannel;
 				}
-
-				return null;
 			}
+
+			return null;
 		}
 
 		public void replace(SocketChannel oldSocketChannel,
 				SocketChannel channel) {
 			synchronized(this) {
-				Iterator<C> it = iterator();
-				while(it.hasNext()) {
-					C aChannel = it.next();
+				for(C aChannel : bySocketChannel.get(oldSocketChannel)) {
 					if(oldSocketChannel.equals(aChannel.channel)) {
-						aChannel.channel = channel;
+						setChannel(aChannel, channel);
 					}
-				}	
-
-			}			
+				}
+			}
 		}
 
 		public void replace (InetSocketAddress remoteAddress, SocketChannel channel) {
 			synchronized(this) {
-				Iterator<C> it = iterator();
-				while(it.hasNext()) {
-					C aChannel = it.next();
-					if(useAddressMask && (aChannel.host.equals("*") || aChannel.port.equals("*")) && !channel.equals(aChannel.channel)) {
-						if(aChannel.host.equals("*") && aChannel.port.equals(Integer.toString(remoteAddress.getPort()))) {
-							aChannel.channel = channel;
-						} else 	if(aChannel.port.equals("*") && aChannel.host.equals(remoteAddress.getHostString())) {
-							aChannel.channel = channel;
-						} else if(aChannel.port.equals("*") && aChannel.host.equals("*")) {
-							aChannel.channel = channel;
+				for(C aChannel : byRemote.merge(maskedChannels, byRemote.get(remoteAddress))) {
+					if(useAddressMask && isMasked(aChannel) && !channel.equals(aChannel.channel)) {
+						if(matchesMask(aChannel, remoteAddress)) {
+							setChannel(aChannel, channel);
 						}
 					} else if(remoteAddress.equals(aChannel.remote) && !channel.equals(aChannel.channel)) {
-						aChannel.channel = channel;
+						setChannel(aChannel, channel);
 					}
-				}		
+				}
 			}
 
 		}
 
 		public ArrayList<Channel> getAll(SocketChannel theSocketChannel) {
-			synchronized(this) {
-				ArrayList<Channel> selectedChannels = new ArrayList<Channel>();
+			ArrayList<Channel> selectedChannels = new ArrayList<Channel>();
 
-				Iterator<C> it = iterator();
-				while(it.hasNext()) {
-					C aChannel = it.next();
-					if(theSocketChannel.equals(aChannel.channel)) {
-						selectedChannels.add(aChannel);
-					}
+			for(C aChannel : bySocketChannel.get(theSocketChannel)) {
+				if(theSocketChannel.equals(aChannel.channel)) {
+					selectedChannels.add(aChannel);
 				}
-
-				return selectedChannels;	
 			}
+
+			return selectedChannels;
 		}
 
 		public void setAllBlocking(SocketChannel theSocketChannel, boolean b) {
-			synchronized(this) {
-				Iterator<C> it = iterator();
-				while(it.hasNext()) {
-					C aChannel = it.next();
-					if(theSocketChannel.equals(aChannel.channel) ) {
-						aChannel.isBlocking = b;
-					}
-				}	
-			}			
+			for(C aChannel : bySocketChannel.get(theSocketChannel)) {
+				if(theSocketChannel.equals(aChannel.channel) ) {
+					aChannel.isBlocking = b;
+				}
+			}
 		}
 
 		public void setAllReconnecting(SocketChannel theSocketChannel, boolean b) {
-			synchronized(this) {
-				Iterator<C> it = iterator();
-				while(it.hasNext()) {
-					C aChannel = it.next();
-					if(theSocketChannel.equals(aChannel.channel) ) {
-						aChannel.isReconnecting = b;
-					}
-				}	
-			}			
+			for(C aChannel : bySocketChannel.get(theSocketChannel)) {
+				if(theSocketChannel.equals(aChannel.channel) ) {
+					aChannel.isReconnecting = b;
+				}
+			}
 		}
 
 		public Channel getFirstNotServed(Direction direction,
-				InetSocketAddress remoteAddress) {			
-			synchronized(this) {
-				Iterator<C> it = iterator();
-				while(it.hasNext()) {
-					C aChannel = it.next();
-					if(useAddressMask && (aChannel.host.equals("*") || aChannel.port.equals("*")) && direction.equals(aChannel.direction) && (aChannel.channel == null || !aChannel.channel.isOpen())) {
-						if(aChannel.host.equals("*") && aChannel.port.equals(Integer.toString(remoteAddress.getPort()))) {
-							return aChannel;
-						} else 	if(aChannel.port.equals("*") && aChannel.host.equals(remoteAddress.getHostString())) {
-							return aChannel;
-						} else if(aChannel.port.equals("*") && aChannel.host.equals("*")) {
-							return aChannel;
-						}
-					} else if(remoteAddress.equals(aChannel.remote) && direction.equals(aChannel.direction) && (aChannel.channel == null || !aChannel.channel.isOpen()) ) {
+				InetSocketAddress remoteAddress) {
+			for(C aChannel : byRemote.merge(maskedChannels, byRemote.get(remoteAddress))) {
+				if(useAddressMask && isMasked(aChannel) && direction.equals(aChannel.direction) && (aChannel.channel == null || !aChannel.channel.isOpen())) {
+					if(matchesMask(aChannel, remoteAddress)) {
 						return aChannel;
 					}
+				} else if(remoteAddress.equals(aChannel.remote) && direction.equals(aChannel.direction) && (aChannel.channel == null || !aChannel.channel.isOpen()) ) {
+					return aChannel;
 				}
-
-				return null;
 			}
+
+			return null;
 		}
 
 		public boolean isBlocking(SocketChannel theSocketChannel) {
-			synchronized(this) {
-				Iterator<C> it = iterator();
-				while(it.hasNext()) {
-					C aChannel = it.next();
-					if(theSocketChannel.equals(aChannel.channel) && aChannel.isBlocking) {
-						return true;
-					}
-				}
-				return false;
-			}
+			return getBlocking(theSocketChannel) != null;
 		}
 
 		public Channel getBlocking(SocketChannel theSocketChannel) {
-			synchronized(this) {
-				Iterator<C> it = iterator();
-				while(it.hasNext()) {
-					C aChannel = it.next();
-					if(theSocketChannel.equals(aChannel.channel) && aChannel.isBlocking) {
-						return aChannel;
-					}
+			for(C aChannel : bySocketChannel.get(theSocketChannel)) {
+				if(theSocketChannel.equals(aChannel.channel) && aChannel.isBlocking) {
+					return aChannel;
 				}
-				return null;
 			}
+			return null;
 		}
 
 	}
@@ -1094,7 +1068,7 @@ public abstract class AbstractSocketChannelBinding<P extends ChannelBindingProvi
 					}
 
 					try {
-						theChannel.channel = SocketChannel.open();
+						theBinding.channels.setChannel(theChannel, SocketChannel.open());
 					} catch (IOException e) {
 						logger.error("An exception occurred while opening a channel: {}",e.getMessage());
 					}
@@ -1210,7 +1184,7 @@ public abstract class AbstractSocketChannelBinding<P extends ChannelBindingProvi
 								if(itemShareChannels) {
 									Channel firstChannel = channels.getFirstServed(itemName, direction,remoteAddress);
 									if(firstChannel != null) {
-										newChannel.channel = firstChannel.channel;
+										channels.setChannel(newChannel, firstChannel.channel);
 										assigned = true;
 									}
 								} 
@@ -1218,7 +1192,7 @@ public abstract class AbstractSocketChannelBinding<P extends ChannelBindingProvi
 								if(bindingShareChannels) {
 									Channel firstChannel = channels.getFirstServed(direction,remoteAddress);
 									if(firstChannel != null) {
-										newChannel.channel = firstChannel.channel;
+										channels.setChannel(newChannel, firstChannel.channel);
 										assigned = true;
 									}					
 								}
@@ -1226,7 +1200,7 @@ public abstract class AbstractSocketChannelBinding<P extends ChannelBindingProvi
 								if(directionsShareChannels) {
 									Channel firstChannel = channels.getFirstServed(remoteAddress);
 									if(firstChannel != null) {
-										newChannel.channel = firstChannel.channel;
+										channels.setChannel(newChannel, firstChannel.channel);
 										assigned = true;
 									}					
 								}
@@ -1258,7 +1232,7 @@ public abstract class AbstractSocketChannelBinding<P extends ChannelBindingProvi
 									if(itemShareChannels) {
 										Channel firstChannel = channels.getFirstServed(itemName, direction,remoteAddress);
 										if(firstChannel != null) {
-											newChannel.channel = firstChannel.channel;
+											channels.setChannel(newChannel, firstChannel.channel);
 											assigned = true;
 										}
 									} 
@@ -1266,7 +1240,7 @@ public abstract class AbstractSocketChannelBinding<P extends ChannelBindingProvi
 									if(bindingShareChannels) {
 										Channel firstChannel = channels.getFirstServed(direction,remoteAddress);
 										if(firstChannel != null) {
-											newChannel.channel = firstChannel.channel;
+											channels.setChannel(newChannel, firstChannel.channel);
 											assigned = true;
 										}					
 									}
@@ -1274,7 +1248,7 @@ public abstract class AbstractSocketChannelBinding<P extends ChannelBindingProvi
 									if(directionsShareChannels) {
 										Channel firstChannel = channels.getFirstServed(remoteAddress);
 										if(firstChannel != null) {
-											newChannel.channel = firstChannel.channel;
+											channels.setChannel(newChannel, firstChannel.channel);
 											assigned = true;
 										}					
 									}
@@ -1311,7 +1285,7 @@ public abstract class AbstractSocketChannelBinding<P extends ChannelBindingProvi
 												}
 											}
 
-											newChannel.channel = newSocketChannel;
+											channels.setChannel(newChannel, newSocketChannel);
 											logger.debug("Setting up the outbound channel {}", newChannel);
 
 											try {
@@ -1373,7 +1347,7 @@ public abstract class AbstractSocketChannelBinding<P extends ChannelBindingProvi
 
 									if(firstChannel.channel == null || !firstChannel.channel.isOpen()) {
 
-										firstChannel.channel = newChannel;
+										channels.setChannel(firstChannel, newChannel);
 										firstChannel.isBlocking = false;
 										firstChannel.buffer = null;
 
@@ -1651,7 +1625,7 @@ public abstract class AbstractSocketChannelBinding<P extends ChannelBindingProvi
 								}	
 
 							} else {
-								theChannel.channel = null;
+								channels.setChannel(theChannel, null);
 							}
 						} else {
 
@@ -1778,7 +1752,7 @@ public abstract class AbstractSocketChannelBinding<P extends ChannelBindingProvi
 										}	
 
 									} else {
-										theElement.channel.channel = null;
+										channels.setChannel(theElement.channel, null);
 									}
 								} else {
 									if(theElement != null ) {
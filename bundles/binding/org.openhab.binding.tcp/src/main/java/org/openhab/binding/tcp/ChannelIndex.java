@@ -0,0 +1,156 @@
+/**
+ * Copyright (c) 2010-2014, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.tcp;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A concurrent multi-valued index that is used by the ChannelTrackers to look up Channels
+ * by one of their attributes (NIO channel, remote address, Item name, ...) without scanning
+ * all known Channels.
+ *
+ * Every key maps to an immutable snapshot list that is replaced as a whole on each change, so
+ * readers never lock and can safely iterate a result while the index is being modified. The
+ * values of a given key are kept in the order defined by the Comparator passed at construction
+ * time. Writers are expected to be serialised by the caller.
+ *
+ * @author Karel Goderis
+ * @since 1.5.0
+ *
+ */
+public class ChannelIndex<K, V> {
+
+	private final ConcurrentMap<K, List<V>> index = new ConcurrentHashMap<K, List<V>>();
+	private final Comparator<? super V> order;
+
+	public ChannelIndex(Comparator<? super V> order) {
+		this.order = order;
+	}
+
+	/**
+	 * Returns the values that are stored for <code>key</code>
+	 *
+	 * @param key the key to look up, can be <code>null</code>
+	 * @return an immutable list of values, or an empty list if there are none
+	 */
+	public List<V> get(K key) {
+		if(key == null) {
+			return Collections.emptyList();
+		}
+
+		List<V> values = index.get(key);
+		if(values == null) {
+			return Collections.emptyList();
+		}
+
+		return values;
+	}
+
+	/**
+	 * Adds <code>value</code> to the values stored for <code>key</code>. <code>null</code> keys are ignored.
+	 */
+	public void add(K key, V value) {
+		if(key == null) {
+			return;
+		}
+
+		List<V> current = index.get(key);
+		ArrayList<V> updated = null;
+		if(current == null) {
+			updated = new ArrayList<V>(1);
+		} else {
+			updated = new ArrayList<V>(current.size() + 1);
+			updated.addAll(current);
+		}
+
+		int position = updated.size();
+		while(position > 0 && order.compare(updated.get(position - 1), value) > 0) {
+			position--;
+		}
+		updated.add(position, value);
+
+		index.put(key, Collections.unmodifiableList(updated));
+	}
+
+	/**
+	 * Removes <code>value</code> (compared by identity) from the values stored for <code>key</code>
+	 */
+	public void remove(K key, V value) {
+		if(key == null) {
+			return;
+		}
+
+		List<V> current = index.get(key);
+		if(current == null) {
+			return;
+		}
+
+		ArrayList<V> updated = new ArrayList<V>(current.size());
+		for(V aValue : current) {
+			if(aValue != value) {
+				updated.add(aValue);
+			}
+		}
+
+		if(updated.isEmpty()) {
+			index.remove(key);
+		} else if(updated.size() != current.size()) {
+			index.put(key, Collections.unmodifiableList(updated));
+		}
+	}
+
+	/**
+	 * Removes all the keys and values from the index
+	 */
+	public void clear() {
+		index.clear();
+	}
+
+	/**
+	 * Merges two lists that are sorted according to the order of this index into a single sorted list,
+	 * skipping values that are present in both lists
+	 */
+	public List<V> merge(List<V> first, List<V> second) {
+		if(first.isEmpty()) {
+			return second;
+		}
+		if(second.isEmpty()) {
+			return first;
+		}
+
+		ArrayList<V> merged = new ArrayList<V>(first.size() + second.size());
+		int i = 0;
+		int j = 0;
+		while(i < first.size() || j < second.size()) {
+			if(j >= second.size()) {
+				merged.add(first.get(i++));
+			} else if(i >= first.size()) {
+				merged.add(second.get(j++));
+			} else {
+				int comparison = order.compare(first.get(i), second.get(j));
+				if(comparison < 0) {
+					merged.add(first.get(i++));
+				} else if(comparison > 0) {
+					merged.add(second.get(j++));
+				} else {
+					merged.add(first.get(i++));
+					j++;
+				}
+			}
+		}
+
+		return merged;
+	}
+
+}
@@ -8,8 +8,12 @@
  */
 package org.openhab.core.autoupdate.internal;
 
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
 import org.openhab.core.autoupdate.AutoUpdateBindingProvider;
 import org.openhab.core.binding.AbstractBinding;
+import org.openhab.core.binding.BindingProvider;
 import org.openhab.core.items.GenericItem;
 import org.openhab.core.items.ItemNotFoundException;
 import org.openhab.core.items.ItemRegistry;
@@ -37,6 +41,12 @@ public class AutoUpdateBinding extends AbstractBinding<AutoUpdateBindingProvider
 	
 	protected ItemRegistry itemRegistry;
 	
+	/** 
+	 * itemName - combined autoupdate configuration of all providers; it is
+	 * updated whenever a binding changes and contains configured items only
+	 */
+	private volatile ConcurrentMap<String, Boolean> autoUpdateMap = new ConcurrentHashMap<String, Boolean>();
+	
 	public void setItemRegistry(ItemRegistry itemRegistry) {
 		this.itemRegistry = itemRegistry;
 	}
@@ -46,21 +56,61 @@ public class AutoUpdateBinding extends AbstractBinding<AutoUpdateBindingProvider
 	}
 	
 
+	@Override
+	public void removeBindingProvider(AutoUpdateBindingProvider provider) {
+		super.removeBindingProvider(provider);
+		updateAutoUpdateMap();
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void allBindingsChanged(BindingProvider provider) {
+		updateAutoUpdateMap();
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void bindingChanged(BindingProvider provider, String itemName) {
+		Boolean autoUpdate = getAutoUpdate(itemName);
+		if (autoUpdate != null) {
+			autoUpdateMap.put(itemName, autoUpdate);
+		} else {
+			autoUpdateMap.remove(itemName);
+		}
+	}
+	
+	/**
+	 * Rebuilds the autoupdate configurations of all items of all registered
+	 * {@link AutoUpdateBindingProvider}s.
+	 */
+	private void updateAutoUpdateMap() {
+		ConcurrentMap<String, Boolean> newAutoUpdateMap = new ConcurrentHashMap<String, Boolean>();
+		for (AutoUpdateBindingProvider provider : providers) {
+			for (String itemName : provider.getItemNames()) {
+				Boolean autoUpdate = getAutoUpdate(itemName);
+				if (autoUpdate != null) {
+					newAutoUpdateMap.put(itemName, autoUpdate);
+				}
+			}
+		}
+		autoUpdateMap = newAutoUpdateMap;
+	}
+	
 	/**
 	 * <p>Iterates through all registered {@link AutoUpdateBindingProvider}s and
 	 * checks whether an autoupdate configuration is available for <code>itemName</code>.</p>
 	 * 
 	 * <p>If there are more then one {@link AutoUpdateBindingProvider}s providing
-	 * a configuration the results are combined by a logical <em>OR</em>. If no
-	 * configuration is provided at all the autoupdate defaults to <code>true</code>
-	 * and an update is posted for the corresponding {@link State}.</p> 
+	 * a configuration the results are combined by a logical <em>OR</em>.</p>
 	 * 
 	 * @param itemName the item for which to find an autoupdate configuration
-	 * @param command the command being received and posted as {@link State}
-	 * update if <code>command</code> is instance of {@link State} as well.
+	 * @return the combined configuration or <code>null</code> if there is none
 	 */
-	@Override
-	public void receiveCommand(String itemName, Command command) {
+	private Boolean getAutoUpdate(String itemName) {
 		Boolean autoUpdate = null;
 		for (AutoUpdateBindingProvider provider : providers) {
 			Boolean au = provider.autoUpdate(itemName);
@@ -71,6 +121,23 @@ public class AutoUpdateBinding extends AbstractBinding<AutoUpdateBindingProvider
 				}
 			}
 		}
+		return autoUpdate;
+	}
+
+	/**
+	 * <p>Looks up the autoupdate configuration of <code>itemName</code>, which
+	 * has been collected from all {@link AutoUpdateBindingProvider}s when the
+	 * bindings changed. If no configuration is provided at all the autoupdate
+	 * defaults to <code>true</code> and an update is posted for the corresponding
+	 * {@link State}.</p> 
+	 * 
+	 * @param itemName the item for which to find an autoupdate configuration
+	 * @param command the command being received and posted as {@link State}
+	 * update if <code>command</code> is instance of {@link State} as well.
+	 */
+	@Override
+	public void receiveCommand(String itemName, Command command) {
+		Boolean autoUpdate = autoUpdateMap.get(itemName);
 		
 		// we didn't find any autoupdate configuration, so apply the default now
 		if (autoUpdate == null) {
@@ -88,25 +155,7 @@ public class AutoUpdateBinding extends AbstractBinding<AutoUpdateBindingProvider
 		if (itemRegistry != null) {
 			try {
 				GenericItem item = (GenericItem) itemRegistry.getItem(itemName);
-				boolean isAccepted = false;
-				if (item.getAcceptedDataTypes().contains(newStatus.getClass())) {
-					isAccepted = true;
-				} else {
-					// Look for class hierarchy
-					for (Class<? extends State> state : item.getAcceptedDataTypes()) {
-						try {
-							if (!state.isEnum() && state.newInstance().getClass().isAssignableFrom(newStatus.getClass())) {
-								isAccepted = true;
-								break;
-							}
-						} catch (InstantiationException e) {
-							logger.warn("InstantiationException on ", e.getMessage()); // Should never happen
-						} catch (IllegalAccessException e) {
-							logger.warn("IllegalAccessException on ", e.getMessage()); // Should never happen
-						}
-					}
-				}				
-				if (isAccepted) {
+				if (item.isAcceptedState(newStatus)) {
 					item.setState(newStatus);
 				} else {
 					logger.debug("Received update of a not accepted type ("	+ newStatus.getClass().getSimpleName() + ") for item " + itemName);
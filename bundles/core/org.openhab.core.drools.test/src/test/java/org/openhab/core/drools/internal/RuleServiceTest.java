@@ -0,0 +1,144 @@
+/**
+ * Copyright (c) 2010-2014, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.core.drools.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Hashtable;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.openhab.core.drools.event.RuleEvent;
+import org.openhab.core.drools.event.StateEvent;
+import org.openhab.core.library.items.SwitchItem;
+import org.openhab.core.library.types.OnOffType;
+
+/**
+ * Tests that the {@link RuleService} evaluates every event exactly once, in
+ * particular the events which arrive while a batch is evaluated.
+ *
+ * @author Kai Kreuzer
+ * @since 1.5.0
+ */
+public class RuleServiceTest {
+
+	private SwitchItem item;
+
+	private RecordingRuleService service;
+
+	/** records the evaluated batches instead of firing rules */
+	private static class RecordingRuleService extends RuleService {
+
+		private final List<List<RuleEvent>> batches = new ArrayList<List<RuleEvent>>();
+
+		/** counted down when the evaluation of the first batch has started */
+		private final CountDownLatch evaluating = new CountDownLatch(1);
+
+		/** holds the evaluation of the first batch until it is counted down */
+		private CountDownLatch release = new CountDownLatch(0);
+
+		@Override
+		void evaluate(List<RuleEvent> batch) {
+			synchronized (batches) {
+				batches.add(batch);
+			}
+			evaluating.countDown();
+			try {
+				release.await(10, TimeUnit.SECONDS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+
+		List<List<RuleEvent>> getBatches() {
+			synchronized (batches) {
+				return new ArrayList<List<RuleEvent>>(batches);
+			}
+		}
+	}
+
+	@Before
+	public void setUp() {
+		item = new SwitchItem("Switch");
+		service = new RecordingRuleService();
+	}
+
+	@Test
+	public void testEventsArrivingDuringEvaluationAreNotLost() throws InterruptedException {
+		service.release = new CountDownLatch(1);
+		service.stateUpdated(item, OnOffType.ON);
+
+		Thread evaluation = new Thread() {
+			@Override
+			public void run() {
+				service.execute();
+			}
+		};
+		evaluation.start();
+		assertTrue(service.evaluating.await(10, TimeUnit.SECONDS));
+
+		// these events arrive while the first batch is evaluated
+		service.stateChanged(item, OnOffType.ON, OnOffType.OFF);
+		service.stateUpdated(item, OnOffType.OFF);
+		service.release.countDown();
+		evaluation.join(10000);
+		assertFalse(evaluation.isAlive());
+
+		service.execute();
+
+		List<List<RuleEvent>> batches = service.getBatches();
+		assertEquals(2, batches.size());
+		assertEquals(1, batches.get(0).size());
+		assertEquals(2, batches.get(1).size());
+		StateEvent changed = (StateEvent) batches.get(1).get(0);
+		assertTrue(changed.isChanged());
+		assertEquals(OnOffType.OFF, changed.getNewState());
+	}
+
+	@Test
+	public void testEventWakesUpEvaluation() throws Exception {
+		Hashtable<String, String> config = new Hashtable<String, String>();
+		config.put("evalInterval", "10000");
+		service.updated(config);
+
+		Thread evaluation = new Thread() {
+			@Override
+			public void run() {
+				service.execute();
+			}
+		};
+		long start = System.currentTimeMillis();
+		evaluation.start();
+		Thread.sleep(100);
+		service.stateUpdated(item, OnOffType.ON);
+		evaluation.join(10000);
+
+		// the event is evaluated as soon as it arrives, not after the evaluation interval
+		assertTrue(System.currentTimeMillis() - start < 5000);
+		assertEquals(1, service.getBatches().size());
+		assertEquals(1, service.getBatches().get(0).size());
+	}
+
+	@Test
+	public void testNoEvaluationWithoutEvents() throws Exception {
+		Hashtable<String, String> config = new Hashtable<String, String>();
+		config.put("evalInterval", "10");
+		service.updated(config);
+
+		service.execute();
+		assertTrue(service.getBatches().isEmpty());
+	}
+
+}
@@ -13,16 +13,18 @@ import static org.openhab.core.events.EventConstants.TOPIC_SEPERATOR;
 
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Collections;
 import java.util.Dictionary;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
 
 import org.apache.commons.lang.StringUtils;
 import org.drools.KnowledgeBase;
 import org.drools.KnowledgeBaseFactory;
-import org.drools.ObjectFilter;
 import org.drools.SystemEventListener;
 import org.drools.SystemEventListenerFactory;
 import org.drools.agent.KnowledgeAgent;
@@ -55,6 +57,19 @@ import org.osgi.service.event.EventHandler;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+/**
+ * The RuleService feeds the items and the events on the openHAB bus into a
+ * Drools session and evaluates the rules.
+ * <p>
+ * The events are collected in a lock-free queue. The evaluation thread is
+ * woken up as soon as an event arrives; it waits for <code>batchWindow</code>
+ * milliseconds to collect the events which arrive at about the same time
+ * and evaluates them in one batch. The events of a batch are retracted from
+ * the session when the next batch is evaluated.
+ * 
+ * @author Kai Kreuzer
+ * @since 0.7.0
+ */
 public class RuleService extends AbstractActiveService implements ManagedService, EventHandler, ItemRegistryChangeListener, StateChangeListener {
 
 	private static final String RULES_CHANGESET = "org/openhab/core/drools/changeset.xml";
@@ -63,13 +78,23 @@ public class RuleService extends AbstractActiveService implements ManagedService
 	
 	private ItemRegistry itemRegistry = null;
 	
-	private long refreshInterval = 200;
+	/** the maximum time in milliseconds the evaluation thread waits for events before it checks for shutdown */
+	private long evalInterval = 1000;
+	
+	/** the time in milliseconds events are collected after the first one has arrived */
+	private long batchWindow = 5;
 		
 	private StatefulKnowledgeSession ksession = null;
 	
 	private Map<String, FactHandle> factHandleMap = new HashMap<String, FactHandle>();
 	
-	private List<RuleEvent> eventQueue = Collections.synchronizedList(new ArrayList<RuleEvent>());
+	private Queue<RuleEvent> eventQueue = new ConcurrentLinkedQueue<RuleEvent>();
+	
+	/** the fact handles of the events of the last evaluated batch */
+	private List<FactHandle> eventHandles = new ArrayList<FactHandle>();
+	
+	/** the thread evaluating the rules, while it is waiting for events */
+	private volatile Thread evaluationThread = null;
 	
 	public void activate() {
 		
@@ -115,12 +140,17 @@ public class RuleService extends AbstractActiveService implements ManagedService
 	}
 	
 	public void deactivate() {
-		if(ksession!=null) {
-			ksession.dispose();
-			ksession = null;
-		}
-		factHandleMap.clear();
 		shutdown();
+		interrupt();
+		synchronized (this) {
+			if(ksession!=null) {
+				ksession.dispose();
+				ksession = null;
+			}
+			factHandleMap.clear();
+			eventHandles.clear();
+		}
+		eventQueue.clear();
 	}
 	
 	public void setItemRegistry(ItemRegistry itemRegistry) {
@@ -141,7 +171,11 @@ public class RuleService extends AbstractActiveService implements ManagedService
 		if (config != null) {
 			String evalIntervalString = (String) config.get("evalInterval");
 			if (StringUtils.isNotBlank(evalIntervalString)) {
-				refreshInterval = Long.parseLong(evalIntervalString);
+				evalInterval = Long.parseLong(evalIntervalString);
+			}
+			String batchWindowString = (String) config.get("batchWindow");
+			if (StringUtils.isNotBlank(batchWindowString)) {
+				batchWindow = Long.parseLong(batchWindowString);
 			}
 		}
 	}
@@ -190,23 +224,31 @@ public class RuleService extends AbstractActiveService implements ManagedService
 	 * {@inheritDoc}
 	 */
 	public void stateChanged(Item item, State oldState, State newState) {
-		eventQueue.add(new StateEvent(item, oldState, newState));
+		addEvent(new StateEvent(item, oldState, newState));
 	}
 
 	/**
 	 * {@inheritDoc}
 	 */
 	public void stateUpdated(Item item, State state) {
-		eventQueue.add(new StateEvent(item, state));
+		addEvent(new StateEvent(item, state));
 	}
 
 	public void receiveCommand(String itemName, Command command) {
 		try {
 			Item item = itemRegistry.getItem(itemName);
-			eventQueue.add(new CommandEvent(item, command));
+			addEvent(new CommandEvent(item, command));
 		} catch (ItemNotFoundException e) {}
 	}
 	
+	private void addEvent(RuleEvent event) {
+		eventQueue.add(event);
+		Thread thread = evaluationThread;
+		if (thread != null) {
+			LockSupport.unpark(thread);
+		}
+	}
+	
 	private void internalItemAdded(Item item) {
 		if(item==null) {
 			logger.debug("Item must not be null here!");
@@ -241,46 +283,76 @@ public class RuleService extends AbstractActiveService implements ManagedService
 	}
 	
 	/**
-	 * @{inheritDoc}
+	 * Waits for events and evaluates them in a batch. The refresh thread calls
+	 * this method again immediately after it has returned.
 	 */
 	@Override
-	protected synchronized void execute() {
-		// remove all previous events from the session
-		Collection<FactHandle> handles = ksession.getFactHandles(new ObjectFilter() {			
-			public boolean accept(Object obj) {
-				if (obj instanceof RuleEvent) {
-					return true;
+	protected void execute() {
+		evaluationThread = Thread.currentThread();
+		try {
+			if (eventQueue.isEmpty()) {
+				LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(evalInterval));
+				if (eventQueue.isEmpty()) {
+					return;
 				}
-				return false;
 			}
-		});
-		for(FactHandle handle : handles) {
+			// collect the events arriving at about the same time
+			long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(batchWindow);
+			long remaining;
+			while (!shutdown && (remaining = deadline - System.nanoTime()) > 0) {
+				LockSupport.parkNanos(this, remaining);
+			}
+		} finally {
+			evaluationThread = null;
+		}
+
+		List<RuleEvent> batch = new ArrayList<RuleEvent>();
+		RuleEvent event;
+		while ((event = eventQueue.poll()) != null) {
+			batch.add(event);
+		}
+		evaluate(batch);
+	}
+
+	/**
+	 * Evaluates the rules for a batch of events.
+	 * 
+	 * @param batch the events which have been collected since the last evaluation
+	 */
+	synchronized void evaluate(List<RuleEvent> batch) {
+		if (ksession == null) {
+			return;
+		}
+
+		// remove the events of the previous batch from the session
+		for(FactHandle handle : eventHandles) {
 			ksession.retract(handle);
 		}
+		eventHandles.clear();
 
-		ArrayList<RuleEvent> clonedQueue = new ArrayList<RuleEvent>(eventQueue);
-		eventQueue.clear();
-		
 		// now add all recent events to the session
-		for(RuleEvent event : clonedQueue) {
+		for(RuleEvent event : batch) {
 			Item item = event.getItem();
-			if(ksession!=null && item!=null) {
+			if(item!=null) {
 				FactHandle factHandle = factHandleMap.get(item.getName());
 				if(factHandle!=null) {
 					ksession.update(factHandle, item);
 				}
-				ksession.insert(event);
+				eventHandles.add(ksession.insert(event));
 			}
 		}
 		
 		// run the rule evaluation
 		ksession.fireAllRules();
-			
+		logger.trace("Evaluated {} events", batch.size());
 	}
 
+	/**
+	 * The refresh thread doesn't pause, {@link #execute()} waits for events instead.
+	 */
 	@Override
 	protected long getRefreshInterval() {
-		return refreshInterval;
+		return 0;
 	}
 
 	@Override
@@ -0,0 +1,91 @@
+/**
+ * Copyright (c) 2010-2014, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.core.library.types;
+
+import org.openhab.core.library.items.NumberItem;
+import org.openhab.core.library.items.SwitchItem;
+import org.openhab.core.types.UnDefType;
+
+/**
+ * Measures the throughput of numeric state updates, as they are done by the
+ * bindings for sensor readings, and the heap which is retained by the states
+ * of 10k number items. It is not run by the test suite, but has to be started
+ * manually.
+ *
+ * @author Kai Kreuzer
+ * @since 1.5.0
+ */
+public class DecimalTypeBenchmark {
+
+	private static final int ITEMS = 10000;
+
+	private static final int UPDATES = 10000000;
+
+	public static void main(String[] args) throws Exception {
+		NumberItem[] items = new NumberItem[ITEMS];
+		for (int i = 0; i < ITEMS; i++) {
+			items[i] = new NumberItem("item" + i);
+		}
+
+		// warm up, so that the measurement is done with compiled code
+		update(items);
+
+		long start = System.nanoTime();
+		long length = update(items);
+		long time = System.nanoTime() - start;
+		System.out.println(String.format("state updates: %d in %d ms, %.1f ns/update, %.1f chars/state", UPDATES,
+				time / 1000000, (double) time / UPDATES, (double) length / UPDATES));
+
+		SwitchItem switchItem = new SwitchItem("switch");
+		start = System.nanoTime();
+		for (int i = 0; i < UPDATES; i++) {
+			switchItem.setState(i % 2 == 0 ? OnOffType.ON : OnOffType.OFF);
+			length += ((DecimalType) switchItem.getStateAs(DecimalType.class)).intValue();
+		}
+		time = System.nanoTime() - start;
+		System.out.println(String.format("switch mapping: %.1f ns/conversion", (double) time / UPDATES));
+
+		for (int i = 0; i < ITEMS; i++) {
+			items[i].setState(UnDefType.UNDEF);
+		}
+		long before = usedMemory();
+		for (int i = 0; i < ITEMS; i++) {
+			items[i].setState(new DecimalType(20 + i % 1000 / 10.0 + 0.3));
+		}
+		long after = usedMemory();
+		System.out.println(String.format("heap:          %d bytes for %d states, %.1f bytes/state", after - before,
+				ITEMS, (double) (after - before) / ITEMS));
+	}
+
+	/**
+	 * Updates the items with readings of one decimal place, as they are
+	 * typical for temperature sensors, and formats the new states.
+	 *
+	 * @return the total length of the state strings, which are needed for persistence and the UIs
+	 */
+	private static long update(NumberItem[] items) {
+		long length = 0;
+		for (int i = 0; i < UPDATES; i++) {
+			NumberItem item = items[i % ITEMS];
+			item.setState(new DecimalType(20 + (i % 100) / 10.0));
+			length += item.getState().toString().length();
+		}
+		return length;
+	}
+
+	private static long usedMemory() throws InterruptedException {
+		Runtime runtime = Runtime.getRuntime();
+		for (int i = 0; i < 3; i++) {
+			System.gc();
+			Thread.sleep(100);
+		}
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+
+}
@@ -30,5 +30,36 @@ public class DecimalTypeTest {
 		assertEquals(true, dt3.equals(pt));
 		assertEquals(false, dt1.equals(pt));
 	}
-	
+
+	@Test
+	public void testDoubleValue() {
+		assertEquals("21.3", new DecimalType(21.3).toString());
+		assertEquals("-0.001", new DecimalType(-0.001).toString());
+		assertEquals("21", new DecimalType(21.0).toString());
+		assertEquals(21.3, new DecimalType(21.3).doubleValue(), 0);
+		assertEquals(new DecimalType("21.3"), new DecimalType(21.3));
+	}
+
+	@Test(expected = NumberFormatException.class)
+	public void testNaN() {
+		new DecimalType(Double.NaN);
+	}
+
+	@Test
+	public void testValueOf() {
+		assertSame(DecimalType.valueOf(1), DecimalType.valueOf(1));
+		assertSame(DecimalType.ZERO, DecimalType.valueOf(0));
+		assertEquals(new DecimalType(100000), DecimalType.valueOf(100000));
+		assertEquals(new DecimalType(-1), DecimalType.valueOf(-1));
+	}
+
+	@Test
+	public void testHashCode() {
+		DecimalType dt1 = new DecimalType("1");
+		DecimalType dt2 = new DecimalType("1.00");
+		assertEquals(true, dt1.equals(dt2));
+		assertEquals(dt1.hashCode(), dt2.hashCode());
+		assertEquals(dt1.hashCode(), new PercentType(1).hashCode());
+	}
+
 }
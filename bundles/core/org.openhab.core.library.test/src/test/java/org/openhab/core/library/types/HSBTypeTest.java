@@ -9,6 +9,7 @@
 package org.openhab.core.library.types;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 import java.math.BigDecimal;
@@ -28,6 +29,13 @@ public class HSBTypeTest {
 		hsb2 = new HSBType("0,0,0");
 		assertTrue(hsb1.equals(hsb2));
 
+		hsb1 = new HSBType("53,86,1");
+		hsb2 = new HSBType("53.0,86,1.00");
+		assertTrue(hsb1.equals(hsb2));
+		assertEquals(hsb1.hashCode(), hsb2.hashCode());
+		assertFalse(hsb1.equals(new HSBType("53,86,2")));
+		assertEquals("53,86,1", hsb1.toString());
+
 	}
 
 	@Test
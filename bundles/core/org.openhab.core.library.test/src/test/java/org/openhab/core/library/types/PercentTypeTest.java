@@ -9,6 +9,7 @@
 package org.openhab.core.library.types;
 
 import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertSame;
 
 import org.junit.Test;
 
@@ -51,4 +52,16 @@ public class PercentTypeTest {
 		assertEquals(true, pt3.equals(pt4));
 		assertEquals(false, pt3.equals(pt1));
 	}
+
+	@Test
+	public void testValueOf() {
+		assertSame(PercentType.ZERO, PercentType.valueOf(0));
+		assertSame(PercentType.HUNDRED, PercentType.valueOf(100));
+		assertEquals(new PercentType(42), PercentType.valueOf(42));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testValueOfMoreThan100() {
+		PercentType.valueOf(101);
+	}
 }
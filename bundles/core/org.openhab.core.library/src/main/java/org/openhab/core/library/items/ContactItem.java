@@ -59,7 +59,7 @@ public class ContactItem extends GenericItem {
 	@Override
 	public State getStateAs(Class<? extends State> typeClass) {
 		if(typeClass==DecimalType.class) {
-			return state==OpenClosedType.OPEN ? new DecimalType(1) : DecimalType.ZERO;
+			return state==OpenClosedType.OPEN ? DecimalType.valueOf(1) : DecimalType.ZERO;
 		} else if(typeClass==PercentType.class) {
 			return state==OpenClosedType.OPEN ? PercentType.HUNDRED : PercentType.ZERO;
 		} else {
@@ -58,7 +58,7 @@ public class SwitchItem extends GenericItem {
 	@Override
 	public State getStateAs(Class<? extends State> typeClass) {
 		if(typeClass==DecimalType.class) {
-			return state==OnOffType.ON ? new DecimalType(1) : DecimalType.ZERO;
+			return state==OnOffType.ON ? DecimalType.valueOf(1) : DecimalType.ZERO;
 		} else if(typeClass==PercentType.class) {
 			return state==OnOffType.ON ? PercentType.HUNDRED : PercentType.ZERO;
 		} else {
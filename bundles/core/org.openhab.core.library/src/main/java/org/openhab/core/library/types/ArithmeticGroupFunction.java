@@ -78,7 +78,7 @@ public interface ArithmeticGroupFunction extends GroupFunction {
 			} else {
 				if(stateClass == DecimalType.class) {
 					if(items!=null) {
-						return new DecimalType(items.size() - count(items, activeState));
+						return DecimalType.valueOf(items.size() - count(items, activeState));
 					} else {
 						return DecimalType.ZERO;
 					}
@@ -149,7 +149,7 @@ public interface ArithmeticGroupFunction extends GroupFunction {
 				return state;
 			} else {
 				if(stateClass == DecimalType.class) {
-					return new DecimalType(count(items, activeState));
+					return DecimalType.valueOf(count(items, activeState));
 				} else {
 					return null;
 				}
@@ -17,6 +17,10 @@ import org.openhab.core.types.State;
 /**
  * The decimal type uses a BigDecimal internally and thus can be used for
  * integers, longs and floating point numbers alike.
+ * <p>Values created from longs and doubles are kept in the compact form of
+ * the BigDecimal, i.e. the shortest decimal representation of a double is used
+ * instead of its exact binary expansion. Small integers should be created by
+ * {@link #valueOf(long)}, which returns shared instances.</p>
  * 
  * @author Kai Kreuzer
  * 
@@ -25,7 +29,22 @@ public class DecimalType extends Number implements PrimitiveType, State, Command
 
 	private static final long serialVersionUID = 4226845847123464690L;
 
-	final static public DecimalType ZERO = new DecimalType(0);
+	/** the range of the instances shared by {@link #valueOf(long)} */
+	private static final int CACHE_LOW = -128;
+	private static final int CACHE_HIGH = 1023;
+
+	private static final DecimalType[] CACHE = new DecimalType[CACHE_HIGH - CACHE_LOW + 1];
+
+	static {
+		for (int i = 0; i < CACHE.length; i++) {
+			CACHE[i] = new DecimalType((long) (i + CACHE_LOW));
+		}
+	}
+
+	final static public DecimalType ZERO = valueOf(0);
+
+	/** the largest double below which all integral doubles have an exact long value */
+	private static final double MAX_EXACT_LONG = 9007199254740992.0;
 
 	protected BigDecimal value;
 
@@ -38,11 +57,11 @@ public class DecimalType extends Number implements PrimitiveType, State, Command
 	}
 
 	public DecimalType(long value) {
-		this.value = new BigDecimal(value);
+		this.value = BigDecimal.valueOf(value);
 	}
 
 	public DecimalType(double value) {
-		this.value = new BigDecimal(value);
+		this.value = toBigDecimal(value);
 	}
 
 	public DecimalType(String value) {
@@ -57,6 +76,46 @@ public class DecimalType extends Number implements PrimitiveType, State, Command
 		return new DecimalType(value);
 	}
 
+	/**
+	 * Returns a decimal type of the given value. Small values are shared
+	 * instances, so that frequent values like counts and mapped switch states
+	 * do not have to be allocated on every update.
+	 * 
+	 * @param value the value
+	 * @return a decimal type of the given value
+	 */
+	public static DecimalType valueOf(long value) {
+		if (value >= CACHE_LOW && value <= CACHE_HIGH) {
+			return CACHE[(int) value - CACHE_LOW];
+		}
+		return new DecimalType(value);
+	}
+
+	/**
+	 * Converts a double into the BigDecimal of its shortest decimal
+	 * representation. Integral values are converted without a fraction, as it
+	 * was done by {@link BigDecimal#BigDecimal(double)} before.
+	 */
+	static BigDecimal toBigDecimal(double value) {
+		if (value == Math.rint(value) && Math.abs(value) < MAX_EXACT_LONG) {
+			return BigDecimal.valueOf((long) value);
+		}
+		return BigDecimal.valueOf(value);
+	}
+
+	/**
+	 * Calculates a hash code of a value which is consistent with the comparison
+	 * by {@link BigDecimal#compareTo(BigDecimal)}, i.e. the same for values
+	 * which only differ in their scale like 1 and 1.0.
+	 */
+	static int hashCode(BigDecimal value) {
+		if (value == null) {
+			return 0;
+		}
+		long bits = Double.doubleToLongBits(value.doubleValue());
+		return (int) (bits ^ (bits >>> 32));
+	}
+
 	public String format(String pattern) {
 		if (pattern.contains("%d")) {
 			return String.format(pattern, value.toBigInteger());
@@ -73,7 +132,7 @@ public class DecimalType extends Number implements PrimitiveType, State, Command
 	public int hashCode() {
 		final int prime = 31;
 		int result = 1;
-		result = prime * result + ((value == null) ? 0 : value.hashCode());
+		result = prime * result + hashCode(value);
 		return result;
 	}
 
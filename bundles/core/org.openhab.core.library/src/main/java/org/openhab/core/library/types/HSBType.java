@@ -134,14 +134,15 @@ public class HSBType extends PercentType implements ComplexType, State, Command
 	}
 
 	public String toString() {
-		return getHue() + "," + getSaturation() + "," + getBrightness();
+		return hue.toPlainString() + "," + saturation.toPlainString() + "," + value.toPlainString();
 	}
 
 	@Override
 	public int hashCode() {
-		int tmp = 10000 * (getHue() == null ? 0 : getHue().hashCode());
-		tmp += 100 * (getSaturation() == null ? 0 : getSaturation().hashCode());
-		tmp += (getBrightness() == null ? 0 : getBrightness().hashCode());
+		// the constituents are compared directly, without creating their types
+		int tmp = 10000 * (hue == null ? 0 : 31 + hashCode(hue));
+		tmp += 100 * (saturation == null ? 0 : 31 + hashCode(saturation));
+		tmp += (value == null ? 0 : 31 + hashCode(value));
 		return tmp;
 	}
 
@@ -154,19 +155,10 @@ public class HSBType extends PercentType implements ComplexType, State, Command
 		if (!(obj instanceof HSBType))
 			return false;
 		HSBType other = (HSBType) obj;
-		if ((getHue() != null && other.getHue() == null)
-				|| (getHue() == null && other.getHue() != null)
-				|| (getSaturation() != null && other.getSaturation() == null)
-				|| (getSaturation() == null && other.getSaturation() != null)
-				|| (getBrightness() != null && other.getBrightness() == null)
-				|| (getBrightness() == null && other.getBrightness() != null)) {
-			return false;
-		}
-		if (!getHue().equals(other.getHue())
-				|| !getSaturation().equals(other.getSaturation())
-				|| !getBrightness().equals(other.getBrightness())) {
-			return false;
-		}
-		return true;
+		return equals(hue, other.hue) && equals(saturation, other.saturation) && equals(value, other.value);
+	}
+
+	private static boolean equals(BigDecimal value, BigDecimal other) {
+		return value == null ? other == null : other != null && value.compareTo(other) == 0;
 	}
 }
@@ -21,8 +21,19 @@ public class PercentType extends DecimalType {
 	
 	private static final long serialVersionUID = -9066279845951780879L;
 	
-	final static public PercentType ZERO = new PercentType(0); 
-	final static public PercentType HUNDRED = new PercentType(100); 
+	private static final BigDecimal MAX_VALUE = BigDecimal.valueOf(100);
+	
+	/** the instances of all integral percentages, shared by {@link #valueOf(int)} */
+	private static final PercentType[] CACHE = new PercentType[101];
+	
+	static {
+		for (int i = 0; i < CACHE.length; i++) {
+			CACHE[i] = new PercentType(i);
+		}
+	}
+	
+	final static public PercentType ZERO = CACHE[0]; 
+	final static public PercentType HUNDRED = CACHE[100]; 
 	
 	public PercentType() {
 		super();
@@ -44,7 +55,7 @@ public class PercentType extends DecimalType {
 	}
 	
 	private void validateValue(BigDecimal value) {
-		if(BigDecimal.ZERO.compareTo(value) > 0 || new BigDecimal(100).compareTo(value) < 0) {
+		if(BigDecimal.ZERO.compareTo(value) > 0 || MAX_VALUE.compareTo(value) < 0) {
 			throw new IllegalArgumentException("Value must be between 0 and 100");
 		}
 	}
@@ -52,5 +63,18 @@ public class PercentType extends DecimalType {
 	public static PercentType valueOf(String value) {
 		return new PercentType(value);
 	}
+	
+	/**
+	 * Returns the shared instance of an integral percentage.
+	 * 
+	 * @param value the percentage between 0 and 100
+	 * @return the percent type of the given value
+	 */
+	public static PercentType valueOf(int value) {
+		if (value < 0 || value >= CACHE.length) {
+			throw new IllegalArgumentException("Value must be between 0 and 100");
+		}
+		return CACHE[value];
+	}
 
 }
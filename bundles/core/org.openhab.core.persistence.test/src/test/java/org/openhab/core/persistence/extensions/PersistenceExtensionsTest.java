@@ -9,8 +9,11 @@
 package org.openhab.core.persistence.extensions;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
 
+import java.util.Date;
 import java.util.List;
 
 import org.joda.time.DateMidnight;
@@ -19,6 +22,8 @@ import org.junit.Before;
 import org.junit.Test;
 import org.openhab.core.items.GenericItem;
 import org.openhab.core.library.types.DecimalType;
+import org.openhab.core.persistence.AggregatePersistenceService;
+import org.openhab.core.persistence.FilterCriteria;
 import org.openhab.core.persistence.HistoricItem;
 import org.openhab.core.persistence.PersistenceService;
 import org.openhab.core.persistence.test.TestPersistenceService;
@@ -33,6 +38,7 @@ import org.openhab.core.types.State;
 public class PersistenceExtensionsTest {
 
 	private PersistenceService testPersistenceService = new TestPersistenceService();
+	private PersistenceService aggregatePersistenceService = new AggregateTestPersistenceService();
 	private PersistenceExtensions ext;
 	private GenericItem item;
 	
@@ -40,6 +46,7 @@ public class PersistenceExtensionsTest {
 	public void setUp() {
 		ext = new PersistenceExtensions();
 		ext.addPersistenceService(testPersistenceService);
+		ext.addPersistenceService(aggregatePersistenceService);
 		item = new GenericItem("Test") {
 			@Override
 			public List<Class<? extends State>> getAcceptedDataTypes() {
@@ -56,6 +63,7 @@ public class PersistenceExtensionsTest {
 	@After
 	public void tearDown() {
 		ext.removePersistenceService(testPersistenceService);	
+		ext.removePersistenceService(aggregatePersistenceService);
 	}
 	
 	@Test
@@ -103,4 +111,80 @@ public class PersistenceExtensionsTest {
 		DecimalType average = PersistenceExtensions.averageSince(item, new DateMidnight(2003, 1, 1), "test");
 		assertEquals("2100", average.toString());
 	}
+
+	@Test
+	public void testTimeWeightedAverageSince() {
+		item.setState(new DecimalType(3025));
+		DecimalType average = PersistenceExtensions.timeWeightedAverageSince(item, new DateMidnight(2003, 1, 1), "test");
+		// the state of 2012 is weighted by the time until now
+		assertTrue(average.doubleValue() > 2010);
+		assertTrue(average.doubleValue() < 2012);
+
+		average = PersistenceExtensions.timeWeightedAverageSince(item, new DateMidnight(2020, 1, 1), "test");
+		assertEquals("3025", average.toString());
+	}
+
+	@Test
+	public void testAggregatePushdown() {
+		item.setState(new DecimalType(1));
+		HistoricItem historicItem = PersistenceExtensions.maximumSince(item, new DateMidnight(2005, 1, 1), "aggregate");
+		assertEquals("4711", historicItem.getState().toString());
+
+		// the current state is higher than the aggregate
+		item.setState(new DecimalType(5000));
+		historicItem = PersistenceExtensions.maximumSince(item, new DateMidnight(2005, 1, 1), "aggregate");
+		assertEquals("5000", historicItem.getState().toString());
+
+		assertTrue(PersistenceExtensions.updatedSince(item, new DateMidnight(2005, 1, 1), "aggregate"));
+		assertFalse(PersistenceExtensions.updatedSince(item, new DateMidnight(2020, 1, 1), "aggregate"));
+
+		// functions which are not supported are computed from the queried states
+		historicItem = PersistenceExtensions.minimumSince(item, new DateMidnight(2005, 1, 1), "aggregate");
+		assertEquals("2005", historicItem.getState().toString());
+	}
+
+	/**
+	 * A test persistence service which computes the maximum and the count itself.
+	 */
+	private static class AggregateTestPersistenceService extends TestPersistenceService implements AggregatePersistenceService {
+
+		@Override
+		public String getName() {
+			return "aggregate";
+		}
+
+		@Override
+		public boolean supports(Function function) {
+			return function == Function.MAXIMUM || function == Function.COUNT;
+		}
+
+		@Override
+		public HistoricItem aggregate(FilterCriteria filter, Function function) {
+			int count = 0;
+			for (@SuppressWarnings("unused") HistoricItem historicItem : query(filter)) {
+				count++;
+			}
+			if (function == Function.COUNT) {
+				return historicItem(new DecimalType(count));
+			}
+			// a value which is not persisted, to tell the pushdown from the fallback
+			return count > 0 ? historicItem(new DecimalType(4711)) : null;
+		}
+
+		private HistoricItem historicItem(final State state) {
+			return new HistoricItem() {
+				public Date getTimestamp() {
+					return new Date();
+				}
+
+				public State getState() {
+					return state;
+				}
+
+				public String getName() {
+					return "Test";
+				}
+			};
+		}
+	}
 }
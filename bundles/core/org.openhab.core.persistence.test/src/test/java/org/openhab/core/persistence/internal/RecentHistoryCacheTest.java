@@ -0,0 +1,211 @@
+/**
+ * Copyright (c) 2010-2014, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.core.persistence.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.openhab.core.items.GenericItem;
+import org.openhab.core.items.Item;
+import org.openhab.core.library.types.DecimalType;
+import org.openhab.core.persistence.FilterCriteria;
+import org.openhab.core.persistence.FilterCriteria.Ordering;
+import org.openhab.core.persistence.HistoricItem;
+import org.openhab.core.persistence.QueryablePersistenceService;
+import org.openhab.core.types.Command;
+import org.openhab.core.types.State;
+import org.openhab.core.types.UnDefType;
+
+/**
+ * @author Kai Kreuzer
+ * @since 1.5.0
+ */
+public class RecentHistoryCacheTest {
+
+	private static final long HOUR = 60 * 60 * 1000;
+
+	private CountingPersistenceService service;
+
+	private GenericItem item;
+
+	@Before
+	public void setUp() {
+		service = new CountingPersistenceService();
+		item = new GenericItem("Test") {
+			public List<Class<? extends State>> getAcceptedDataTypes() {
+				return null;
+			}
+
+			public List<Class<? extends Command>> getAcceptedCommandTypes() {
+				return null;
+			}
+		};
+	}
+
+	@Test
+	public void testRecentStatesFromMemory() {
+		RecentHistoryCache cache = new RecentHistoryCache(service, HOUR, 100);
+		long startTime = System.currentTimeMillis();
+		for (int i = 1; i <= 5; i++) {
+			store(cache, i);
+		}
+		assertEquals(5, service.stored);
+
+		FilterCriteria filter = new FilterCriteria().setItemName("Test").setBeginDate(new Date(startTime))
+				.setOrdering(Ordering.ASCENDING);
+		assertEquals(Arrays.asList("1", "2", "3", "4", "5"), states(cache.query(filter)));
+		filter.setOrdering(Ordering.DESCENDING).setPageSize(2).setPageNumber(1);
+		assertEquals(Arrays.asList("3", "2"), states(cache.query(filter)));
+
+		// the last state is known, even without a begin date
+		filter = new FilterCriteria().setItemName("Test").setPageSize(1);
+		assertEquals(Arrays.asList("5"), states(cache.query(filter)));
+		// nothing has been stored for another item since the cache has been created
+		filter = new FilterCriteria().setItemName("Other").setBeginDate(new Date(startTime));
+		assertEquals(0, states(cache.query(filter)).size());
+		assertEquals(0, service.queries);
+		assertEquals(4, cache.getHits());
+
+		// older states have to be queried from the service
+		filter = new FilterCriteria().setItemName("Test").setBeginDate(new Date(startTime - HOUR));
+		cache.query(filter);
+		filter = new FilterCriteria().setItemName("Test").setPageSize(10);
+		cache.query(filter);
+		assertEquals(2, service.queries);
+		assertEquals(66, cache.getHitRate());
+	}
+
+	@Test
+	public void testUndefinedStatesAreNotCached() {
+		RecentHistoryCache cache = new RecentHistoryCache(service, HOUR, 100);
+		store(cache, 1);
+		item.setState(UnDefType.UNDEF);
+		cache.store(item);
+		assertEquals(Arrays.asList("1"), states(cache.query(new FilterCriteria().setItemName("Test").setPageSize(1))));
+	}
+
+	@Test
+	public void testCapacity() {
+		RecentHistoryCache cache = new RecentHistoryCache(service, HOUR, 3);
+		long startTime = System.currentTimeMillis();
+		for (int i = 1; i <= 50; i++) {
+			store(cache, i);
+		}
+		FilterCriteria filter = new FilterCriteria().setItemName("Test").setPageSize(3);
+		assertEquals(Arrays.asList("50", "49", "48"), states(cache.query(filter)));
+		assertEquals(0, service.queries);
+
+		// the dropped states are not known anymore
+		filter = new FilterCriteria().setItemName("Test").setBeginDate(new Date(startTime));
+		cache.query(filter);
+		assertEquals(1, service.queries);
+	}
+
+	@Test
+	public void testInvalidateBefore() {
+		RecentHistoryCache cache = new RecentHistoryCache(service, HOUR, 100);
+		long startTime = System.currentTimeMillis();
+		store(cache, 1);
+		cache.invalidateBefore("Test", System.currentTimeMillis() + 1);
+
+		FilterCriteria filter = new FilterCriteria().setItemName("Test").setBeginDate(new Date(startTime));
+		cache.query(filter);
+		assertEquals(1, service.queries);
+	}
+
+	@Test
+	public void testQueryLatest() {
+		service.latest = new DecimalType(42);
+		RecentHistoryCache cache = new RecentHistoryCache(service, HOUR, 100);
+
+		Map<String, HistoricItem> latest = cache.queryLatest(Arrays.asList("Test", "Other"));
+		assertEquals(new DecimalType(42), latest.get("Test").getState());
+		assertEquals(2, service.queries);
+
+		// the persisted state has been kept
+		latest = cache.queryLatest(Arrays.asList("Test"));
+		assertEquals(new DecimalType(42), latest.get("Test").getState());
+		assertEquals(2, service.queries);
+
+		store(cache, 43);
+		latest = cache.queryLatest(Arrays.asList("Test"));
+		assertEquals(new DecimalType(43), latest.get("Test").getState());
+		assertNull(latest.get("Other"));
+		assertEquals(2, service.queries);
+	}
+
+	private void store(RecentHistoryCache cache, int value) {
+		item.setState(new DecimalType(value));
+		cache.store(item);
+	}
+
+	private List<String> states(Iterable<HistoricItem> historicItems) {
+		List<String> states = new ArrayList<String>();
+		for (Iterator<HistoricItem> it = historicItems.iterator(); it.hasNext();) {
+			states.add(it.next().getState().toString());
+		}
+		return states;
+	}
+
+	/**
+	 * A persistence service which counts the calls and knows a single persisted state
+	 * of the item 'Test'.
+	 */
+	private static class CountingPersistenceService implements QueryablePersistenceService {
+
+		private int stored = 0;
+
+		private int queries = 0;
+
+		private State latest = null;
+
+		public String getName() {
+			return "counting";
+		}
+
+		public void store(Item item) {
+			stored++;
+		}
+
+		public void store(Item item, String alias) {
+			stored++;
+		}
+
+		public Iterable<HistoricItem> query(FilterCriteria filter) {
+			queries++;
+			List<HistoricItem> historicItems = new ArrayList<HistoricItem>();
+			if (latest != null && "Test".equals(filter.getItemName())) {
+				historicItems.add(new HistoricItem() {
+					public Date getTimestamp() {
+						return new Date(0);
+					}
+
+					public State getState() {
+						return latest;
+					}
+
+					public String getName() {
+						return "Test";
+					}
+				});
+			}
+			return historicItems;
+		}
+	}
+
+}
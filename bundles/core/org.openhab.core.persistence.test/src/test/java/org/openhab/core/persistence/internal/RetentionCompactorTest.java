@@ -0,0 +1,196 @@
+/**
+ * Copyright (c) 2010-2014, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.core.persistence.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.openhab.core.items.Item;
+import org.openhab.core.library.types.DecimalType;
+import org.openhab.core.library.types.OnOffType;
+import org.openhab.core.library.types.PercentType;
+import org.openhab.core.persistence.FilterCriteria;
+import org.openhab.core.persistence.FilterCriteria.Ordering;
+import org.openhab.core.persistence.HistoricItem;
+import org.openhab.core.persistence.ModifiablePersistenceService;
+import org.openhab.core.types.State;
+
+/**
+ * @author Kai Kreuzer
+ * @since 1.5.0
+ */
+public class RetentionCompactorTest {
+
+	private static final long MINUTE = 60 * 1000;
+
+	private static final long HOUR = 60 * MINUTE;
+
+	private MapPersistenceService service;
+
+	/** a multiple of ten minutes, so each ten minute interval contains ten states */
+	private long base;
+
+	@Before
+	public void setUp() {
+		service = new MapPersistenceService();
+		base = System.currentTimeMillis() / (10 * MINUTE) * (10 * MINUTE);
+		// a state per minute for the last five hours, its value is the minutes before base
+		for (int minutes = 0; minutes < 300; minutes++) {
+			service.store("Test", new Date(base - minutes * MINUTE), new DecimalType(minutes));
+		}
+	}
+
+	@Test
+	public void testRemoveOutdatedStates() {
+		RetentionCompactor compactor = new RetentionCompactor("test", 10000);
+		assertTrue(compactor.compact(service, policies(new RetentionPolicy(HOUR, new long[0], new long[0])), base + MINUTE));
+
+		assertEquals(60, service.states.size());
+		assertEquals(base - 59 * MINUTE, service.states.firstKey().longValue());
+		assertEquals(240, compactor.getRemovedStates());
+		assertEquals(0, compactor.getAggregatedStates());
+	}
+
+	@Test
+	public void testDownsample() {
+		RetentionCompactor compactor = new RetentionCompactor("test", 10000);
+		RetentionPolicy policy = new RetentionPolicy(HOUR, new long[] { 10 * MINUTE }, new long[] { 24 * HOUR });
+		assertTrue(compactor.compact(service, policies(policy), base + MINUTE));
+
+		// raw states up to the aligned end of the raw period, ten minute averages before
+		assertEquals(61 + 24, service.states.size());
+		for (int minutes = 0; minutes <= 60; minutes++) {
+			assertEquals(new DecimalType(minutes), service.states.get(base - minutes * MINUTE));
+		}
+		// the interval starting 70 minutes before base holds the states of 61 - 70 minutes before
+		assertEquals(new DecimalType("65.5"), service.states.get(base - 70 * MINUTE));
+		// the oldest interval contains 9 states only
+		assertEquals(new DecimalType(295), service.states.get(base - 300 * MINUTE));
+		assertEquals(299 - 60 - 24, compactor.getRemovedStates() - compactor.getAggregatedStates());
+
+		// nothing left to do for a second run
+		assertTrue(compactor.compact(service, policies(policy), base + MINUTE));
+		assertEquals(61 + 24, service.states.size());
+	}
+
+	@Test
+	public void testCompactInSeveralRuns() {
+		MapPersistenceService expected = new MapPersistenceService();
+		expected.states.putAll(service.states);
+		RetentionPolicy policy = new RetentionPolicy(HOUR, new long[] { 10 * MINUTE, HOUR }, new long[] { 3 * HOUR, 4 * HOUR });
+		new RetentionCompactor("test", 10000).compact(expected, policies(policy), base + MINUTE);
+
+		// every run is stopped after the first chunk
+		RetentionCompactor compactor = new RetentionCompactor("test", -1);
+		compactor.chunkSize = 10;
+		int runs = 0;
+		while (!compactor.compact(service, policies(policy), base + MINUTE)) {
+			runs++;
+		}
+		assertTrue(runs > 1);
+		assertEquals(expected.states, service.states);
+	}
+
+	@Test
+	public void testAggregate() {
+		assertEquals(new DecimalType(2), RetentionCompactor.aggregate(Arrays.<State> asList(new DecimalType(1),
+				new DecimalType(3))));
+		assertEquals(new PercentType(50), RetentionCompactor.aggregate(Arrays.<State> asList(PercentType.ZERO,
+				PercentType.HUNDRED)));
+		assertEquals(OnOffType.OFF, RetentionCompactor.aggregate(Arrays.<State> asList(OnOffType.ON, OnOffType.OFF)));
+		assertFalse(RetentionCompactor.aggregate(Arrays.<State> asList(new DecimalType(1), new DecimalType(2))) instanceof PercentType);
+	}
+
+	private SortedMap<String, RetentionPolicy> policies(RetentionPolicy policy) {
+		SortedMap<String, RetentionPolicy> policies = new TreeMap<String, RetentionPolicy>();
+		policies.put("Test", policy);
+		return policies;
+	}
+
+	/**
+	 * A persistence service which keeps the states of a single item in memory.
+	 */
+	private static class MapPersistenceService implements ModifiablePersistenceService {
+
+		private final TreeMap<Long, State> states = new TreeMap<Long, State>();
+
+		public String getName() {
+			return "test";
+		}
+
+		public void store(Item item) {
+		}
+
+		public void store(Item item, String alias) {
+		}
+
+		public void store(String name, Date timestamp, State state) {
+			states.put(timestamp.getTime(), state);
+		}
+
+		public int remove(FilterCriteria filter) {
+			int count = 0;
+			for (Long timestamp : new ArrayList<Long>(select(filter).keySet())) {
+				if (count == filter.getPageSize()) {
+					break;
+				}
+				states.remove(timestamp);
+				count++;
+			}
+			return count;
+		}
+
+		public Iterable<HistoricItem> query(FilterCriteria filter) {
+			List<HistoricItem> historicItems = new ArrayList<HistoricItem>();
+			for (Map.Entry<Long, State> entry : select(filter).entrySet()) {
+				if (historicItems.size() == filter.getPageSize()) {
+					break;
+				}
+				final long timestamp = entry.getKey();
+				final State state = entry.getValue();
+				historicItems.add(new HistoricItem() {
+					public Date getTimestamp() {
+						return new Date(timestamp);
+					}
+
+					public State getState() {
+						return state;
+					}
+
+					public String getName() {
+						return "Test";
+					}
+				});
+			}
+			if (filter.getOrdering() == Ordering.DESCENDING) {
+				Collections.reverse(historicItems);
+			}
+			return historicItems;
+		}
+
+		private SortedMap<Long, State> select(FilterCriteria filter) {
+			long begin = filter.getBeginDate() != null ? filter.getBeginDate().getTime() : Long.MIN_VALUE;
+			long end = filter.getEndDate() != null ? filter.getEndDate().getTime() : Long.MAX_VALUE;
+			return states.subMap(begin, end);
+		}
+	}
+
+}
@@ -0,0 +1,59 @@
+/**
+ * Copyright (c) 2010-2014, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.core.persistence;
+
+/**
+ * A queryable persistence service which can compute aggregates of the
+ * persisted states itself, so that they do not have to be computed from all
+ * states returned by {@link #query(FilterCriteria)}. The persistence
+ * extensions use these aggregates for the functions the service supports
+ * and fall back to querying the states otherwise.
+ *
+ * @author Kai Kreuzer
+ * @since 1.5.0
+ */
+public interface AggregatePersistenceService extends QueryablePersistenceService {
+
+	public enum Function {
+		/** the number of states including the ones which are no numbers, as a DecimalType */
+		COUNT,
+		/** the first historic item with the lowest numeric state */
+		MINIMUM,
+		/** the first historic item with the highest numeric state */
+		MAXIMUM,
+		/** the arithmetic mean of the numeric states, as a DecimalType */
+		AVERAGE,
+		/** the mean of the numeric states weighted by the time until the next state or the end date, as a DecimalType */
+		TIME_WEIGHTED_AVERAGE,
+		/** the first historic item whose state differs from the state before, any state if there is none before the begin date */
+		FIRST_CHANGE
+	}
+
+	/**
+	 * Checks whether the service computes the given aggregate itself.
+	 *
+	 * @param function the aggregate function
+	 * @return true, if {@link #aggregate(FilterCriteria, Function)} can be called with it
+	 */
+	boolean supports(Function function);
+
+	/**
+	 * Computes an aggregate of the states of an item. Only the item name, the
+	 * begin date and the end date of the filter are regarded. A missing begin
+	 * date includes all persisted states, a missing end date stands for the
+	 * current time. Numeric aggregates ignore all states which are no numbers.
+	 *
+	 * @param filter the filter to select the states
+	 * @param function the aggregate function, which must be supported
+	 * @return a historic item holding the aggregate, or null if there are no states to
+	 *         aggregate - except for {@link Function#COUNT}, which returns zero then
+	 */
+	HistoricItem aggregate(FilterCriteria filter, Function function);
+
+}
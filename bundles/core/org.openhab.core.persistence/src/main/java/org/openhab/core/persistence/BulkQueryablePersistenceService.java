@@ -0,0 +1,32 @@
+/**
+ * Copyright (c) 2010-2014, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.core.persistence;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * A queryable persistence service which can retrieve the latest states of
+ * many items at once. It is used to restore the item states on startup, which
+ * would otherwise need a query per item.
+ *
+ * @author Kai Kreuzer
+ * @since 1.5.0
+ */
+public interface BulkQueryablePersistenceService extends QueryablePersistenceService {
+
+	/**
+	 * Retrieves the latest persisted state of each of the given names.
+	 *
+	 * @param names the names of the items or the aliases under which they are persisted
+	 * @return the latest historic item by name, names without any persisted state are missing
+	 */
+	Map<String, HistoricItem> queryLatest(Collection<String> names);
+
+}
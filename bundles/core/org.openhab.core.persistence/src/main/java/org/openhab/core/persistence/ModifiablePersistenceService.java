@@ -0,0 +1,48 @@
+/**
+ * Copyright (c) 2010-2014, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.core.persistence;
+
+import java.util.Date;
+
+import org.openhab.core.types.State;
+
+/**
+ * A queryable persistence service whose data can also be modified afterwards.
+ * It is used to apply the retention policies of the persistence models, which
+ * remove outdated states and replace older states by aggregated values.
+ * <p>Both methods are called by a background job while the service keeps
+ * storing new states, so they must be safe to be called concurrently to
+ * {@link #store(org.openhab.core.items.Item, String)}.</p>
+ *
+ * @author Kai Kreuzer
+ * @since 1.5.0
+ */
+public interface ModifiablePersistenceService extends QueryablePersistenceService {
+
+	/**
+	 * Stores a state with the given timestamp.
+	 *
+	 * @param name the name of the item or the alias under which it is persisted
+	 * @param timestamp the timestamp of the state
+	 * @param state the state to store
+	 */
+	void store(String name, Date timestamp, State state);
+
+	/**
+	 * Removes the oldest states of an item within the time range of the given
+	 * filter. Only the item name, the begin date (inclusive), the end date
+	 * (exclusive) and the page size are regarded. Not more than page size
+	 * states are removed, so a large time range can be removed in chunks.
+	 *
+	 * @param filter the filter selecting the states to remove
+	 * @return the number of removed states
+	 */
+	int remove(FilterCriteria filter);
+
+}
@@ -0,0 +1,49 @@
+/**
+ * Copyright (c) 2010-2014, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.core.persistence;
+
+import java.util.Set;
+
+/**
+ * Keeps the recent history of the configured persistence services in memory.
+ * A cache is placed in front of every configured service, all states of the
+ * service are stored through it, and queries of the recent past are answered
+ * from memory.
+ *
+ * @author Kai Kreuzer
+ * @since 1.5.0
+ */
+public interface RecentHistoryProvider {
+
+	/** the default time in milliseconds the recent history is kept in memory */
+	static final long DEFAULT_CACHE_WINDOW = 60 * 60 * 1000;
+
+	/** the default maximum number of states per item kept in memory */
+	static final int DEFAULT_CACHE_SIZE = 1000;
+
+	/**
+	 * Configures the persistence services whose recent history is kept in memory. The existing
+	 * caches are dropped.
+	 *
+	 * @param serviceNames the names of the services to cache
+	 * @param window the time in milliseconds the states are kept in memory
+	 * @param size the maximum number of states kept per item
+	 */
+	void configure(Set<String> serviceNames, long window, int size);
+
+	/**
+	 * Returns the cache in front of a persistence service. States must be stored through it, if
+	 * it exists, and queries should use it.
+	 *
+	 * @param serviceName the name of the persistence service
+	 * @return the cache or <code>null</code>, if the service is not cached
+	 */
+	QueryablePersistenceService getCachedService(String serviceName);
+
+}
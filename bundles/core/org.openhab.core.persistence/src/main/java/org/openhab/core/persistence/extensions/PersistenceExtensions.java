@@ -13,16 +13,22 @@ import java.util.Collections;
 import java.util.Date;
 import java.util.Dictionary;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Map;
+import java.util.Set;
 
+import org.apache.commons.lang.StringUtils;
 import org.joda.time.base.AbstractInstant;
 import org.openhab.core.items.Item;
 import org.openhab.core.library.types.DecimalType;
+import org.openhab.core.persistence.AggregatePersistenceService;
+import org.openhab.core.persistence.AggregatePersistenceService.Function;
 import org.openhab.core.persistence.FilterCriteria;
 import org.openhab.core.persistence.HistoricItem;
 import org.openhab.core.persistence.PersistenceService;
 import org.openhab.core.persistence.QueryablePersistenceService;
+import org.openhab.core.persistence.RecentHistoryProvider;
 import org.openhab.core.persistence.FilterCriteria.Ordering;
 import org.openhab.core.types.State;
 import org.osgi.service.cm.ConfigurationException;
@@ -32,7 +38,9 @@ import org.slf4j.LoggerFactory;
 
 /** 
  * This class provides static methods that can be used in automation rules
- * for using persistence services
+ * for using persistence services. Aggregates are computed by the persistence
+ * service if it is an {@link AggregatePersistenceService} supporting them,
+ * otherwise they are computed from the queried states.
  * 
  * @author Thomas.Eichstaedt-Engelen
  * @author Kai Kreuzer
@@ -46,6 +54,13 @@ public class PersistenceExtensions implements ManagedService {
 	
 	private static Map<String, PersistenceService> services = new HashMap<String, PersistenceService>();
 	private static String defaultService = null; 
+
+	private static volatile RecentHistoryProvider recentHistoryProvider = null;
+
+	// the cache configuration, which is passed on to the provider once it is available
+	private static Set<String> cachedServices = Collections.emptySet();
+	private static long cacheWindow = RecentHistoryProvider.DEFAULT_CACHE_WINDOW;
+	private static int cacheSize = RecentHistoryProvider.DEFAULT_CACHE_SIZE;
 	
 	public PersistenceExtensions() {
 		// default constructor, necessary for osgi-ds
@@ -58,6 +73,21 @@ public class PersistenceExtensions implements ManagedService {
 	public void removePersistenceService(PersistenceService service) {
 		services.remove(service.getName());
 	}
+
+	public void setRecentHistoryProvider(RecentHistoryProvider provider) {
+		synchronized (PersistenceExtensions.class) {
+			provider.configure(cachedServices, cacheWindow, cacheSize);
+			recentHistoryProvider = provider;
+		}
+	}
+
+	public void unsetRecentHistoryProvider(RecentHistoryProvider provider) {
+		synchronized (PersistenceExtensions.class) {
+			if(recentHistoryProvider==provider) {
+				recentHistoryProvider = null;
+			}
+		}
+	}
 	
 	
 	/**
@@ -68,7 +98,7 @@ public class PersistenceExtensions implements ManagedService {
 	 * @param serviceName the name of the {@link PersistenceService} to use
 	 */
 	static public void persist(Item item, String serviceName) {
-		PersistenceService service = services.get(serviceName);
+		PersistenceService service = getService(serviceName);
 		if (service != null) {
 			service.store(item);
 		} else {
@@ -112,7 +142,7 @@ public class PersistenceExtensions implements ManagedService {
 	 * @return the item state at the given point in time
 	 */
 	static public HistoricItem historicState(Item item, AbstractInstant timestamp, String serviceName) {
-		PersistenceService service = services.get(serviceName);
+		PersistenceService service = getService(serviceName);
 		if (service instanceof QueryablePersistenceService) {
 			QueryablePersistenceService qService = (QueryablePersistenceService) service;
 			FilterCriteria filter = new FilterCriteria();
@@ -158,9 +188,14 @@ public class PersistenceExtensions implements ManagedService {
 	 * @return true, if item state had changed
 	 */
 	static public Boolean changedSince(Item item, AbstractInstant timestamp, String serviceName) {
+		AggregatePersistenceService aggregateService = getAggregateService(serviceName, Function.FIRST_CHANGE);
+		if(aggregateService!=null) {
+			return aggregateService.aggregate(getFilterSince(item, timestamp), Function.FIRST_CHANGE)!=null;
+		}
+
 		Iterable<HistoricItem> result = getAllStatesSince(item, timestamp, serviceName);
 		Iterator<HistoricItem> it = result.iterator();
-		HistoricItem itemThen = historicState(item, timestamp);
+		HistoricItem itemThen = historicState(item, timestamp, serviceName);
 		if(itemThen == null) {
 			// Can't get the state at the start time
 			// If we've got results more recent that this, it must have changed
@@ -204,7 +239,14 @@ public class PersistenceExtensions implements ManagedService {
 	 * @return true, if item state was updated
 	 */
 	static public Boolean updatedSince(Item item, AbstractInstant timestamp, String serviceName) {
-		Iterable<HistoricItem> result = getAllStatesSince(item, timestamp, serviceName);
+		AggregatePersistenceService aggregateService = getAggregateService(serviceName, Function.COUNT);
+		if(aggregateService!=null) {
+			HistoricItem count = aggregateService.aggregate(getFilterSince(item, timestamp), Function.COUNT);
+			return count!=null && ((DecimalType) count.getState()).longValue() > 0;
+		}
+
+		// a single state is enough to know that there has been an update
+		Iterable<HistoricItem> result = getStatesSince(item, timestamp, serviceName, 1);
 		if(result.iterator().hasNext()) {
 			return true;
 		} else {
@@ -240,7 +282,7 @@ public class PersistenceExtensions implements ManagedService {
 	 * @return a historic item with the maximum state value since the given point in time
 	 */
 	static public HistoricItem maximumSince(final Item item, AbstractInstant timestamp, String serviceName) {
-		Iterable<HistoricItem> result = getAllStatesSince(item, timestamp, serviceName);
+		Iterable<HistoricItem> result = getAggregateOrAllStatesSince(item, timestamp, serviceName, Function.MAXIMUM);
 		Iterator<HistoricItem> it = result.iterator();
 		HistoricItem maximumHistoricItem = null;
 		DecimalType maximum = (DecimalType) item.getStateAs(DecimalType.class);
@@ -305,7 +347,7 @@ public class PersistenceExtensions implements ManagedService {
 	 * @return the historic item with the minimum state value since the given point in time
 	 */
 	static public HistoricItem minimumSince(final Item item, AbstractInstant timestamp, String serviceName) {
-		Iterable<HistoricItem> result = getAllStatesSince(item, timestamp, serviceName);
+		Iterable<HistoricItem> result = getAggregateOrAllStatesSince(item, timestamp, serviceName, Function.MINIMUM);
 		Iterator<HistoricItem> it = result.iterator();
 		HistoricItem minimumHistoricItem = null;
 		DecimalType minimum = (DecimalType) item.getStateAs(DecimalType.class);
@@ -368,13 +410,26 @@ public class PersistenceExtensions implements ManagedService {
 	 * @return the average state value since the given point in time
 	 */
 	static public DecimalType averageSince(Item item, AbstractInstant timestamp, String serviceName) {
-		Iterable<HistoricItem> result = getAllStatesSince(item, timestamp, serviceName);
-		Iterator<HistoricItem> it = result.iterator();
-		
 		DecimalType value = (DecimalType) item.getStateAs(DecimalType.class);
 		if (value == null) {
 			value = DecimalType.ZERO;
 		}
+
+		AggregatePersistenceService aggregateService = getAggregateService(serviceName, Function.AVERAGE);
+		if(aggregateService!=null && aggregateService.supports(Function.COUNT)) {
+			FilterCriteria filter = getFilterSince(item, timestamp);
+			HistoricItem average = aggregateService.aggregate(filter, Function.AVERAGE);
+			if(average==null) {
+				return new DecimalType(value.doubleValue());
+			}
+			// the current state is part of the average as well
+			long quantity = ((DecimalType) aggregateService.aggregate(filter, Function.COUNT).getState()).longValue();
+			double sum = ((DecimalType) average.getState()).doubleValue() * quantity + value.doubleValue();
+			return new DecimalType(sum / (quantity + 1));
+		}
+
+		Iterable<HistoricItem> result = getAllStatesSince(item, timestamp, serviceName);
+		Iterator<HistoricItem> it = result.iterator();
 		
 		double average = value.doubleValue();
 		int quantity = 1;
@@ -391,20 +446,133 @@ public class PersistenceExtensions implements ManagedService {
 		return new DecimalType(average);
 	} 
 	
+	/**
+	 * Gets the time-weighted average value of the state of a given <code>item</code> since a certain point in time.
+	 * Each state is weighted by the time until the next state, the last one by the time until now. 
+	 * The default persistence service is used. 
+	 * 
+	 * @param item the item to get the average state value for
+	 * @param the point in time to start the check 
+	 * @return the time-weighted average state value since the given point in time
+	 */
+	static public DecimalType timeWeightedAverageSince(Item item, AbstractInstant timestamp) {
+		if(isDefaultServiceAvailable()) {
+			return timeWeightedAverageSince(item, timestamp, defaultService);
+		} else {
+			return null;
+		}
+	}
+
+	/**
+	 * Gets the time-weighted average value of the state of a given <code>item</code> since a certain point in time. 
+	 * Each state is weighted by the time until the next state, the last one by the time until now. 
+	 * The {@link PersistenceService} identified by the <code>serviceName</code> is used. 
+	 * 
+	 * @param item the item to get the average state value for
+	 * @param the point in time to start the check 
+	 * @param serviceName the name of the {@link PersistenceService} to use
+	 * @return the time-weighted average state value since the given point in time,
+	 * the current state if there are no states since then
+	 */
+	static public DecimalType timeWeightedAverageSince(Item item, AbstractInstant timestamp, String serviceName) {
+		DecimalType average = null;
+		AggregatePersistenceService aggregateService = getAggregateService(serviceName, Function.TIME_WEIGHTED_AVERAGE);
+		if(aggregateService!=null) {
+			HistoricItem historicItem = aggregateService.aggregate(getFilterSince(item, timestamp), Function.TIME_WEIGHTED_AVERAGE);
+			if(historicItem!=null) {
+				average = (DecimalType) historicItem.getState();
+			}
+		} else {
+			double total = 0;
+			long duration = 0;
+			DecimalType value = null;
+			long time = 0;
+			for(HistoricItem historicItem : getAllStatesSince(item, timestamp, serviceName)) {
+				if (historicItem.getState() instanceof DecimalType) {
+					if(value!=null) {
+						total += value.doubleValue() * (historicItem.getTimestamp().getTime() - time);
+						duration += historicItem.getTimestamp().getTime() - time;
+					}
+					value = (DecimalType) historicItem.getState();
+					time = historicItem.getTimestamp().getTime();
+				}
+			}
+			if(value!=null) {
+				long now = System.currentTimeMillis();
+				if(now > time) {
+					total += value.doubleValue() * (now - time);
+					duration += now - time;
+				}
+				average = duration > 0 ? new DecimalType(total / duration) : value;
+			}
+		}
+		return average!=null ? average : (DecimalType) item.getStateAs(DecimalType.class);
+	}
+
 	static private Iterable<HistoricItem> getAllStatesSince(Item item, AbstractInstant timestamp, String serviceName) {
-		PersistenceService service = services.get(serviceName);
+		return getStatesSince(item, timestamp, serviceName, Integer.MAX_VALUE);
+	}
+
+	static private Iterable<HistoricItem> getStatesSince(Item item, AbstractInstant timestamp, String serviceName, int pageSize) {
+		PersistenceService service = getService(serviceName);
 		if (service instanceof QueryablePersistenceService) {
 			QueryablePersistenceService qService = (QueryablePersistenceService) service;
-			FilterCriteria filter = new FilterCriteria();
-			filter.setBeginDate(timestamp.toDate());
-			filter.setItemName(item.getName());
-			filter.setOrdering(Ordering.ASCENDING);
+			FilterCriteria filter = getFilterSince(item, timestamp);
+			filter.setPageSize(pageSize);
 			return qService.query(filter);
 		} else {
 			logger.warn("There is no queryable persistence service registered with the name '{}'", serviceName);
 			return Collections.emptySet();
 		}
 	}
+
+	/**
+	 * Returns the aggregate computed by the persistence service as the only state, if the service supports
+	 * the function, and all states since the given point in time otherwise.
+	 */
+	static private Iterable<HistoricItem> getAggregateOrAllStatesSince(Item item, AbstractInstant timestamp, String serviceName, Function function) {
+		AggregatePersistenceService aggregateService = getAggregateService(serviceName, function);
+		if(aggregateService!=null) {
+			HistoricItem historicItem = aggregateService.aggregate(getFilterSince(item, timestamp), function);
+			return historicItem!=null ? Collections.singletonList(historicItem) : Collections.<HistoricItem>emptyList();
+		}
+		return getAllStatesSince(item, timestamp, serviceName);
+	}
+
+	static private FilterCriteria getFilterSince(Item item, AbstractInstant timestamp) {
+		FilterCriteria filter = new FilterCriteria();
+		filter.setBeginDate(timestamp.toDate());
+		filter.setItemName(item.getName());
+		filter.setOrdering(Ordering.ASCENDING);
+		return filter;
+	}
+
+	/**
+	 * Returns the service with the given name, or the cache in front of it, which keeps its recent states in memory.
+	 * 
+	 * @return the service or <code>null</code>, if there is no service with the given name
+	 */
+	static private PersistenceService getService(String serviceName) {
+		RecentHistoryProvider provider = recentHistoryProvider;
+		PersistenceService cache = provider!=null ? provider.getCachedService(serviceName) : null;
+		return cache!=null ? cache : services.get(serviceName);
+	}
+
+	/**
+	 * Returns the service with the given name, if it computes the given aggregate function itself.
+	 * 
+	 * @return the service or <code>null</code>, if the aggregate has to be computed from the queried states
+	 */
+	static private AggregatePersistenceService getAggregateService(String serviceName, Function function) {
+		PersistenceService service = services.get(serviceName);
+		if(service instanceof AggregatePersistenceService) {
+			AggregatePersistenceService aggregateService = (AggregatePersistenceService) service;
+			if(aggregateService.supports(function)) {
+				return aggregateService;
+			}
+		}
+		return null;
+	}
 	
 	/**
 	 * Returns <code>true</code>, if a default service is configured and returns <code>false</code> and logs a warning otherwise.
@@ -423,6 +591,40 @@ public class PersistenceExtensions implements ManagedService {
 	public void updated(Dictionary config) throws ConfigurationException {
 		if (config!=null) {
 			PersistenceExtensions.defaultService = (String) config.get("default");			
+
+			// the services whose recent history is kept in memory
+			Set<String> cachedServices = new HashSet<String>();
+			String cache = (String) config.get("cache");
+			if (StringUtils.isNotBlank(cache)) {
+				for (String serviceName : cache.split(",")) {
+					cachedServices.add(serviceName.trim());
+				}
+			}
+			long window = RecentHistoryProvider.DEFAULT_CACHE_WINDOW;
+			int size = RecentHistoryProvider.DEFAULT_CACHE_SIZE;
+			try {
+				String windowString = (String) config.get("cache.window");
+				if (StringUtils.isNotBlank(windowString)) {
+					window = Long.parseLong(windowString.trim()) * 60 * 1000;
+				}
+				String sizeString = (String) config.get("cache.size");
+				if (StringUtils.isNotBlank(sizeString)) {
+					size = Integer.parseInt(sizeString.trim());
+				}
+			} catch (NumberFormatException e) {
+				throw new ConfigurationException("cache", "The cache window and size must be numbers: " + e.getMessage());
+			}
+			if (size < 1) {
+				throw new ConfigurationException("cache.size", "The cache must keep at least one state per item");
+			}
+			synchronized (PersistenceExtensions.class) {
+				PersistenceExtensions.cachedServices = cachedServices;
+				PersistenceExtensions.cacheWindow = window;
+				PersistenceExtensions.cacheSize = size;
+				if(recentHistoryProvider!=null) {
+					recentHistoryProvider.configure(cachedServices, window, size);
+				}
+			}
 		}
 	}
 
@@ -0,0 +1,81 @@
+/**
+ * Copyright (c) 2010-2014, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.core.persistence.internal;
+
+import java.util.Map;
+import java.util.SortedMap;
+
+import org.openhab.core.persistence.ModifiablePersistenceService;
+import org.openhab.core.persistence.PersistenceService;
+import org.quartz.DisallowConcurrentExecution;
+import org.quartz.Job;
+import org.quartz.JobExecutionContext;
+import org.quartz.JobExecutionException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Implementation of Quartz {@link Job}-Interface. It applies the retention policies of a
+ * persistence model to its persistence service by the means of a {@link RetentionCompactor}.
+ * The job runs with the lowest thread priority, so that it does not slow down the
+ * persisting of new states.
+ *
+ * @author Kai Kreuzer
+ * @since 1.5.0
+ */
+@DisallowConcurrentExecution
+public class CompactionJob implements Job {
+
+	private static final Logger logger = LoggerFactory.getLogger(CompactionJob.class);
+
+	public static final String JOB_DATA_PERSISTMODEL = "model";
+
+	public void execute(JobExecutionContext context) throws JobExecutionException {
+		String modelName = (String) context.getJobDetail().getJobDataMap().get(JOB_DATA_PERSISTMODEL);
+
+		PersistenceManager persistenceManager = PersistenceManager.getInstance();
+		if(persistenceManager!=null) {
+			RetentionCompactor compactor = persistenceManager.compactors.get(modelName);
+			PersistenceService persistenceService = persistenceManager.persistenceServices.get(modelName);
+
+			if(compactor!=null && persistenceService instanceof ModifiablePersistenceService) {
+				Thread thread = Thread.currentThread();
+				int priority = thread.getPriority();
+				thread.setPriority(Thread.MIN_PRIORITY);
+				try {
+					SortedMap<String, RetentionPolicy> policies = persistenceManager.getRetentionPolicies(modelName);
+					RecentHistoryCache cache = persistenceManager.caches.get(modelName);
+					// the compacted time range moves on while the compaction runs
+					invalidate(cache, policies);
+					compactor.compact((ModifiablePersistenceService) persistenceService, policies);
+					invalidate(cache, policies);
+				} catch(RuntimeException e) {
+					logger.warn("Compaction of persistence service '{}' failed: {}", modelName, e.getMessage());
+				} finally {
+					thread.setPriority(priority);
+				}
+			}
+		} else {
+			logger.warn("Persistence manager is not available!");
+		}
+	}
+
+	/**
+	 * Drops the states from the cache, which are modified by the compaction.
+	 */
+	private void invalidate(RecentHistoryCache cache, SortedMap<String, RetentionPolicy> policies) {
+		if(cache!=null) {
+			long now = System.currentTimeMillis();
+			for(Map.Entry<String, RetentionPolicy> entry : policies.entrySet()) {
+				cache.invalidateBefore(entry.getKey(), now - entry.getValue().getRaw());
+			}
+		}
+	}
+
+}
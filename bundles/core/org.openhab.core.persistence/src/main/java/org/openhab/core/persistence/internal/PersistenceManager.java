@@ -12,15 +12,20 @@ import static org.quartz.JobBuilder.newJob;
 import static org.quartz.TriggerBuilder.newTrigger;
 
 import java.text.DateFormat;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
 import java.util.concurrent.ConcurrentHashMap;
 
 import org.eclipse.emf.ecore.EObject;
@@ -32,10 +37,11 @@ import org.openhab.core.items.ItemNotFoundException;
 import org.openhab.core.items.ItemRegistry;
 import org.openhab.core.items.ItemRegistryChangeListener;
 import org.openhab.core.items.StateChangeListener;
-import org.openhab.core.persistence.FilterCriteria;
 import org.openhab.core.persistence.HistoricItem;
+import org.openhab.core.persistence.ModifiablePersistenceService;
 import org.openhab.core.persistence.PersistenceService;
 import org.openhab.core.persistence.QueryablePersistenceService;
+import org.openhab.core.persistence.RecentHistoryProvider;
 import org.openhab.core.types.State;
 import org.openhab.core.types.UnDefType;
 import org.openhab.model.core.EventType;
@@ -55,6 +61,7 @@ import org.quartz.JobDetail;
 import org.quartz.JobKey;
 import org.quartz.Scheduler;
 import org.quartz.SchedulerException;
+import org.quartz.SimpleScheduleBuilder;
 import org.quartz.Trigger;
 import org.quartz.impl.StdSchedulerFactory;
 import org.quartz.impl.matchers.GroupMatcher;
@@ -69,10 +76,15 @@ import org.slf4j.LoggerFactory;
  * @since 1.0.0
  *
  */
-public class PersistenceManager extends AbstractEventSubscriber implements ModelRepositoryChangeListener, ItemRegistryChangeListener, StateChangeListener {
+public class PersistenceManager extends AbstractEventSubscriber implements ModelRepositoryChangeListener, ItemRegistryChangeListener, StateChangeListener, RecentHistoryProvider {
 	
 	private static final Logger logger = LoggerFactory.getLogger(PersistenceManager.class);
 
+	private static final String COMPACTION_JOB_NAME = "compaction";
+
+	/** the maximum time in milliseconds a single compaction run may take */
+	private static final long COMPACTION_RUN_TIME = 10000;
+
 	private static PersistenceManager instance;
 	
 	// the scheduler used for timer events
@@ -90,6 +102,27 @@ public class PersistenceManager extends AbstractEventSubscriber implements Model
 	/** keeps a list of default strategies for each persistence service */
 	protected Map<String, List<Strategy>> defaultStrategies = 
 			Collections.synchronizedMap(new HashMap<String, List<Strategy>>());
+
+	/** keeps the compactor for each persistence service with retention policies */
+	/*default */ Map<String, RetentionCompactor> compactors = new ConcurrentHashMap<String, RetentionCompactor>();
+
+	/** keeps the recent history cache for each persistence service which is configured to be cached */
+	/*default */ Map<String, RecentHistoryCache> caches = new ConcurrentHashMap<String, RecentHistoryCache>();
+
+	private volatile Set<String> cachedServiceNames = Collections.emptySet();
+
+	private volatile long cacheWindow = DEFAULT_CACHE_WINDOW;
+
+	private volatile int cacheSize = DEFAULT_CACHE_SIZE;
+
+	/** keeps the persistence targets of each item by its name, so that state events need a single lookup */
+	private volatile Map<String, PersistenceTarget[]> itemTargets = new ConcurrentHashMap<String, PersistenceTarget[]>();
+
+	/** keeps the persistence targets of each cron strategy by service and strategy name, built on demand */
+	private volatile Map<String, PersistenceTarget[]> cronTargets = null;
+
+	/** serializes the modifications of the targets */
+	private final Object targetsLock = new Object();
 	
 	
 	public PersistenceManager() {
@@ -104,6 +137,26 @@ public class PersistenceManager extends AbstractEventSubscriber implements Model
 	static /* default */ PersistenceManager getInstance() {
 		return instance;
 	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void configure(Set<String> serviceNames, long window, int size) {
+		cachedServiceNames = serviceNames;
+		cacheWindow = window;
+		cacheSize = size;
+		caches.clear();
+		for(PersistenceService service : persistenceServices.values()) {
+			createCache(service);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public QueryablePersistenceService getCachedService(String serviceName) {
+		return caches.get(serviceName);
+	}
 	
 	
 	public void activate() {
@@ -140,11 +193,13 @@ public class PersistenceManager extends AbstractEventSubscriber implements Model
 	public void unsetItemRegistry(ItemRegistry itemRegistry) {
 		itemRegistry.removeItemRegistryChangeListener(this);
 		this.itemRegistry = null;
+		rebuildTargets();
 	}
 
 	public void addPersistenceService(PersistenceService persistenceService) {
 		logger.debug("Initializing {} persistence service.", persistenceService.getName());
 		persistenceServices.put(persistenceService.getName(), persistenceService);
+		createCache(persistenceService);
 		stopEventHandling(persistenceService.getName());
 		startEventHandling(persistenceService.getName());
 	}
@@ -152,6 +207,32 @@ public class PersistenceManager extends AbstractEventSubscriber implements Model
 	public void removePersistenceService(PersistenceService persistenceService) {
 		stopEventHandling(persistenceService.getName());
 		persistenceServices.remove(persistenceService.getName());
+		RecentHistoryCache cache = caches.remove(persistenceService.getName());
+		if(cache!=null) {
+			logger.debug("Dropped the {}", cache);
+		}
+	}
+
+	private void createCache(PersistenceService persistenceService) {
+		if(cachedServiceNames.contains(persistenceService.getName())) {
+			if(persistenceService instanceof QueryablePersistenceService) {
+				caches.put(persistenceService.getName(), 
+					new RecentHistoryCache((QueryablePersistenceService) persistenceService, cacheWindow, cacheSize));
+			} else {
+				logger.warn("Persistence service '{}' can not be cached as it can not be queried.", persistenceService.getName());
+			}
+		}
+	}
+
+	/**
+	 * Returns the persistence service with the given name, or the cache in front of it.
+	 * 
+	 * @param serviceName the name of the persistence service
+	 * @return the service to store the states with, <code>null</code> if there is none
+	 */
+	/*default */ PersistenceService getService(String serviceName) {
+		RecentHistoryCache cache = caches.get(serviceName);
+		return cache!=null ? cache : persistenceServices.get(serviceName);
 	}
 	
 	
@@ -180,13 +261,16 @@ public class PersistenceManager extends AbstractEventSubscriber implements Model
 		if(model!=null) {
 			persistenceConfigurations.put(modelName, model.getConfigs());
 			defaultStrategies.put(modelName, model.getDefaults());
+			rebuildTargets();
+			Set<Item> items = new LinkedHashSet<Item>();
 			for(PersistenceConfiguration config : model.getConfigs()) {
 				if(hasStrategy(modelName, config, GlobalStrategies.RESTORE)) {
 					for(Item item : getAllItems(config)) {
-						initialize(item);
+						items.add(item);
 					}
 				}
 			}
+			initialize(items);
 			createTimers(modelName);
 		}
 	}
@@ -199,6 +283,8 @@ public class PersistenceManager extends AbstractEventSubscriber implements Model
 	private void stopEventHandling(String modelName) {
 		persistenceConfigurations.remove(modelName);
 		defaultStrategies.remove(modelName);
+		rebuildTargets();
+		compactors.remove(modelName);
 		removeTimers(modelName);
 	}
 
@@ -217,20 +303,122 @@ public class PersistenceManager extends AbstractEventSubscriber implements Model
 	 * @param onlyChanges true, if it has the change strategy, false otherwise
 	 */
 	private void handleStateEvent(Item item, boolean onlyChanges) {
-		synchronized (persistenceConfigurations) {
-			for(Entry<String, List<PersistenceConfiguration>> entry : persistenceConfigurations.entrySet()) {
-				String serviceName = entry.getKey();
-				if(persistenceServices.containsKey(serviceName)) {				
+		PersistenceTarget[] targets = itemTargets.get(item.getName());
+		if(targets!=null) {
+			for(PersistenceTarget target : targets) {
+				if(onlyChanges ? target.isChange() : target.isUpdate()) {
+					PersistenceService service = getService(target.getServiceName());
+					if(service!=null) {
+						service.store(item, target.getAlias());
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Resolves the persistence configurations of all items anew. This is needed whenever the 
+	 * models or the groups change.
+	 */
+	private void rebuildTargets() {
+		synchronized(targetsLock) {
+			Map<String, List<PersistenceTarget>> targets = new HashMap<String, List<PersistenceTarget>>();
+			if(itemRegistry!=null) {
+				for(Entry<String, List<PersistenceConfiguration>> entry : persistenceConfigurations.entrySet()) {
 					for(PersistenceConfiguration config : entry.getValue()) {
-						if(hasStrategy(serviceName, config, onlyChanges ? GlobalStrategies.CHANGE : GlobalStrategies.UPDATE)) {
-							if(appliesToItem(config, item)) {
-								persistenceServices.get(serviceName).store(item, config.getAlias());
+						for(Item item : getAllItems(config)) {
+							List<PersistenceTarget> list = targets.get(item.getName());
+							if(list==null) {
+								list = new ArrayList<PersistenceTarget>();
+								targets.put(item.getName(), list);
 							}
+							list.add(createTarget(entry.getKey(), config, item));
+						}
+					}
+				}
+			}
+			Map<String, PersistenceTarget[]> newItemTargets = new ConcurrentHashMap<String, PersistenceTarget[]>();
+			for(Entry<String, List<PersistenceTarget>> entry : targets.entrySet()) {
+				newItemTargets.put(entry.getKey(), entry.getValue().toArray(new PersistenceTarget[entry.getValue().size()]));
+			}
+			itemTargets = newItemTargets;
+			cronTargets = null;
+		}
+	}
+
+	/**
+	 * Resolves the persistence configurations of a single item anew.
+	 * 
+	 * @param item the item to resolve the configurations for
+	 * @param removed true, if the item has been removed
+	 */
+	private void updateTargets(Item item, boolean removed) {
+		synchronized(targetsLock) {
+			List<PersistenceTarget> targets = new ArrayList<PersistenceTarget>();
+			if(!removed) {
+				for(Entry<String, List<PersistenceConfiguration>> entry : persistenceConfigurations.entrySet()) {
+					for(PersistenceConfiguration config : entry.getValue()) {
+						if(appliesToItem(config, item)) {
+							targets.add(createTarget(entry.getKey(), config, item));
 						}
 					}
 				}
 			}
+			if(targets.isEmpty()) {
+				itemTargets.remove(item.getName());
+			} else {
+				itemTargets.put(item.getName(), targets.toArray(new PersistenceTarget[targets.size()]));
+			}
+			cronTargets = null;
+		}
+	}
+
+	private PersistenceTarget createTarget(String serviceName, PersistenceConfiguration config, Item item) {
+		Set<String> strategyNames = new HashSet<String>();
+		List<Strategy> strategies = config.getStrategies().isEmpty() ? defaultStrategies.get(serviceName) : config.getStrategies();
+		for(Strategy strategy : strategies) {
+			strategyNames.add(strategy.getName());
 		}
+		return new PersistenceTarget(item, serviceName, config.getAlias(), 
+				hasStrategy(serviceName, config, GlobalStrategies.CHANGE), 
+				hasStrategy(serviceName, config, GlobalStrategies.UPDATE),
+				hasStrategy(serviceName, config, GlobalStrategies.RESTORE), strategyNames);
+	}
+
+	/**
+	 * Returns the items to persist for a cron strategy of a persistence service.
+	 * 
+	 * @param serviceName the name of the persistence service
+	 * @param strategyName the name of the cron strategy
+	 * @return the targets of all items which have the strategy
+	 */
+	/*default */ PersistenceTarget[] getCronTargets(String serviceName, String strategyName) {
+		Map<String, PersistenceTarget[]> targets = cronTargets;
+		if(targets==null) {
+			synchronized(targetsLock) {
+				Map<String, List<PersistenceTarget>> lists = new HashMap<String, List<PersistenceTarget>>();
+				for(PersistenceTarget[] itemTargetArray : itemTargets.values()) {
+					for(PersistenceTarget target : itemTargetArray) {
+						for(String name : target.getStrategyNames()) {
+							String key = target.getServiceName() + "#" + name;
+							List<PersistenceTarget> list = lists.get(key);
+							if(list==null) {
+								list = new ArrayList<PersistenceTarget>();
+								lists.put(key, list);
+							}
+							list.add(target);
+						}
+					}
+				}
+				targets = new HashMap<String, PersistenceTarget[]>();
+				for(Entry<String, List<PersistenceTarget>> entry : lists.entrySet()) {
+					targets.put(entry.getKey(), entry.getValue().toArray(new PersistenceTarget[entry.getValue().size()]));
+				}
+				cronTargets = targets;
+			}
+		}
+		PersistenceTarget[] result = targets.get(serviceName + "#" + strategyName);
+		return result!=null ? result : new PersistenceTarget[0];
 	}
 	
 	/**
@@ -332,14 +520,57 @@ public class PersistenceManager extends AbstractEventSubscriber implements Model
 		return items;
 	}
 
+	/**
+	 * Retrieves the retention policies of a persistence model by the names the item states are
+	 * persisted with. If several configurations apply to an item, the first one is used.
+	 * 
+	 * @param modelName the name of the persistence model without file extension
+	 * @return the retention policies sorted by name
+	 */
+	/*default */ SortedMap<String, RetentionPolicy> getRetentionPolicies(String modelName) {
+		SortedMap<String, RetentionPolicy> policies = new TreeMap<String, RetentionPolicy>();
+		List<PersistenceConfiguration> configs = persistenceConfigurations.get(modelName);
+		if(configs!=null && itemRegistry!=null) {
+			for(PersistenceConfiguration config : configs) {
+				if(config.getRetention()!=null) {
+					RetentionPolicy policy = RetentionPolicy.fromModel(config.getRetention());
+					if(config.getAlias()!=null) {
+						if(!policies.containsKey(config.getAlias())) {
+							policies.put(config.getAlias(), policy);
+						}
+					} else {
+						for(Item item : getAllItems(config)) {
+							if(!policies.containsKey(item.getName())) {
+								policies.put(item.getName(), policy);
+							}
+						}
+					}
+				}
+			}
+		}
+		return policies;
+	}
+
 	public void allItemsChanged(Collection<String> oldItemNames) {
+		rebuildTargets();
+		// restore the states of all items together, so that each service is queried only once
+		initialize(itemRegistry.getItems());
 		for(Item item : itemRegistry.getItems()) {
-			itemAdded(item);
+			if (item instanceof GenericItem) {
+				GenericItem genericItem = (GenericItem) item;
+				genericItem.addStateChangeListener(this);
+			}
 		}
 	}
 
 	public void itemAdded(Item item) {
-		initialize(item);
+		if(item instanceof GroupItem) {
+			// the members of the group might be affected as well
+			rebuildTargets();
+		} else {
+			updateTargets(item, false);
+		}
+		initialize(Collections.singletonList(item));
 		if (item instanceof GenericItem) {
 			GenericItem genericItem = (GenericItem) item;
 			genericItem.addStateChangeListener(this);
@@ -347,49 +578,78 @@ public class PersistenceManager extends AbstractEventSubscriber implements Model
 	}
 
 	/**
-	 * Handles the "restoreOnStartup" strategy for the item.
-	 * If the item state is still undefined when entering this method, all persistence configurations are checked,
-	 * if they have the "restoreOnStartup" strategy configured for the item. If so, the item state will be set
-	 * to its last persisted value.
+	 * Handles the "restoreOnStartup" strategy for the items.
+	 * For all items whose state is still undefined when entering this method, all persistence configurations
+	 * are checked, if they have the "restoreOnStartup" strategy configured for the item. If so, the item state
+	 * will be set to its last persisted value. The last values are retrieved at once from each service, see
+	 * {@link RecentHistoryCache#queryLatest(QueryablePersistenceService, Collection)}.
 	 * 
-	 * @param item the item to restore the state for
+	 * @param items the items to restore the states for
 	 */
-	protected void initialize(Item item) {
+	protected void initialize(Iterable<Item> items) {
 		// get the last persisted state from the persistence service if no state is yet set
-		if(item.getState().equals(UnDefType.NULL) && item instanceof GenericItem) {
-			for(Entry<String, List<PersistenceConfiguration>> entry : persistenceConfigurations.entrySet()) {
-				String serviceName = entry.getKey();
-				for(PersistenceConfiguration config : entry.getValue()) {
-					if(hasStrategy(serviceName, config, GlobalStrategies.RESTORE)) {
-						if(appliesToItem(config, item)) {
-							PersistenceService service = persistenceServices.get(serviceName);
-							if(service instanceof QueryablePersistenceService) {
-								QueryablePersistenceService queryService = (QueryablePersistenceService) service;
-								FilterCriteria filter = new FilterCriteria().setItemName(item.getName()).setPageSize(1);
-								Iterable<HistoricItem> result = queryService.query(filter);
-								Iterator<HistoricItem> it = result.iterator();
-								if(it.hasNext()) {
-									HistoricItem historicItem = it.next();
-									GenericItem genericItem = (GenericItem) item;
-									genericItem.removeStateChangeListener(this);
-									genericItem.setState(historicItem.getState());
-									genericItem.addStateChangeListener(this);
-									logger.debug("Restored item state from '{}' for item '{}' -> '{}'", 
-											new Object[] { DateFormat.getDateTimeInstance().format(historicItem.getTimestamp()), 
-											item.getName(), historicItem.getState().toString() } );
-									return;
-								}
-							} else if(service!=null) {
-								logger.warn("Failed to restore item states as persistence service '{}' can not be queried.", serviceName);
-							}
-						}
+		Map<String, GenericItem> undefinedItems = new LinkedHashMap<String, GenericItem>();
+		for(Item item : items) {
+			if(item.getState().equals(UnDefType.NULL) && item instanceof GenericItem) {
+				undefinedItems.put(item.getName(), (GenericItem) item);
+			}
+		}
+		for(Entry<String, List<PersistenceConfiguration>> entry : persistenceConfigurations.entrySet()) {
+			if(undefinedItems.isEmpty()) {
+				break;
+			}
+			String serviceName = entry.getKey();
+			List<String> itemNames = new ArrayList<String>();
+			for(GenericItem item : undefinedItems.values()) {
+				if(isRestoredBy(item, serviceName)) {
+					itemNames.add(item.getName());
+				}
+			}
+			if(itemNames.isEmpty()) {
+				continue;
+			}
+			PersistenceService service = getService(serviceName);
+			if(service instanceof QueryablePersistenceService) {
+				long startTime = System.currentTimeMillis();
+				Map<String, HistoricItem> latest = RecentHistoryCache.queryLatest((QueryablePersistenceService) service, itemNames);
+				for(Entry<String, HistoricItem> latestEntry : latest.entrySet()) {
+					GenericItem genericItem = undefinedItems.remove(latestEntry.getKey());
+					if(genericItem!=null) {
+						HistoricItem historicItem = latestEntry.getValue();
+						genericItem.removeStateChangeListener(this);
+						genericItem.setState(historicItem.getState());
+						genericItem.addStateChangeListener(this);
+						logger.debug("Restored item state from '{}' for item '{}' -> '{}'", 
+								new Object[] { DateFormat.getDateTimeInstance().format(historicItem.getTimestamp()), 
+								genericItem.getName(), historicItem.getState().toString() } );
 					}
 				}
-			}	
-		}		
+				logger.debug("Restored {} of {} item states from persistence service '{}' in {}ms", 
+						new Object[] { latest.size(), itemNames.size(), serviceName, System.currentTimeMillis() - startTime });
+			} else if(service!=null) {
+				logger.warn("Failed to restore item states as persistence service '{}' can not be queried.", serviceName);
+			}
+		}
+	}
+
+	private boolean isRestoredBy(Item item, String serviceName) {
+		PersistenceTarget[] targets = itemTargets.get(item.getName());
+		if(targets!=null) {
+			for(PersistenceTarget target : targets) {
+				if(target.isRestore() && target.getServiceName().equals(serviceName)) {
+					return true;
+				}
+			}
+		}
+		return false;
 	}
 
 	public void itemRemoved(Item item) {
+		if(item instanceof GroupItem) {
+			rebuildTargets();
+		} else {
+			updateTargets(item, true);
+		}
 		if (item instanceof GenericItem) {
 			GenericItem genericItem = (GenericItem) item;
 			genericItem.removeStateChangeListener(this);
@@ -431,6 +691,51 @@ public class PersistenceManager extends AbstractEventSubscriber implements Model
 					}
 				}
 			}
+			if(hasRetentions(persistModel)) {
+				createCompactionTimer(modelName);
+			}
+		}
+	}
+
+	private boolean hasRetentions(PersistenceModel persistModel) {
+		for(PersistenceConfiguration config : persistModel.getConfigs()) {
+			if(config.getRetention()!=null) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Creates and schedules a low priority quartz-job, which applies the retention policies
+	 * of the model every minute.
+	 * 
+	 * @param modelName the name of the persistence model without file extension
+	 */
+	private void createCompactionTimer(String modelName) {
+		PersistenceService service = persistenceServices.get(modelName);
+		if(service instanceof ModifiablePersistenceService) {
+			compactors.put(modelName, new RetentionCompactor(modelName, COMPACTION_RUN_TIME));
+			JobKey jobKey = new JobKey(COMPACTION_JOB_NAME, modelName);
+			try {
+				JobDetail job = newJob(CompactionJob.class)
+					.usingJobData(CompactionJob.JOB_DATA_PERSISTMODEL, modelName)
+					.withIdentity(jobKey)
+					.build();
+
+				Trigger quartzTrigger = newTrigger()
+					.startAt(new Date(System.currentTimeMillis() + 60000))
+					.withSchedule(SimpleScheduleBuilder.repeatMinutelyForever())
+					.build();
+
+				scheduler.scheduleJob(job, quartzTrigger);
+
+				logger.debug("Scheduled compaction of persistence service '{}'", modelName);
+			} catch(SchedulerException e) {
+				logger.error("Failed to schedule compaction of persistence service '{}'", modelName, e);
+			}
+		} else if(service!=null) {
+			logger.warn("Retention policies are ignored as persistence service '{}' does not support them.", modelName);
 		}
 	}
 
@@ -0,0 +1,94 @@
+/**
+ * Copyright (c) 2010-2014, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.core.persistence.internal;
+
+import java.util.Set;
+
+import org.openhab.core.items.Item;
+
+/**
+ * A persistence configuration resolved for a single item: the item is persisted
+ * by the given service under the given alias with the given strategies. The
+ * {@link PersistenceManager} keeps these targets by item name, so that it
+ * does not have to evaluate the configurations on every state event.
+ *
+ * @author Kai Kreuzer
+ * @since 1.5.0
+ */
+public class PersistenceTarget {
+
+	private final Item item;
+
+	private final String serviceName;
+
+	private final String alias;
+
+	private final boolean change;
+
+	private final boolean update;
+
+	private final boolean restore;
+
+	private final Set<String> strategyNames;
+
+	public PersistenceTarget(Item item, String serviceName, String alias, boolean change, boolean update,
+			boolean restore, Set<String> strategyNames) {
+		this.item = item;
+		this.serviceName = serviceName;
+		this.alias = alias;
+		this.change = change;
+		this.update = update;
+		this.restore = restore;
+		this.strategyNames = strategyNames;
+	}
+
+	public Item getItem() {
+		return item;
+	}
+
+	public String getServiceName() {
+		return serviceName;
+	}
+
+	/**
+	 * @return the alias under which the item is persisted, or null
+	 */
+	public String getAlias() {
+		return alias;
+	}
+
+	/**
+	 * @return true, if the item is persisted on every change
+	 */
+	public boolean isChange() {
+		return change;
+	}
+
+	/**
+	 * @return true, if the item is persisted on every update
+	 */
+	public boolean isUpdate() {
+		return update;
+	}
+
+	/**
+	 * @return true, if the item state is restored on startup
+	 */
+	public boolean isRestore() {
+		return restore;
+	}
+
+	/**
+	 * @return the names of all strategies of the item, including the default ones
+	 */
+	public Set<String> getStrategyNames() {
+		return strategyNames;
+	}
+
+}
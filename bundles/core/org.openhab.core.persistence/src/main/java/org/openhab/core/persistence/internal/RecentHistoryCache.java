@@ -0,0 +1,406 @@
+/**
+ * Copyright (c) 2010-2014, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.core.persistence.internal;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openhab.core.items.Item;
+import org.openhab.core.persistence.BulkQueryablePersistenceService;
+import org.openhab.core.persistence.FilterCriteria;
+import org.openhab.core.persistence.FilterCriteria.Ordering;
+import org.openhab.core.persistence.HistoricItem;
+import org.openhab.core.persistence.QueryablePersistenceService;
+import org.openhab.core.types.State;
+import org.openhab.core.types.UnDefType;
+
+/**
+ * A read-through cache in front of a {@link QueryablePersistenceService}, which
+ * keeps the recent states of the persisted items in memory. All states have to
+ * be stored through the cache, so that it knows every state of an item since
+ * it has been created. Queries which lie completely within this time are
+ * served from memory, all others are passed on to the service.
+ * <p>The states of an item are kept in a ring buffer of limited size, states
+ * which are older than the window are dropped when new ones are stored. The
+ * time from which on all states of an item are known moves with the dropped
+ * states. If the data of the service is modified in other ways, the cache has
+ * to be told by {@link #invalidateBefore(String, long)}.</p>
+ *
+ * @author Kai Kreuzer
+ * @since 1.5.0
+ */
+public class RecentHistoryCache implements BulkQueryablePersistenceService {
+
+	private final QueryablePersistenceService service;
+
+	private final long window;
+
+	private final int capacity;
+
+	/** the time since which all states stored by the service are known */
+	private final long startTime;
+
+	private final ConcurrentMap<String, Ring> rings = new ConcurrentHashMap<String, Ring>();
+
+	private final AtomicLong hits = new AtomicLong();
+
+	private final AtomicLong misses = new AtomicLong();
+
+	/**
+	 * @param service the service to cache
+	 * @param window the time in milliseconds the states are kept in memory
+	 * @param capacity the maximum number of states kept per item
+	 */
+	public RecentHistoryCache(QueryablePersistenceService service, long window, int capacity) {
+		if (capacity < 1) {
+			throw new IllegalArgumentException("The cache must keep at least one state per item");
+		}
+		this.service = service;
+		this.window = window;
+		this.capacity = capacity;
+		this.startTime = System.currentTimeMillis();
+	}
+
+	/**
+	 * @return the cached service
+	 */
+	public QueryablePersistenceService getService() {
+		return service;
+	}
+
+	public String getName() {
+		return service.getName();
+	}
+
+	public void store(Item item) {
+		service.store(item);
+		add(item.getName(), item.getState());
+	}
+
+	public void store(Item item, String alias) {
+		service.store(item, alias);
+		add(alias != null ? alias : item.getName(), item.getState());
+	}
+
+	private void add(String name, State state) {
+		// the services do not persist undefined states
+		if (!(state instanceof UnDefType)) {
+			getRing(name).add(System.currentTimeMillis(), state);
+		}
+	}
+
+	public Iterable<HistoricItem> query(FilterCriteria filter) {
+		if (filter.getItemName() != null && filter.getState() == null) {
+			Ring ring = rings.get(filter.getItemName());
+			if (ring == null) {
+				// nothing has been stored since the cache has been created
+				ring = new Ring(filter.getItemName(), startTime);
+			}
+			List<HistoricItem> historicItems = ring.query(filter);
+			if (historicItems != null) {
+				hits.incrementAndGet();
+				return historicItems;
+			}
+		}
+		misses.incrementAndGet();
+		return service.query(filter);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>The states which are not in memory are retrieved from the service and
+	 * kept, so that the latest states can be queried from memory from now on.</p>
+	 */
+	public Map<String, HistoricItem> queryLatest(Collection<String> names) {
+		Map<String, HistoricItem> latest = new HashMap<String, HistoricItem>();
+		List<String> missing = new ArrayList<String>();
+		for (String name : names) {
+			Ring ring = rings.get(name);
+			HistoricItem historicItem = ring != null ? ring.getLatest() : null;
+			if (historicItem != null) {
+				latest.put(name, historicItem);
+			} else {
+				missing.add(name);
+			}
+		}
+		hits.addAndGet(latest.size());
+		misses.addAndGet(missing.size());
+
+		if (!missing.isEmpty()) {
+			Map<String, HistoricItem> queried = queryLatest(service, missing);
+			for (Map.Entry<String, HistoricItem> entry : queried.entrySet()) {
+				getRing(entry.getKey()).seed(entry.getValue());
+			}
+			latest.putAll(queried);
+		}
+		return latest;
+	}
+
+	/**
+	 * Retrieves the latest states of the given names from a service, with a
+	 * single call if it is a {@link BulkQueryablePersistenceService} and with a
+	 * query per name otherwise.
+	 *
+	 * @param service the service to query
+	 * @param names the names of the items or the aliases under which they are persisted
+	 * @return the latest historic item by name
+	 */
+	static Map<String, HistoricItem> queryLatest(QueryablePersistenceService service, Collection<String> names) {
+		if (service instanceof BulkQueryablePersistenceService) {
+			return ((BulkQueryablePersistenceService) service).queryLatest(names);
+		}
+		Map<String, HistoricItem> latest = new HashMap<String, HistoricItem>();
+		for (String name : names) {
+			Iterable<HistoricItem> result = service.query(new FilterCriteria().setItemName(name).setPageSize(1));
+			if (result != null) {
+				Iterator<HistoricItem> it = result.iterator();
+				if (it.hasNext()) {
+					latest.put(name, it.next());
+				}
+			}
+		}
+		return latest;
+	}
+
+	/**
+	 * Drops the states of an item which are older than the given time, as they
+	 * might have been modified in the service.
+	 *
+	 * @param name the name of the item or the alias under which it is persisted
+	 * @param time the time before which the states of the item are not known anymore
+	 */
+	public void invalidateBefore(String name, long time) {
+		getRing(name).invalidateBefore(time);
+	}
+
+	private Ring getRing(String name) {
+		Ring ring = rings.get(name);
+		if (ring == null) {
+			ring = new Ring(name, startTime);
+			Ring existing = rings.putIfAbsent(name, ring);
+			if (existing != null) {
+				ring = existing;
+			}
+		}
+		return ring;
+	}
+
+	/**
+	 * @return the number of queries which have been served from memory
+	 */
+	public long getHits() {
+		return hits.get();
+	}
+
+	/**
+	 * @return the number of queries which have been passed on to the service
+	 */
+	public long getMisses() {
+		return misses.get();
+	}
+
+	/**
+	 * @return the percentage of queries which have been served from memory
+	 */
+	public int getHitRate() {
+		long hits = getHits();
+		long total = hits + getMisses();
+		return total > 0 ? (int) (hits * 100 / total) : 0;
+	}
+
+	@Override
+	public String toString() {
+		return "recent history of '" + getName() + "' with " + rings.size() + " items, " + getHits() + " hits, "
+				+ getMisses() + " misses (" + getHitRate() + "%)";
+	}
+
+	/**
+	 * The recent states of a single item in ascending order. The arrays grow up
+	 * to the capacity of the cache, after that the oldest state is overwritten.
+	 */
+	private class Ring {
+
+		private final String name;
+
+		/** all states of the item since then are in the ring */
+		private long coveredSince;
+
+		private long[] times = new long[Math.min(16, capacity)];
+
+		private State[] states = new State[times.length];
+
+		/** the index of the oldest state */
+		private int head = 0;
+
+		private int size = 0;
+
+		Ring(String name, long coveredSince) {
+			this.name = name;
+			this.coveredSince = coveredSince;
+		}
+
+		synchronized void add(long time, State state) {
+			if (size > 0 && time < time(size - 1)) {
+				// keep the states in order, if the clock has been set back
+				time = time(size - 1);
+			}
+			while (size > 0 && time(0) < time - window) {
+				evict();
+			}
+			if (size == times.length) {
+				if (times.length < capacity) {
+					grow();
+				} else {
+					evict();
+				}
+			}
+			int index = (head + size) % times.length;
+			times[index] = time;
+			states[index] = state;
+			size++;
+		}
+
+		/**
+		 * Keeps the given state as the only one, if no state has been stored
+		 * since it has been persisted. All later states are known then.
+		 */
+		synchronized void seed(HistoricItem historicItem) {
+			long time = historicItem.getTimestamp().getTime();
+			if (size == 0 && time < coveredSince) {
+				coveredSince = time;
+				times[head] = time;
+				states[head] = historicItem.getState();
+				size = 1;
+			}
+		}
+
+		synchronized void invalidateBefore(long time) {
+			while (size > 0 && time(0) < time) {
+				evict();
+			}
+			coveredSince = Math.max(coveredSince, time);
+		}
+
+		synchronized HistoricItem getLatest() {
+			return size > 0 ? historicItem(size - 1) : null;
+		}
+
+		/**
+		 * @return the states selected by the filter, or null if not all of them are known
+		 */
+		synchronized List<HistoricItem> query(FilterCriteria filter) {
+			long begin = filter.getBeginDate() != null ? filter.getBeginDate().getTime() : Long.MIN_VALUE;
+			long end = filter.getEndDate() != null ? filter.getEndDate().getTime() : Long.MAX_VALUE;
+			int from = indexOf(begin);
+			int to = end < Long.MAX_VALUE ? indexOf(end + 1) : size;
+			long offset = (long) filter.getPageNumber() * filter.getPageSize();
+
+			if (begin < coveredSince) {
+				// older states are only known to the service, unless the newest states fill the page
+				if (filter.getOrdering() != Ordering.DESCENDING || to - from < offset + filter.getPageSize()) {
+					return null;
+				}
+			}
+
+			List<HistoricItem> historicItems = new ArrayList<HistoricItem>();
+			if (filter.getOrdering() == Ordering.ASCENDING) {
+				for (long i = from + offset; i < to && historicItems.size() < filter.getPageSize(); i++) {
+					historicItems.add(historicItem((int) i));
+				}
+			} else {
+				for (long i = to - 1 - offset; i >= from && historicItems.size() < filter.getPageSize(); i--) {
+					historicItems.add(historicItem((int) i));
+				}
+			}
+			return historicItems;
+		}
+
+		/**
+		 * @return the index of the first state not older than the given time
+		 */
+		private int indexOf(long time) {
+			int low = 0;
+			int high = size;
+			while (low < high) {
+				int middle = (low + high) >>> 1;
+				if (time(middle) < time) {
+					low = middle + 1;
+				} else {
+					high = middle;
+				}
+			}
+			return low;
+		}
+
+		private long time(int i) {
+			return times[(head + i) % times.length];
+		}
+
+		private HistoricItem historicItem(int i) {
+			int index = (head + i) % times.length;
+			return new CachedHistoricItem(name, states[index], times[index]);
+		}
+
+		private void evict() {
+			coveredSince = Math.max(coveredSince, times[head] + 1);
+			states[head] = null;
+			head = (head + 1) % times.length;
+			size--;
+		}
+
+		private void grow() {
+			int length = (int) Math.min(2L * times.length, capacity);
+			long[] newTimes = new long[length];
+			State[] newStates = new State[length];
+			for (int i = 0; i < size; i++) {
+				newTimes[i] = times[(head + i) % times.length];
+				newStates[i] = states[(head + i) % times.length];
+			}
+			times = newTimes;
+			states = newStates;
+			head = 0;
+		}
+	}
+
+	private static class CachedHistoricItem implements HistoricItem {
+
+		private final String name;
+
+		private final State state;
+
+		private final long timestamp;
+
+		CachedHistoricItem(String name, State state, long timestamp) {
+			this.name = name;
+			this.state = state;
+			this.timestamp = timestamp;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public State getState() {
+			return state;
+		}
+
+		public Date getTimestamp() {
+			return new Date(timestamp);
+		}
+	}
+
+}
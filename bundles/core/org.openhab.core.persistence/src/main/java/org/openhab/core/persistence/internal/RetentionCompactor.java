@@ -0,0 +1,277 @@
+/**
+ * Copyright (c) 2010-2014, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.core.persistence.internal;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+
+import org.openhab.core.library.types.DecimalType;
+import org.openhab.core.library.types.HSBType;
+import org.openhab.core.library.types.PercentType;
+import org.openhab.core.persistence.FilterCriteria;
+import org.openhab.core.persistence.FilterCriteria.Ordering;
+import org.openhab.core.persistence.HistoricItem;
+import org.openhab.core.persistence.ModifiablePersistenceService;
+import org.openhab.core.types.State;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Applies the {@link RetentionPolicy}s of a persistence model to the data of a
+ * {@link ModifiablePersistenceService}. States older than the maximum age of
+ * their policy are removed, older states are aggregated into one state per
+ * downsampling interval: numbers are averaged, all other states are replaced
+ * by the last state of the interval.
+ * <p>The work is done in chunks of at most {@link #CHUNK_SIZE} states or
+ * intervals per call to the service, so the service is never blocked for long.
+ * A single run stops after <code>maxRunTime</code> and the next run continues
+ * where it has stopped, so a large backlog is worked off over several runs.</p>
+ *
+ * @author Kai Kreuzer
+ * @since 1.5.0
+ */
+public class RetentionCompactor {
+
+	private static final Logger logger = LoggerFactory.getLogger(RetentionCompactor.class);
+
+	/** the maximum number of states or intervals handled by a single call to the service */
+	static final int CHUNK_SIZE = 1000;
+
+	/* default */ int chunkSize = CHUNK_SIZE;
+
+	private final String serviceName;
+
+	private final long maxRunTime;
+
+	/** name#level - the start of the next interval to downsample */
+	private final Map<String, Long> cursors = new HashMap<String, Long>();
+
+	/** the name the last run has stopped at, the next run continues with it */
+	private String resumeAt = null;
+
+	private long removedStates = 0;
+
+	private long aggregatedStates = 0;
+
+	public RetentionCompactor(String serviceName, long maxRunTime) {
+		this.serviceName = serviceName;
+		this.maxRunTime = maxRunTime;
+	}
+
+	/**
+	 * Compacts the data of the given service. Must not be called concurrently.
+	 *
+	 * @param service the service to compact
+	 * @param policies the retention policies by the names the states are persisted with
+	 * @return true, if all data has been compacted, false if the run has been stopped early
+	 */
+	public boolean compact(ModifiablePersistenceService service, SortedMap<String, RetentionPolicy> policies) {
+		return compact(service, policies, System.currentTimeMillis());
+	}
+
+	/* default */ boolean compact(ModifiablePersistenceService service, SortedMap<String, RetentionPolicy> policies, long now) {
+		long startTime = System.currentTimeMillis();
+		long deadline = startTime + maxRunTime;
+		long removedBefore = removedStates;
+		long aggregatedBefore = aggregatedStates;
+
+		// continue with the name the last run has stopped at, then start over
+		List<String> names = new ArrayList<String>();
+		if (resumeAt != null) {
+			names.addAll(policies.tailMap(resumeAt).keySet());
+			names.addAll(policies.headMap(resumeAt).keySet());
+		} else {
+			names.addAll(policies.keySet());
+		}
+
+		boolean completed = true;
+		for (String name : names) {
+			if ((System.currentTimeMillis() > deadline && !name.equals(names.get(0)))
+					|| !compact(service, name, policies.get(name), now, deadline)) {
+				resumeAt = name;
+				completed = false;
+				break;
+			}
+		}
+		if (completed) {
+			resumeAt = null;
+		}
+		cursors.keySet().retainAll(cursorKeys(policies));
+
+		long removed = removedStates - removedBefore;
+		long aggregated = aggregatedStates - aggregatedBefore;
+		if (removed > 0) {
+			String message = "Compaction of persistence service '{}' removed {} states and added {} aggregated states in {}ms ({}), "
+					+ "{} states have been reclaimed in total";
+			Object[] args = new Object[] { serviceName, removed, aggregated, System.currentTimeMillis() - startTime,
+					completed ? "completed" : "continuing with '" + resumeAt + "'", removedStates - aggregatedStates };
+			// report the progress of working off a backlog, regular runs are only logged for debugging
+			if (completed) {
+				logger.debug(message, args);
+			} else {
+				logger.info(message, args);
+			}
+		} else {
+			logger.trace("Compaction of persistence service '{}' found nothing to compact", serviceName);
+		}
+		return completed;
+	}
+
+	private boolean compact(ModifiablePersistenceService service, String name, RetentionPolicy policy, long now, long deadline) {
+		// remove the states which are older than the policy allows
+		Date removeBefore = new Date(now - policy.getMaxAge());
+		while (true) {
+			int count = service.remove(new FilterCriteria().setItemName(name).setEndDate(removeBefore).setPageSize(chunkSize));
+			removedStates += count;
+			if (count < chunkSize) {
+				break;
+			}
+			if (System.currentTimeMillis() > deadline) {
+				return false;
+			}
+		}
+
+		// downsample the states of each level, which cover the time from the
+		// period of the previous level up to their own period
+		long newerPeriod = policy.getRaw();
+		for (int level = 0; level < policy.getLevels(); level++) {
+			long interval = policy.getInterval(level);
+			long end = align(now - newerPeriod, interval);
+			long start = align(now - policy.getPeriod(level), interval);
+			String key = name + "#" + level;
+			Long cursor = cursors.get(key);
+			if (cursor != null && cursor > start) {
+				start = cursor;
+			}
+			while (start < end) {
+				start = downsample(service, name, start, Math.min(end, start + chunkSize * interval), interval);
+				cursors.put(key, start);
+				if (start < end && System.currentTimeMillis() > deadline) {
+					return false;
+				}
+			}
+			newerPeriod = policy.getPeriod(level);
+		}
+		return true;
+	}
+
+	/**
+	 * Aggregates the states of all intervals between start and end, which
+	 * contain more than one state.
+	 *
+	 * @return the start of the first interval which has not been downsampled
+	 */
+	private long downsample(ModifiablePersistenceService service, String name, long start, long end, long interval) {
+		// services do not agree whether the dates of a filter are inclusive, so
+		// the range is extended and filtered here
+		FilterCriteria filter = new FilterCriteria().setItemName(name).setOrdering(Ordering.ASCENDING)
+				.setBeginDate(new Date(start - 1000)).setEndDate(new Date(end)).setPageSize(chunkSize);
+		List<HistoricItem> historicItems = new ArrayList<HistoricItem>();
+		for (HistoricItem historicItem : service.query(filter)) {
+			historicItems.add(historicItem);
+		}
+
+		// if the page is full, the last interval might be incomplete and is downsampled by the next chunk
+		boolean complete = historicItems.size() < chunkSize;
+		long next = end;
+		if (!complete) {
+			next = align(historicItems.get(historicItems.size() - 1).getTimestamp().getTime(), interval);
+			if (next <= start) {
+				// a single interval exceeds the chunk size
+				filter.setEndDate(new Date(start + interval)).setPageSize(Integer.MAX_VALUE);
+				historicItems.clear();
+				for (HistoricItem historicItem : service.query(filter)) {
+					historicItems.add(historicItem);
+				}
+				next = start + interval;
+			}
+		}
+
+		long windowStart = -1;
+		List<State> states = new ArrayList<State>();
+		for (HistoricItem historicItem : historicItems) {
+			long timestamp = historicItem.getTimestamp().getTime();
+			if (timestamp < start || timestamp >= next) {
+				continue;
+			}
+			if (align(timestamp, interval) != windowStart) {
+				aggregate(service, name, windowStart, interval, states);
+				windowStart = align(timestamp, interval);
+				states.clear();
+			}
+			states.add(historicItem.getState());
+		}
+		aggregate(service, name, windowStart, interval, states);
+		return next;
+	}
+
+	private void aggregate(ModifiablePersistenceService service, String name, long windowStart, long interval, List<State> states) {
+		if (states.size() > 1) {
+			removedStates += service.remove(new FilterCriteria().setItemName(name)
+					.setBeginDate(new Date(windowStart)).setEndDate(new Date(windowStart + interval)).setPageSize(states.size()));
+			service.store(name, new Date(windowStart), aggregate(states));
+			aggregatedStates++;
+		}
+	}
+
+	/**
+	 * Aggregates the given states into a single one: numbers are averaged, for
+	 * all other types the last state is taken.
+	 *
+	 * @param states the states to aggregate, in ascending order
+	 * @return the aggregated state
+	 */
+	static State aggregate(List<State> states) {
+		State last = states.get(states.size() - 1);
+		BigDecimal sum = BigDecimal.ZERO;
+		for (State state : states) {
+			if (!(state instanceof DecimalType) || state instanceof HSBType) {
+				return last;
+			}
+			sum = sum.add(((DecimalType) state).toBigDecimal());
+		}
+		BigDecimal average = sum.divide(new BigDecimal(states.size()), MathContext.DECIMAL64);
+		return last instanceof PercentType ? new PercentType(average) : new DecimalType(average);
+	}
+
+	private static long align(long time, long interval) {
+		return time - ((time % interval) + interval) % interval;
+	}
+
+	private static List<String> cursorKeys(Map<String, RetentionPolicy> policies) {
+		List<String> keys = new ArrayList<String>();
+		for (Map.Entry<String, RetentionPolicy> entry : policies.entrySet()) {
+			for (int level = 0; level < entry.getValue().getLevels(); level++) {
+				keys.add(entry.getKey() + "#" + level);
+			}
+		}
+		return keys;
+	}
+
+	/**
+	 * @return the number of states removed since the compactor has been created
+	 */
+	public long getRemovedStates() {
+		return removedStates;
+	}
+
+	/**
+	 * @return the number of aggregated states added since the compactor has been created
+	 */
+	public long getAggregatedStates() {
+		return aggregatedStates;
+	}
+
+}
@@ -0,0 +1,102 @@
+/**
+ * Copyright (c) 2010-2014, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.core.persistence.internal;
+
+import org.openhab.model.persistence.persistence.Downsample;
+import org.openhab.model.persistence.persistence.Period;
+import org.openhab.model.persistence.persistence.Retention;
+
+/**
+ * The retention policy of a persistence configuration, converted from the
+ * persistence model. States are kept unchanged for the raw period. After that,
+ * each downsampling level aggregates the states of its interval into a single
+ * state, until they reach the period of the level. States which are older than
+ * the last period are removed.
+ * <p>A policy like <code>7d, 5m for 30d, 1h for 365d</code> keeps all states of
+ * the last week, five minute aggregates of the last month, hourly aggregates
+ * of the last year and removes everything else.</p>
+ *
+ * @author Kai Kreuzer
+ * @since 1.5.0
+ */
+public class RetentionPolicy {
+
+	private final long raw;
+
+	private final long[] intervals;
+
+	private final long[] periods;
+
+	public RetentionPolicy(long raw, long[] intervals, long[] periods) {
+		if (intervals.length != periods.length) {
+			throw new IllegalArgumentException("Every downsampling level needs an interval and a period");
+		}
+		this.raw = raw;
+		this.intervals = intervals;
+		this.periods = periods;
+	}
+
+	public static RetentionPolicy fromModel(Retention retention) {
+		int levels = retention.getDownsamples().size();
+		long[] intervals = new long[levels];
+		long[] periods = new long[levels];
+		for (int i = 0; i < levels; i++) {
+			Downsample downsample = retention.getDownsamples().get(i);
+			intervals[i] = toMillis(downsample.getInterval());
+			periods[i] = toMillis(downsample.getPeriod());
+		}
+		return new RetentionPolicy(toMillis(retention.getRaw()), intervals, periods);
+	}
+
+	private static long toMillis(Period period) {
+		long value = period.getValue() * 1000L;
+		if ("m".equals(period.getUnit())) return value * 60;
+		if ("h".equals(period.getUnit())) return value * 60 * 60;
+		if ("d".equals(period.getUnit())) return value * 60 * 60 * 24;
+		return value;
+	}
+
+	/**
+	 * @return the time in milliseconds states are kept unchanged
+	 */
+	public long getRaw() {
+		return raw;
+	}
+
+	/**
+	 * @return the number of downsampling levels
+	 */
+	public int getLevels() {
+		return intervals.length;
+	}
+
+	/**
+	 * @param level the downsampling level
+	 * @return the interval in milliseconds whose states are aggregated
+	 */
+	public long getInterval(int level) {
+		return intervals[level];
+	}
+
+	/**
+	 * @param level the downsampling level
+	 * @return the age in milliseconds up to which the aggregated states are kept
+	 */
+	public long getPeriod(int level) {
+		return periods[level];
+	}
+
+	/**
+	 * @return the age in milliseconds after which states are removed
+	 */
+	public long getMaxAge() {
+		return periods.length > 0 ? periods[periods.length - 1] : raw;
+	}
+
+}
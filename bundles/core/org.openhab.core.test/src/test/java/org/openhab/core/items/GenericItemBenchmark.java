@@ -0,0 +1,82 @@
+/**
+ * Copyright (c) 2010-2014, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.core.items;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.lang.reflect.Method;
+
+import org.openhab.core.items.GenericItemTest.BaseState;
+import org.openhab.core.items.GenericItemTest.CountingListener;
+import org.openhab.core.items.GenericItemTest.TestItem;
+import org.openhab.core.types.State;
+
+/**
+ * Measures the time and the heap allocation of state updates of an item with
+ * a typical number of listeners. The allocation is read from the thread
+ * management bean of HotSpot JVMs, it is not available on other JVMs. It is
+ * not run by the test suite, but has to be started manually, optionally with
+ * the number of listeners as argument.
+ *
+ * @author Kai Kreuzer
+ * @since 1.5.0
+ */
+public class GenericItemBenchmark {
+
+	private static final int UPDATES = 10000000;
+
+	public static void main(String[] args) throws Exception {
+		int listenerCount = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+		TestItem item = new TestItem("item");
+		CountingListener[] listeners = new CountingListener[listenerCount];
+		for (int i = 0; i < listenerCount; i++) {
+			listeners[i] = new CountingListener();
+			item.addStateChangeListener(listeners[i]);
+		}
+		State[] states = new State[] { new BaseState(), new BaseState() };
+
+		// warm up, so that the measurement is done with compiled code
+		for (int i = 0; i < UPDATES; i++) {
+			item.setState(states[i & 1]);
+		}
+
+		long allocatedBefore = getAllocatedBytes();
+		long start = System.nanoTime();
+		for (int i = 0; i < UPDATES; i++) {
+			item.setState(states[i & 1]);
+		}
+		long time = System.nanoTime() - start;
+		long allocated = getAllocatedBytes() - allocatedBefore;
+
+		System.out.println(String.format("state updates: %d with %d listeners in %d ms, %.1f ns/update", UPDATES,
+				listenerCount, time / 1000000, (double) time / UPDATES));
+		if (allocatedBefore >= 0) {
+			System.out.println(String.format("allocation:    %d bytes, %.3f bytes/update", allocated, (double) allocated
+					/ UPDATES));
+		} else {
+			System.out.println("allocation:    not available on this JVM");
+		}
+		System.out.println("notifications: " + listeners[0].updates + " updates, " + listeners[0].changes + " changes");
+	}
+
+	/**
+	 * @return the bytes allocated by the current thread so far, or -1 if unknown
+	 */
+	private static long getAllocatedBytes() {
+		ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		try {
+			Method method = Class.forName("com.sun.management.ThreadMXBean").getMethod("getThreadAllocatedBytes",
+					long.class);
+			return (Long) method.invoke(bean, Thread.currentThread().getId());
+		} catch (Exception e) {
+			return -1;
+		}
+	}
+
+}
@@ -0,0 +1,171 @@
+/**
+ * Copyright (c) 2010-2014, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.core.items;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+import org.openhab.core.types.Command;
+import org.openhab.core.types.State;
+import org.openhab.core.types.UnDefType;
+
+/**
+ * @author Kai Kreuzer
+ * @since 1.5.0
+ */
+public class GenericItemTest {
+
+	@Test
+	public void testAcceptedState() {
+		TestItem item = new TestItem("item");
+		assertTrue(item.isAcceptedState(new BaseState()));
+		assertTrue(item.isAcceptedState(UnDefType.NULL));
+		assertFalse(item.isAcceptedState(new OtherState()));
+	}
+
+	@Test
+	public void testAcceptedSubclassState() {
+		TestItem item = new TestItem("item");
+		assertTrue(item.isAcceptedState(new SubState()));
+		// the cached result
+		assertTrue(item.isAcceptedState(new SubState()));
+	}
+
+	@Test
+	public void testGroupItemAcceptedState() {
+		GroupItem groupWithBase = new GroupItem("group", new TestItem("base"));
+		assertTrue(groupWithBase.isAcceptedState(new SubState()));
+		assertFalse(groupWithBase.isAcceptedState(new OtherState()));
+
+		GroupItem groupWithoutBase = new GroupItem("group");
+		assertFalse(groupWithoutBase.isAcceptedState(new BaseState()));
+		groupWithoutBase.addMember(new TestItem("member"));
+		assertTrue(groupWithoutBase.isAcceptedState(new BaseState()));
+	}
+
+	@Test
+	public void testListeners() {
+		TestItem item = new TestItem("item");
+		CountingListener listener = new CountingListener();
+		item.addStateChangeListener(listener);
+		item.addStateChangeListener(listener);
+
+		item.setState(new BaseState());
+		assertEquals(1, listener.updates);
+		assertEquals(1, listener.changes);
+		item.setState(item.getState());
+		assertEquals(2, listener.updates);
+		assertEquals(1, listener.changes);
+
+		item.removeStateChangeListener(listener);
+		item.setState(new BaseState());
+		assertEquals(2, listener.updates);
+	}
+
+	@Test
+	public void testCollectedListenersAreSkipped() {
+		TestItem item = new TestItem("item");
+		// counts the updates of both listeners, as the collected one cannot be asked
+		AtomicInteger notifications = new AtomicInteger();
+		CountingListener listener = new CountingListener(notifications);
+		CountingListener collected = new CountingListener(notifications);
+		item.addStateChangeListener(collected);
+		item.addStateChangeListener(listener);
+
+		WeakReference<CountingListener> reference = new WeakReference<CountingListener>(collected);
+		collected = null;
+		for (int i = 0; i < 100 && reference.get() != null; i++) {
+			System.gc();
+		}
+		assumeTrue(reference.get() == null);
+
+		item.setState(new BaseState());
+		assertEquals(1, listener.updates);
+		assertEquals("the collected listener has been notified", 1, notifications.get());
+
+		// the collected listener is removed with the next registration
+		item.removeStateChangeListener(new CountingListener());
+		item.setState(new BaseState());
+		assertEquals(2, listener.updates);
+		assertEquals(2, notifications.get());
+	}
+
+	static class CountingListener implements StateChangeListener {
+
+		int updates = 0;
+
+		int changes = 0;
+
+		private final AtomicInteger notifications;
+
+		CountingListener() {
+			this(new AtomicInteger());
+		}
+
+		CountingListener(AtomicInteger notifications) {
+			this.notifications = notifications;
+		}
+
+		public void stateChanged(Item item, State oldState, State newState) {
+			changes++;
+		}
+
+		public void stateUpdated(Item item, State state) {
+			updates++;
+			notifications.incrementAndGet();
+		}
+	}
+
+	static class TestItem extends GenericItem {
+
+		private static List<Class<? extends State>> acceptedDataTypes = new ArrayList<Class<? extends State>>();
+
+		static {
+			acceptedDataTypes.add(BaseState.class);
+			acceptedDataTypes.add(UnDefType.class);
+		}
+
+		public TestItem(String name) {
+			super(name);
+		}
+
+		public List<Class<? extends State>> getAcceptedDataTypes() {
+			return acceptedDataTypes;
+		}
+
+		public List<Class<? extends Command>> getAcceptedCommandTypes() {
+			return Collections.emptyList();
+		}
+	}
+
+	static class BaseState implements State {
+		public String format(String pattern) {
+			return toString();
+		}
+	}
+
+	static class SubState extends BaseState {
+	}
+
+	static class OtherState implements State {
+		public String format(String pattern) {
+			return toString();
+		}
+	}
+
+}
@@ -8,12 +8,11 @@
  */
 package org.openhab.core.items;
 
+import java.lang.ref.WeakReference;
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
-import java.util.Set;
-import java.util.WeakHashMap;
-import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.openhab.core.events.EventPublisher;
 import org.openhab.core.types.Command;
@@ -31,9 +30,22 @@ import org.openhab.core.types.UnDefType;
  */
 abstract public class GenericItem implements Item {
 	
+	/** item class - (state class - accepted) */
+	private static final ConcurrentMap<Class<?>, ConcurrentMap<Class<?>, Boolean>> acceptedStates = new ConcurrentHashMap<Class<?>, ConcurrentMap<Class<?>, Boolean>>();
+	
 	protected EventPublisher eventPublisher;
 
-	protected Set<StateChangeListener> listeners = new CopyOnWriteArraySet<StateChangeListener>(Collections.newSetFromMap(new WeakHashMap<StateChangeListener, Boolean>()));
+	@SuppressWarnings("unchecked")
+	private static final WeakReference<StateChangeListener>[] NO_LISTENERS = new WeakReference[0];
+
+	/** 
+	 * the weakly referenced listeners; the array is never modified, but replaced on every
+	 * registration, so that it can be iterated without copying or locking
+	 */
+	private volatile WeakReference<StateChangeListener>[] listeners = NO_LISTENERS;
+	
+	/** the lock for modifying the listeners */
+	private final Object listenersLock = new Object();
 	
 	protected List<String> groupNames = new ArrayList<String>();
 	
@@ -63,6 +75,49 @@ abstract public class GenericItem implements Item {
 		}
 	}
 	
+	/**
+	 * Checks whether the given state is accepted by this item, i.e. whether its
+	 * class is one of the accepted data types or a subclass of one of them.
+	 * The result is cached per item class and state class, so subclasses whose
+	 * accepted data types differ between instances have to override this method.
+	 * 
+	 * @param state the state to check
+	 * @return <code>true</code> if the state is accepted by this item
+	 */
+	public boolean isAcceptedState(State state) {
+		ConcurrentMap<Class<?>, Boolean> accepted = acceptedStates.get(getClass());
+		if(accepted==null) {
+			accepted = new ConcurrentHashMap<Class<?>, Boolean>();
+			ConcurrentMap<Class<?>, Boolean> existing = acceptedStates.putIfAbsent(getClass(), accepted);
+			if(existing!=null) {
+				accepted = existing;
+			}
+		}
+		Boolean result = accepted.get(state.getClass());
+		if(result==null) {
+			result = isAcceptedState(getAcceptedDataTypes(), state.getClass());
+			accepted.put(state.getClass(), result);
+		}
+		return result;
+	}
+	
+	/**
+	 * Checks whether the given state class is one of the accepted data types or
+	 * a subclass of one of them.
+	 * 
+	 * @param acceptedDataTypes the accepted data types of an item
+	 * @param stateClass the class of a state
+	 * @return <code>true</code> if the state class is accepted
+	 */
+	protected static boolean isAcceptedState(List<Class<? extends State>> acceptedDataTypes, Class<? extends State> stateClass) {
+		for(Class<? extends State> acceptedDataType : acceptedDataTypes) {
+			if(acceptedDataType.isAssignableFrom(stateClass)) {
+				return true;
+			}
+		}
+		return false;
+	}
+	
 	public void initialize() {}
 	
 	public void dispose() {
@@ -101,15 +156,21 @@ abstract public class GenericItem implements Item {
 	}
 
 	private void notifyListeners(State oldState, State newState) {
-		// if nothing has changed, we send update notifications
-		Set<StateChangeListener> clonedListeners = null;
-		clonedListeners = new CopyOnWriteArraySet<StateChangeListener>(listeners);
-		for(StateChangeListener listener : clonedListeners) {
-			listener.stateUpdated(this, newState);
+		// listeners which are registered while notifying are notified with the next state;
+		// references of collected listeners are skipped and removed with the next registration
+		WeakReference<StateChangeListener>[] currentListeners = listeners;
+		for(int i = 0; i < currentListeners.length; i++) {
+			StateChangeListener listener = currentListeners[i].get();
+			if(listener!=null) {
+				listener.stateUpdated(this, newState);
+			}
 		}
 		if(!oldState.equals(newState)) {
-			for(StateChangeListener listener : clonedListeners) {
-				listener.stateChanged(this, oldState, newState);
+			for(int i = 0; i < currentListeners.length; i++) {
+				StateChangeListener listener = currentListeners[i].get();
+				if(listener!=null) {
+					listener.stateChanged(this, oldState, newState);
+				}
 			}
 		}
 	}
@@ -124,16 +185,47 @@ abstract public class GenericItem implements Item {
 			"State=" + getState() + ")";
 	}
 
+	/**
+	 * Registers a listener for state updates and changes. Listeners are only weakly
+	 * referenced, so they have to be kept by their creator. Adding a registered
+	 * listener again has no effect.
+	 * 
+	 * @param listener the listener to register
+	 */
 	public void addStateChangeListener(StateChangeListener listener) {
-		synchronized(listeners) {
-			listeners.add(listener);
+		synchronized(listenersLock) {
+			replaceListeners(listener, null);
 		}
 	}
 	
 	public void removeStateChangeListener(StateChangeListener listener) {
-		synchronized(listeners) {
-			listeners.remove(listener);
+		synchronized(listenersLock) {
+			replaceListeners(null, listener);
+		}
+	}
+
+	/**
+	 * Replaces the listeners by a copy without the removed and the collected listeners,
+	 * and with the added listener, if it is not registered yet.
+	 */
+	private void replaceListeners(StateChangeListener added, StateChangeListener removed) {
+		List<WeakReference<StateChangeListener>> newListeners = new ArrayList<WeakReference<StateChangeListener>>(listeners.length + 1);
+		for(WeakReference<StateChangeListener> reference : listeners) {
+			StateChangeListener listener = reference.get();
+			if(listener==null || listener.equals(removed)) {
+				continue;
+			}
+			if(listener.equals(added)) {
+				added = null;
+			}
+			newListeners.add(reference);
+		}
+		if(added!=null) {
+			newListeners.add(new WeakReference<StateChangeListener>(added));
 		}
+		@SuppressWarnings("unchecked")
+		WeakReference<StateChangeListener>[] array = newListeners.toArray(new WeakReference[newListeners.size()]);
+		listeners = array.length > 0 ? array : NO_LISTENERS;
 	}
 	
 
@@ -131,6 +131,20 @@ public class GroupItem extends GenericItem implements StateChangeListener {
 		}
 	}
 
+	/**
+	 * The accepted data types of a group item depend on its base item or its
+	 * members, so the check is delegated to the base item or done without
+	 * caching.
+	 */
+	@Override
+	public boolean isAcceptedState(State state) {
+		if(baseItem!=null) {
+			return baseItem.isAcceptedState(state);
+		} else {
+			return isAcceptedState(getAcceptedDataTypes(), state.getClass());
+		}
+	}
+
 	/** 
 	 * The accepted command types of a group item is the same as of the underlying base item.
 	 * If none is defined, the intersection of all sets of accepted command types of all group
@@ -0,0 +1,125 @@
+/**
+ * Copyright (c) 2010-2014, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.io.monitor.internal.journal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Test;
+
+/**
+ * @author Kai Kreuzer
+ * @since 1.5.0
+ */
+public class EventRingBufferTest {
+
+	@Test
+	public void testCapacityIsRoundedUp() {
+		EventRingBuffer<Integer> buffer = new EventRingBuffer<Integer>(5);
+		for (int i = 0; i < 8; i++) {
+			assertTrue(buffer.offer(i));
+		}
+		assertFalse(buffer.offer(8));
+		assertEquals(8, buffer.size());
+		assertEquals(1, buffer.getDropped());
+	}
+
+	@Test
+	public void testWraparound() {
+		EventRingBuffer<Integer> buffer = new EventRingBuffer<Integer>(4);
+		int next = 0;
+		int expected = 0;
+		// many rounds through the slots with a varying fill level
+		for (int round = 0; round < 1000; round++) {
+			for (int i = 0; i < round % 3 + 1; i++) {
+				assertTrue(buffer.offer(next++));
+			}
+			while (buffer.size() > round % 2) {
+				assertEquals(Integer.valueOf(expected++), buffer.poll());
+			}
+		}
+		while (buffer.size() > 0) {
+			assertEquals(Integer.valueOf(expected++), buffer.poll());
+		}
+		assertEquals(next, expected);
+		assertNull(buffer.poll());
+		assertEquals(0, buffer.getDropped());
+	}
+
+	@Test
+	public void testFullBufferDropsNewElements() {
+		EventRingBuffer<Integer> buffer = new EventRingBuffer<Integer>(4);
+		for (int i = 0; i < 6; i++) {
+			buffer.offer(i);
+		}
+		assertEquals(2, buffer.getDropped());
+		assertEquals(Integer.valueOf(0), buffer.poll());
+		assertTrue(buffer.offer(6));
+		assertFalse(buffer.offer(7));
+		assertEquals(3, buffer.getDropped());
+		for (int i : new int[] { 1, 2, 3, 6 }) {
+			assertEquals(Integer.valueOf(i), buffer.poll());
+		}
+		assertNull(buffer.poll());
+	}
+
+	@Test
+	public void testPollWithTimeout() {
+		EventRingBuffer<Integer> buffer = new EventRingBuffer<Integer>(4);
+		assertNull(buffer.poll(10));
+		buffer.offer(1);
+		assertEquals(Integer.valueOf(1), buffer.poll(10));
+	}
+
+	@Test
+	public void testConcurrentProducers() throws InterruptedException {
+		final EventRingBuffer<Integer> buffer = new EventRingBuffer<Integer>(16);
+		final int producers = 4;
+		final int elements = 10000;
+		Thread[] threads = new Thread[producers];
+		for (int p = 0; p < producers; p++) {
+			final int offset = p * elements;
+			threads[p] = new Thread() {
+				@Override
+				public void run() {
+					for (int i = 0; i < elements; i++) {
+						while (!buffer.offer(offset + i)) {
+							Thread.yield();
+						}
+					}
+				}
+			};
+			threads[p].start();
+		}
+
+		Set<Integer> received = new HashSet<Integer>();
+		int[] last = new int[producers];
+		Arrays.fill(last, -1);
+		while (received.size() < producers * elements) {
+			Integer element = buffer.poll(1000);
+			assertTrue("no element within the timeout", element != null);
+			assertTrue(received.add(element));
+			// the elements of every producer are received in their order
+			int producer = element / elements;
+			assertTrue(element % elements > last[producer]);
+			last[producer] = element % elements;
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		assertNull(buffer.poll());
+	}
+
+}
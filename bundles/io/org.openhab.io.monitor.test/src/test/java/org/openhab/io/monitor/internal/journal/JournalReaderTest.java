@@ -0,0 +1,239 @@
+/**
+ * Copyright (c) 2010-2014, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.io.monitor.internal.journal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.openhab.core.library.types.DecimalType;
+import org.openhab.core.library.types.OnOffType;
+import org.openhab.core.library.types.StringType;
+
+/**
+ * Writes records with a {@link JournalWriter} and reads them back with a
+ * {@link JournalReader}.
+ *
+ * @author Kai Kreuzer
+ * @since 1.5.0
+ */
+public class JournalReaderTest {
+
+	private static final String MESSAGE = "Gr\u00fc\u00dfe, 20\u00b0C";
+
+	private File directory;
+
+	@Before
+	public void setUp() throws IOException {
+		directory = File.createTempFile("journal", "");
+		directory.delete();
+	}
+
+	@After
+	public void tearDown() {
+		for (File segment : JournalReader.getSegments(directory)) {
+			segment.delete();
+		}
+		directory.delete();
+	}
+
+	@Test
+	public void testRoundTrip() throws IOException {
+		JournalWriter writer = new JournalWriter(directory, 64 * 1024, 0, 0);
+		assertTrue(writer.write(new JournalRecord(1000, "Light", true, OnOffType.ON)));
+		assertTrue(writer.write(new JournalRecord(1001, "Temperature", false, new DecimalType("21.5"))));
+		assertTrue(writer.write(new JournalRecord(1002, "Message", false, new StringType(MESSAGE))));
+		assertTrue(writer.write(new JournalRecord(1003, "Light", false, OnOffType.OFF)));
+		writer.close();
+
+		List<JournalRecord> records = readAll(0, Long.MAX_VALUE);
+		assertEquals(4, records.size());
+		assertRecord(records.get(0), 1000, "Light", true, OnOffType.ON);
+		assertRecord(records.get(1), 1001, "Temperature", false, new DecimalType("21.5"));
+		assertRecord(records.get(2), 1002, "Message", false, new StringType(MESSAGE));
+		assertRecord(records.get(3), 1003, "Light", false, OnOffType.OFF);
+	}
+
+	@Test
+	public void testTimeRange() throws IOException {
+		JournalWriter writer = new JournalWriter(directory, 64 * 1024, 0, 0);
+		for (int i = 0; i < 10; i++) {
+			writer.write(new JournalRecord(1000 + i, "Counter", false, new DecimalType(i)));
+		}
+		writer.close();
+
+		List<JournalRecord> records = readAll(1003, 1006);
+		assertEquals(3, records.size());
+		assertEquals(new DecimalType(3), records.get(0).getValue());
+		assertEquals(new DecimalType(5), records.get(2).getValue());
+	}
+
+	@Test
+	public void testRotationBySize() throws IOException {
+		// room for a handful of records per segment only
+		JournalWriter writer = new JournalWriter(directory, 128, 0, 0);
+		for (int i = 0; i < 100; i++) {
+			assertTrue(writer.write(new JournalRecord(1000 + i, "Counter", false, new DecimalType(i))));
+		}
+		writer.close();
+
+		assertTrue(writer.getSegmentCount() > 10);
+		assertEquals(writer.getSegmentCount(), JournalReader.getSegments(directory).size());
+		List<JournalRecord> records = readAll(0, Long.MAX_VALUE);
+		assertEquals(100, records.size());
+		for (int i = 0; i < 100; i++) {
+			assertRecord(records.get(i), 1000 + i, "Counter", false, new DecimalType(i));
+		}
+	}
+
+	@Test
+	public void testRotationByTime() throws IOException {
+		JournalWriter writer = new JournalWriter(directory, 64 * 1024, 100, 0);
+		for (int i = 0; i < 10; i++) {
+			writer.write(new JournalRecord(1000 + i * 50, "Light", false, i % 2 == 0 ? OnOffType.ON : OnOffType.OFF));
+		}
+		writer.close();
+
+		assertEquals(5, writer.getSegmentCount());
+		assertEquals(10, readAll(0, Long.MAX_VALUE).size());
+		// only the segments which may contain records of the range are read
+		List<JournalRecord> records = readAll(1320, Long.MAX_VALUE);
+		assertEquals(3, records.size());
+		assertEquals(1350, records.get(0).getTimestamp());
+	}
+
+	@Test
+	public void testOldSegmentsAreDeleted() throws IOException {
+		JournalWriter writer = new JournalWriter(directory, 128, 0, 3);
+		for (int i = 0; i < 100; i++) {
+			writer.write(new JournalRecord(1000 + i, "Counter", false, new DecimalType(i)));
+		}
+		writer.close();
+
+		assertEquals(3, JournalReader.getSegments(directory).size());
+		List<JournalRecord> records = readAll(0, Long.MAX_VALUE);
+		assertFalse(records.isEmpty());
+		assertEquals(new DecimalType(99), records.get(records.size() - 1).getValue());
+	}
+
+	@Test
+	public void testRecordTooLargeForSegment() throws IOException {
+		JournalWriter writer = new JournalWriter(directory, 128, 0, 0);
+		StringBuilder value = new StringBuilder();
+		for (int i = 0; i < 200; i++) {
+			value.append('x');
+		}
+		assertFalse(writer.write(new JournalRecord(1000, "Message", false, new StringType(value.toString()))));
+		assertTrue(writer.write(new JournalRecord(1001, "Light", false, OnOffType.ON)));
+		writer.close();
+
+		List<JournalRecord> records = readAll(0, Long.MAX_VALUE);
+		assertEquals(1, records.size());
+		assertRecord(records.get(0), 1001, "Light", false, OnOffType.ON);
+	}
+
+	@Test
+	public void testUnknownTypesAreSkipped() throws IOException {
+		directory.mkdirs();
+		ByteBuffer buffer = ByteBuffer.allocate(1024);
+		buffer.putInt(JournalWriter.MAGIC);
+		buffer.putLong(1000);
+		putItem(buffer, 0, "Mode");
+		putItem(buffer, 1, "Temperature");
+		putType(buffer, (short) 0, true, "org.example.MissingEnumType");
+		putType(buffer, (short) 1, false, "org.example.MissingType");
+		putType(buffer, (short) 2, false, DecimalType.class.getName());
+		// the ordinal of an enum whose class cannot be loaded
+		buffer.put(JournalWriter.KIND_UPDATE).putLong(1000).putInt(0).putShort((short) 0).put((byte) 3);
+		putValue(buffer, 1001, 1, (short) 1, "unknown");
+		putValue(buffer, 1002, 1, (short) 2, "19.5");
+		buffer.put(JournalWriter.KIND_UPDATE).putLong(1003).putInt(0).putShort((short) 0).put((byte) 0);
+		putValue(buffer, 1004, 1, (short) 2, "20.5");
+		writeSegment(buffer, 1000);
+
+		List<JournalRecord> records = readAll(0, Long.MAX_VALUE);
+		assertEquals(2, records.size());
+		assertRecord(records.get(0), 1002, "Temperature", false, new DecimalType("19.5"));
+		assertRecord(records.get(1), 1004, "Temperature", false, new DecimalType("20.5"));
+	}
+
+	@Test
+	public void testTruncatedSegment() throws IOException {
+		directory.mkdirs();
+		ByteBuffer buffer = ByteBuffer.allocate(1024);
+		buffer.putInt(JournalWriter.MAGIC);
+		buffer.putLong(1000);
+		putItem(buffer, 0, "Temperature");
+		putType(buffer, (short) 0, false, DecimalType.class.getName());
+		putValue(buffer, 1000, 0, (short) 0, "19.5");
+		buffer.put(JournalWriter.KIND_UPDATE).putLong(1001).putInt(0);
+		writeSegment(buffer, 1000);
+
+		List<JournalRecord> records = readAll(0, Long.MAX_VALUE);
+		assertEquals(1, records.size());
+		assertRecord(records.get(0), 1000, "Temperature", false, new DecimalType("19.5"));
+	}
+
+	private List<JournalRecord> readAll(long from, long to) throws IOException {
+		JournalReader reader = new JournalReader(directory, from, to);
+		List<JournalRecord> records = new ArrayList<JournalRecord>();
+		JournalRecord record;
+		while ((record = reader.next()) != null) {
+			records.add(record);
+		}
+		assertNull(reader.next());
+		return records;
+	}
+
+	private static void assertRecord(JournalRecord record, long timestamp, String itemName, boolean command,
+			Object value) {
+		assertEquals(timestamp, record.getTimestamp());
+		assertEquals(itemName, record.getItemName());
+		assertEquals(command, record.isCommand());
+		assertEquals(value, record.getValue());
+	}
+
+	private static void putItem(ByteBuffer buffer, int id, String name) {
+		byte[] bytes = name.getBytes(JournalWriter.UTF8);
+		buffer.put(JournalWriter.KIND_ITEM).putInt(id).putShort((short) bytes.length).put(bytes);
+	}
+
+	private static void putType(ByteBuffer buffer, short id, boolean isEnum, String className) {
+		byte[] bytes = className.getBytes(JournalWriter.UTF8);
+		buffer.put(JournalWriter.KIND_TYPE).putShort(id).put((byte) (isEnum ? 1 : 0)).putShort((short) bytes.length)
+				.put(bytes);
+	}
+
+	private static void putValue(ByteBuffer buffer, long timestamp, int itemId, short typeId, String value) {
+		byte[] bytes = value.getBytes(JournalWriter.UTF8);
+		buffer.put(JournalWriter.KIND_UPDATE).putLong(timestamp).putInt(itemId).putShort(typeId).putInt(bytes.length)
+				.put(bytes);
+	}
+
+	private void writeSegment(ByteBuffer buffer, long timestamp) throws IOException {
+		RandomAccessFile file = new RandomAccessFile(new File(directory, JournalWriter.getSegmentName(timestamp)), "rw");
+		try {
+			file.write(buffer.array(), 0, buffer.position());
+		} finally {
+			file.close();
+		}
+	}
+
+}
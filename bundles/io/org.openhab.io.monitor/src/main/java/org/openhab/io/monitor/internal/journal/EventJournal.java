@@ -0,0 +1,311 @@
+/**
+ * Copyright (c) 2010-2014, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.io.monitor.internal.journal;
+
+import java.io.File;
+import java.io.IOException;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Dictionary;
+
+import org.eclipse.osgi.framework.console.CommandInterpreter;
+import org.eclipse.osgi.framework.console.CommandProvider;
+import org.openhab.core.events.AbstractEventSubscriber;
+import org.openhab.core.events.EventPublisher;
+import org.openhab.core.types.Command;
+import org.openhab.core.types.State;
+import org.osgi.service.cm.ConfigurationException;
+import org.osgi.service.cm.ManagedService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The EventJournal records all commands and state updates of the event bus in
+ * a binary, append-only journal (see {@link JournalWriter}).
+ * <p>
+ * The publishing thread only puts the event into a lock-free
+ * {@link EventRingBuffer}; encoding and writing is done by a separate writer
+ * thread. If the writer cannot keep up and the buffer is full, events are
+ * dropped rather than delaying the event bus.
+ * <p>
+ * The journal can be fed back into the event bus for load testing and
+ * debugging by the console command <code>journal replay</code>.
+ * 
+ * @author Kai Kreuzer
+ * @since 1.5.0
+ */
+public class EventJournal extends AbstractEventSubscriber implements ManagedService, CommandProvider {
+
+	private static final Logger logger = LoggerFactory.getLogger(EventJournal.class);
+
+	private static final String DEFAULT_DIRECTORY = "etc/journal";
+
+	private static final int DEFAULT_SEGMENT_SIZE = 16; // MB
+
+	private static final int DEFAULT_ROTATION = 60; // minutes
+
+	private static final int DEFAULT_MAX_SEGMENTS = 168;
+
+	private static final int DEFAULT_BUFFER_SIZE = 8192;
+
+	/** the interval in milliseconds in which written records are forced to the disk */
+	private static final long FLUSH_INTERVAL = 1000;
+
+	private static final String DATE_PATTERN = "yyyy-MM-dd'T'HH:mm:ss";
+
+	private EventPublisher eventPublisher;
+
+	private File directory = new File(DEFAULT_DIRECTORY);
+
+	private volatile EventRingBuffer<JournalRecord> ringBuffer = null;
+
+	private JournalWriterThread writerThread = null;
+
+	private JournalReplayer replayer = null;
+
+	public void setEventPublisher(EventPublisher eventPublisher) {
+		this.eventPublisher = eventPublisher;
+	}
+
+	public void unsetEventPublisher(EventPublisher eventPublisher) {
+		this.eventPublisher = null;
+	}
+
+	public void deactivate() {
+		stopWriter();
+		stopReplay();
+	}
+
+	public void receiveCommand(String itemName, Command command) {
+		EventRingBuffer<JournalRecord> buffer = ringBuffer;
+		if (buffer != null) {
+			buffer.offer(new JournalRecord(System.currentTimeMillis(), itemName, true, command));
+		}
+	}
+
+	public void receiveUpdate(String itemName, State newState) {
+		EventRingBuffer<JournalRecord> buffer = ringBuffer;
+		if (buffer != null) {
+			buffer.offer(new JournalRecord(System.currentTimeMillis(), itemName, false, newState));
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public synchronized void updated(Dictionary<String, ?> config) throws ConfigurationException {
+		stopWriter();
+		if (config == null) {
+			return;
+		}
+		String directoryString = (String) config.get("dir");
+		directory = new File(isBlank(directoryString) ? DEFAULT_DIRECTORY : directoryString);
+		int segmentSize = parseInt(config, "segmentSize", DEFAULT_SEGMENT_SIZE);
+		int rotation = parseInt(config, "rotation", DEFAULT_ROTATION);
+		int maxSegments = parseInt(config, "maxSegments", DEFAULT_MAX_SEGMENTS);
+		int bufferSize = parseInt(config, "bufferSize", DEFAULT_BUFFER_SIZE);
+		if (segmentSize <= 0 || segmentSize > 1024) {
+			throw new ConfigurationException("journal:segmentSize", "segmentSize must be between 1 and 1024 MB");
+		}
+
+		if ("true".equalsIgnoreCase((String) config.get("enabled"))) {
+			JournalWriter writer = new JournalWriter(directory, segmentSize * 1024 * 1024, rotation * 60000L, maxSegments);
+			ringBuffer = new EventRingBuffer<JournalRecord>(Math.max(1, bufferSize));
+			writerThread = new JournalWriterThread(writer, ringBuffer);
+			writerThread.start();
+			logger.info("Recording events in the journal {}", directory.getAbsolutePath());
+		}
+	}
+
+	private static int parseInt(Dictionary<String, ?> config, String key, int defaultValue) throws ConfigurationException {
+		String value = (String) config.get(key);
+		if (isBlank(value)) {
+			return defaultValue;
+		}
+		try {
+			return Integer.parseInt(value.trim());
+		} catch (NumberFormatException e) {
+			throw new ConfigurationException("journal:" + key, "'" + value + "' is not a valid number");
+		}
+	}
+
+	private static boolean isBlank(String value) {
+		return value == null || value.trim().length() == 0;
+	}
+
+	private synchronized void stopWriter() {
+		ringBuffer = null;
+		if (writerThread != null) {
+			writerThread.interrupt();
+			try {
+				writerThread.join(FLUSH_INTERVAL * 5);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			writerThread = null;
+		}
+	}
+
+	private synchronized void stopReplay() {
+		if (replayer != null) {
+			replayer.stop();
+			replayer = null;
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public String getHelp() {
+		StringBuffer buffer = new StringBuffer();
+		buffer.append("---Event Journal---\n");
+		buffer.append("\tjournal status                           - Show the state of the event journal\n");
+		buffer.append("\tjournal replay <speed> [<from> [<to>]]   - Post the recorded events again, <speed> 1 keeps\n");
+		buffer.append("\t                                           the original timing, 0 posts without delays;\n");
+		buffer.append("\t                                           times as " + DATE_PATTERN + "\n");
+		buffer.append("\tjournal stop                             - Stop a running replay\n");
+		return buffer.toString();
+	}
+
+	/**
+	 * Event journal command implementation.
+	 * 
+	 * @param intp the command interpreter
+	 * @return null
+	 */
+	public synchronized Object _journal(CommandInterpreter intp) {
+		String cmd = intp.nextArgument();
+		if ("status".equals(cmd)) {
+			if (writerThread != null) {
+				intp.println("Recording to " + directory.getAbsolutePath() + ": " + writerThread.getStatus());
+			} else {
+				intp.println("Not recording.");
+			}
+			if (replayer != null && replayer.isRunning()) {
+				intp.println("Replaying, " + replayer.getReplayed() + " events posted so far.");
+			}
+		} else if ("replay".equals(cmd)) {
+			replay(intp);
+		} else if ("stop".equals(cmd)) {
+			stopReplay();
+			intp.println("Replay stopped.");
+		} else {
+			intp.println(getHelp());
+		}
+		return null;
+	}
+
+	private void replay(CommandInterpreter intp) {
+		if (eventPublisher == null) {
+			intp.println("No event publisher available.");
+			return;
+		}
+		if (replayer != null && replayer.isRunning()) {
+			intp.println("A replay is running already.");
+			return;
+		}
+		double speed;
+		long from = 0;
+		long to = System.currentTimeMillis();
+		try {
+			String speedString = intp.nextArgument();
+			speed = speedString != null ? Double.parseDouble(speedString) : 1;
+			SimpleDateFormat format = new SimpleDateFormat(DATE_PATTERN);
+			String fromString = intp.nextArgument();
+			if (fromString != null) {
+				from = format.parse(fromString).getTime();
+				String toString = intp.nextArgument();
+				if (toString != null) {
+					// the replayed events are recorded again, so never go beyond now
+					to = Math.min(to, format.parse(toString).getTime());
+				}
+			}
+		} catch (NumberFormatException e) {
+			intp.println("Invalid speed: " + e.getMessage());
+			return;
+		} catch (ParseException e) {
+			intp.println("Invalid time: " + e.getMessage());
+			return;
+		}
+		if (speed < 0) {
+			intp.println("The speed must not be negative.");
+			return;
+		}
+
+		replayer = new JournalReplayer(new JournalReader(directory, from, to), eventPublisher, speed);
+		Thread thread = new Thread(replayer, "Event journal replay");
+		thread.setDaemon(true);
+		thread.start();
+		intp.println("Replaying the event journal " + directory.getAbsolutePath() + " at speed " + speed + ".");
+	}
+
+	/**
+	 * Drains the ring buffer into the journal writer until it is interrupted.
+	 */
+	private static class JournalWriterThread extends Thread {
+
+		private final JournalWriter writer;
+
+		private final EventRingBuffer<JournalRecord> buffer;
+
+		public JournalWriterThread(JournalWriter writer, EventRingBuffer<JournalRecord> buffer) {
+			super("Event journal writer");
+			this.writer = writer;
+			this.buffer = buffer;
+			setDaemon(true);
+		}
+
+		@Override
+		public void run() {
+			long lastFlush = System.currentTimeMillis();
+			boolean dirty = false;
+			try {
+				while (!isInterrupted()) {
+					JournalRecord record = buffer.poll(FLUSH_INTERVAL);
+					if (record != null) {
+						write(record);
+						dirty = true;
+					}
+					if (dirty && System.currentTimeMillis() - lastFlush >= FLUSH_INTERVAL) {
+						writer.flush();
+						lastFlush = System.currentTimeMillis();
+						dirty = false;
+					}
+				}
+				// write what has been published before the journal was stopped
+				JournalRecord record;
+				while ((record = buffer.poll()) != null) {
+					write(record);
+				}
+			} finally {
+				try {
+					writer.close();
+				} catch (IOException e) {
+					logger.warn("Cannot close the event journal: {}", e.getMessage());
+				}
+			}
+		}
+
+		private void write(JournalRecord record) {
+			try {
+				if (!writer.write(record)) {
+					logger.debug("Event of item {} is too large for the event journal", record.getItemName());
+				}
+			} catch (IOException e) {
+				logger.error("Cannot write to the event journal: {}", e.getMessage());
+			}
+		}
+
+		public String getStatus() {
+			return writer.getRecordCount() + " events in " + writer.getSegmentCount() + " segments written, "
+					+ buffer.size() + " buffered, " + buffer.getDropped() + " dropped";
+		}
+	}
+
+}
@@ -0,0 +1,143 @@
+/**
+ * Copyright (c) 2010-2014, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.io.monitor.internal.journal;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A bounded, lock-free ring buffer for many producers and a single consumer.
+ * <p>
+ * Producers claim a slot by incrementing the head sequence and never block:
+ * if the buffer is full, the element is dropped and counted, so that the
+ * publishing thread of an event is never held up by the journal. The consumer
+ * is parked while the buffer is empty and only woken up by the producers if
+ * it is actually waiting.
+ * 
+ * @author Kai Kreuzer
+ * @since 1.5.0
+ */
+public class EventRingBuffer<E> {
+
+	private final AtomicReferenceArray<E> slots;
+
+	private final int mask;
+
+	/** the sequence of the next slot to be claimed by a producer */
+	private final AtomicLong head = new AtomicLong();
+
+	/** the sequence of the next slot to be read by the consumer */
+	private volatile long tail = 0;
+
+	private final AtomicLong dropped = new AtomicLong();
+
+	private volatile Thread waitingThread = null;
+
+	/**
+	 * @param capacity the minimum number of elements the buffer can hold, it is
+	 *            rounded up to the next power of two
+	 */
+	public EventRingBuffer(int capacity) {
+		int size = 1;
+		while (size < capacity) {
+			size <<= 1;
+		}
+		slots = new AtomicReferenceArray<E>(size);
+		mask = size - 1;
+	}
+
+	/**
+	 * Adds an element to the buffer, if it isn't full.
+	 * 
+	 * @param element the element to add
+	 * @return <code>false</code> if the element has been dropped
+	 */
+	public boolean offer(E element) {
+		while (true) {
+			long sequence = head.get();
+			if (sequence - tail > mask) {
+				dropped.incrementAndGet();
+				return false;
+			}
+			if (head.compareAndSet(sequence, sequence + 1)) {
+				slots.set((int) sequence & mask, element);
+				Thread waiting = waitingThread;
+				if (waiting != null) {
+					LockSupport.unpark(waiting);
+				}
+				return true;
+			}
+		}
+	}
+
+	/**
+	 * Removes the next element. Must only be called by the consumer thread.
+	 * 
+	 * @return the next element or <code>null</code> if there is none
+	 */
+	public E poll() {
+		long sequence = tail;
+		int index = (int) sequence & mask;
+		E element = slots.get(index);
+		if (element == null) {
+			// empty, or the producer hasn't published its claimed slot yet
+			return null;
+		}
+		slots.set(index, null);
+		tail = sequence + 1;
+		return element;
+	}
+
+	/**
+	 * Removes the next element and waits for it if the buffer is empty. Must
+	 * only be called by the consumer thread.
+	 * 
+	 * @param timeout the maximum time to wait in milliseconds
+	 * @return the next element or <code>null</code> if there was none within
+	 *         the timeout or the thread has been interrupted
+	 */
+	public E poll(long timeout) {
+		E element = poll();
+		if (element != null || timeout <= 0) {
+			return element;
+		}
+		long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+		waitingThread = Thread.currentThread();
+		try {
+			while ((element = poll()) == null && !Thread.currentThread().isInterrupted()) {
+				long wait = deadline - System.nanoTime();
+				if (wait <= 0) {
+					break;
+				}
+				LockSupport.parkNanos(this, wait);
+			}
+			return element;
+		} finally {
+			waitingThread = null;
+		}
+	}
+
+	/**
+	 * @return the number of elements in the buffer
+	 */
+	public int size() {
+		return (int) Math.max(0, head.get() - tail);
+	}
+
+	/**
+	 * @return the number of elements which have been dropped, because the
+	 *         buffer was full
+	 */
+	public long getDropped() {
+		return dropped.get();
+	}
+
+}
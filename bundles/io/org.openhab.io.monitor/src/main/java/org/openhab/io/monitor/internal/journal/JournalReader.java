@@ -0,0 +1,249 @@
+/**
+ * Copyright (c) 2010-2014, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.io.monitor.internal.journal;
+
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Method;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.openhab.core.types.Type;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Reads the {@link JournalRecord}s of a time range from the segment files
+ * written by a {@link JournalWriter}, in the order they have been written.
+ * Records whose type cannot be loaded or parsed are skipped.
+ * 
+ * @author Kai Kreuzer
+ * @since 1.5.0
+ */
+public class JournalReader {
+
+	private static final Logger logger = LoggerFactory.getLogger(JournalReader.class);
+
+	private final List<File> segments;
+
+	private final long from;
+
+	private final long to;
+
+	private int segmentIndex = 0;
+
+	private ByteBuffer buffer = null;
+
+	/** item id - item name of the current segment */
+	private final Map<Integer, String> itemNames = new HashMap<Integer, String>();
+
+	/** type id - type of the current segment, null if it cannot be loaded */
+	private final Map<Short, Class<?>> types = new HashMap<Short, Class<?>>();
+
+	/** ids of the enum types of the current segment, whose values are written as ordinals */
+	private final Set<Short> enumTypes = new HashSet<Short>();
+
+	private final Map<Class<?>, Method> valueOfMethods = new HashMap<Class<?>, Method>();
+
+	/**
+	 * @param directory the directory of the segment files
+	 * @param from the time in milliseconds of the first record to read
+	 * @param to the time in milliseconds up to which (exclusive) records are
+	 *            read
+	 */
+	public JournalReader(File directory, long from, long to) {
+		this.from = from;
+		this.to = to;
+		List<File> segments = getSegments(directory);
+		// skip all segments which have been followed by another one before from
+		int first = 0;
+		while (first < segments.size() - 1 && getSegmentTime(segments.get(first + 1)) <= from) {
+			first++;
+		}
+		this.segments = segments.subList(first, segments.size());
+	}
+
+	/**
+	 * Returns the segment files of a journal directory.
+	 * 
+	 * @param directory the directory of the segment files
+	 * @return the segment files, oldest first
+	 */
+	static List<File> getSegments(File directory) {
+		File[] files = directory.listFiles(new FilenameFilter() {
+			public boolean accept(File dir, String name) {
+				return name.startsWith(JournalWriter.SEGMENT_PREFIX) && name.endsWith(JournalWriter.SEGMENT_SUFFIX);
+			}
+		});
+		if (files == null) {
+			return Collections.emptyList();
+		}
+		// the names contain the zero-padded creation time
+		Arrays.sort(files);
+		return new ArrayList<File>(Arrays.asList(files));
+	}
+
+	private static long getSegmentTime(File segment) {
+		String name = segment.getName();
+		try {
+			return Long.parseLong(name.substring(JournalWriter.SEGMENT_PREFIX.length(),
+					name.length() - JournalWriter.SEGMENT_SUFFIX.length()));
+		} catch (NumberFormatException e) {
+			return Long.MIN_VALUE;
+		}
+	}
+
+	/**
+	 * Reads the next record.
+	 * 
+	 * @return the next record or <code>null</code> if there are no more
+	 *         records within the time range
+	 * @throws IOException if a segment cannot be read
+	 */
+	public JournalRecord next() throws IOException {
+		while (true) {
+			if (buffer == null && !openNextSegment()) {
+				return null;
+			}
+			JournalRecord record = readRecord();
+			if (record == null) {
+				buffer = null;
+			} else if (record.getTimestamp() >= to) {
+				segmentIndex = segments.size();
+				buffer = null;
+				return null;
+			} else if (record.getTimestamp() >= from && record.getValue() != null) {
+				return record;
+			}
+		}
+	}
+
+	private boolean openNextSegment() throws IOException {
+		while (segmentIndex < segments.size()) {
+			File segment = segments.get(segmentIndex++);
+			itemNames.clear();
+			types.clear();
+			enumTypes.clear();
+			RandomAccessFile file = new RandomAccessFile(segment, "r");
+			try {
+				buffer = file.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, file.length());
+			} finally {
+				file.close();
+			}
+			if (buffer.remaining() >= JournalWriter.HEADER_SIZE && buffer.getInt() == JournalWriter.MAGIC) {
+				buffer.getLong();
+				return true;
+			}
+			logger.warn("Skipping invalid event journal segment {}", segment.getAbsolutePath());
+			buffer = null;
+		}
+		return false;
+	}
+
+	/**
+	 * @return the next record of the current segment, which has a
+	 *         <code>null</code> value if it cannot be decoded, or
+	 *         <code>null</code> at the end of the segment
+	 */
+	private JournalRecord readRecord() {
+		try {
+			while (buffer.hasRemaining()) {
+				byte kind = buffer.get();
+				switch (kind) {
+				case JournalWriter.KIND_ITEM:
+					int itemId = buffer.getInt();
+					itemNames.put(itemId, readString(buffer.getShort()));
+					break;
+				case JournalWriter.KIND_TYPE:
+					short typeId = buffer.getShort();
+					if (buffer.get() != 0) {
+						enumTypes.add(typeId);
+					}
+					types.put(typeId, loadType(readString(buffer.getShort())));
+					break;
+				case JournalWriter.KIND_COMMAND:
+				case JournalWriter.KIND_UPDATE:
+					long timestamp = buffer.getLong();
+					String itemName = itemNames.get(buffer.getInt());
+					short valueTypeId = buffer.getShort();
+					Class<?> type = types.get(valueTypeId);
+					Type value = null;
+					// the value is skipped by the format it has been written in, even if the type is unknown
+					if (enumTypes.contains(valueTypeId)) {
+						int ordinal = buffer.get();
+						if (type != null && type.isEnum() && ordinal >= 0 && ordinal < type.getEnumConstants().length) {
+							value = (Type) type.getEnumConstants()[ordinal];
+						}
+					} else {
+						String string = readString(buffer.getInt());
+						if (type != null && !type.isEnum()) {
+							value = parse(type, string);
+						}
+					}
+					return new JournalRecord(timestamp, itemName, kind == JournalWriter.KIND_COMMAND, value);
+				default:
+					return null;
+				}
+			}
+		} catch (BufferUnderflowException e) {
+			logger.warn("Event journal segment {} is truncated", segments.get(segmentIndex - 1).getName());
+		} catch (ArrayIndexOutOfBoundsException e) {
+			logger.warn("Event journal segment {} is corrupt", segments.get(segmentIndex - 1).getName());
+		}
+		return null;
+	}
+
+	private String readString(int length) {
+		if (length < 0 || length > buffer.remaining()) {
+			throw new BufferUnderflowException();
+		}
+		ByteBuffer bytes = buffer.slice();
+		bytes.limit(length);
+		buffer.position(buffer.position() + length);
+		return JournalWriter.UTF8.decode(bytes).toString();
+	}
+
+	private Class<?> loadType(String className) {
+		try {
+			Class<?> type = Class.forName(className);
+			if (Type.class.isAssignableFrom(type)) {
+				return type;
+			}
+		} catch (ClassNotFoundException e) {
+			logger.debug("Cannot load type {} of the event journal", className);
+		}
+		return null;
+	}
+
+	private Type parse(Class<?> type, String value) {
+		try {
+			Method valueOf = valueOfMethods.get(type);
+			if (valueOf == null) {
+				valueOf = type.getMethod("valueOf", String.class);
+				valueOfMethods.put(type, valueOf);
+			}
+			return (Type) valueOf.invoke(type, value);
+		} catch (Exception e) {
+			logger.debug("Cannot parse '{}' as {}", value, type.getSimpleName());
+			return null;
+		}
+	}
+
+}
@@ -0,0 +1,67 @@
+/**
+ * Copyright (c) 2010-2014, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.io.monitor.internal.journal;
+
+import org.openhab.core.types.Type;
+
+/**
+ * A command or state update which has been recorded in the event journal.
+ * 
+ * @author Kai Kreuzer
+ * @since 1.5.0
+ */
+public class JournalRecord {
+
+	private final long timestamp;
+
+	private final String itemName;
+
+	private final boolean command;
+
+	private final Type value;
+
+	public JournalRecord(long timestamp, String itemName, boolean command, Type value) {
+		this.timestamp = timestamp;
+		this.itemName = itemName;
+		this.command = command;
+		this.value = value;
+	}
+
+	/**
+	 * @return the time in milliseconds at which the event has been published
+	 */
+	public long getTimestamp() {
+		return timestamp;
+	}
+
+	public String getItemName() {
+		return itemName;
+	}
+
+	/**
+	 * @return <code>true</code> if the event is a command, <code>false</code>
+	 *         if it is a state update
+	 */
+	public boolean isCommand() {
+		return command;
+	}
+
+	/**
+	 * @return the command or the new state
+	 */
+	public Type getValue() {
+		return value;
+	}
+
+	@Override
+	public String toString() {
+		return timestamp + " " + itemName + (command ? " received command " : " state updated to ") + value;
+	}
+
+}
@@ -0,0 +1,111 @@
+/**
+ * Copyright (c) 2010-2014, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.io.monitor.internal.journal;
+
+import java.io.IOException;
+
+import org.openhab.core.events.EventPublisher;
+import org.openhab.core.types.Command;
+import org.openhab.core.types.State;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Feeds the records of a {@link JournalReader} back into the event bus,
+ * keeping the recorded time between the events divided by a speed factor.
+ * 
+ * @author Kai Kreuzer
+ * @since 1.5.0
+ */
+public class JournalReplayer implements Runnable {
+
+	private static final Logger logger = LoggerFactory.getLogger(JournalReplayer.class);
+
+	private final JournalReader reader;
+
+	private final EventPublisher eventPublisher;
+
+	private final double speed;
+
+	private volatile boolean running = true;
+
+	private volatile long replayed = 0;
+
+	/**
+	 * @param reader the reader of the records to replay
+	 * @param eventPublisher the publisher to post the commands and updates to
+	 * @param speed the factor by which the replay is faster than the original
+	 *            traffic, 1 for the original speed, 0 for no delays at all
+	 */
+	public JournalReplayer(JournalReader reader, EventPublisher eventPublisher, double speed) {
+		if (speed < 0) {
+			throw new IllegalArgumentException("speed must not be negative");
+		}
+		this.reader = reader;
+		this.eventPublisher = eventPublisher;
+		this.speed = speed;
+	}
+
+	public void run() {
+		long firstTimestamp = 0;
+		long start = System.currentTimeMillis();
+		try {
+			JournalRecord record;
+			while (running && (record = reader.next()) != null) {
+				if (replayed == 0) {
+					firstTimestamp = record.getTimestamp();
+				}
+				if (speed > 0) {
+					long due = start + (long) ((record.getTimestamp() - firstTimestamp) / speed);
+					long wait = due - System.currentTimeMillis();
+					if (wait > 0) {
+						Thread.sleep(wait);
+					}
+				}
+				if (record.isCommand()) {
+					if (record.getValue() instanceof Command) {
+						eventPublisher.postCommand(record.getItemName(), (Command) record.getValue());
+					}
+				} else if (record.getValue() instanceof State) {
+					eventPublisher.postUpdate(record.getItemName(), (State) record.getValue());
+				}
+				replayed++;
+			}
+			logger.info("Replayed {} events of the event journal in {}ms", replayed, System.currentTimeMillis() - start);
+		} catch (InterruptedException e) {
+			logger.info("Replay of the event journal has been interrupted after {} events", replayed);
+		} catch (IOException e) {
+			logger.error("Cannot read the event journal: {}", e.getMessage());
+		} finally {
+			running = false;
+		}
+	}
+
+	/**
+	 * Stops the replay after the current event.
+	 */
+	public void stop() {
+		running = false;
+	}
+
+	/**
+	 * @return <code>true</code> until the replay has finished or been stopped
+	 */
+	public boolean isRunning() {
+		return running;
+	}
+
+	/**
+	 * @return the number of events which have been posted so far
+	 */
+	public long getReplayed() {
+		return replayed;
+	}
+
+}
@@ -0,0 +1,307 @@
+/**
+ * Copyright (c) 2010-2014, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.io.monitor.internal.journal;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.openhab.core.types.Type;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Appends {@link JournalRecord}s to memory-mapped segment files of a fixed
+ * size. A new segment is started when the current one is full or older than
+ * the rotation interval, and the oldest segments are deleted if there are more
+ * than the configured maximum.
+ * <p>
+ * A segment starts with a header (magic number, creation time) followed by
+ * records, each introduced by a kind byte:
+ * <ul>
+ * <li>{@link #KIND_ITEM}: item id (int), item name</li>
+ * <li>{@link #KIND_TYPE}: type id (short), enum flag (byte), class name</li>
+ * <li>{@link #KIND_COMMAND}, {@link #KIND_UPDATE}: timestamp (long), item id
+ * (int), type id (short), value</li>
+ * </ul>
+ * Strings are written as UTF-8 bytes preceded by their length. Enum values
+ * are written as their ordinal (byte), all other values as the string
+ * representation, which is parsed by the static <code>valueOf(String)</code>
+ * method of the type. Item and type ids are only valid within a segment, so
+ * every segment can be read (and deleted) on its own. An unused remainder of a
+ * segment is zero filled, i.e. it reads as {@link #KIND_END}.
+ * <p>
+ * A JournalWriter is not thread-safe and must only be used by a single thread.
+ * 
+ * @author Kai Kreuzer
+ * @since 1.5.0
+ */
+public class JournalWriter {
+
+	private static final Logger logger = LoggerFactory.getLogger(JournalWriter.class);
+
+	static final int MAGIC = 0x4F484A31; // "OHJ1"
+
+	static final int HEADER_SIZE = 4 + 8;
+
+	static final byte KIND_END = 0;
+	static final byte KIND_ITEM = 1;
+	static final byte KIND_TYPE = 2;
+	static final byte KIND_COMMAND = 3;
+	static final byte KIND_UPDATE = 4;
+
+	static final String SEGMENT_PREFIX = "events-";
+	static final String SEGMENT_SUFFIX = ".journal";
+
+	static final Charset UTF8 = Charset.forName("UTF-8");
+
+	private final File directory;
+
+	private final int segmentSize;
+
+	private final long rotationInterval;
+
+	private final int maxSegments;
+
+	private MappedByteBuffer buffer = null;
+
+	private RandomAccessFile file = null;
+
+	private long segmentCreated;
+
+	/** item name - id in the current segment */
+	private final Map<String, Integer> itemIds = new HashMap<String, Integer>();
+
+	/** type class - id in the current segment */
+	private final Map<Class<?>, Short> typeIds = new HashMap<Class<?>, Short>();
+
+	/** item name or type class - position of its definition in the current segment */
+	private final Map<Object, Integer> dictionaryPositions = new HashMap<Object, Integer>();
+
+	private volatile long recordCount = 0;
+
+	private volatile long segmentCount = 0;
+
+	/**
+	 * @param directory the directory of the segment files
+	 * @param segmentSize the size of a segment in bytes
+	 * @param rotationInterval the maximum age of a segment in milliseconds, 0
+	 *            to rotate by size only
+	 * @param maxSegments the maximum number of segments to keep, 0 to keep all
+	 */
+	public JournalWriter(File directory, int segmentSize, long rotationInterval, int maxSegments) {
+		if (segmentSize <= HEADER_SIZE) {
+			throw new IllegalArgumentException("segmentSize must be greater than " + HEADER_SIZE);
+		}
+		this.directory = directory;
+		this.segmentSize = segmentSize;
+		this.rotationInterval = rotationInterval;
+		this.maxSegments = maxSegments;
+	}
+
+	/**
+	 * Appends a record to the current segment. A new segment is started if
+	 * necessary.
+	 * 
+	 * @param record the record to write
+	 * @return <code>false</code> if the record is too large for a segment
+	 * @throws IOException if the segment could not be created
+	 */
+	public boolean write(JournalRecord record) throws IOException {
+		if (buffer == null || (rotationInterval > 0 && record.getTimestamp() - segmentCreated >= rotationInterval)) {
+			rotate(record.getTimestamp());
+		}
+		if (!append(record)) {
+			if (itemIds.isEmpty()) {
+				// it doesn't fit into an empty segment either
+				return false;
+			}
+			rotate(record.getTimestamp());
+			if (!append(record)) {
+				return false;
+			}
+		}
+		recordCount++;
+		return true;
+	}
+
+	private boolean append(JournalRecord record) {
+		int start = buffer.position();
+		try {
+			Type value = record.getValue();
+			int itemId = getItemId(record.getItemName());
+			short typeId = getTypeId(value.getClass());
+			int position = buffer.position();
+			// the kind is written last, so a reader never sees an incomplete record
+			buffer.position(position + 1);
+			buffer.putLong(record.getTimestamp());
+			buffer.putInt(itemId);
+			buffer.putShort(typeId);
+			if (value instanceof Enum<?>) {
+				buffer.put((byte) ((Enum<?>) value).ordinal());
+			} else {
+				ByteBuffer bytes = UTF8.encode(value.toString());
+				buffer.putInt(bytes.remaining());
+				buffer.put(bytes);
+			}
+			buffer.put(position, record.isCommand() ? KIND_COMMAND : KIND_UPDATE);
+			return true;
+		} catch (BufferOverflowException e) {
+			// roll back the partially written record and its dictionary entries
+			for (int i = start; i < buffer.position(); i++) {
+				buffer.put(i, KIND_END);
+			}
+			buffer.position(start);
+			resetDictionaries(start);
+			return false;
+		}
+	}
+
+	private void resetDictionaries(int position) {
+		for (Iterator<Map.Entry<Object, Integer>> it = dictionaryPositions.entrySet().iterator(); it.hasNext();) {
+			Map.Entry<Object, Integer> entry = it.next();
+			if (entry.getValue() >= position) {
+				itemIds.remove(entry.getKey());
+				typeIds.remove(entry.getKey());
+				it.remove();
+			}
+		}
+	}
+
+	private int getItemId(String itemName) {
+		Integer id = itemIds.get(itemName);
+		if (id == null) {
+			id = itemIds.size();
+			int position = buffer.position();
+			ByteBuffer name = UTF8.encode(itemName);
+			buffer.position(position + 1);
+			buffer.putInt(id);
+			buffer.putShort((short) name.remaining());
+			buffer.put(name);
+			buffer.put(position, KIND_ITEM);
+			itemIds.put(itemName, id);
+			dictionaryPositions.put(itemName, position);
+		}
+		return id;
+	}
+
+	private short getTypeId(Class<?> type) {
+		Short id = typeIds.get(type);
+		if (id == null) {
+			id = (short) typeIds.size();
+			int position = buffer.position();
+			ByteBuffer name = UTF8.encode(type.getName());
+			buffer.position(position + 1);
+			buffer.putShort(id);
+			buffer.put((byte) (type.isEnum() ? 1 : 0));
+			buffer.putShort((short) name.remaining());
+			buffer.put(name);
+			buffer.put(position, KIND_TYPE);
+			typeIds.put(type, id);
+			dictionaryPositions.put(type, position);
+		}
+		return id;
+	}
+
+	private void rotate(long timestamp) throws IOException {
+		closeSegment();
+		if (!directory.exists() && !directory.mkdirs()) {
+			throw new IOException("Cannot create journal directory " + directory.getAbsolutePath());
+		}
+		File segment = new File(directory, getSegmentName(timestamp));
+		for (long suffix = timestamp + 1; segment.exists(); suffix++) {
+			segment = new File(directory, getSegmentName(suffix));
+		}
+		file = new RandomAccessFile(segment, "rw");
+		buffer = file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+		buffer.putInt(MAGIC);
+		buffer.putLong(timestamp);
+		segmentCreated = timestamp;
+		segmentCount++;
+		logger.debug("Started event journal segment {}", segment.getName());
+		deleteOldSegments();
+	}
+
+	private void deleteOldSegments() {
+		if (maxSegments <= 0) {
+			return;
+		}
+		List<File> segments = JournalReader.getSegments(directory);
+		for (int i = 0; i < segments.size() - maxSegments; i++) {
+			File segment = segments.get(i);
+			if (segment.delete()) {
+				logger.debug("Deleted event journal segment {}", segment.getName());
+			} else {
+				logger.warn("Cannot delete event journal segment {}", segment.getAbsolutePath());
+			}
+		}
+	}
+
+	static String getSegmentName(long timestamp) {
+		return SEGMENT_PREFIX + String.format("%013d", timestamp) + SEGMENT_SUFFIX;
+	}
+
+	/**
+	 * Writes the records of the current segment to the disk.
+	 */
+	public void flush() {
+		if (buffer != null) {
+			buffer.force();
+		}
+	}
+
+	private void closeSegment() throws IOException {
+		if (buffer != null) {
+			buffer.force();
+			buffer = null;
+		}
+		if (file != null) {
+			file.close();
+			file = null;
+		}
+		itemIds.clear();
+		typeIds.clear();
+		dictionaryPositions.clear();
+	}
+
+	/**
+	 * Writes and closes the current segment.
+	 */
+	public void close() throws IOException {
+		closeSegment();
+	}
+
+	/**
+	 * @return the number of records which have been written
+	 */
+	public long getRecordCount() {
+		return recordCount;
+	}
+
+	/**
+	 * @return the number of segments which have been started
+	 */
+	public long getSegmentCount() {
+		return segmentCount;
+	}
+
+	public File getDirectory() {
+		return directory;
+	}
+
+}
@@ -8,6 +8,10 @@
  */
 package org.openhab.io.net.http;
 
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+
 import junit.framework.Assert;
 
 import org.apache.commons.httpclient.UsernamePasswordCredentials;
@@ -48,4 +52,19 @@ public class HttpUtilTest {
 		Assert.assertEquals(DeleteMethod.class, HttpUtil.createHttpMethod("DELETE", "").getClass());
 	}
 
+	@Test
+	public void testHostStatistics() throws IOException {
+		// the port is free again once the socket is closed, so the request fails immediately
+		ServerSocket socket = new ServerSocket(0, 1, InetAddress.getByName("127.0.0.1"));
+		int port = socket.getLocalPort();
+		socket.close();
+
+		Assert.assertNull(HttpUtil.executeUrl("GET", "http://127.0.0.1:" + port + "/test", 1000));
+		
+		HttpHostStatistics statistics = HttpUtil.getHostStatistics().get("127.0.0.1:" + port);
+		Assert.assertNotNull(statistics);
+		Assert.assertEquals(1, statistics.getRequests());
+		Assert.assertEquals(1, statistics.getFailures());
+	}
+
 }
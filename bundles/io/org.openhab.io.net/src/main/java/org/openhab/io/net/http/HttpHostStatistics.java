@@ -0,0 +1,100 @@
+/**
+ * Copyright (c) 2010-2014, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.io.net.http;
+
+/**
+ * Request statistics of a single host, which are collected by {@link HttpUtil}.
+ *
+ * @author Kai Kreuzer
+ * @since 1.5.0
+ */
+public class HttpHostStatistics {
+
+	private final String host;
+
+	private long requests = 0;
+
+	private long failures = 0;
+
+	private long totalTime = 0;
+
+	private long maxTime = 0;
+
+	private long lastTime = 0;
+
+	HttpHostStatistics(String host) {
+		this.host = host;
+	}
+
+	synchronized void record(long duration, boolean success) {
+		requests++;
+		if (!success) {
+			failures++;
+		}
+		totalTime += duration;
+		maxTime = Math.max(maxTime, duration);
+		lastTime = duration;
+	}
+
+	synchronized HttpHostStatistics copy() {
+		HttpHostStatistics copy = new HttpHostStatistics(host);
+		copy.requests = requests;
+		copy.failures = failures;
+		copy.totalTime = totalTime;
+		copy.maxTime = maxTime;
+		copy.lastTime = lastTime;
+		return copy;
+	}
+
+	public String getHost() {
+		return host;
+	}
+
+	/**
+	 * @return the number of requests to the host
+	 */
+	public synchronized long getRequests() {
+		return requests;
+	}
+
+	/**
+	 * @return the number of requests which did not return a response
+	 */
+	public synchronized long getFailures() {
+		return failures;
+	}
+
+	/**
+	 * @return the average duration of a request in milliseconds
+	 */
+	public synchronized long getAverageTime() {
+		return requests > 0 ? totalTime / requests : 0;
+	}
+
+	/**
+	 * @return the longest duration of a request in milliseconds
+	 */
+	public synchronized long getMaxTime() {
+		return maxTime;
+	}
+
+	/**
+	 * @return the duration of the last request in milliseconds
+	 */
+	public synchronized long getLastTime() {
+		return lastTime;
+	}
+
+	@Override
+	public synchronized String toString() {
+		return host + " [requests=" + requests + ", failures=" + failures + ", average=" + getAverageTime()
+				+ "ms, max=" + maxTime + "ms, last=" + lastTime + "ms]";
+	}
+
+}
@@ -12,6 +12,8 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Properties;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -19,10 +21,13 @@ import java.util.regex.Pattern;
 import org.apache.commons.httpclient.Credentials;
 import org.apache.commons.httpclient.DefaultHttpMethodRetryHandler;
 import org.apache.commons.httpclient.Header;
+import org.apache.commons.httpclient.HostConfiguration;
 import org.apache.commons.httpclient.HttpClient;
 import org.apache.commons.httpclient.HttpException;
 import org.apache.commons.httpclient.HttpMethod;
+import org.apache.commons.httpclient.HttpState;
 import org.apache.commons.httpclient.HttpStatus;
+import org.apache.commons.httpclient.MultiThreadedHttpConnectionManager;
 import org.apache.commons.httpclient.URIException;
 import org.apache.commons.httpclient.UsernamePasswordCredentials;
 import org.apache.commons.httpclient.auth.AuthScope;
@@ -32,6 +37,7 @@ import org.apache.commons.httpclient.methods.GetMethod;
 import org.apache.commons.httpclient.methods.InputStreamRequestEntity;
 import org.apache.commons.httpclient.methods.PostMethod;
 import org.apache.commons.httpclient.methods.PutMethod;
+import org.apache.commons.httpclient.params.HttpConnectionManagerParams;
 import org.apache.commons.httpclient.params.HttpMethodParams;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang.StringUtils;
@@ -53,6 +59,79 @@ public class HttpUtil {
 	/** {@link Pattern} which matches the credentials out of an URL */ 
 	private static final Pattern URL_CREDENTIALS_PATTERN = Pattern.compile("http://(.*?):(.*?)@.*");
 	
+	/** the maximum number of open connections to a single host (defaults to 5) */
+	private static final int DEFAULT_MAX_CONNECTIONS_PER_HOST = 5;
+	
+	/** the maximum number of open connections to all hosts (defaults to 50) */
+	private static final int DEFAULT_MAX_TOTAL_CONNECTIONS = 50;
+	
+	/** the timeout in milliseconds to establish a connection (defaults to 10000) */
+	private static final int DEFAULT_CONNECTION_TIMEOUT = 10000;
+	
+	/** idle connections are closed after this number of milliseconds (defaults to 30000) */
+	private static final long IDLE_CONNECTION_TIMEOUT = 30000;
+	
+	/** the connection pool shared by all requests, connections are kept alive for subsequent requests */
+	private static final MultiThreadedHttpConnectionManager connectionManager = new MultiThreadedHttpConnectionManager();
+	
+	/** the time when idle connections have been closed the last time */
+	private static long lastIdleCheck = System.currentTimeMillis();
+	
+	/** request statistics by host */
+	private static final Map<String, HttpHostStatistics> hostStatistics = new HashMap<String, HttpHostStatistics>();
+	
+	static {
+		HttpConnectionManagerParams params = connectionManager.getParams();
+		params.setDefaultMaxConnectionsPerHost(DEFAULT_MAX_CONNECTIONS_PER_HOST);
+		params.setMaxTotalConnections(DEFAULT_MAX_TOTAL_CONNECTIONS);
+		params.setConnectionTimeout(DEFAULT_CONNECTION_TIMEOUT);
+		// pooled connections might have been closed by the server in the meantime
+		params.setStaleCheckingEnabled(true);
+	}
+	
+	/**
+	 * Sets the maximum number of connections which are kept open to a single
+	 * host. Requests to a host which has no free connection wait for one.
+	 * 
+	 * @param maxConnections the maximum number of connections per host
+	 */
+	public static void setMaxConnectionsPerHost(int maxConnections) {
+		if (maxConnections > 0) {
+			connectionManager.getParams().setDefaultMaxConnectionsPerHost(maxConnections);
+			if (connectionManager.getParams().getMaxTotalConnections() < maxConnections) {
+				connectionManager.getParams().setMaxTotalConnections(maxConnections);
+			}
+		}
+	}
+	
+	/**
+	 * Sets the maximum number of connections which are kept open to all
+	 * hosts. Requests which find no free connection wait for one.
+	 * 
+	 * @param maxConnections the maximum number of connections to all hosts
+	 */
+	public static void setMaxTotalConnections(int maxConnections) {
+		if (maxConnections > 0) {
+			connectionManager.getParams().setMaxTotalConnections(maxConnections);
+		}
+	}
+	
+	/**
+	 * Returns a snapshot of the request statistics of all hosts which have
+	 * been requested so far.
+	 * 
+	 * @return the statistics by host name
+	 */
+	public static Map<String, HttpHostStatistics> getHostStatistics() {
+		Map<String, HttpHostStatistics> result = new HashMap<String, HttpHostStatistics>();
+		synchronized (hostStatistics) {
+			for (Map.Entry<String, HttpHostStatistics> entry : hostStatistics.entrySet()) {
+				result.put(entry.getKey(), entry.getValue().copy());
+			}
+		}
+		return result;
+	}
+	
 
 	/**
 	 * Executes the given <code>url</code> with the given <code>httpMethod</code>.
@@ -132,7 +211,11 @@ public class HttpUtil {
 	}
 	
 	/**
-	 * Executes the given <code>url</code> with the given <code>httpMethod</code>
+	 * Executes the given <code>url</code> with the given <code>httpMethod</code>.
+	 * The request is executed on the shared connection pool, which keeps the
+	 * connections alive and reuses them for subsequent requests to the same
+	 * host. If all connections to the host are busy, the request waits for
+	 * one up to the given timeout.
 	 * 
 	 * @param httpMethod the HTTP method to use
 	 * @param url the url to execute (in milliseconds)
@@ -140,7 +223,7 @@ public class HttpUtil {
 	 * @param content the content to be send to the given <code>url</code> or 
 	 * <code>null</code> if no content should be send.
 	 * @param contentType the content type of the given <code>content</code>
-	 * @param timeout the socket timeout to wait for data
+	 * @param timeout the socket timeout to wait for data and for a free connection
 	 * @param proxyHost the hostname of the proxy
 	 * @param proxyPort the port of the proxy
 	 * @param proxyUser the username to authenticate with the proxy
@@ -150,13 +233,14 @@ public class HttpUtil {
 	 */
 	public static String executeUrl(String httpMethod, String url, Properties httpHeaders, InputStream content, String contentType, int timeout, String proxyHost, Integer proxyPort, String proxyUser, String proxyPassword, String nonProxyHosts) {
 		
-		HttpClient client = new HttpClient();
+		HostConfiguration hostConfiguration = new HostConfiguration();
+		HttpState state = new HttpState();
 		
 		// only configure a proxy if a host is provided
 		if (StringUtils.isNotBlank(proxyHost) && proxyPort != null && shouldUseProxy(url, nonProxyHosts)) {
-			client.getHostConfiguration().setProxy(proxyHost, proxyPort);
+			hostConfiguration.setProxy(proxyHost, proxyPort);
 			if (StringUtils.isNotBlank(proxyUser)) {
-				client.getState().setProxyCredentials(AuthScope.ANY,
+				state.setProxyCredentials(AuthScope.ANY,
 					new UsernamePasswordCredentials(proxyUser, proxyPassword));
 			}
 		}
@@ -178,8 +262,8 @@ public class HttpUtil {
 
 		Credentials credentials = extractCredentials(url);
 		if (credentials != null) {
-			client.getParams().setAuthenticationPreemptive(true); 
-			client.getState().setCredentials(AuthScope.ANY, credentials);			
+			method.getHostAuthState().setPreemptive();
+			state.setCredentials(AuthScope.ANY, credentials);
 		}
 
 		if (logger.isDebugEnabled()) {
@@ -190,18 +274,27 @@ public class HttpUtil {
 			}
 		}
 
+		closeIdleConnections();
+		long start = System.currentTimeMillis();
+		boolean success = false;
 		try {
 			
-			int statusCode = client.executeMethod(method);
+			// the client is cheap, the connections are kept by the shared connection manager
+			HttpClient client = new HttpClient(connectionManager);
+			client.getParams().setConnectionManagerTimeout(timeout);
+			int statusCode = client.executeMethod(hostConfiguration, method, state);
 			if (statusCode != HttpStatus.SC_OK) {
 				logger.warn("Method failed: " + method.getStatusLine());
 			}
 
-			String responseBody = IOUtils.toString(method.getResponseBodyAsStream());
+			// the response has to be read completely, otherwise the connection can't be reused
+			InputStream responseStream = method.getResponseBodyAsStream();
+			String responseBody = responseStream != null ? IOUtils.toString(responseStream) : "";
 			if (!responseBody.isEmpty()) {
 				logger.debug(responseBody);
 			}
 			
+			success = true;
 			return responseBody;
 		}
 		catch (HttpException he) {
@@ -212,11 +305,47 @@ public class HttpUtil {
 		}
 		finally {
 			method.releaseConnection();
+			recordRequest(getHost(url), System.currentTimeMillis() - start, success);
 		}
 		
 		return null;
 	}
 
+	/**
+	 * Closes the pooled connections which have not been used for some time,
+	 * so that no connections are kept open to hosts which are rarely requested.
+	 */
+	private static void closeIdleConnections() {
+		long now = System.currentTimeMillis();
+		synchronized (connectionManager) {
+			if (now - lastIdleCheck < IDLE_CONNECTION_TIMEOUT / 2) {
+				return;
+			}
+			lastIdleCheck = now;
+		}
+		connectionManager.closeIdleConnections(IDLE_CONNECTION_TIMEOUT);
+	}
+
+	private static void recordRequest(String host, long duration, boolean success) {
+		synchronized (hostStatistics) {
+			HttpHostStatistics statistics = hostStatistics.get(host);
+			if (statistics == null) {
+				statistics = new HttpHostStatistics(host);
+				hostStatistics.put(host, statistics);
+			}
+			statistics.record(duration, success);
+		}
+	}
+
+	private static String getHost(String urlString) {
+		try {
+			URL url = new URL(urlString);
+			return url.getPort() != -1 ? url.getHost() + ":" + url.getPort() : url.getHost();
+		} catch (MalformedURLException e) {
+			return urlString;
+		}
+	}
+
 	/**
 	 * Determines whether the list of <code>nonProxyHosts</code> contains the
 	 * host (which is part of the given <code>urlString</code> or not.
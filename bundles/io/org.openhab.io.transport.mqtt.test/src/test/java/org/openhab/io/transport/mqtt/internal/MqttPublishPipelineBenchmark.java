@@ -0,0 +1,94 @@
+/**
+ * Copyright (c) 2010-2014, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.io.transport.mqtt.internal;
+
+import org.eclipse.paho.client.mqttv3.IMqttDeliveryToken;
+import org.eclipse.paho.client.mqttv3.MqttMessage;
+import org.openhab.io.transport.mqtt.internal.MqttPublishPipeline.PublishRequest;
+
+/**
+ * Compares the number of messages per second the {@link MqttPublishPipeline}
+ * delivers to a {@link SimulatedBroker} per QoS with the synchronous path,
+ * which sends a message and waits for its delivery before sending the next
+ * one. It is not run by the test suite, but has to be started manually.
+ *
+ * @author Davy Vanherbergen
+ * @since 1.5.0
+ */
+public class MqttPublishPipelineBenchmark {
+
+	private static final int MESSAGES = 2000;
+
+	/** QoS 1 needs one round trip for the PUBACK, QoS 2 two for PUBREC and PUBCOMP */
+	private static final long ROUND_TRIP_MICROS = 500;
+
+	private static final int[] WINDOWS = { 1, 4, MqttPublishPipeline.MAX_INFLIGHT };
+
+	public static void main(String[] args) throws Exception {
+		// warm up, so that the measurement is done with compiled code
+		for (int qos = 0; qos <= 2; qos++) {
+			publishSynchronously(qos);
+			publishWithPipeline(qos, MqttPublishPipeline.MAX_INFLIGHT);
+		}
+
+		for (int qos = 0; qos <= 2; qos++) {
+			report(qos, "synchronous", publishSynchronously(qos));
+			for (int window : WINDOWS) {
+				report(qos, "pipeline, window " + window, publishWithPipeline(qos, window));
+			}
+		}
+	}
+
+	private static void report(int qos, String path, long nanos) {
+		System.out.println(String.format("QoS %d, %s: %d messages in %d ms, %.0f messages/s", qos, path, MESSAGES,
+				nanos / 1000000, MESSAGES * 1000000000.0 / nanos));
+	}
+
+	private static long publishSynchronously(int qos) throws Exception {
+		SimulatedBroker broker = new SimulatedBroker(ROUND_TRIP_MICROS * qos);
+		try {
+			long start = System.nanoTime();
+			for (int i = 0; i < MESSAGES; i++) {
+				IMqttDeliveryToken token = broker.send("meter/" + (i % 100), message("" + i, qos));
+				token.waitForCompletion(10000);
+			}
+			return System.nanoTime() - start;
+		} finally {
+			broker.stop();
+		}
+	}
+
+	private static long publishWithPipeline(int qos, int window) throws Exception {
+		SimulatedBroker broker = new SimulatedBroker(ROUND_TRIP_MICROS * qos);
+		MqttPublishPipeline pipeline = new MqttPublishPipeline("benchmark", broker);
+		pipeline.setMaxInflight(window);
+		pipeline.setQueueSize(MESSAGES);
+		broker.pipeline = pipeline;
+		pipeline.start();
+		try {
+			long start = System.nanoTime();
+			PublishRequest last = null;
+			for (int i = 0; i < MESSAGES; i++) {
+				last = pipeline.publish("meter/" + (i % 100), message("" + i, qos));
+			}
+			last.waitForCompletion(60000);
+			return System.nanoTime() - start;
+		} finally {
+			pipeline.stop();
+			broker.stop();
+		}
+	}
+
+	private static MqttMessage message(String payload, int qos) {
+		MqttMessage message = new MqttMessage(payload.getBytes());
+		message.setQos(qos);
+		return message;
+	}
+
+}
@@ -0,0 +1,303 @@
+/**
+ * Copyright (c) 2010-2014, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.io.transport.mqtt.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.paho.client.mqttv3.MqttMessage;
+import org.junit.After;
+import org.junit.Test;
+import org.openhab.io.transport.mqtt.internal.MqttPublishPipeline.PublishRequest;
+
+/**
+ * Tests the {@link MqttPublishPipeline} against a simulated broker which
+ * acknowledges deliveries after a round trip delay per QoS handshake step.
+ *
+ * @author Davy Vanherbergen
+ * @since 1.5.0
+ */
+public class MqttPublishPipelineTest {
+
+	private SimulatedBroker broker;
+
+	private MqttPublishPipeline pipeline;
+
+	@After
+	public void tearDown() {
+		if (pipeline != null) {
+			pipeline.stop();
+		}
+		if (broker != null) {
+			broker.stop();
+		}
+	}
+
+	private void createPipeline(long roundTripMicros, int maxInflight) {
+		broker = new SimulatedBroker(roundTripMicros);
+		pipeline = new MqttPublishPipeline("test", broker);
+		pipeline.setMaxInflight(maxInflight);
+		broker.pipeline = pipeline;
+	}
+
+	private MqttMessage message(String payload, int qos, boolean retained) {
+		MqttMessage message = new MqttMessage(payload.getBytes());
+		message.setQos(qos);
+		message.setRetained(retained);
+		return message;
+	}
+
+	@Test
+	public void doesNotExceedInflightWindow() throws Exception {
+		createPipeline(2000, 4);
+		pipeline.start();
+
+		PublishRequest last = null;
+		for (int i = 0; i < 100; i++) {
+			last = pipeline.publish("test/" + i, message("" + i, 1, false));
+		}
+
+		assertTrue(last.waitForCompletion(10000));
+		assertTrue(last.isDelivered());
+		assertEquals(100, broker.getReceived().size());
+		assertTrue("Window exceeded: " + broker.maxInflight, broker.maxInflight <= 4);
+		assertTrue(broker.maxInflight > 1);
+	}
+
+	@Test
+	public void limitsInflightWindowToClientMaximum() {
+		createPipeline(100, 50);
+		assertEquals(MqttPublishPipeline.MAX_INFLIGHT, pipeline.getMaxInflight());
+	}
+
+	@Test
+	public void requeuesMessagesRejectedByFullClientWindow() throws Exception {
+		createPipeline(2000, 10);
+		broker.clientWindow = 3;
+		pipeline.start();
+
+		PublishRequest last = null;
+		List<String> expected = new ArrayList<String>();
+		for (int i = 0; i < 30; i++) {
+			last = pipeline.publish("test", message("" + i, 1, false));
+			expected.add("test=" + i);
+		}
+
+		assertTrue(last.waitForCompletion(10000));
+		assertTrue(last.isDelivered());
+		waitForInflight();
+		assertEquals(expected, broker.getReceived());
+		assertEquals(30, pipeline.getDeliveredCount());
+		assertTrue(broker.rejected > 0);
+	}
+
+	@Test
+	public void keepsOrderOfMessages() throws Exception {
+		createPipeline(100, 10);
+		pipeline.start();
+
+		PublishRequest last = null;
+		List<String> expected = new ArrayList<String>();
+		for (int i = 0; i < 50; i++) {
+			last = pipeline.publish("test", message("" + i, 0, false));
+			expected.add("test=" + i);
+		}
+
+		assertTrue(last.waitForCompletion(10000));
+		assertEquals(expected, broker.getReceived());
+	}
+
+	@Test
+	public void coalescesRetainedMessagesForSameTopic() throws Exception {
+		createPipeline(100, 10);
+
+		// not started yet, so all messages stay queued
+		PublishRequest first = pipeline.publish("state/a", message("1", 1, true));
+		pipeline.publish("state/b", message("1", 1, true));
+		PublishRequest second = pipeline.publish("state/a", message("2", 1, true));
+		pipeline.publish("command/a", message("ON", 1, false));
+		pipeline.publish("command/a", message("OFF", 1, false));
+		PublishRequest third = pipeline.publish("state/a", message("3", 1, true));
+
+		assertTrue(first == second && second == third);
+		assertEquals(4, pipeline.getQueuedCount());
+		assertEquals(2, pipeline.getCoalescedCount());
+
+		pipeline.start();
+		assertTrue(third.waitForCompletion(10000));
+		waitForQueue();
+
+		List<String> received = broker.getReceived();
+		assertEquals("[state/a=3, state/b=1, command/a=ON, command/a=OFF]", received.toString());
+	}
+
+	@Test
+	public void doesNotCoalesceWhenDisabled() throws Exception {
+		createPipeline(100, 10);
+		pipeline.setCoalesce(false);
+
+		pipeline.publish("state/a", message("1", 1, true));
+		pipeline.publish("state/a", message("2", 1, true));
+		assertEquals(2, pipeline.getQueuedCount());
+	}
+
+	@Test
+	public void dropsOldestMessageWhenQueueIsFull() throws Exception {
+		createPipeline(100, 10);
+		pipeline.setQueueSize(3);
+
+		PublishRequest first = pipeline.publish("test", message("1", 0, false));
+		pipeline.publish("test", message("2", 0, false));
+		pipeline.publish("test", message("3", 0, false));
+		pipeline.publish("test", message("4", 0, false));
+
+		assertTrue(first.waitForCompletion(0));
+		assertFalse(first.isDelivered());
+		assertEquals(1, pipeline.getDroppedCount());
+
+		pipeline.start();
+		waitForQueue();
+		assertEquals("[test=2, test=3, test=4]", broker.getReceived().toString());
+	}
+
+	@Test
+	public void replaysMessagesAfterConnectionLoss() throws Exception {
+		createPipeline(100, 10);
+		broker.connected = false;
+		pipeline.start();
+
+		for (int i = 0; i < 5; i++) {
+			pipeline.publish("test", message("" + i, 1, false));
+		}
+		Thread.sleep(50);
+		assertEquals(0, broker.getReceived().size());
+		assertEquals(5, pipeline.getQueuedCount());
+
+		// deliveries in flight when the connection drops are sent again
+		broker.connected = true;
+		broker.acknowledge = false;
+		pipeline.connectionRestored();
+		waitForQueue();
+		assertEquals(5, pipeline.getInflightCount());
+
+		broker.connected = false;
+		pipeline.connectionLost();
+		assertEquals(5, pipeline.getQueuedCount());
+		assertEquals(5, pipeline.getReplayedCount());
+
+		broker.connected = true;
+		broker.acknowledge = true;
+		pipeline.connectionRestored();
+		waitForQueue();
+		waitForInflight();
+
+		assertEquals(10, broker.getReceived().size());
+		assertEquals(5, pipeline.getDeliveredCount());
+		assertEquals("[test=0, test=1, test=2, test=3, test=4]", broker.getReceived().subList(5, 10).toString());
+	}
+
+	@Test
+	public void keepsQueueBoundWhileDisconnected() throws Exception {
+		createPipeline(100, 10);
+		pipeline.setQueueSize(3);
+		broker.acknowledge = false;
+		pipeline.start();
+
+		List<PublishRequest> replayed = new ArrayList<PublishRequest>();
+		for (int i = 0; i < 3; i++) {
+			replayed.add(pipeline.publish("test", message("" + i, 1, false)));
+		}
+		waitForQueue();
+		assertEquals(3, pipeline.getInflightCount());
+
+		// the queue fills up while the connection is down
+		broker.connected = false;
+		for (int i = 3; i < 6; i++) {
+			pipeline.publish("test", message("" + i, 1, false));
+		}
+		assertEquals(3, pipeline.getQueuedCount());
+
+		// the deliveries in flight are the oldest messages, so they are dropped
+		pipeline.connectionLost();
+		assertEquals(3, pipeline.getQueuedCount());
+		assertEquals(3, pipeline.getDroppedCount());
+		for (PublishRequest request : replayed) {
+			assertTrue(request.waitForCompletion(0));
+			assertFalse(request.isDelivered());
+		}
+
+		// publishing while disconnected keeps dropping the oldest messages
+		for (int i = 6; i < 106; i++) {
+			pipeline.publish("test", message("" + i, 1, false));
+		}
+		assertEquals(3, pipeline.getQueuedCount());
+
+		broker.connected = true;
+		broker.acknowledge = true;
+		pipeline.connectionRestored();
+		waitForQueue();
+		waitForInflight();
+		assertEquals("[test=103, test=104, test=105]", broker.getReceived().subList(3, 6).toString());
+	}
+
+	@Test
+	public void deliversAllMessagesForQos0() throws Exception {
+		deliversAllMessages(0);
+	}
+
+	@Test
+	public void deliversAllMessagesForQos1() throws Exception {
+		deliversAllMessages(1);
+	}
+
+	@Test
+	public void deliversAllMessagesForQos2() throws Exception {
+		deliversAllMessages(2);
+	}
+
+	private void deliversAllMessages(int qos) throws Exception {
+		int messages = 2000;
+		long roundTripMicros = 500;
+
+		for (int window : new int[] { 1, 4, 10 }) {
+			createPipeline(roundTripMicros * qos, window);
+			pipeline.setQueueSize(messages);
+			pipeline.start();
+
+			PublishRequest last = null;
+			for (int i = 0; i < messages; i++) {
+				last = pipeline.publish("meter/" + (i % 100), message("" + i, qos, false));
+			}
+			assertTrue(last.waitForCompletion(60000));
+
+			assertEquals(messages, broker.getReceived().size());
+
+			pipeline.stop();
+			broker.stop();
+		}
+	}
+
+	private void waitForQueue() throws InterruptedException {
+		for (int i = 0; i < 500 && pipeline.getQueuedCount() > 0; i++) {
+			Thread.sleep(10);
+		}
+		assertEquals(0, pipeline.getQueuedCount());
+	}
+
+	private void waitForInflight() throws InterruptedException {
+		for (int i = 0; i < 500 && pipeline.getInflightCount() > 0; i++) {
+			Thread.sleep(10);
+		}
+		assertEquals(0, pipeline.getInflightCount());
+	}
+}
@@ -0,0 +1,143 @@
+/**
+ * Copyright (c) 2010-2014, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.io.transport.mqtt.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Tests the topic matching of the {@link MqttSubscriptionTrie} against the
+ * wildcard examples of the MQTT 3.1.1 specification (section 4.7).
+ *
+ * @author Davy Vanherbergen
+ * @since 1.5.0
+ */
+public class MqttSubscriptionTrieTest {
+
+	private boolean matches(String topicFilter, String topic) {
+		MqttSubscriptionTrie<String> trie = new MqttSubscriptionTrie<String>();
+		trie.add(topicFilter, topicFilter);
+		return trie.match(topic).contains(topicFilter);
+	}
+
+	@Test
+	public void canMatchExactTopics() {
+		assertTrue(matches("sport/tennis/player1", "sport/tennis/player1"));
+		assertTrue(matches("/mytopic", "/mytopic"));
+		assertFalse(matches("sport/tennis/player1", "sport/tennis/player2"));
+		assertFalse(matches("sport/tennis", "sport/tennis/player1"));
+		assertFalse(matches("sport/tennis/player1", "sport/tennis"));
+		assertFalse(matches("/mytopic", "mytopic"));
+		assertFalse(matches("ACCOUNTS", "Accounts"));
+	}
+
+	@Test
+	public void canMatchMultiLevelWildcard() {
+		assertTrue(matches("sport/tennis/player1/#", "sport/tennis/player1"));
+		assertTrue(matches("sport/tennis/player1/#", "sport/tennis/player1/ranking"));
+		assertTrue(matches("sport/tennis/player1/#", "sport/tennis/player1/score/wimbledon"));
+		assertTrue(matches("sport/#", "sport"));
+		assertTrue(matches("#", "sport/tennis/player1"));
+		assertTrue(matches("#", "/finance"));
+		assertFalse(matches("sport/tennis/player1/#", "sport/tennis/player2/ranking"));
+		assertFalse(matches("sport/#", "sports"));
+	}
+
+	@Test
+	public void canMatchSingleLevelWildcard() {
+		assertTrue(matches("sport/tennis/+", "sport/tennis/player1"));
+		assertTrue(matches("sport/tennis/+", "sport/tennis/player2"));
+		assertFalse(matches("sport/tennis/+", "sport/tennis/player1/ranking"));
+		assertTrue(matches("sport/+", "sport/"));
+		assertFalse(matches("sport/+", "sport"));
+		assertTrue(matches("+/+", "/finance"));
+		assertTrue(matches("/+", "/finance"));
+		assertFalse(matches("+", "/finance"));
+		assertTrue(matches("+", "finance"));
+		assertTrue(matches("+/tennis/#", "sport/tennis/player1"));
+		assertTrue(matches("+/+/+", "a/b/c"));
+		assertFalse(matches("+/+/+", "a/b"));
+	}
+
+	@Test
+	public void doesNotMatchSystemTopicsWithLeadingWildcards() {
+		assertFalse(matches("#", "$SYS/broker/clients"));
+		assertFalse(matches("+/monitor/Clients", "$SYS/monitor/Clients"));
+		assertTrue(matches("$SYS/#", "$SYS/monitor/Clients"));
+		assertTrue(matches("$SYS/monitor/+", "$SYS/monitor/Clients"));
+	}
+
+	@Test
+	public void canMatchMultipleSubscribers() {
+		MqttSubscriptionTrie<String> trie = new MqttSubscriptionTrie<String>();
+		trie.add("home/+/temperature", "a");
+		trie.add("home/livingroom/temperature", "b");
+		trie.add("home/#", "c");
+		trie.add("home/kitchen/temperature", "d");
+		trie.add("#", "e");
+
+		List<String> result = trie.match("home/livingroom/temperature");
+		Collections.sort(result);
+		assertEquals("[a, b, c, e]", result.toString());
+
+		assertEquals("[c, e]", sorted(trie.match("home")));
+		assertEquals("[e]", sorted(trie.match("garden/temperature")));
+	}
+
+	@Test
+	public void canRemoveSubscribers() {
+		MqttSubscriptionTrie<String> trie = new MqttSubscriptionTrie<String>();
+		trie.add("home/+/temperature", "a");
+		trie.add("home/+/temperature", "b");
+		trie.add("home/#", "c");
+		assertEquals(3, trie.size());
+
+		assertTrue(trie.remove("home/+/temperature", "a"));
+		assertFalse(trie.remove("home/+/temperature", "a"));
+		assertFalse(trie.remove("home/kitchen", "c"));
+		assertEquals("[b, c]", sorted(trie.match("home/kitchen/temperature")));
+
+		assertTrue(trie.remove("home/+/temperature", "b"));
+		assertTrue(trie.remove("home/#", "c"));
+		assertEquals(0, trie.size());
+		assertTrue(trie.match("home/kitchen/temperature").isEmpty());
+	}
+
+	@Test
+	public void canDispatchManySubscriptions() {
+		MqttSubscriptionTrie<String> trie = new MqttSubscriptionTrie<String>();
+		for (int i = 0; i < 400; i++) {
+			trie.add("meter/" + i + "/power", "power" + i);
+			trie.add("meter/" + i + "/+", "any" + i);
+			trie.add("meter/" + i + "/#", "all" + i);
+		}
+		assertEquals(1200, trie.size());
+
+		int messages = 4000;
+		int delivered = 0;
+		for (int i = 0; i < messages; i++) {
+			delivered += trie.match("meter/" + (i % 400) + "/power").size();
+		}
+		assertEquals(messages * 3, delivered);
+		assertEquals("[all7, any7, power7]", sorted(trie.match("meter/7/power")));
+	}
+
+	private String sorted(List<String> values) {
+		List<String> result = new ArrayList<String>(values);
+		Collections.sort(result);
+		return result.toString();
+	}
+}
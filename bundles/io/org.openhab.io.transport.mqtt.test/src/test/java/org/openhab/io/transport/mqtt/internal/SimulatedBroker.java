@@ -0,0 +1,117 @@
+/**
+ * Copyright (c) 2010-2014, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.io.transport.mqtt.internal;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.DelayQueue;
+
+import org.eclipse.paho.client.mqttv3.IMqttDeliveryToken;
+import org.eclipse.paho.client.mqttv3.MqttException;
+import org.eclipse.paho.client.mqttv3.MqttMessage;
+
+/**
+ * Broker which acknowledges every message after the configured round trip
+ * time on a separate thread, like the paho callback thread. It is used by the
+ * {@link MqttPublishPipelineTest} and the {@link MqttPublishPipelineBenchmark}.
+ *
+ * @author Davy Vanherbergen
+ * @since 1.5.0
+ */
+class SimulatedBroker implements MqttPublishPipeline.Sender, Runnable {
+
+	private final long roundTripMicros;
+
+	private final List<String> received = Collections.synchronizedList(new ArrayList<String>());
+
+	private final DelayQueue<SimulatedToken> pending = new DelayQueue<SimulatedToken>();
+
+	private final Thread ackThread;
+
+	volatile boolean connected = true;
+
+	volatile boolean acknowledge = true;
+
+	private volatile boolean running = true;
+
+	private int inflight;
+
+	int maxInflight;
+
+	/** number of messages the client accepts in flight */
+	volatile int clientWindow = Integer.MAX_VALUE;
+
+	int rejected;
+
+	/** the pipeline which is notified of acknowledgements, if any */
+	MqttPublishPipeline pipeline;
+
+	SimulatedBroker(long roundTripMicros) {
+		this.roundTripMicros = roundTripMicros;
+		ackThread = new Thread(this);
+		ackThread.setDaemon(true);
+		ackThread.start();
+	}
+
+	List<String> getReceived() {
+		synchronized (received) {
+			return new ArrayList<String>(received);
+		}
+	}
+
+	void stop() {
+		running = false;
+		ackThread.interrupt();
+	}
+
+	@Override
+	public boolean isConnected() {
+		return connected;
+	}
+
+	@Override
+	public IMqttDeliveryToken send(String topic, MqttMessage message) throws Exception {
+		if (!connected) {
+			throw new MqttException(MqttException.REASON_CODE_CLIENT_NOT_CONNECTED);
+		}
+		synchronized (this) {
+			if (inflight >= clientWindow) {
+				rejected++;
+				throw new MqttException(MqttException.REASON_CODE_MAX_INFLIGHT);
+			}
+			inflight++;
+			maxInflight = Math.max(maxInflight, inflight);
+		}
+		received.add(topic + "=" + new String(message.getPayload()));
+		SimulatedToken token = new SimulatedToken(message, System.nanoTime() + roundTripMicros * 1000);
+		if (acknowledge) {
+			pending.add(token);
+		}
+		return token;
+	}
+
+	@Override
+	public void run() {
+		while (running) {
+			try {
+				SimulatedToken token = pending.take();
+				synchronized (this) {
+					inflight--;
+				}
+				token.complete();
+				if (pipeline != null) {
+					pipeline.acknowledge(token);
+				}
+			} catch (InterruptedException e) {
+				return;
+			}
+		}
+	}
+}
@@ -0,0 +1,128 @@
+/**
+ * Copyright (c) 2010-2014, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.io.transport.mqtt.internal;
+
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.paho.client.mqttv3.IMqttActionListener;
+import org.eclipse.paho.client.mqttv3.IMqttAsyncClient;
+import org.eclipse.paho.client.mqttv3.IMqttDeliveryToken;
+import org.eclipse.paho.client.mqttv3.MqttException;
+import org.eclipse.paho.client.mqttv3.MqttMessage;
+
+/**
+ * Delivery token of the {@link SimulatedBroker}, which completes once its
+ * round trip time has passed.
+ *
+ * @author Davy Vanherbergen
+ * @since 1.5.0
+ */
+class SimulatedToken implements IMqttDeliveryToken, Delayed {
+
+	private final MqttMessage message;
+
+	private final long due;
+
+	private volatile boolean complete;
+
+	SimulatedToken(MqttMessage message, long due) {
+		this.message = message;
+		this.due = due;
+	}
+
+	synchronized void complete() {
+		complete = true;
+		notifyAll();
+	}
+
+	@Override
+	public long getDelay(TimeUnit unit) {
+		return unit.convert(due - System.nanoTime(), TimeUnit.NANOSECONDS);
+	}
+
+	@Override
+	public int compareTo(Delayed other) {
+		long diff = due - ((SimulatedToken) other).due;
+		return diff < 0 ? -1 : (diff > 0 ? 1 : 0);
+	}
+
+	@Override
+	public boolean isComplete() {
+		return complete;
+	}
+
+	@Override
+	public MqttException getException() {
+		return null;
+	}
+
+	@Override
+	public MqttMessage getMessage() throws MqttException {
+		return message;
+	}
+
+	@Override
+	public void waitForCompletion() throws MqttException {
+		waitForCompletion(0);
+	}
+
+	@Override
+	public synchronized void waitForCompletion(long timeout) throws MqttException {
+		long end = System.currentTimeMillis() + timeout;
+		try {
+			while (!complete) {
+				if (timeout <= 0) {
+					wait();
+				} else {
+					long remaining = end - System.currentTimeMillis();
+					if (remaining <= 0) {
+						return;
+					}
+					wait(remaining);
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	@Override
+	public void setActionCallback(IMqttActionListener listener) {
+	}
+
+	@Override
+	public IMqttActionListener getActionCallback() {
+		return null;
+	}
+
+	@Override
+	public IMqttAsyncClient getClient() {
+		return null;
+	}
+
+	@Override
+	public String[] getTopics() {
+		return null;
+	}
+
+	@Override
+	public void setUserContext(Object userContext) {
+	}
+
+	@Override
+	public Object getUserContext() {
+		return null;
+	}
+
+	@Override
+	public int getMessageId() {
+		return 0;
+	}
+}
@@ -95,6 +95,12 @@ public class MqttService implements ManagedService {
 				conn.setAsync(Boolean.parseBoolean(value));
 			} else if (property.equals("clientId")) {
 				conn.setClientId(value);
+			} else if (property.equals("maxInflight")) {
+				conn.setMaxInflight(Integer.parseInt(value));
+			} else if (property.equals("queueSize")) {
+				conn.setQueueSize(Integer.parseInt(value));
+			} else if (property.equals("coalesce")) {
+				conn.setCoalesce(Boolean.parseBoolean(value));
 			} else {
 				logger.warn("Unrecognized property: {}", key);
 			}
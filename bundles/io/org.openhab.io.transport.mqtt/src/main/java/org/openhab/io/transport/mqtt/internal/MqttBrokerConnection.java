@@ -24,7 +24,6 @@ import org.eclipse.paho.client.mqttv3.IMqttDeliveryToken;
 import org.eclipse.paho.client.mqttv3.MqttCallback;
 import org.eclipse.paho.client.mqttv3.MqttClient;
 import org.eclipse.paho.client.mqttv3.MqttConnectOptions;
-import org.eclipse.paho.client.mqttv3.MqttDeliveryToken;
 import org.eclipse.paho.client.mqttv3.MqttException;
 import org.eclipse.paho.client.mqttv3.MqttMessage;
 import org.eclipse.paho.client.mqttv3.MqttTopic;
@@ -32,6 +31,7 @@ import org.eclipse.paho.client.mqttv3.persist.MqttDefaultFilePersistence;
 import org.openhab.io.transport.mqtt.MqttMessageConsumer;
 import org.openhab.io.transport.mqtt.MqttMessageProducer;
 import org.openhab.io.transport.mqtt.MqttSenderChannel;
+import org.openhab.io.transport.mqtt.internal.MqttPublishPipeline.PublishRequest;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -70,14 +70,18 @@ public class MqttBrokerConnection implements MqttCallback {
 
 	private MqttClient client;
 
-	private boolean started;
+	private volatile boolean started;
 
 	private List<MqttMessageConsumer> consumers = new ArrayList<MqttMessageConsumer>();
 
+	private MqttSubscriptionTrie<MqttMessageConsumer> subscriptions = new MqttSubscriptionTrie<MqttMessageConsumer>();
+
 	private List<MqttMessageProducer> producers = new ArrayList<MqttMessageProducer>();
 
 	private Timer reconnectTimer;
 
+	private MqttPublishPipeline publishPipeline;
+
 	/**
 	 * Create a new connection with the given name.
 	 * 
@@ -86,6 +90,19 @@ public class MqttBrokerConnection implements MqttCallback {
 	 */
 	public MqttBrokerConnection(String name) {
 		this.name = name;
+		this.publishPipeline = new MqttPublishPipeline(name, new MqttPublishPipeline.Sender() {
+
+			@Override
+			public boolean isConnected() {
+				return started && client != null && client.isConnected();
+			}
+
+			@Override
+			public IMqttDeliveryToken send(String topic, MqttMessage message) throws Exception {
+				MqttTopic mqttTopic = client.getTopic(topic);
+				return mqttTopic.publish(message);
+			}
+		});
 	}
 
 	/**
@@ -122,6 +139,10 @@ public class MqttBrokerConnection implements MqttCallback {
 		}
 
 		started = true;
+
+		// send any messages which were queued while we were not connected
+		publishPipeline.start();
+		publishPipeline.connectionRestored();
 	}
 
 	/**
@@ -242,6 +263,62 @@ public class MqttBrokerConnection implements MqttCallback {
 		this.async = async;
 	}
 
+	/**
+	 * @return maximum number of published messages which may be awaiting
+	 *         delivery confirmation from the broker.
+	 */
+	public int getMaxInflight() {
+		return publishPipeline.getMaxInflight();
+	}
+
+	/**
+	 * Set the maximum number of published messages which may be awaiting
+	 * delivery confirmation from the broker. Further messages are queued until
+	 * earlier deliveries complete. The paho client accepts at most
+	 * {@link MqttPublishPipeline#MAX_INFLIGHT} messages in flight, larger
+	 * values are limited to it.
+	 * 
+	 * @param maxInflight
+	 */
+	public void setMaxInflight(int maxInflight) {
+		publishPipeline.setMaxInflight(maxInflight);
+	}
+
+	/**
+	 * @return maximum number of messages waiting to be published.
+	 */
+	public int getQueueSize() {
+		return publishPipeline.getQueueSize();
+	}
+
+	/**
+	 * Set the maximum number of messages waiting to be published. When the
+	 * queue is full, the oldest message is dropped.
+	 * 
+	 * @param queueSize
+	 */
+	public void setQueueSize(int queueSize) {
+		publishPipeline.setQueueSize(queueSize);
+	}
+
+	/**
+	 * @return true if a retained message replaces a queued retained message for
+	 *         the same topic.
+	 */
+	public boolean isCoalesce() {
+		return publishPipeline.isCoalesce();
+	}
+
+	/**
+	 * Set whether a retained message replaces a retained message for the same
+	 * topic which is still waiting to be published.
+	 * 
+	 * @param coalesce
+	 */
+	public void setCoalesce(boolean coalesce) {
+		publishPipeline.setCoalesce(coalesce);
+	}
+
 	/**
 	 * Set client id to use when connecting to the broker. If none is specified,
 	 * a default is generated.
@@ -387,25 +464,23 @@ public class MqttBrokerConnection implements MqttCallback {
 			@Override
 			public void publish(String topic, byte[] payload) throws Exception {
 
-				if (!started) {
-					logger.warn("Broker connection not started. Cannot publish message to topic '{}'", topic);
-					return;
-				}
-
 				// Create and configure a message
 				MqttMessage message = new MqttMessage(payload);
 				message.setQos(qos);
 				message.setRetained(retain);
 
-				// publish message asynchronously
-				MqttTopic mqttTopic = client.getTopic(topic);
-				MqttDeliveryToken deliveryToken = mqttTopic.publish(message);
+				// hand the message over to the publish pipeline
+				PublishRequest request = publishPipeline.publish(topic, message);
+
+				if (!started) {
+					logger.debug("Broker connection not started. Message to topic '{}' will be published once connected", topic);
+					return;
+				}
 
-				logger.debug("Publishing message {} to topic '{}'", deliveryToken.getMessageId(), topic);
 				if (!async) {
 					// wait for publish confirmation
-					deliveryToken.waitForCompletion(10000);
-					if (!deliveryToken.isComplete()) {
+					request.waitForCompletion(10000);
+					if (!request.isDelivered()) {
 						logger.error("Did not receive completion message within timeout limit whilst publishing to topic '{}'", topic);
 					}
 				}
@@ -423,6 +498,7 @@ public class MqttBrokerConnection implements MqttCallback {
 	 */
 	public void addConsumer(MqttMessageConsumer subscriber) {
 		consumers.add(subscriber);
+		subscriptions.add(subscriber.getTopic(), subscriber);
 		if (started) {
 			startConsumer(subscriber);
 		}
@@ -474,7 +550,7 @@ public class MqttBrokerConnection implements MqttCallback {
 			logger.error("Error unsubscribing topic from broker", e);
 		}
 		consumers.remove(subscriber);
-
+		subscriptions.remove(subscriber.getTopic(), subscriber);
 	}
 
 	/**
@@ -490,6 +566,7 @@ public class MqttBrokerConnection implements MqttCallback {
 			logger.error("Error closing connection to broker", e);
 		}
 		started = false;
+		publishPipeline.stop();
 	}
 
 	@Override
@@ -497,6 +574,7 @@ public class MqttBrokerConnection implements MqttCallback {
 		logger.error("MQTT connection to broker was lost", t);
 		
 		started = false;
+		publishPipeline.connectionLost();
 		logger.info("Starting connection helper to periodically try restore connection to broker '{}'", name);
 
 		MqttBrokerConnectionHelper helper = new MqttBrokerConnectionHelper(this);
@@ -509,50 +587,18 @@ public class MqttBrokerConnection implements MqttCallback {
 	@Override
 	public void deliveryComplete(IMqttDeliveryToken token) {
 		logger.trace("Message with id {} delivered.", token.getMessageId());
+		publishPipeline.acknowledge(token);
 	}
 
 	@Override
 	public void messageArrived(String topic, MqttMessage message) throws Exception {
 
-		logger.trace("Received message on topic '{}' : {}", topic, new String(message.getPayload()));
-		for (MqttMessageConsumer consumer : consumers) {
-			if (isTopicMatch(topic, consumer.getTopic())) {
-				consumer.processMessage(topic, message.getPayload());
-			}
-		}
-	}
-
-	/**
-	 * Check if the topic on which a message was received matches provided
-	 * target topic. The matching will take into account the + and # wildcards.
-	 * 
-	 * @param source
-	 *            topic from received message
-	 * @param target
-	 *            topic as defined with possible wildcards.
-	 * @return true if both topics match.
-	 */
-	private boolean isTopicMatch(String source, String target) {
-		if (source.equals(target)) {
-			return true;
+		if (logger.isTraceEnabled()) {
+			logger.trace("Received message on topic '{}' : {}", topic, new String(message.getPayload()));
 		}
-		if (target.indexOf('+') == -1 && target.indexOf('#') == -1) {
-			return false;
-		} else {
-
-			String regex = target;
-			regex = StringUtils.replace(regex, "+", "[^/]*");
-			regex = StringUtils.replace(regex, "#", ".*");
-			boolean result = source.matches(regex);
-			if (result) {
-				logger.trace("Topic match for '{}' and '{}' using regex {}", source, target, regex);
-				return true;
-			} else {
-				logger.trace("No topic match for '{}' and '{}' using regex {}", source, target, regex);
-				return false;
-			}
+		for (MqttMessageConsumer consumer : subscriptions.match(topic)) {
+			consumer.processMessage(topic, message.getPayload());
 		}
-
 	}
 
 }
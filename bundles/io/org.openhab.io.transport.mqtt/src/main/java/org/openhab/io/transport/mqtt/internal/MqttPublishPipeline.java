@@ -0,0 +1,509 @@
+/**
+ * Copyright (c) 2010-2014, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.io.transport.mqtt.internal;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.paho.client.mqttv3.IMqttDeliveryToken;
+import org.eclipse.paho.client.mqttv3.MqttException;
+import org.eclipse.paho.client.mqttv3.MqttMessage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Publishing pipeline for a single MqttBrokerConnection. Messages are put in a
+ * bounded outbound queue and sent by a dedicated sender thread, so that the
+ * publishing threads (e.g. the openHAB event bus) never wait for the broker.
+ *
+ * The sender thread keeps up to <code>maxInflight</code> messages in flight
+ * without waiting for their delivery. Acknowledgements only wake up the sender
+ * thread, which then releases all completed deliveries in a single pass. The
+ * window is limited to {@link #MAX_INFLIGHT}, the number of messages the paho
+ * client accepts in flight. If the client still rejects a message because its
+ * window is full, the message is queued again and sent once an earlier
+ * delivery completes.
+ *
+ * When the queue is full, the oldest queued message is dropped. This also
+ * applies to messages which are queued again, so the queue never exceeds its
+ * size, even if the broker is unavailable for a long time. When coalescing is
+ * enabled, a retained message replaces a queued retained message for the same
+ * topic, as only the latest state matters to the broker.
+ *
+ * Messages stay queued while the connection is down, and deliveries which did
+ * not complete when the connection was lost are queued again, so that they are
+ * replayed once the connection is restored.
+ *
+ * @author Davy Vanherbergen
+ * @since 1.5.0
+ */
+public class MqttPublishPipeline implements Runnable {
+
+	private static Logger logger = LoggerFactory.getLogger(MqttPublishPipeline.class);
+
+	/** Interval in ms in which deliveries are checked for completion if no acknowledgement is received. */
+	private static final long SWEEP_INTERVAL = 1000;
+
+	/** Interval in ms after which a message rejected by a full client window is sent again. */
+	private static final long BACK_PRESSURE_INTERVAL = 100;
+
+	/** Maximum number of messages the paho client accepts in flight. */
+	public static final int MAX_INFLIGHT = 10;
+
+	public static final int DEFAULT_MAX_INFLIGHT = 10;
+
+	public static final int DEFAULT_QUEUE_SIZE = 1000;
+
+	/**
+	 * Channel through which the pipeline sends its messages.
+	 */
+	public interface Sender {
+
+		/**
+		 * @return true if messages can be sent.
+		 */
+		public boolean isConnected();
+
+		/**
+		 * Send a message without waiting for its delivery.
+		 *
+		 * @return token to track the delivery of the message.
+		 */
+		public IMqttDeliveryToken send(String topic, MqttMessage message) throws Exception;
+	}
+
+	/**
+	 * A message which was handed over to the pipeline.
+	 */
+	public static class PublishRequest {
+
+		private final String topic;
+
+		private MqttMessage message;
+
+		private IMqttDeliveryToken token;
+
+		private boolean delivered;
+
+		private final CountDownLatch done = new CountDownLatch(1);
+
+		PublishRequest(String topic, MqttMessage message) {
+			this.topic = topic;
+			this.message = message;
+		}
+
+		public String getTopic() {
+			return topic;
+		}
+
+		/**
+		 * @return true if the message was delivered to the broker.
+		 */
+		public boolean isDelivered() {
+			return done.getCount() == 0 && delivered;
+		}
+
+		/**
+		 * Wait until the message was delivered or dropped.
+		 *
+		 * @param timeout
+		 *            in ms.
+		 * @return true if the request was handled within the timeout.
+		 */
+		public boolean waitForCompletion(long timeout) throws InterruptedException {
+			return done.await(timeout, TimeUnit.MILLISECONDS);
+		}
+
+		private void complete(boolean delivered) {
+			this.delivered = delivered;
+			done.countDown();
+		}
+	}
+
+	private final String name;
+
+	private final Sender sender;
+
+	private int maxInflight = DEFAULT_MAX_INFLIGHT;
+
+	private int queueSize = DEFAULT_QUEUE_SIZE;
+
+	private boolean coalesce = true;
+
+	private final Object lock = new Object();
+
+	private final LinkedList<PublishRequest> queue = new LinkedList<PublishRequest>();
+
+	private final Map<String, PublishRequest> queuedRetainedMessages = new HashMap<String, PublishRequest>();
+
+	private final List<PublishRequest> inflight = new ArrayList<PublishRequest>();
+
+	private Thread senderThread;
+
+	private boolean running;
+
+	private long publishedCount;
+
+	private long deliveredCount;
+
+	private long droppedCount;
+
+	private long coalescedCount;
+
+	private long replayedCount;
+
+	/**
+	 * Create a new pipeline.
+	 *
+	 * @param name
+	 *            of the broker connection, used for logging.
+	 * @param sender
+	 *            channel to send the messages through.
+	 */
+	public MqttPublishPipeline(String name, Sender sender) {
+		this.name = name;
+		this.sender = sender;
+	}
+
+	/**
+	 * Set the maximum number of messages which may be in flight, i.e. sent but
+	 * not yet acknowledged by the broker. Values above {@link #MAX_INFLIGHT}
+	 * are limited to it.
+	 */
+	public void setMaxInflight(int maxInflight) {
+		if (maxInflight > MAX_INFLIGHT) {
+			logger.warn("Maximum in flight messages for broker '{}' limited to {}", name, MAX_INFLIGHT);
+			this.maxInflight = MAX_INFLIGHT;
+		} else if (maxInflight > 0) {
+			this.maxInflight = maxInflight;
+		}
+	}
+
+	public int getMaxInflight() {
+		return maxInflight;
+	}
+
+	/**
+	 * Set the maximum number of messages waiting to be sent.
+	 */
+	public void setQueueSize(int queueSize) {
+		if (queueSize > 0) {
+			this.queueSize = queueSize;
+		}
+	}
+
+	public int getQueueSize() {
+		return queueSize;
+	}
+
+	/**
+	 * Set whether a retained message replaces a queued retained message for the
+	 * same topic.
+	 */
+	public void setCoalesce(boolean coalesce) {
+		this.coalesce = coalesce;
+	}
+
+	public boolean isCoalesce() {
+		return coalesce;
+	}
+
+	/**
+	 * Start the sender thread.
+	 */
+	public void start() {
+		synchronized (lock) {
+			if (running) {
+				return;
+			}
+			running = true;
+			senderThread = new Thread(this, "MQTT publisher '" + name + "'");
+			senderThread.setDaemon(true);
+			senderThread.start();
+		}
+	}
+
+	/**
+	 * Stop the sender thread. Queued messages are kept and will be sent when
+	 * the pipeline is started again.
+	 */
+	public void stop() {
+		Thread thread;
+		synchronized (lock) {
+			if (!running) {
+				return;
+			}
+			running = false;
+			thread = senderThread;
+			senderThread = null;
+			lock.notifyAll();
+		}
+		try {
+			thread.join(SWEEP_INTERVAL);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		logger.debug("Stopped MQTT publisher '{}': {}", name, getStatistics());
+	}
+
+	/**
+	 * Add a message to the outbound queue.
+	 *
+	 * @return request which can be used to wait for the delivery of the
+	 *         message.
+	 */
+	public PublishRequest publish(String topic, MqttMessage message) {
+		PublishRequest request;
+
+		synchronized (lock) {
+			publishedCount++;
+
+			if (coalesce && message.isRetained()) {
+				request = queuedRetainedMessages.get(topic);
+				if (request != null) {
+					// the queued message has not been sent yet, so only the
+					// latest payload needs to be delivered
+					request.message = message;
+					coalescedCount++;
+					logger.trace("Replaced queued retained message for topic '{}'", topic);
+					return request;
+				}
+			}
+
+			request = new PublishRequest(topic, message);
+			dropOldestMessages(queueSize - 1);
+			queue.addLast(request);
+			if (coalesce && message.isRetained()) {
+				queuedRetainedMessages.put(topic, request);
+			}
+
+			lock.notifyAll();
+		}
+		return request;
+	}
+
+	/**
+	 * Notify the pipeline that a delivery completed. The sender thread will
+	 * release all completed deliveries at once.
+	 */
+	public void acknowledge(IMqttDeliveryToken token) {
+		synchronized (lock) {
+			lock.notifyAll();
+		}
+	}
+
+	/**
+	 * Queue the messages which are still in flight again, so that they are
+	 * replayed when the connection is restored.
+	 */
+	public void connectionLost() {
+		synchronized (lock) {
+			releaseCompletedDeliveries();
+			int position = 0;
+			for (PublishRequest request : inflight) {
+				request.token = null;
+				queue.add(position++, request);
+				replayedCount++;
+			}
+			inflight.clear();
+			if (position > 0) {
+				logger.debug("Queued {} undelivered messages for replay on broker '{}'", position, name);
+				dropOldestMessages(queueSize);
+			}
+		}
+	}
+
+	/**
+	 * Notify the pipeline that the connection is available, so that queued
+	 * messages are sent.
+	 */
+	public void connectionRestored() {
+		synchronized (lock) {
+			lock.notifyAll();
+		}
+	}
+
+	/**
+	 * @return number of messages waiting to be sent.
+	 */
+	public int getQueuedCount() {
+		synchronized (lock) {
+			return queue.size();
+		}
+	}
+
+	/**
+	 * @return number of messages sent but not yet acknowledged.
+	 */
+	public int getInflightCount() {
+		synchronized (lock) {
+			return inflight.size();
+		}
+	}
+
+	public long getDeliveredCount() {
+		synchronized (lock) {
+			return deliveredCount;
+		}
+	}
+
+	public long getDroppedCount() {
+		synchronized (lock) {
+			return droppedCount;
+		}
+	}
+
+	public long getCoalescedCount() {
+		synchronized (lock) {
+			return coalescedCount;
+		}
+	}
+
+	public long getReplayedCount() {
+		synchronized (lock) {
+			return replayedCount;
+		}
+	}
+
+	/**
+	 * @return summary of the pipeline counters, for logging.
+	 */
+	public String getStatistics() {
+		synchronized (lock) {
+			return "published=" + publishedCount + ", delivered=" + deliveredCount + ", dropped=" + droppedCount
+					+ ", coalesced=" + coalescedCount + ", replayed=" + replayedCount + ", queued=" + queue.size()
+					+ ", inflight=" + inflight.size();
+		}
+	}
+
+	@Override
+	public void run() {
+
+		while (true) {
+			PublishRequest request;
+
+			synchronized (lock) {
+				releaseCompletedDeliveries();
+				while (running && (queue.isEmpty() || inflight.size() >= maxInflight || !sender.isConnected())) {
+					try {
+						lock.wait(SWEEP_INTERVAL);
+					} catch (InterruptedException e) {
+						running = false;
+					}
+					releaseCompletedDeliveries();
+				}
+				if (!running) {
+					return;
+				}
+
+				request = queue.removeFirst();
+				if (queuedRetainedMessages.get(request.topic) == request) {
+					queuedRetainedMessages.remove(request.topic);
+				}
+				inflight.add(request);
+			}
+
+			IMqttDeliveryToken token = null;
+			boolean rejected = false;
+			try {
+				logger.debug("Publishing message to topic '{}'", request.topic);
+				token = sender.send(request.topic, request.message);
+			} catch (MqttException e) {
+				if (e.getReasonCode() == MqttException.REASON_CODE_MAX_INFLIGHT) {
+					logger.trace("Client window of broker '{}' is full, message for topic '{}' is queued again",
+							name, request.topic);
+					rejected = true;
+				} else {
+					logPublishError(request, e);
+				}
+			} catch (Exception e) {
+				logPublishError(request, e);
+			}
+
+			synchronized (lock) {
+				if (!inflight.contains(request)) {
+					// the connection was lost in the meantime and the message queued for replay
+					continue;
+				}
+				if (token != null) {
+					request.token = token;
+				} else if (rejected) {
+					inflight.remove(request);
+					queue.addFirst(request);
+					dropOldestMessages(queueSize);
+					try {
+						// wait for an earlier delivery to complete
+						lock.wait(BACK_PRESSURE_INTERVAL);
+					} catch (InterruptedException e) {
+						running = false;
+					}
+				} else if (sender.isConnected()) {
+					inflight.remove(request);
+					request.complete(false);
+				} else {
+					inflight.remove(request);
+					queue.addFirst(request);
+					replayedCount++;
+					dropOldestMessages(queueSize);
+				}
+			}
+		}
+	}
+
+	private void logPublishError(PublishRequest request, Exception e) {
+		if (sender.isConnected()) {
+			logger.error("Error publishing message to topic '" + request.topic + "'", e);
+		} else {
+			logger.debug("Connection to broker '{}' unavailable, message for topic '{}' will be replayed", name,
+					request.topic);
+		}
+	}
+
+	/**
+	 * Drop the oldest queued messages until at most the given number of
+	 * messages is queued. Must be called while holding the lock.
+	 */
+	private void dropOldestMessages(int maxQueued) {
+		while (queue.size() > maxQueued) {
+			PublishRequest dropped = queue.removeFirst();
+			if (queuedRetainedMessages.get(dropped.topic) == dropped) {
+				queuedRetainedMessages.remove(dropped.topic);
+			}
+			droppedCount++;
+			logger.debug("Outbound queue for broker '{}' is full, dropped message for topic '{}'", name, dropped.topic);
+			dropped.complete(false);
+		}
+	}
+
+	/**
+	 * Release all in flight deliveries which completed. Must be called while
+	 * holding the lock.
+	 */
+	private void releaseCompletedDeliveries() {
+		Iterator<PublishRequest> it = inflight.iterator();
+		while (it.hasNext()) {
+			PublishRequest request = it.next();
+			if (request.token != null && request.token.isComplete()) {
+				it.remove();
+				boolean delivered = request.token.getException() == null;
+				if (delivered) {
+					deliveredCount++;
+				}
+				request.complete(delivered);
+			}
+		}
+	}
+
+}
@@ -0,0 +1,194 @@
+/**
+ * Copyright (c) 2010-2014, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.io.transport.mqtt.internal;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * A trie of MQTT topic filters, indexed by topic level. It is used by the
+ * MqttBrokerConnection to find the subscribers for a received message without
+ * evaluating the topic filter of every subscriber. The cost of a lookup only
+ * depends on the depth of the topic and the number of wildcard branches,
+ * not on the number of subscribers.
+ *
+ * The matching follows the MQTT 3.1.1 specification:
+ * <ul>
+ * <li>'+' matches exactly one topic level, which may be empty.</li>
+ * <li>'#' matches any number of levels, including the parent level, so
+ * 'sport/#' matches 'sport' as well as 'sport/tennis/player1'.</li>
+ * <li>Topics starting with '$' are not matched by filters starting with a
+ * wildcard.</li>
+ * </ul>
+ *
+ * Lookups do not lock and can run concurrently with additions and removals.
+ *
+ * @author Davy Vanherbergen
+ * @since 1.5.0
+ */
+public class MqttSubscriptionTrie<T> {
+
+	private static final String SINGLE_LEVEL_WILDCARD = "+";
+
+	private static final String MULTI_LEVEL_WILDCARD = "#";
+
+	private static final String LEVEL_SEPARATOR = "/";
+
+	private final Node<T> root = new Node<T>();
+
+	private int size = 0;
+
+	/**
+	 * Add a subscriber for the given topic filter.
+	 *
+	 * @param topicFilter
+	 *            topic to subscribe to. May contain + or # wildcards.
+	 * @param subscriber
+	 *            to add.
+	 */
+	public synchronized void add(String topicFilter, T subscriber) {
+		Node<T> node = root;
+		for (String level : split(topicFilter)) {
+			Node<T> child = node.children.get(level);
+			if (child == null) {
+				child = new Node<T>();
+				node.children.put(level, child);
+			}
+			node = child;
+		}
+		node.subscribers.add(subscriber);
+		size++;
+	}
+
+	/**
+	 * Remove a subscriber which was previously added for the given topic
+	 * filter.
+	 *
+	 * @param topicFilter
+	 *            topic the subscriber was added with.
+	 * @param subscriber
+	 *            to remove.
+	 * @return true if the subscriber was found and removed.
+	 */
+	public synchronized boolean remove(String topicFilter, T subscriber) {
+		String[] levels = split(topicFilter);
+		List<Node<T>> path = new ArrayList<Node<T>>(levels.length + 1);
+		Node<T> node = root;
+		path.add(node);
+		for (String level : levels) {
+			node = node.children.get(level);
+			if (node == null) {
+				return false;
+			}
+			path.add(node);
+		}
+
+		if (!node.subscribers.remove(subscriber)) {
+			return false;
+		}
+		size--;
+
+		// prune the branches which no longer lead to any subscriber
+		for (int i = levels.length; i > 0; i--) {
+			Node<T> child = path.get(i);
+			if (!child.isEmpty()) {
+				break;
+			}
+			path.get(i - 1).children.remove(levels[i - 1]);
+		}
+		return true;
+	}
+
+	/**
+	 * @return number of subscriptions in the trie.
+	 */
+	public synchronized int size() {
+		return size;
+	}
+
+	/**
+	 * Find all subscribers with a topic filter matching the given topic.
+	 *
+	 * @param topic
+	 *            topic on which a message was received.
+	 * @return list of matching subscribers, which is empty if there are none.
+	 */
+	public List<T> match(String topic) {
+		List<T> result = new ArrayList<T>();
+		match(topic, result);
+		return result;
+	}
+
+	/**
+	 * Add all subscribers with a topic filter matching the given topic to the
+	 * given collection.
+	 *
+	 * @param topic
+	 *            topic on which a message was received.
+	 * @param result
+	 *            collection to add the matching subscribers to.
+	 */
+	public void match(String topic, Collection<T> result) {
+		String[] levels = split(topic);
+		boolean wildcardsAllowed = !topic.startsWith("$");
+		match(root, levels, 0, wildcardsAllowed, result);
+	}
+
+	private void match(Node<T> node, String[] levels, int index, boolean wildcardsAllowed, Collection<T> result) {
+
+		if (wildcardsAllowed) {
+			// '#' matches the remaining levels, including the parent level
+			Node<T> multiLevel = node.children.get(MULTI_LEVEL_WILDCARD);
+			if (multiLevel != null) {
+				result.addAll(multiLevel.subscribers);
+			}
+		}
+
+		if (index == levels.length) {
+			result.addAll(node.subscribers);
+			return;
+		}
+
+		Node<T> exact = node.children.get(levels[index]);
+		if (exact != null) {
+			match(exact, levels, index + 1, true, result);
+		}
+
+		if (wildcardsAllowed) {
+			Node<T> singleLevel = node.children.get(SINGLE_LEVEL_WILDCARD);
+			if (singleLevel != null) {
+				match(singleLevel, levels, index + 1, true, result);
+			}
+		}
+	}
+
+	private static String[] split(String topic) {
+		// keep empty levels, e.g. for '/a' or 'a//b'
+		return topic.split(LEVEL_SEPARATOR, -1);
+	}
+
+	/**
+	 * A single topic level in the trie.
+	 */
+	private static class Node<T> {
+
+		private final ConcurrentMap<String, Node<T>> children = new ConcurrentHashMap<String, Node<T>>();
+
+		private final List<T> subscribers = new CopyOnWriteArrayList<T>();
+
+		private boolean isEmpty() {
+			return children.isEmpty() && subscribers.isEmpty();
+		}
+	}
+
+}
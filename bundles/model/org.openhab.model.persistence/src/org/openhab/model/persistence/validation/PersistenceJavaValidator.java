@@ -7,15 +7,40 @@
  * http://www.eclipse.org/legal/epl-v10.html
  */
 package org.openhab.model.persistence.validation;
+
+import org.eclipse.xtext.validation.Check;
+import org.openhab.model.persistence.persistence.Downsample;
+import org.openhab.model.persistence.persistence.PersistencePackage;
+import org.openhab.model.persistence.persistence.Period;
+import org.openhab.model.persistence.persistence.Retention;
  
 
 public class PersistenceJavaValidator extends AbstractPersistenceJavaValidator {
 
-//	@Check
-//	public void checkGreetingStartsWithCapital(Greeting greeting) {
-//		if (!Character.isUpperCase(greeting.getName().charAt(0))) {
-//			warning("Name should start with a capital", MyDslPackage.Literals.GREETING__NAME);
-//		}
-//	}
+	@Check
+	public void checkRetentionPeriods(Retention retention) {
+		long interval = 0;
+		long period = toSeconds(retention.getRaw());
+		for(Downsample downsample : retention.getDownsamples()) {
+			if(toSeconds(downsample.getInterval()) <= interval) {
+				error("Downsampling intervals must increase", PersistencePackage.Literals.RETENTION__DOWNSAMPLES);
+				break;
+			}
+			if(toSeconds(downsample.getPeriod()) <= period) {
+				error("Retention periods must increase", PersistencePackage.Literals.RETENTION__DOWNSAMPLES);
+				break;
+			}
+			interval = toSeconds(downsample.getInterval());
+			period = toSeconds(downsample.getPeriod());
+		}
+	}
+
+	private long toSeconds(Period period) {
+		long value = period.getValue();
+		if("m".equals(period.getUnit())) return value * 60;
+		if("h".equals(period.getUnit())) return value * 60 * 60;
+		if("d".equals(period.getUnit())) return value * 60 * 60 * 24;
+		return value;
+	}
 
 }
@@ -8,23 +8,23 @@
  */
 package org.openhab.model.rule.internal.engine;
 
-import org.eclipse.emf.common.notify.Adapter;
-import org.eclipse.emf.ecore.util.EContentAdapter;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
 import org.eclipse.xtext.naming.QualifiedName;
 import org.eclipse.xtext.xbase.XExpression;
 import org.eclipse.xtext.xbase.XVariableDeclaration;
 import org.eclipse.xtext.xbase.interpreter.IEvaluationContext;
+import org.openhab.core.items.ItemNotFoundException;
 import org.openhab.core.scriptengine.ScriptEngine;
 import org.openhab.core.scriptengine.ScriptExecutionException;
-import org.openhab.model.rule.RulesStandaloneSetup;
 import org.openhab.model.rule.internal.RuleModelActivator;
 import org.openhab.model.rule.rules.Rule;
 import org.openhab.model.rule.rules.RuleModel;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.google.inject.Provider;
-
 /**
  * Helper class to deal with rule evaluation contexts.
  * 
@@ -43,58 +43,100 @@ public class RuleContextHelper {
 	/** Variable name for the received command in a "command triggered" rule */
 	public static final String VAR_RECEIVED_COMMAND = "receivedCommand";
 	
-	private static Provider<IEvaluationContext> contextProvider = RulesStandaloneSetup.getInjector().getProvider(IEvaluationContext.class);
 	private static ScriptEngine scriptEngine = RuleModelActivator.scriptEngineTracker.getService();
 
+	/** the evaluation contexts of the loaded rule models */
+	private static final ConcurrentMap<RuleModel, IEvaluationContext> contexts = new ConcurrentHashMap<RuleModel, IEvaluationContext>();
+
 	/**
 	 * Retrieves the evaluation context (= set of variables) for a rule. The context is shared with all rules in the same model (= rule file).
+	 * It is created when it is needed for the first time, so that the variables are initialized as late as possible.
 	 * 
 	 * @param rule the rule to get the context for
 	 * @return the evaluation context
 	 */
-	public static synchronized IEvaluationContext getContext(Rule rule) {
-	    RuleModel ruleModel = (RuleModel) rule.eContainer();
-
-	    // check if a context already exists on the resource
-	    for(Adapter adapter : ruleModel.eAdapters()) {
-			if(adapter instanceof RuleContextAdapter) {
-				return ((RuleContextAdapter) adapter).getContext();
-			}
+	public static IEvaluationContext getContext(Rule rule) {
+		RuleModel ruleModel = (RuleModel) rule.eContainer();
+		IEvaluationContext evaluationContext = contexts.get(ruleModel);
+		if(evaluationContext==null) {
+			evaluationContext = createContext(ruleModel);
 		}
-		
-		// no evaluation context found, so create a new one
-	    IEvaluationContext evaluationContext = contextProvider.get();
-	    for(XExpression expr : ruleModel.getVariables()) {
-	    	if (expr instanceof XVariableDeclaration) {
-				XVariableDeclaration var = (XVariableDeclaration) expr;
-				try {
-			    	Object initialValue = var.getRight()==null ? null : scriptEngine.newScriptFromXExpression(var.getRight()).execute();
-					evaluationContext.newValue(QualifiedName.create(var.getName()), initialValue);
-				} catch (ScriptExecutionException e) {
-					logger.warn("Variable '{}' on rule file '{}' cannot be initialized with value '{}': {}", 
-							new String[] { var.getName(), ruleModel.eResource().getURI().path(), var.getRight().toString(), e.getMessage() });
-				}
-			}
-	    }
-	    ruleModel.eAdapters().add(new RuleContextAdapter(evaluationContext));
 		return evaluationContext;
 	}
 
 	/**
-	 * Inner class that wraps an evaluation context into an EMF adapters
+	 * Creates the evaluation context for a rule model and initializes the variables of the model.
+	 * If a variable refers to an item which is not in the item registry yet, the context is not kept,
+	 * so that the variables are initialized again on the next lookup, just like startup rules are retried.
+	 * 
+	 * @param ruleModel the rule model to create the context for
+	 * @return the evaluation context of the rule model
 	 */
-	private static class RuleContextAdapter extends EContentAdapter {
-		
-		private IEvaluationContext context;
-
-		public RuleContextAdapter(IEvaluationContext context) {
-			this.context = context;
+	private static IEvaluationContext createContext(RuleModel ruleModel) {
+		// only the creation for the same model is serialized, as the variables must only be initialized once
+		synchronized(ruleModel) {
+			IEvaluationContext evaluationContext = contexts.get(ruleModel);
+			if(evaluationContext!=null) {
+				return evaluationContext;
+			}
+			evaluationContext = new SynchronizedEvaluationContext();
+			boolean complete = true;
+			for(XExpression expr : ruleModel.getVariables()) {
+				if (expr instanceof XVariableDeclaration) {
+					XVariableDeclaration var = (XVariableDeclaration) expr;
+					try {
+						Object initialValue = var.getRight()==null ? null : scriptEngine.newScriptFromXExpression(var.getRight()).execute();
+						evaluationContext.newValue(QualifiedName.create(var.getName()), initialValue);
+					} catch (ScriptExecutionException e) {
+						if(isItemMissing(e)) {
+							logger.debug("Variable '{}' on rule file '{}' refers to an item which is not available yet: {}", 
+									new String[] { var.getName(), ruleModel.eResource().getURI().path(), e.getMessage() });
+							complete = false;
+						} else {
+							logger.warn("Variable '{}' on rule file '{}' cannot be initialized with value '{}': {}", 
+									new String[] { var.getName(), ruleModel.eResource().getURI().path(), var.getRight().toString(), e.getMessage() });
+						}
+					}
+				}
+			}
+			if(complete) {
+				IEvaluationContext existingContext = contexts.putIfAbsent(ruleModel, evaluationContext);
+				if(existingContext!=null) {
+					return existingContext;
+				}
+			}
+			return evaluationContext;
 		}
+	}
 
-		public IEvaluationContext getContext() {
-			return context;
+	private static boolean isItemMissing(ScriptExecutionException e) {
+		Throwable cause = e.getCause();
+		if(cause instanceof ItemNotFoundException) {
+			return true;
 		}
+		String message = cause!=null ? cause.getMessage() : e.getMessage();
+		return message!=null && message.contains("cannot be resolved to an item or type");
+	}
+
+	/**
+	 * Drops the evaluation context of a rule model.
+	 * 
+	 * @param ruleModel the rule model which is removed
+	 */
+	public static void removeContext(RuleModel ruleModel) {
+		contexts.remove(ruleModel);
+	}
 
+	/**
+	 * Drops the evaluation contexts of all rule models which have been removed or reloaded.
+	 */
+	public static void removeStaleContexts() {
+		for(Iterator<RuleModel> it = contexts.keySet().iterator(); it.hasNext();) {
+			RuleModel ruleModel = it.next();
+			if(ruleModel.eIsProxy() || ruleModel.eResource()==null) {
+				it.remove();
+			}
+		}
 	}
 
 }
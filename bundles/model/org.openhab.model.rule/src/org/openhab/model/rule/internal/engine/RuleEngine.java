@@ -232,6 +232,11 @@ public class RuleEngine implements EventHandler, ItemRegistryChangeListener, Sta
 					if(type == org.openhab.model.core.EventType.REMOVED ||
 							type == org.openhab.model.core.EventType.MODIFIED) {
 						triggerManager.removeRuleModel(model);
+						if(model!=null) {
+							RuleContextHelper.removeContext(model);
+						}
+						// a modified model has been reloaded, so the context of its old version is dropped
+						RuleContextHelper.removeStaleContexts();
 					}
 	
 					// add new and modified rules to the trigger sets
@@ -0,0 +1,43 @@
+/**
+ * Copyright (c) 2010-2014, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.model.rule.internal.engine;
+
+import org.eclipse.xtext.naming.QualifiedName;
+import org.eclipse.xtext.xbase.interpreter.impl.DefaultEvaluationContext;
+
+/**
+ * The evaluation context of the variables of a rule file. It is shared by all
+ * rules of the file, which are executed concurrently in their own threads, so
+ * the access to the variables is synchronized on the context. A rule sees the
+ * last value which has been assigned by any other rule, but the variables are
+ * not locked during the execution of a rule.
+ * 
+ * @author Kai Kreuzer
+ * @since 1.5.0
+ *
+ */
+@SuppressWarnings("restriction")
+public class SynchronizedEvaluationContext extends DefaultEvaluationContext {
+
+	@Override
+	public synchronized Object getValue(QualifiedName qualifiedName) {
+		return super.getValue(qualifiedName);
+	}
+
+	@Override
+	public synchronized void assignValue(QualifiedName qualifiedName, Object value) {
+		super.assignValue(qualifiedName, value);
+	}
+
+	@Override
+	public synchronized void newValue(QualifiedName qualifiedName, Object value) {
+		super.newValue(qualifiedName, value);
+	}
+
+}
@@ -0,0 +1,206 @@
+/**
+ * Copyright (c) 2010-2014, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.model.script.internal.actions;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.xtext.xbase.lib.Procedures.Procedure0;
+import org.joda.time.DateTime;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the execution of {@link TimerImpl}s by the {@link TimerService}. The
+ * wheel of the service is small, so that timers which last longer than one
+ * round of the wheel can be tested quickly.
+ *
+ * @author Kai Kreuzer
+ * @since 1.5.0
+ */
+public class TimerServiceTest {
+
+	private static final long TICK_DURATION = 10;
+
+	private static final int WHEEL_SIZE = 8;
+
+	/** the time a timer may be executed after it is due */
+	private static final long TOLERANCE = 500;
+
+	private TimerService service;
+
+	private static class CountingProcedure implements Procedure0 {
+
+		private final AtomicInteger executions = new AtomicInteger();
+
+		private final CountDownLatch executed = new CountDownLatch(1);
+
+		private volatile long executionTime;
+
+		public void apply() {
+			executionTime = System.currentTimeMillis();
+			executions.incrementAndGet();
+			executed.countDown();
+		}
+
+		boolean await(long timeout) throws InterruptedException {
+			return executed.await(timeout, TimeUnit.MILLISECONDS);
+		}
+	}
+
+	@Before
+	public void setUp() {
+		service = new TimerService(TICK_DURATION, WHEEL_SIZE);
+		service.start();
+	}
+
+	@After
+	public void tearDown() {
+		service.stop();
+	}
+
+	private TimerImpl schedule(CountingProcedure procedure, long time) {
+		TimerImpl timer = new TimerImpl(service, procedure);
+		assertTrue(timer.reschedule(new DateTime(time)));
+		return timer;
+	}
+
+	@Test
+	public void testTimerFiresOnTime() throws InterruptedException {
+		CountingProcedure procedure = new CountingProcedure();
+		long due = System.currentTimeMillis() + 200;
+		TimerImpl timer = schedule(procedure, due);
+
+		assertTrue(procedure.await(due + TOLERANCE - System.currentTimeMillis()));
+		assertTrue("executed " + (due - procedure.executionTime) + "ms early", procedure.executionTime >= due);
+		waitForTermination(timer);
+		assertEquals(1, procedure.executions.get());
+		assertFalse(timer.isRunning());
+	}
+
+	@Test
+	public void testTimerInThePastFiresImmediately() throws InterruptedException {
+		CountingProcedure procedure = new CountingProcedure();
+		schedule(procedure, System.currentTimeMillis() - 1000);
+
+		assertTrue(procedure.await(TOLERANCE));
+	}
+
+	@Test
+	public void testCancel() throws InterruptedException {
+		CountingProcedure procedure = new CountingProcedure();
+		TimerImpl timer = schedule(procedure, System.currentTimeMillis() + 100);
+
+		assertTrue(timer.cancel());
+		assertFalse(procedure.await(300));
+		assertFalse(timer.hasTerminated());
+	}
+
+	@Test
+	public void testCancelAfterExecution() throws InterruptedException {
+		CountingProcedure procedure = new CountingProcedure();
+		TimerImpl timer = schedule(procedure, System.currentTimeMillis());
+
+		assertTrue(procedure.await(TOLERANCE));
+		waitForTermination(timer);
+		assertFalse(timer.cancel());
+	}
+
+	@Test
+	public void testRescheduleEarlier() throws InterruptedException {
+		CountingProcedure procedure = new CountingProcedure();
+		TimerImpl timer = schedule(procedure, System.currentTimeMillis() + 60000);
+
+		long due = System.currentTimeMillis() + 100;
+		assertTrue(timer.reschedule(new DateTime(due)));
+		assertTrue(procedure.await(due + TOLERANCE - System.currentTimeMillis()));
+		assertTrue(procedure.executionTime >= due);
+		waitForTermination(timer);
+		assertEquals(1, procedure.executions.get());
+	}
+
+	@Test
+	public void testRescheduleLater() throws InterruptedException {
+		CountingProcedure procedure = new CountingProcedure();
+		TimerImpl timer = schedule(procedure, System.currentTimeMillis() + 100);
+
+		long due = System.currentTimeMillis() + 400;
+		assertTrue(timer.reschedule(new DateTime(due)));
+		assertTrue(procedure.await(due + TOLERANCE - System.currentTimeMillis()));
+		assertTrue("executed " + (due - procedure.executionTime) + "ms early", procedure.executionTime >= due);
+
+		// the timer must not be executed at its original time as well
+		Thread.sleep(100);
+		assertEquals(1, procedure.executions.get());
+	}
+
+	@Test
+	public void testTimerLongerThanOneRound() throws InterruptedException {
+		long round = TICK_DURATION * WHEEL_SIZE;
+		CountingProcedure procedure = new CountingProcedure();
+		CountingProcedure sameBucket = new CountingProcedure();
+		long now = System.currentTimeMillis();
+		long due = now + 3 * round + round / 2;
+		schedule(procedure, due);
+		// due in the same bucket one round earlier
+		schedule(sameBucket, due - round);
+
+		assertTrue(sameBucket.await(due - round + TOLERANCE - System.currentTimeMillis()));
+		assertEquals(0, procedure.executions.get());
+		assertTrue(procedure.await(due + TOLERANCE - System.currentTimeMillis()));
+		assertTrue("executed " + (due - procedure.executionTime) + "ms early", procedure.executionTime >= due);
+		assertEquals(1, procedure.executions.get());
+	}
+
+	@Test
+	public void testStoppedServiceDropsTimers() throws InterruptedException {
+		CountingProcedure procedure = new CountingProcedure();
+		TimerImpl timer = schedule(procedure, System.currentTimeMillis() + 100);
+
+		service.stop();
+		assertFalse(procedure.await(300));
+		assertFalse(timer.reschedule(new DateTime(System.currentTimeMillis())));
+		assertFalse(timer.cancel());
+	}
+
+	@Test
+	public void testShutdown() throws InterruptedException {
+		TimerService instance = TimerService.getInstance();
+		TimerImpl timer = new TimerImpl(instance, new CountingProcedure());
+		TimerService.shutdown();
+
+		assertFalse(timer.reschedule(new DateTime(System.currentTimeMillis())));
+
+		// the next timer starts a new service
+		TimerService restarted = TimerService.getInstance();
+		try {
+			assertNotSame(instance, restarted);
+			CountingProcedure procedure = new CountingProcedure();
+			assertTrue(new TimerImpl(restarted, procedure).reschedule(new DateTime(System.currentTimeMillis())));
+			assertTrue(procedure.await(TOLERANCE));
+		} finally {
+			TimerService.shutdown();
+		}
+	}
+
+	private void waitForTermination(TimerImpl timer) throws InterruptedException {
+		for (int i = 0; i < 100 && !timer.hasTerminated(); i++) {
+			Thread.sleep(10);
+		}
+		assertTrue(timer.hasTerminated());
+	}
+
+}
@@ -13,6 +13,7 @@ import org.openhab.core.items.ItemRegistry;
 import org.openhab.core.scriptengine.ScriptEngine;
 import org.openhab.core.scriptengine.action.ActionService;
 import org.openhab.model.core.ModelRepository;
+import org.openhab.model.script.internal.actions.TimerService;
 import org.osgi.framework.BundleActivator;
 import org.osgi.framework.BundleContext;
 import org.osgi.util.tracker.ServiceTracker;
@@ -55,6 +56,7 @@ public class ScriptActivator implements BundleActivator {
 	 * Called whenever the OSGi framework stops our bundle
 	 */
 	public void stop(BundleContext bc) throws Exception {
+		TimerService.shutdown();
 		itemRegistryTracker.close();
 		eventPublisherTracker.close();
 		modelRepositoryTracker.close();
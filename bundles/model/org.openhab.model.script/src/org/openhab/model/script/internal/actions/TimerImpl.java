@@ -8,103 +8,93 @@
  */
 package org.openhab.model.script.internal.actions;
 
-import static org.quartz.TriggerBuilder.newTrigger;
-
-import org.joda.time.DateTime;
+import org.eclipse.xtext.xbase.lib.Procedures.Procedure0;
 import org.joda.time.base.AbstractInstant;
 import org.openhab.model.script.actions.Timer;
-import org.quartz.JobExecutionContext;
-import org.quartz.JobKey;
-import org.quartz.Scheduler;
-import org.quartz.SchedulerException;
-import org.quartz.Trigger;
-import org.quartz.TriggerKey;
-import org.quartz.impl.StdSchedulerFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
- * This is an implementation of the {@link Timer} interface using the Quartz
- * library for scheduling.
- * 
+ * This is an implementation of the {@link Timer} interface using the
+ * {@link TimerService} for scheduling.
+ *
  * @author Kai Kreuzer
  * @since 1.0.0
  *
  */
-public class TimerImpl implements Timer {
+public class TimerImpl implements Timer, Runnable {
 
 	private static final Logger logger = LoggerFactory.getLogger(TimerImpl.class);
 
-	// the scheduler used for timer events
-	public static Scheduler scheduler;
+	private final TimerService service;
 
-	static {
-		 try {
-			scheduler = StdSchedulerFactory.getDefaultScheduler();
-		} catch (SchedulerException e) {
-	     logger.error("initializing scheduler throws exception", e);
-		}
-	}
-	
-	private JobKey jobKey;
-	private TriggerKey triggerKey;
-	private AbstractInstant startTime;
+	private final Procedure0 procedure;
+
+	// the position in the timer wheel, which is guarded by the service
+	int bucket = -1;
+	long remainingRounds;
+	TimerImpl previous;
+	TimerImpl next;
+
+	/** true, if the timer is due, but has not been started yet; guarded by the service */
+	boolean queued = false;
 
-	private boolean cancelled = false;
-	private boolean terminated = false;
-	
-	public TimerImpl(JobKey jobKey, TriggerKey triggerKey, AbstractInstant startTime) {
-		this.jobKey = jobKey;
-		this.triggerKey = triggerKey;
-		this.startTime = startTime;
+	private volatile boolean running = false;
+	private volatile boolean cancelled = false;
+	private volatile boolean terminated = false;
+
+	public TimerImpl(TimerService service, Procedure0 procedure) {
+		this.service = service;
+		this.procedure = procedure;
 	}
-	
+
 	public boolean cancel() {
-		try {
-			boolean result = scheduler.deleteJob(jobKey);
-			if(result) {
-				cancelled = true;
-			}
-		} catch (SchedulerException e) {
-			logger.warn("An error occured while cancelling the job '{}': {}", new String[] { jobKey.toString(), e.getMessage() });
+		if(service.cancel(this)) {
+			cancelled = true;
 		}
 		return cancelled;
 	}
-	
+
 	public boolean reschedule(AbstractInstant newTime) {
-		try {
-	        Trigger trigger = newTrigger().startAt(newTime.toDate()).build();
-			scheduler.rescheduleJob(triggerKey, trigger);
-			this.triggerKey = trigger.getKey();
-			this.cancelled = false;
-			this.terminated = false;
+		this.cancelled = false;
+		this.terminated = false;
+		if(service.schedule(this, newTime.getMillis())) {
 			return true;
-		} catch (SchedulerException e) {
-			logger.warn("An error occured while rescheduling the job '{}': {}", new String[] { jobKey.toString(), e.getMessage() });
+		} else {
+			logger.warn("The timer cannot be scheduled at {} as the timer service has been stopped", newTime);
 			return false;
 		}
 	}
-	
+
 	public boolean isRunning() {
-		try {
-			for(JobExecutionContext context : scheduler.getCurrentlyExecutingJobs()) {
-				if(context.getJobDetail().getKey().equals(jobKey)) {
-					return true;
-				}
-			}
-			return false;
-		} catch (SchedulerException e) {
-			// fallback implementation
-			logger.debug("An error occured getting currently running jobs: {}", e.getMessage());
-			return DateTime.now().isAfter(startTime) && !terminated;
-		}
+		return running;
 	}
 
 	public boolean hasTerminated() {
 		return terminated;
 	}
-	
-	public void setTerminated(boolean terminated) {
-		this.terminated = terminated;
+
+	/**
+	 * Executes the code of the timer, unless it has been cancelled or
+	 * rescheduled after it has become due.
+	 */
+	public void run() {
+		if(!service.start(this)) {
+			return;
+		}
+		running = true;
+		try {
+			logger.debug("Executing timer '{}'", procedure);
+			procedure.apply();
+		} catch(RuntimeException e) {
+			logger.error("Error during the execution of timer '{}'", procedure, e);
+		} finally {
+			running = false;
+			// a timer which has been rescheduled during its execution is pending again
+			if(!service.isPending(this)) {
+				terminated = true;
+			}
+		}
 	}
+
 }
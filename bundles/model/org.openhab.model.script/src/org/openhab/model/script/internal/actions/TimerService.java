@@ -0,0 +1,293 @@
+/**
+ * Copyright (c) 2010-2014, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.model.script.internal.actions;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The service which executes the timers of the scripts. The timers are kept
+ * in a hashed timing wheel: a ring of buckets, each of which holds the timers
+ * which are due within one tick, and a thread which moves from bucket to
+ * bucket with every tick. Timers which are due later than one round of the
+ * wheel are kept in the bucket of their tick together with the number of
+ * rounds left. Scheduling, rescheduling and cancelling a timer therefore only
+ * links or unlinks it in a bucket, regardless of the number of timers.
+ * <p>The timers are executed on a pool of threads, so that a long running
+ * timer does not delay the others. They are never executed before they are
+ * due, but about one tick later at most.</p>
+ *
+ * @author Kai Kreuzer
+ * @since 1.5.0
+ *
+ */
+public class TimerService implements Runnable {
+
+	private static final Logger logger = LoggerFactory.getLogger(TimerService.class);
+
+	/** the duration of a tick in milliseconds */
+	private static final long TICK_DURATION = 50;
+
+	/** the number of buckets, which has to be a power of two */
+	private static final int WHEEL_SIZE = 512;
+
+	/** the time in seconds after which idle execution threads are terminated */
+	private static final long KEEP_ALIVE = 60;
+
+	private static TimerService instance;
+
+	private final long tickNanos;
+
+	private final int wheelSize;
+
+	private final int mask;
+
+	/** the first timer of each bucket, the timers of a bucket are linked with each other */
+	private final TimerImpl[] buckets;
+
+	private final long startTime = System.nanoTime();
+
+	/** the next tick to process, the wheel thread is ahead of it */
+	private long tick = 0;
+
+	private int size = 0;
+
+	private boolean stopped = false;
+
+	private final Thread thread;
+
+	private final ExecutorService executor;
+
+	private TimerService() {
+		this(TICK_DURATION, WHEEL_SIZE);
+	}
+
+	/**
+	 * Creates a timer service with the given wheel, which is not started yet.
+	 *
+	 * @param tickDuration the duration of a tick in milliseconds
+	 * @param wheelSize the number of buckets, which has to be a power of two
+	 */
+	TimerService(long tickDuration, int wheelSize) {
+		tickNanos = TimeUnit.MILLISECONDS.toNanos(tickDuration);
+		this.wheelSize = wheelSize;
+		mask = wheelSize - 1;
+		buckets = new TimerImpl[wheelSize];
+		thread = new Thread(this, "Script timer wheel");
+		thread.setDaemon(true);
+		executor = new ThreadPoolExecutor(0, Integer.MAX_VALUE, KEEP_ALIVE, TimeUnit.SECONDS,
+				new SynchronousQueue<Runnable>(), new ThreadFactory() {
+					private final AtomicInteger count = new AtomicInteger();
+
+					public Thread newThread(Runnable runnable) {
+						Thread thread = new Thread(runnable, "Script timer " + count.incrementAndGet());
+						thread.setDaemon(true);
+						return thread;
+					}
+				});
+	}
+
+	/**
+	 * @return the timer service, which is started on the first call
+	 */
+	public static synchronized TimerService getInstance() {
+		if (instance == null) {
+			instance = new TimerService();
+			instance.start();
+		}
+		return instance;
+	}
+
+	/**
+	 * Stops the timer service, if it has been started. The pending timers are
+	 * dropped, the running ones are completed.
+	 */
+	public static synchronized void shutdown() {
+		if (instance != null) {
+			instance.stop();
+			instance = null;
+		}
+	}
+
+	void start() {
+		thread.start();
+	}
+
+	/**
+	 * Schedules a timer, which is moved if it has already been scheduled.
+	 *
+	 * @param timer the timer to schedule
+	 * @param time the time in milliseconds since the epoch at which the timer is due
+	 * @return true, if the timer has been scheduled, false if the service has been stopped
+	 */
+	synchronized boolean schedule(TimerImpl timer, long time) {
+		if (stopped) {
+			return false;
+		}
+		unlink(timer);
+		timer.queued = false;
+
+		long delay = Math.max(0, time - System.currentTimeMillis());
+		long deadline = System.nanoTime() - startTime + TimeUnit.MILLISECONDS.toNanos(delay);
+		long dueTick = Math.max(deadline / tickNanos, tick);
+		timer.remainingRounds = (dueTick - tick) / wheelSize;
+		link(timer, (int) (dueTick & mask));
+		return true;
+	}
+
+	/**
+	 * Cancels a timer, which has not been started yet.
+	 *
+	 * @param timer the timer to cancel
+	 * @return true, if the timer has been cancelled, false if it is not pending
+	 */
+	synchronized boolean cancel(TimerImpl timer) {
+		if (timer.bucket >= 0) {
+			unlink(timer);
+			return true;
+		} else if (timer.queued) {
+			// it is due, but has not been started yet
+			timer.queued = false;
+			return true;
+		} else {
+			return false;
+		}
+	}
+
+	/**
+	 * Marks a due timer as started.
+	 *
+	 * @param timer the timer which is about to be executed
+	 * @return true, if the timer has to be executed, false if it has been cancelled or rescheduled in the meantime
+	 */
+	synchronized boolean start(TimerImpl timer) {
+		if (!timer.queued) {
+			return false;
+		}
+		timer.queued = false;
+		return true;
+	}
+
+	/**
+	 * @param timer the timer to check
+	 * @return true, if the timer is waiting to be executed
+	 */
+	synchronized boolean isPending(TimerImpl timer) {
+		return timer.bucket >= 0 || timer.queued;
+	}
+
+	public void run() {
+		while (true) {
+			long sleepTime;
+			synchronized (this) {
+				if (stopped) {
+					return;
+				}
+				sleepTime = (tick + 1) * tickNanos - (System.nanoTime() - startTime);
+			}
+			if (sleepTime > 0) {
+				try {
+					Thread.sleep(TimeUnit.NANOSECONDS.toMillis(sleepTime) + 1);
+				} catch (InterruptedException e) {
+					return;
+				}
+				continue;
+			}
+			for (TimerImpl timer : expire()) {
+				try {
+					executor.execute(timer);
+				} catch (RejectedExecutionException e) {
+					// the service has been stopped
+					return;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Processes the bucket of the current tick and moves on to the next tick.
+	 *
+	 * @return the timers which are due
+	 */
+	private synchronized List<TimerImpl> expire() {
+		List<TimerImpl> expired = new ArrayList<TimerImpl>();
+		int index = (int) (tick & mask);
+		TimerImpl timer = buckets[index];
+		while (timer != null) {
+			TimerImpl next = timer.next;
+			if (timer.remainingRounds <= 0) {
+				unlink(timer);
+				timer.queued = true;
+				expired.add(timer);
+			} else {
+				timer.remainingRounds--;
+			}
+			timer = next;
+		}
+		tick++;
+		return expired;
+	}
+
+	synchronized void stop() {
+		stopped = true;
+		for (int i = 0; i < wheelSize; i++) {
+			while (buckets[i] != null) {
+				unlink(buckets[i]);
+			}
+		}
+		thread.interrupt();
+		executor.shutdown();
+		logger.debug("Script timer service has been stopped");
+	}
+
+	private void link(TimerImpl timer, int index) {
+		timer.bucket = index;
+		timer.previous = null;
+		timer.next = buckets[index];
+		if (timer.next != null) {
+			timer.next.previous = timer;
+		}
+		buckets[index] = timer;
+		size++;
+	}
+
+	private void unlink(TimerImpl timer) {
+		if (timer.bucket < 0) {
+			return;
+		}
+		if (timer.previous != null) {
+			timer.previous.next = timer.next;
+		} else {
+			buckets[timer.bucket] = timer.next;
+		}
+		if (timer.next != null) {
+			timer.next.previous = timer.previous;
+		}
+		timer.previous = null;
+		timer.next = null;
+		timer.bucket = -1;
+		size--;
+	}
+
+	@Override
+	public synchronized String toString() {
+		return "script timer service with " + size + " scheduled timers";
+	}
+
+}
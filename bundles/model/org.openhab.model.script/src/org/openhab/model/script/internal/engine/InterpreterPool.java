@@ -0,0 +1,88 @@
+/**
+ * Copyright (c) 2010-2014, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.model.script.internal.engine;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.xtext.xbase.interpreter.IExpressionInterpreter;
+
+import com.google.inject.Inject;
+import com.google.inject.Provider;
+import com.google.inject.Singleton;
+
+/**
+ * A pool of interpreters, which are reused by the scripts. Every interpreter
+ * resolves the methods for the different kinds of expressions by reflection
+ * and keeps them in its dispatchers. A new interpreter for every script
+ * execution would have to resolve them again on every evaluation, a pooled one
+ * has them linked already. An interpreter is only used by a single script
+ * execution at a time, as the dispatchers are not meant to be shared between
+ * threads.
+ *
+ * @author Kai Kreuzer
+ * @since 1.5.0
+ *
+ */
+@SuppressWarnings("restriction")
+@Singleton
+public class InterpreterPool {
+
+	/** the maximum number of idle interpreters which are kept */
+	private static final int MAX_IDLE = 16;
+
+	@Inject
+	private Provider<IExpressionInterpreter> interpreterProvider;
+
+	private final List<IExpressionInterpreter> idle = new ArrayList<IExpressionInterpreter>(MAX_IDLE);
+
+	private long created = 0;
+
+	private long reused = 0;
+
+	/**
+	 * Takes an interpreter from the pool, which has to be given back by
+	 * {@link #release(IExpressionInterpreter)} after the evaluation.
+	 *
+	 * @return an interpreter, which is not used by any other thread
+	 */
+	public IExpressionInterpreter acquire() {
+		synchronized (idle) {
+			if (!idle.isEmpty()) {
+				reused++;
+				// the most recently used interpreter has the most methods linked
+				return idle.remove(idle.size() - 1);
+			}
+			created++;
+		}
+		return interpreterProvider.get();
+	}
+
+	/**
+	 * Gives an interpreter back to the pool.
+	 *
+	 * @param interpreter the interpreter which has been taken by {@link #acquire()}
+	 */
+	public void release(IExpressionInterpreter interpreter) {
+		synchronized (idle) {
+			if (idle.size() < MAX_IDLE) {
+				idle.add(interpreter);
+			}
+		}
+	}
+
+	@Override
+	public String toString() {
+		synchronized (idle) {
+			return "interpreter pool with " + idle.size() + " idle interpreters, " + created + " created, " + reused
+					+ " reused";
+		}
+	}
+
+}
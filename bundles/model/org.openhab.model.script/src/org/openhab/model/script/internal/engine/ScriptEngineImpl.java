@@ -11,6 +11,7 @@ package org.openhab.model.script.internal.engine;
 import static com.google.common.collect.Iterables.filter;
 
 import java.io.IOException;
+import java.util.Collection;
 import java.util.List;
 
 import org.eclipse.emf.common.util.EList;
@@ -28,11 +29,17 @@ import org.eclipse.xtext.validation.CheckMode;
 import org.eclipse.xtext.validation.IResourceValidator;
 import org.eclipse.xtext.validation.Issue;
 import org.eclipse.xtext.xbase.XExpression;
+import org.openhab.core.items.Item;
+import org.openhab.core.items.ItemRegistry;
+import org.openhab.core.items.ItemRegistryChangeListener;
 import org.openhab.core.scriptengine.Script;
 import org.openhab.core.scriptengine.ScriptEngine;
 import org.openhab.core.scriptengine.ScriptExecutionException;
 import org.openhab.core.scriptengine.ScriptParsingException;
 import org.openhab.model.script.ScriptStandaloneSetup;
+import org.openhab.model.script.interpreter.FeatureCallResolutionCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import com.google.common.base.Predicate;
 import com.google.inject.Injector;
@@ -45,7 +52,9 @@ import com.google.inject.Injector;
  *
  */
 @SuppressWarnings("restriction")
-public class ScriptEngineImpl implements ScriptEngine {
+public class ScriptEngineImpl implements ScriptEngine, ItemRegistryChangeListener {
+
+	private static final Logger logger = LoggerFactory.getLogger(ScriptEngineImpl.class);
 
 	protected Injector guiceInjector;
 	protected XtextResourceSet resourceSet;
@@ -62,6 +71,50 @@ public class ScriptEngineImpl implements ScriptEngine {
 		this.guiceInjector = null;
 		this.resourceSet = null;
 	}
+
+	public void setItemRegistry(ItemRegistry itemRegistry) {
+		itemRegistry.addItemRegistryChangeListener(this);
+		invalidateResolutions();
+	}
+
+	public void unsetItemRegistry(ItemRegistry itemRegistry) {
+		itemRegistry.removeItemRegistryChangeListener(this);
+		invalidateResolutions();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void allItemsChanged(Collection<String> oldItemNames) {
+		invalidateResolutions();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void itemAdded(Item item) {
+		invalidateResolutions();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void itemRemoved(Item item) {
+		invalidateResolutions();
+	}
+
+	/**
+	 * Drops the items to which the identifiers of the scripts have been
+	 * resolved, as they might have been replaced in the item registry.
+	 */
+	private void invalidateResolutions() {
+		Injector injector = guiceInjector;
+		if (injector != null) {
+			FeatureCallResolutionCache resolutionCache = injector.getInstance(FeatureCallResolutionCache.class);
+			logger.debug("Invalidating the {}", resolutionCache);
+			resolutionCache.invalidate();
+		}
+	}
 		
 	/**
 	 * {@inheritDoc}
@@ -30,7 +30,7 @@ import com.google.inject.Provider;
 @SuppressWarnings("restriction")
 public class ScriptImpl implements Script {
 
-	@Inject protected IExpressionInterpreter interpreter;
+	@Inject protected InterpreterPool interpreterPool;
 	@Inject protected Provider<IEvaluationContext> contextProvider;
 
 	private XExpression xExpression;
@@ -55,6 +55,7 @@ public class ScriptImpl implements Script {
 
 	public Object execute(IEvaluationContext evaluationContext) throws ScriptExecutionException {
 		if(xExpression!=null) {
+			IExpressionInterpreter interpreter = interpreterPool.acquire();
 		    try {
 		    	IEvaluationResult result = interpreter.evaluate(xExpression, evaluationContext, CancelIndicator.NullImpl);
 			    if(result==null) {
@@ -71,6 +72,8 @@ public class ScriptImpl implements Script {
 		    	} else {
 		    		throw new ScriptExecutionException("An error occured during the script execution: " + e.getMessage(), e);
 		    	}
+		    } finally {
+		    	interpreterPool.release(interpreter);
 		    }
 		} else {
 	        throw new ScriptExecutionException("Script does not contain any expression");
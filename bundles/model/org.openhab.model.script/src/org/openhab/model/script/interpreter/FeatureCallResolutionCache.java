@@ -0,0 +1,122 @@
+/**
+ * Copyright (c) 2010-2014, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.model.script.interpreter;
+
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.xtext.xbase.XFeatureCall;
+
+import com.google.common.collect.MapMaker;
+import com.google.inject.Singleton;
+
+/**
+ * Keeps the items and types to which the {@link ScriptInterpreter} has
+ * resolved the identifiers of the parsed scripts, so that every identifier is
+ * only looked up once. The resolutions are kept by feature call and are
+ * dropped together with the model they belong to. As they refer to the items
+ * of the item registry, they have to be invalidated whenever the registry
+ * changes.
+ * <p>The cache is looked up on every evaluation of an identifier, so it does
+ * not lock; a resolution which races with an invalidation is dropped again.</p>
+ *
+ * @author Kai Kreuzer
+ * @since 1.5.0
+ *
+ */
+@Singleton
+public class FeatureCallResolutionCache {
+
+	/** the value returned for feature calls which have not been resolved yet */
+	public static final Object UNKNOWN = new Object();
+
+	/** the value kept for identifiers which cannot be resolved */
+	private static final Object UNRESOLVED = new Object();
+
+	private final ConcurrentMap<XFeatureCall, Object> resolutions = new MapMaker().weakKeys().makeMap();
+
+	/** the number of invalidations so far */
+	private volatile long generation = 0;
+
+	private final AtomicLong hits = new AtomicLong();
+
+	private final AtomicLong misses = new AtomicLong();
+
+	/**
+	 * Returns the resolution of a feature call.
+	 *
+	 * @param featureCall the feature call to look up
+	 * @return the item or type of the feature call, null if it cannot be
+	 *         resolved or {@link #UNKNOWN} if it has not been resolved yet
+	 */
+	public Object get(XFeatureCall featureCall) {
+		Object value = resolutions.get(featureCall);
+		if (value == null) {
+			misses.incrementAndGet();
+			return UNKNOWN;
+		}
+		hits.incrementAndGet();
+		return value != UNRESOLVED ? value : null;
+	}
+
+	/**
+	 * Keeps the resolution of a feature call until the next invalidation. The
+	 * resolution is dropped, if the cache has been invalidated while it has
+	 * been resolved.
+	 *
+	 * @param featureCall the resolved feature call
+	 * @param value the item or type of the feature call, null if it cannot be resolved
+	 * @param generation the generation of the cache before the feature call has been resolved
+	 */
+	public void put(XFeatureCall featureCall, Object value, long generation) {
+		if (generation != this.generation) {
+			return;
+		}
+		Object resolution = value != null ? value : UNRESOLVED;
+		resolutions.put(featureCall, resolution);
+		// the generation is raised before the resolutions are cleared, so a
+		// concurrent invalidation is either seen here or clears the resolution
+		if (generation != this.generation) {
+			resolutions.remove(featureCall, resolution);
+		}
+	}
+
+	/**
+	 * @return the number of invalidations so far, which has to be passed to
+	 *         {@link #put(XFeatureCall, Object, long)}
+	 */
+	public long getGeneration() {
+		return generation;
+	}
+
+	/**
+	 * Drops all resolutions, so that the identifiers are resolved against
+	 * the current items again.
+	 */
+	public synchronized void invalidate() {
+		generation++;
+		resolutions.clear();
+	}
+
+	/**
+	 * @return the percentage of the lookups which have been answered from the cache
+	 */
+	public int getHitRate() {
+		long hits = this.hits.get();
+		long total = hits + misses.get();
+		return total > 0 ? (int) (hits * 100 / total) : 0;
+	}
+
+	@Override
+	public String toString() {
+		return "feature call resolutions of " + resolutions.size() + " identifiers, " + hits.get() + " hits, "
+				+ misses.get() + " misses (" + getHitRate() + "%)";
+	}
+
+}
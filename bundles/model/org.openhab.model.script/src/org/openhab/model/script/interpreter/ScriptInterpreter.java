@@ -44,6 +44,9 @@ public class ScriptInterpreter extends XbaseInterpreter {
 	
 	@Inject
 	StateAndCommandProvider stateAndCommandProvider;
+
+	@Inject
+	FeatureCallResolutionCache resolutionCache;
 		
 	private PolymorphicDispatcher<Object> featureCallDispatcher = createFeatureCallDispatcher();
 
@@ -51,15 +54,30 @@ public class ScriptInterpreter extends XbaseInterpreter {
 			IEvaluationContext context, CancelIndicator indicator) {
 		Object value = super._featureCallJvmIdentifyableElement(identifiable, featureCall, receiver, context, indicator);
 		if(value==null && receiver==null) {
-			for(Type type : stateAndCommandProvider.getAllTypes()) {
-				if(type.toString().equals(featureCall.toString())) {
-					return type;
-				}
+			long generation = resolutionCache.getGeneration();
+			value = resolutionCache.get(featureCall);
+			if(value==FeatureCallResolutionCache.UNKNOWN) {
+				value = resolveIdentifier(featureCall.toString());
+				resolutionCache.put(featureCall, value, generation);
 			}
-			value = getItem(featureCall.toString());
 		}
 		return value;
 	}
+
+	/**
+	 * Resolves an identifier, which is not known to Xbase, to a type or an item.
+	 * 
+	 * @param name the identifier
+	 * @return the type or item of the given name, null if there is none
+	 */
+	protected Object resolveIdentifier(String name) {
+		for(Type type : stateAndCommandProvider.getAllTypes()) {
+			if(type.toString().equals(name)) {
+				return type;
+			}
+		}
+		return getItem(name);
+	}
 	
 	protected Object internalFeatureCallDispatch(XAbstractFeatureCall featureCall, Object receiverObj,
 			IEvaluationContext context, CancelIndicator indicator) {
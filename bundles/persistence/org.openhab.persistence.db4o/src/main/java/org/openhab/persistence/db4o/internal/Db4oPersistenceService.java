@@ -26,11 +26,15 @@ import java.util.Date;
 import java.util.Set;
 
 import org.openhab.core.items.Item;
+import org.openhab.core.library.types.DecimalType;
+import org.openhab.core.persistence.AggregatePersistenceService;
 import org.openhab.core.persistence.FilterCriteria;
 import org.openhab.core.persistence.FilterCriteria.Ordering;
 import org.openhab.core.persistence.HistoricItem;
+import org.openhab.core.persistence.ModifiablePersistenceService;
 import org.openhab.core.persistence.PersistenceService;
 import org.openhab.core.persistence.QueryablePersistenceService;
+import org.openhab.core.types.State;
 import org.quartz.CronScheduleBuilder;
 import org.quartz.CronTrigger;
 import org.quartz.DisallowConcurrentExecution;
@@ -61,7 +65,7 @@ import com.db4o.query.Query;
  * @author Kai Kreuzer
  * @since 1.0.0
  */
-public class Db4oPersistenceService implements QueryablePersistenceService {
+public class Db4oPersistenceService implements ModifiablePersistenceService, AggregatePersistenceService {
 
 	private static final Logger logger = LoggerFactory.getLogger(Db4oPersistenceService.class);
 	
@@ -121,6 +125,53 @@ public class Db4oPersistenceService implements QueryablePersistenceService {
 		}
 	}
 
+	public void store(String name, Date timestamp, State state) {
+		Db4oItem historicItem = new Db4oItem();
+		historicItem.setName(name);
+		historicItem.setState(state);
+		historicItem.setTimestamp(timestamp);
+		
+		try {
+			db.store(historicItem);
+			logger.trace("Stored item state '{}' -> '{}' at {}", new Object[] { name, state, timestamp });
+		} catch(Db4oException e) {
+			db.rollback();
+			logger.warn("Error storing state for '{}': {}", name, e.getMessage());
+		}
+	}
+
+	public int remove(FilterCriteria filter) {
+		Query query = queryWithReconnect();
+		if (query == null) {
+			return 0;
+		}
+		query.constrain(Db4oItem.class);
+		if (filter.getBeginDate()!=null) {
+			query.descend("timestamp").constrain(filter.getBeginDate()).greater().equal();
+		}
+		if (filter.getEndDate()!=null) {
+			query.descend("timestamp").constrain(filter.getEndDate()).smaller();
+		}
+		if (filter.getItemName()!=null) {
+			query.descend("name").constrain(filter.getItemName()).equal();
+		}
+		query.descend("timestamp").orderAscending();
+		ObjectSet<Db4oItem> results = query.execute();
+
+		int count = 0;
+		try {
+			while (count < filter.getPageSize() && results.hasNext()) {
+				db.delete(results.next());
+				count++;
+			}
+		} catch(Db4oException e) {
+			db.rollback();
+			logger.warn("Error removing states of '{}': {}", filter.getItemName(), e.getMessage());
+			return 0;
+		}
+		return count;
+	}
+
 	public Iterable<HistoricItem> query(FilterCriteria filter) {
 		Query query = queryWithReconnect();
 		
@@ -170,6 +221,62 @@ public class Db4oPersistenceService implements QueryablePersistenceService {
 		return Collections.emptyList();
 	}
 	
+	public boolean supports(Function function) {
+		return function==Function.COUNT || function==Function.FIRST_CHANGE;
+	}
+
+	public HistoricItem aggregate(FilterCriteria filter, Function function) {
+		Date end = filter.getEndDate()!=null ? filter.getEndDate() : new Date();
+		Query query = queryWithReconnect();
+		if (query == null) {
+			return null;
+		}
+		query.constrain(Db4oItem.class);
+		query.descend("name").constrain(filter.getItemName()).equal();
+		if (filter.getBeginDate()!=null) {
+			query.descend("timestamp").constrain(filter.getBeginDate()).greater().equal();
+		}
+		if (filter.getEndDate()!=null) {
+			query.descend("timestamp").constrain(filter.getEndDate()).smaller().equal();
+		}
+		query.descend("timestamp").orderAscending();
+		ObjectSet<Db4oItem> results = query.execute();
+
+		if (function==Function.COUNT) {
+			// the size is known without activating the stored objects
+			Db4oItem count = new Db4oItem();
+			count.setName(filter.getItemName());
+			count.setState(new DecimalType(results.size()));
+			count.setTimestamp(end);
+			return count;
+		} else if (function==Function.FIRST_CHANGE) {
+			Object stateBefore = null;
+			if (filter.getBeginDate()!=null) {
+				Query before = queryWithReconnect();
+				if (before == null) {
+					return null;
+				}
+				before.constrain(Db4oItem.class);
+				before.descend("name").constrain(filter.getItemName()).equal();
+				before.descend("timestamp").constrain(filter.getBeginDate()).smaller();
+				before.descend("timestamp").orderDescending();
+				ObjectSet<Db4oItem> beforeResults = before.execute();
+				if (beforeResults.hasNext()) {
+					stateBefore = beforeResults.next().getState();
+				}
+			}
+			// the objects are only activated up to the first change
+			while (results.hasNext()) {
+				Db4oItem historicItem = results.next();
+				if (stateBefore==null || !stateBefore.equals(historicItem.getState())) {
+					return historicItem;
+				}
+			}
+			return null;
+		}
+		throw new UnsupportedOperationException("db4o does not support the aggregate " + function);
+	}
+	
 	/**
 	 * Creates a new Query and returns it. In case the Database is closed for
 	 * some reason we'll try to reopen it again and try to create a query a
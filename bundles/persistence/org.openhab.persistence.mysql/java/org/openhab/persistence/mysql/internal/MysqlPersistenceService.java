@@ -16,7 +16,9 @@ import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.Date;
 import java.util.Dictionary;
 import java.util.Enumeration;
 import java.util.Formatter;
@@ -26,6 +28,7 @@ import java.util.Map;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
+import org.apache.commons.lang.StringEscapeUtils;
 import org.apache.commons.lang.StringUtils;
 import org.openhab.core.items.Item;
 import org.openhab.core.items.ItemNotFoundException;
@@ -44,8 +47,11 @@ import org.openhab.core.library.types.OnOffType;
 import org.openhab.core.library.types.OpenClosedType;
 import org.openhab.core.library.types.PercentType;
 import org.openhab.core.library.types.StringType;
+import org.openhab.core.persistence.AggregatePersistenceService;
+import org.openhab.core.persistence.BulkQueryablePersistenceService;
 import org.openhab.core.persistence.FilterCriteria;
 import org.openhab.core.persistence.HistoricItem;
+import org.openhab.core.persistence.ModifiablePersistenceService;
 import org.openhab.core.persistence.PersistenceService;
 import org.openhab.core.persistence.QueryablePersistenceService;
 import org.openhab.core.persistence.FilterCriteria.Ordering;
@@ -82,12 +88,16 @@ import org.slf4j.LoggerFactory;
  * @author Chris Jackson
  * @since 1.1.0
  */
-public class MysqlPersistenceService implements QueryablePersistenceService, ManagedService {
+public class MysqlPersistenceService implements ModifiablePersistenceService, AggregatePersistenceService,
+		BulkQueryablePersistenceService, ManagedService {
 
 	private static final Pattern EXTRACT_CONFIG_PATTERN = Pattern.compile("^(.*?)\\.([0-9.a-zA-Z]+)$");
 
 	private static final Logger logger = LoggerFactory.getLogger(MysqlPersistenceService.class);
 
+	/** the maximum number of tables read by a single statement of a bulk query */
+	private static final int BULK_QUERY_SIZE = 100;
+
 	private String driverClass = "com.mysql.jdbc.Driver";
 	private String url;
 	private String user;
@@ -329,6 +339,108 @@ public class MysqlPersistenceService implements QueryablePersistenceService, Man
 		store(item, null);
 	}
 
+	/**
+	 * @{inheritDoc
+	 */
+	public void store(String name, Date timestamp, State state) {
+		if (!initialized)
+			return;
+
+		if (!isConnected())
+			connectToDatabase();
+
+		if (!isConnected())
+			return;
+
+		// The table is created when the item is stored for the first time
+		String tableName = sqlTables.get(name);
+		if (tableName == null) {
+			logger.warn("mySQL: Unable to find table for item '{}'.", name);
+			return;
+		}
+
+		SimpleDateFormat mysqlDateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+		String sqlCmd = "INSERT INTO " + tableName + " (TIME, VALUE) VALUES('" + mysqlDateFormat.format(timestamp)
+				+ "','" + state.toString() + "');";
+		Statement statement = null;
+		try {
+			statement = connection.createStatement();
+			statement.executeUpdate(sqlCmd);
+			logger.debug("mySQL: {}", sqlCmd);
+
+			// Success
+			errCnt = 0;
+		} catch (Exception e) {
+			errCnt++;
+
+			logger.error("mySQL: Could not store item '{}' in database with statement '{}': {}", name, sqlCmd,
+					e.getMessage());
+		} finally {
+			if (statement != null) {
+				try {
+					statement.close();
+				} catch (Exception hidden) {
+				}
+			}
+		}
+	}
+
+	/**
+	 * @{inheritDoc
+	 */
+	public int remove(FilterCriteria filter) {
+		if (!initialized)
+			return 0;
+
+		if (!isConnected())
+			connectToDatabase();
+
+		if (!isConnected())
+			return 0;
+
+		String tableName = sqlTables.get(filter.getItemName());
+		if (tableName == null) {
+			return 0;
+		}
+
+		SimpleDateFormat mysqlDateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+		String sqlCmd = "DELETE FROM " + tableName + " WHERE TRUE";
+		if (filter.getBeginDate() != null) {
+			sqlCmd += " AND TIME>='" + mysqlDateFormat.format(filter.getBeginDate()) + "'";
+		}
+		if (filter.getEndDate() != null) {
+			sqlCmd += " AND TIME<'" + mysqlDateFormat.format(filter.getEndDate()) + "'";
+		}
+		sqlCmd += " ORDER BY Time ASC";
+		if (filter.getPageSize() != Integer.MAX_VALUE) {
+			sqlCmd += " LIMIT " + filter.getPageSize();
+		}
+
+		Statement statement = null;
+		try {
+			statement = connection.createStatement();
+			int count = statement.executeUpdate(sqlCmd);
+			logger.debug("mySQL: {} removed {} rows", sqlCmd, count);
+
+			// Success
+			errCnt = 0;
+			return count;
+		} catch (Exception e) {
+			errCnt++;
+
+			logger.error("mySQL: Could not remove states of item '{}' with statement '{}': {}", filter.getItemName(),
+					sqlCmd, e.getMessage());
+		} finally {
+			if (statement != null) {
+				try {
+					statement.close();
+				} catch (Exception hidden) {
+				}
+			}
+		}
+		return 0;
+	}
+
 	/**
 	 * Checks if we have a database connection
 	 * 
@@ -558,30 +670,10 @@ public class MysqlPersistenceService implements QueryablePersistenceService, Man
 
 			long count = 0;
 			List<HistoricItem> items = new ArrayList<HistoricItem>();
-			State state;
 			while (rs.next()) {
 				count++;
 
-				if (item instanceof NumberItem)
-					state = new DecimalType(rs.getDouble(2));
-				else if (item instanceof DimmerItem)
-					state = new PercentType(rs.getInt(2));
-				else if (item instanceof SwitchItem)
-					state = OnOffType.valueOf(rs.getString(2));
-				else if (item instanceof ContactItem)
-					state = OpenClosedType.valueOf(rs.getString(2));
-				else if (item instanceof RollershutterItem)
-					state = new PercentType(rs.getInt(2));
-				else if (item instanceof ColorItem)
-					state = new HSBType(rs.getString(2));
-				else if (item instanceof DateTimeItem) {
-					Calendar calendar = Calendar.getInstance();
-					calendar.setTimeInMillis(rs.getTimestamp(2).getTime());
-					state = new DateTimeType(calendar);
-				} else
-					state = new StringType(rs.getString(2));
-
-				MysqlItem mysqlItem = new MysqlItem(itemName, state, rs.getTimestamp(1));
+				MysqlItem mysqlItem = new MysqlItem(itemName, getState(item, rs), rs.getTimestamp(1));
 				items.add(mysqlItem);
 			}
 
@@ -601,4 +693,234 @@ public class MysqlPersistenceService implements QueryablePersistenceService, Man
 		}
 		return null;
 	}
+
+	/**
+	 * Converts the value of the current row of a result set, which is selected
+	 * by the columns Time and Value, into the state of the given item.
+	 * 
+	 * @param item
+	 *            the item or null, if it is unknown
+	 * @param rs
+	 *            the result set
+	 * @return the state of the current row
+	 */
+	private State getState(Item item, ResultSet rs) throws SQLException {
+		if (item instanceof NumberItem)
+			return new DecimalType(rs.getDouble(2));
+		else if (item instanceof DimmerItem)
+			return new PercentType(rs.getInt(2));
+		else if (item instanceof SwitchItem)
+			return OnOffType.valueOf(rs.getString(2));
+		else if (item instanceof ContactItem)
+			return OpenClosedType.valueOf(rs.getString(2));
+		else if (item instanceof RollershutterItem)
+			return new PercentType(rs.getInt(2));
+		else if (item instanceof ColorItem)
+			return new HSBType(rs.getString(2));
+		else if (item instanceof DateTimeItem) {
+			Calendar calendar = Calendar.getInstance();
+			calendar.setTimeInMillis(rs.getTimestamp(2).getTime());
+			return new DateTimeType(calendar);
+		} else
+			return new StringType(rs.getString(2));
+	}
+
+	/**
+	 * @{inheritDoc
+	 */
+	public boolean supports(Function function) {
+		// time-weighted averages would need a self join of the table
+		return function != Function.TIME_WEIGHTED_AVERAGE;
+	}
+
+	/**
+	 * @{inheritDoc
+	 */
+	public HistoricItem aggregate(FilterCriteria filter, Function function) {
+		if (!initialized)
+			return null;
+
+		if (!isConnected())
+			connectToDatabase();
+
+		if (!isConnected())
+			return null;
+
+		String itemName = filter.getItemName();
+		Date end = filter.getEndDate() != null ? filter.getEndDate() : new Date();
+		String table = sqlTables.get(itemName);
+		if (table == null) {
+			return function == Function.COUNT ? new MysqlItem(itemName, DecimalType.ZERO, end) : null;
+		}
+
+		Item item = null;
+		try {
+			if (itemRegistry != null) {
+				item = itemRegistry.getItem(itemName);
+			}
+		} catch (ItemNotFoundException e) {
+			logger.debug("Unable to get item type for {}", itemName);
+		}
+		boolean numeric = item instanceof NumberItem || item instanceof DimmerItem || item instanceof RollershutterItem;
+		if (!numeric && function != Function.COUNT && function != Function.FIRST_CHANGE) {
+			// there are no numeric states to aggregate
+			return null;
+		}
+
+		// the same ranges as for queries
+		SimpleDateFormat mysqlDateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+		String where = " WHERE TRUE";
+		if (filter.getBeginDate() != null) {
+			where += " AND TIME>'" + mysqlDateFormat.format(filter.getBeginDate()) + "'";
+		}
+		if (filter.getEndDate() != null) {
+			where += " AND TIME<'" + mysqlDateFormat.format(filter.getEndDate()) + "'";
+		}
+
+		String sqlCmd = null;
+		Statement statement = null;
+		try {
+			long timerStart = System.currentTimeMillis();
+			statement = connection.createStatement();
+			HistoricItem result = null;
+			ResultSet rs;
+			switch (function) {
+			case COUNT:
+				sqlCmd = "SELECT COUNT(*) FROM " + table + where;
+				rs = statement.executeQuery(sqlCmd);
+				rs.next();
+				result = new MysqlItem(itemName, new DecimalType(rs.getLong(1)), end);
+				break;
+			case AVERAGE:
+				sqlCmd = "SELECT AVG(Value) FROM " + table + where;
+				rs = statement.executeQuery(sqlCmd);
+				if (rs.next()) {
+					double average = rs.getDouble(1);
+					if (!rs.wasNull()) {
+						result = new MysqlItem(itemName, new DecimalType(average), end);
+					}
+				}
+				break;
+			case MINIMUM:
+			case MAXIMUM:
+				sqlCmd = "SELECT Time, Value FROM " + table + where + " ORDER BY Value "
+						+ (function == Function.MINIMUM ? "ASC" : "DESC") + ", Time ASC LIMIT 1";
+				rs = statement.executeQuery(sqlCmd);
+				if (rs.next()) {
+					result = new MysqlItem(itemName, getState(item, rs), rs.getTimestamp(1));
+				}
+				break;
+			case FIRST_CHANGE:
+				// the first change is the first state which differs from the one before the range
+				if (filter.getBeginDate() != null) {
+					sqlCmd = "SELECT Value FROM " + table + " WHERE TIME<='"
+							+ mysqlDateFormat.format(filter.getBeginDate()) + "' ORDER BY Time DESC LIMIT 1";
+					rs = statement.executeQuery(sqlCmd);
+					if (rs.next()) {
+						where += " AND Value<>'" + StringEscapeUtils.escapeSql(rs.getString(1)) + "'";
+					}
+					rs.close();
+				}
+				sqlCmd = "SELECT Time, Value FROM " + table + where + " ORDER BY Time ASC LIMIT 1";
+				rs = statement.executeQuery(sqlCmd);
+				if (rs.next()) {
+					result = new MysqlItem(itemName, getState(item, rs), rs.getTimestamp(1));
+				}
+				break;
+			default:
+				throw new UnsupportedOperationException("mySQL does not support the aggregate " + function);
+			}
+			rs.close();
+
+			logger.debug("mySQL: {} took {}ms", sqlCmd, System.currentTimeMillis() - timerStart);
+
+			// Success
+			errCnt = 0;
+			return result;
+		} catch (SQLException e) {
+			errCnt++;
+			logger.error("mySQL: Error running aggregate query '{}': {}", sqlCmd, e.getMessage());
+		} finally {
+			if (statement != null) {
+				try {
+					statement.close();
+				} catch (Exception hidden) {
+				}
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * @{inheritDoc
+	 */
+	public Map<String, HistoricItem> queryLatest(Collection<String> names) {
+		Map<String, HistoricItem> latest = new HashMap<String, HistoricItem>();
+		if (!initialized)
+			return latest;
+
+		if (!isConnected())
+			connectToDatabase();
+
+		if (!isConnected())
+			return latest;
+
+		List<String> itemNames = new ArrayList<String>();
+		for (String name : names) {
+			if (sqlTables.containsKey(name)) {
+				itemNames.add(name);
+			}
+		}
+
+		String sqlCmd = null;
+		Statement statement = null;
+		try {
+			long timerStart = System.currentTimeMillis();
+			statement = connection.createStatement();
+			// the latest rows of many tables are read by a single statement, the values
+			// of the different column types are converted to strings by the union
+			for (int start = 0; start < itemNames.size(); start += BULK_QUERY_SIZE) {
+				StringBuilder sql = new StringBuilder();
+				for (int i = start; i < Math.min(start + BULK_QUERY_SIZE, itemNames.size()); i++) {
+					if (i > start) {
+						sql.append(" UNION ALL ");
+					}
+					sql.append("(SELECT Time, Value, ").append(i).append(" FROM ")
+							.append(sqlTables.get(itemNames.get(i))).append(" ORDER BY Time DESC LIMIT 1)");
+				}
+				sqlCmd = sql.toString();
+				ResultSet rs = statement.executeQuery(sqlCmd);
+				while (rs.next()) {
+					String itemName = itemNames.get(rs.getInt(3));
+					Item item = null;
+					try {
+						if (itemRegistry != null) {
+							item = itemRegistry.getItem(itemName);
+						}
+					} catch (ItemNotFoundException e) {
+						logger.debug("Unable to get item type for {}", itemName);
+					}
+					latest.put(itemName, new MysqlItem(itemName, getState(item, rs), rs.getTimestamp(1)));
+				}
+				rs.close();
+			}
+
+			logger.debug("mySQL: latest states of {} items took {}ms", itemNames.size(), System.currentTimeMillis()
+					- timerStart);
+
+			// Success
+			errCnt = 0;
+		} catch (SQLException e) {
+			errCnt++;
+			logger.error("mySQL: Error running bulk query '{}': {}", sqlCmd, e.getMessage());
+		} finally {
+			if (statement != null) {
+				try {
+					statement.close();
+				} catch (Exception hidden) {
+				}
+			}
+		}
+		return latest;
+	}
 }
@@ -30,14 +30,15 @@ import org.openhab.core.library.items.SwitchItem;
 import org.openhab.core.library.types.DecimalType;
 import org.openhab.core.library.types.OnOffType;
 import org.openhab.core.library.types.OpenClosedType;
+import org.openhab.core.persistence.AggregatePersistenceService;
 import org.openhab.core.persistence.FilterCriteria;
 import org.openhab.core.persistence.FilterCriteria.Ordering;
 import org.openhab.core.persistence.HistoricItem;
 import org.openhab.core.persistence.PersistenceService;
-import org.openhab.core.persistence.QueryablePersistenceService;
 import org.openhab.core.types.State;
 import org.rrd4j.ConsolFun;
 import org.rrd4j.DsType;
+import org.rrd4j.core.Archive;
 import org.rrd4j.core.FetchData;
 import org.rrd4j.core.FetchRequest;
 import org.rrd4j.core.RrdDb;
@@ -54,7 +55,7 @@ import org.slf4j.LoggerFactory;
  * @author Kai Kreuzer
  * @since 1.0.0
  */
-public class RRD4jService implements QueryablePersistenceService {
+public class RRD4jService implements AggregatePersistenceService {
 
 	private static final String DATASOURCE_STATE = "state";
 
@@ -213,6 +214,100 @@ public class RRD4jService implements QueryablePersistenceService {
 		return Collections.emptyList();
 	}
 
+	/**
+	 * @{inheritDoc}
+	 */
+	public boolean supports(Function function) {
+		return true;
+	}
+
+	/**
+	 * @{inheritDoc}
+	 */
+	public HistoricItem aggregate(FilterCriteria filter, Function function) {
+		String itemName = filter.getItemName();
+		ConsolFun consolidationFunction = getConsolidationFunction(itemName);
+		RrdDb db = getDB(itemName, consolidationFunction);
+		if(db==null) {
+			return null;
+		}
+		long end = filter.getEndDate()==null ? System.currentTimeMillis()/1000 - 1 : filter.getEndDate().getTime()/1000;
+		try {
+			// without a begin date, the aggregate covers all archived states, in the resolution of the archive reaching back furthest
+			long start = filter.getBeginDate()==null ? getOldestArchiveTime(db, consolidationFunction) : filter.getBeginDate().getTime()/1000;
+			// all aggregates are computed from the archive rows, without creating a historic item per row
+			FetchData result = db.createFetchRequest(consolidationFunction, start, end, 1).fetchData();
+			double[] values = result.getValues(DATASOURCE_STATE);
+			long[] timestamps = result.getTimestamps();
+			boolean numeric = mapToState(0, itemName) instanceof DecimalType;
+			Date endDate = new Date(end * 1000);
+
+			int count = 0;
+			int extremeIndex = -1;
+			double sum = 0;
+			State before = null;
+			for(int i = 0; i < values.length; i++) {
+				double value = values[i];
+				if(Double.isNaN(value)) {
+					continue;
+				}
+				count++;
+				sum += value;
+				if((function==Function.MINIMUM && (extremeIndex < 0 || value < values[extremeIndex]))
+						|| (function==Function.MAXIMUM && (extremeIndex < 0 || value > values[extremeIndex]))) {
+					extremeIndex = i;
+				}
+				if(function==Function.FIRST_CHANGE) {
+					State state = mapToState(value, itemName);
+					// the first row is the state at the begin date, unless it has been stored later
+					if((before==null && timestamps[i] > start) || (before!=null && !state.equals(before))) {
+						return new RRD4jItem(itemName, state, new Date(timestamps[i] * 1000));
+					}
+					before = state;
+				}
+			}
+
+			switch(function) {
+				case COUNT:
+					return new RRD4jItem(itemName, new DecimalType(count), endDate);
+				case MINIMUM:
+				case MAXIMUM:
+					return numeric && extremeIndex >= 0 ? new RRD4jItem(itemName, mapToState(values[extremeIndex], itemName), new Date(timestamps[extremeIndex] * 1000)) : null;
+				case AVERAGE:
+					return numeric && count > 0 ? new RRD4jItem(itemName, new DecimalType(sum / count), endDate) : null;
+				case TIME_WEIGHTED_AVERAGE:
+					return numeric && count > 0 ? new RRD4jItem(itemName, new DecimalType(result.getAggregate(DATASOURCE_STATE, ConsolFun.AVERAGE)), endDate) : null;
+				default:
+					return null;
+			}
+		} catch (IOException e) {
+			logger.warn("Could not query rrd4j database for item '{}': {}", new String[] { itemName, e.getMessage() });
+			return null;
+		} finally {
+			try {
+				db.close();
+			} catch (IOException e) {
+				logger.debug("Error closing rrd4j database: {}", e.getMessage());
+			}
+		}
+	}
+
+	/**
+	 * Returns the time of the oldest row of all archives of the given consolidation function.
+	 * 
+	 * @return the time in seconds since the epoch
+	 */
+	private long getOldestArchiveTime(RrdDb db, ConsolFun consolidationFunction) throws IOException {
+		long oldest = db.getLastArchiveUpdateTime();
+		for(int i = 0; i < db.getArcCount(); i++) {
+			Archive archive = db.getArchive(i);
+			if(archive.getConsolFun()==consolidationFunction) {
+				oldest = Math.min(oldest, archive.getStartTime());
+			}
+		}
+		return oldest;
+	}
+
 	protected synchronized RrdDb getDB(String alias, ConsolFun function) {
 		RrdDb db = null;
         File file = new File(DB_FOLDER + File.separator + alias + ".rrd");
@@ -0,0 +1,107 @@
+/**
+ * Copyright (c) 2010-2014, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.persistence.tsdb.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+import org.openhab.core.library.types.DateTimeType;
+import org.openhab.core.library.types.DecimalType;
+import org.openhab.core.library.types.HSBType;
+import org.openhab.core.library.types.OnOffType;
+import org.openhab.core.library.types.OpenClosedType;
+import org.openhab.core.library.types.PercentType;
+import org.openhab.core.library.types.StringType;
+import org.openhab.core.library.types.UpDownType;
+import org.openhab.core.types.State;
+
+/**
+ * @author Kai Kreuzer
+ * @since 1.5.0
+ */
+public class BlockEncoderTest {
+
+	@Test
+	public void testNumericValues() {
+		Random random = new Random(42);
+		List<Long> timestamps = new ArrayList<Long>();
+		List<State> states = new ArrayList<State>();
+		long timestamp = 1390000000000L;
+		for (int i = 0; i < 200; i++) {
+			// regular intervals, jitter and the occasional large gap
+			timestamp += i % 50 == 0 ? random.nextInt(Integer.MAX_VALUE) * 10L : 60000 + random.nextInt(2000) - 1000;
+			timestamps.add(timestamp);
+			states.add(new DecimalType(i % 3 == 0 ? "21.5" : String.valueOf(random.nextInt(10000) / 100.0)));
+		}
+		assertRoundTrip(timestamps, states);
+	}
+
+	@Test
+	public void testMixedTypes() {
+		Calendar calendar = Calendar.getInstance();
+		calendar.setTimeInMillis(1390000000000L);
+		List<Long> timestamps = new ArrayList<Long>();
+		List<State> states = new ArrayList<State>();
+		State[] values = new State[] { OnOffType.ON, OnOffType.OFF, OpenClosedType.OPEN, UpDownType.DOWN,
+				new PercentType(55), new DecimalType(-3), new StringType("text with ümlauts"), new StringType(""),
+				new HSBType("120,100,50"), new DateTimeType(calendar), new DecimalType("1E+20") };
+		for (int i = 0; i < values.length * 2; i++) {
+			timestamps.add(1390000000000L + i);
+			states.add(values[i % values.length]);
+		}
+		assertRoundTrip(timestamps, states);
+	}
+
+	@Test
+	public void testFull() {
+		BlockEncoder encoder = new BlockEncoder(20);
+		assertTrue(encoder.append(1000, new DecimalType(1)));
+		assertFalse(encoder.append(2000, new StringType("a text which is too long for the block")));
+		assertEquals(1, encoder.getCount());
+		assertTrue(encoder.append(3000, new DecimalType(2)));
+
+		BlockDecoder decoder = new BlockDecoder(encoder.getBytes(), encoder.getCount());
+		assertTrue(decoder.next());
+		assertTrue(decoder.next());
+		assertEquals(3000, decoder.getTimestamp());
+		assertEquals(new DecimalType(2), decoder.getState());
+		assertFalse(decoder.next());
+	}
+
+	private void assertRoundTrip(List<Long> timestamps, List<State> states) {
+		BlockEncoder encoder = new BlockEncoder(ItemSeries.BLOCK_SIZE);
+		for (int i = 0; i < timestamps.size(); i++) {
+			assertTrue(encoder.append(timestamps.get(i), states.get(i)));
+		}
+		assertEquals(timestamps.get(0).longValue(), encoder.getFirstTimestamp());
+		assertEquals(timestamps.get(timestamps.size() - 1).longValue(), encoder.getLastTimestamp());
+
+		BlockDecoder decoder = new BlockDecoder(encoder.getBytes(), encoder.getCount());
+		for (int i = 0; i < timestamps.size(); i++) {
+			assertTrue(decoder.next());
+			assertEquals(timestamps.get(i).longValue(), decoder.getTimestamp());
+			assertEquals(states.get(i).getClass(), decoder.getState().getClass());
+			if (states.get(i) instanceof DecimalType) {
+				// numbers are equal regardless of their scale
+				assertEquals(states.get(i), decoder.getState());
+			} else {
+				assertEquals(states.get(i).toString(), decoder.getState().toString());
+			}
+		}
+		assertFalse(decoder.next());
+	}
+
+}
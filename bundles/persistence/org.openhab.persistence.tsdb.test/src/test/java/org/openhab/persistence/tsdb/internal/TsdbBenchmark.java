@@ -0,0 +1,133 @@
+/**
+ * Copyright (c) 2010-2014, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.persistence.tsdb.internal;
+
+import java.io.File;
+import java.util.Date;
+import java.util.Random;
+
+import org.apache.commons.io.FileUtils;
+import org.openhab.core.library.types.DecimalType;
+import org.openhab.core.library.types.OnOffType;
+import org.openhab.core.persistence.FilterCriteria;
+import org.openhab.core.persistence.FilterCriteria.Ordering;
+import org.openhab.core.persistence.HistoricItem;
+
+/**
+ * Measures the write rate, query latency and disk usage of the tsdb for a
+ * year of typical data: temperatures stored every minute and switches
+ * changing a few times per hour. It is not run by the test suite, but has to
+ * be started manually, optionally with the number of items of each kind as
+ * argument.
+ * 
+ * @author Kai Kreuzer
+ * @since 1.5.0
+ */
+public class TsdbBenchmark {
+
+	private static final long START = 1356994800000L; // 2013-01-01
+
+	private static final long MINUTE = 60 * 1000L;
+
+	private static final long DAY = 24 * 60 * MINUTE;
+
+	private static final int DAYS = 365;
+
+	private static final int QUERIES = 1000;
+
+	public static void main(String[] args) throws Exception {
+		int items = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+		File folder = new File("./target/benchmark/tsdb/");
+		folder.mkdirs();
+		FileUtils.cleanDirectory(folder);
+
+		TsdbPersistenceService service = new TsdbPersistenceService();
+		service.folder = folder;
+		service.activate();
+		Random random = new Random(42);
+
+		long samples = 0;
+		long start = System.nanoTime();
+		for (int i = 0; i < items; i++) {
+			double temperature = 20;
+			long timestamp = START;
+			while (timestamp < START + DAYS * DAY) {
+				temperature += (random.nextInt(11) - 5) / 10.0;
+				service.store("Temperature" + i, timestamp, new DecimalType(Math.round(temperature * 10) / 10.0));
+				timestamp += MINUTE + random.nextInt(500);
+				samples++;
+			}
+			timestamp = START;
+			boolean on = false;
+			while (timestamp < START + DAYS * DAY) {
+				on = !on;
+				service.store("Switch" + i, timestamp, on ? OnOffType.ON : OnOffType.OFF);
+				timestamp += random.nextInt(60) * MINUTE + random.nextInt(1000);
+				samples++;
+			}
+		}
+		long writeTime = System.nanoTime() - start;
+		service.deactivate();
+
+		long size = FileUtils.sizeOfDirectory(folder);
+		System.out.println(String.format("write:          %d samples in %d ms, %.0f samples/s", samples,
+				writeTime / 1000000, samples * 1e9 / writeTime));
+		System.out.println(String.format("disk usage:     %d KB, %.2f bytes/sample", size / 1024, (double) size
+				/ samples));
+
+		service = new TsdbPersistenceService();
+		service.folder = folder;
+		service.activate();
+
+		// historicState(): the last state before a random point in time
+		start = System.nanoTime();
+		for (int i = 0; i < QUERIES; i++) {
+			FilterCriteria filter = new FilterCriteria().setItemName("Temperature" + random.nextInt(items))
+					.setEndDate(new Date(START + (long) (random.nextDouble() * DAYS * DAY)))
+					.setOrdering(Ordering.DESCENDING).setPageSize(1);
+			consume(service.query(filter));
+		}
+		printLatency("historicState:", System.nanoTime() - start, QUERIES);
+
+		// a chart of a random day
+		start = System.nanoTime();
+		for (int i = 0; i < QUERIES; i++) {
+			long begin = START + random.nextInt(DAYS - 1) * DAY;
+			FilterCriteria filter = new FilterCriteria().setItemName("Temperature" + random.nextInt(items))
+					.setBeginDate(new Date(begin)).setEndDate(new Date(begin + DAY)).setOrdering(Ordering.ASCENDING);
+			consume(service.query(filter));
+		}
+		printLatency("day range:", System.nanoTime() - start, QUERIES);
+
+		// averageSince() over the last week
+		start = System.nanoTime();
+		for (int i = 0; i < QUERIES / 10; i++) {
+			FilterCriteria filter = new FilterCriteria().setItemName("Temperature" + random.nextInt(items))
+					.setBeginDate(new Date(START + (DAYS - 7) * DAY)).setOrdering(Ordering.ASCENDING);
+			consume(service.query(filter));
+		}
+		printLatency("week average:", System.nanoTime() - start, QUERIES / 10);
+		service.deactivate();
+	}
+
+	private static int consume(Iterable<HistoricItem> result) {
+		int count = 0;
+		for (HistoricItem item : result) {
+			if (item.getState() != null) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	private static void printLatency(String name, long time, int queries) {
+		System.out.println(String.format("%-15s %.3f ms/query", name, time / 1e6 / queries));
+	}
+
+}
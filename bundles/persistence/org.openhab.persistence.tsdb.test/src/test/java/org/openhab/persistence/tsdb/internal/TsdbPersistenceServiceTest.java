@@ -0,0 +1,178 @@
+/**
+ * Copyright (c) 2010-2014, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.persistence.tsdb.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.openhab.core.library.types.DecimalType;
+import org.openhab.core.library.types.OnOffType;
+import org.openhab.core.library.types.PercentType;
+import org.openhab.core.persistence.FilterCriteria;
+import org.openhab.core.persistence.FilterCriteria.Operator;
+import org.openhab.core.persistence.FilterCriteria.Ordering;
+import org.openhab.core.persistence.HistoricItem;
+
+/**
+ * @author Kai Kreuzer
+ * @since 1.5.0
+ */
+public class TsdbPersistenceServiceTest {
+
+	private static final long START = 1390000000000L;
+
+	/** enough samples to fill several blocks */
+	private static final int SAMPLES = 20000;
+
+	private TsdbPersistenceService service;
+
+	@Before
+	public void init() throws IOException {
+		File folder = new File("./target/etc/tsdb/");
+		folder.mkdirs();
+		FileUtils.cleanDirectory(folder);
+		service = new TsdbPersistenceService();
+		service.folder = folder;
+		service.activate();
+		for (int i = 0; i < SAMPLES; i++) {
+			service.store("Temperature", START + i * 1000L, new DecimalType(i % 100));
+		}
+	}
+
+	@After
+	public void dispose() {
+		service.deactivate();
+	}
+
+	@Test
+	public void testRange() {
+		FilterCriteria filter = new FilterCriteria().setItemName("Temperature").setOrdering(Ordering.ASCENDING)
+				.setBeginDate(new Date(START + 5000 * 1000L)).setEndDate(new Date(START + 5009 * 1000L));
+		List<HistoricItem> items = toList(service.query(filter));
+		assertEquals(10, items.size());
+		assertEquals(START + 5000 * 1000L, items.get(0).getTimestamp().getTime());
+		assertEquals(new DecimalType(9), items.get(9).getState());
+		assertEquals("Temperature", items.get(0).getName());
+	}
+
+	@Test
+	public void testHistoricState() {
+		// the query of PersistenceExtensions.historicState()
+		FilterCriteria filter = new FilterCriteria().setItemName("Temperature").setOrdering(Ordering.DESCENDING)
+				.setEndDate(new Date(START + 12345 * 1000L + 500)).setPageSize(1);
+		List<HistoricItem> items = toList(service.query(filter));
+		assertEquals(1, items.size());
+		assertEquals(START + 12345 * 1000L, items.get(0).getTimestamp().getTime());
+		assertEquals(new DecimalType(45), items.get(0).getState());
+	}
+
+	@Test
+	public void testAll() {
+		List<HistoricItem> items = toList(service.query(new FilterCriteria().setItemName("Temperature")));
+		assertEquals(SAMPLES, items.size());
+		// descending is the default ordering
+		assertEquals(START + (SAMPLES - 1) * 1000L, items.get(0).getTimestamp().getTime());
+		assertEquals(START, items.get(SAMPLES - 1).getTimestamp().getTime());
+	}
+
+	@Test
+	public void testPaging() {
+		FilterCriteria filter = new FilterCriteria().setItemName("Temperature").setOrdering(Ordering.ASCENDING)
+				.setPageSize(3).setPageNumber(2);
+		List<HistoricItem> items = toList(service.query(filter));
+		assertEquals(3, items.size());
+		assertEquals(new DecimalType(6), items.get(0).getState());
+	}
+
+	@Test
+	public void testOperator() {
+		FilterCriteria filter = new FilterCriteria().setItemName("Temperature").setOperator(Operator.GTE)
+				.setState(new DecimalType(98));
+		assertEquals(SAMPLES / 50, toList(service.query(filter)).size());
+
+		filter.setOperator(Operator.EQ).setState(new DecimalType(5));
+		assertEquals(SAMPLES / 100, toList(service.query(filter)).size());
+	}
+
+	@Test
+	public void testReopen() {
+		service.deactivate();
+		service = new TsdbPersistenceService();
+		service.folder = new File("./target/etc/tsdb/");
+		service.store("Temperature", START + SAMPLES * 1000L, OnOffType.ON);
+
+		List<HistoricItem> items = toList(service.query(new FilterCriteria().setItemName("Temperature")));
+		assertEquals(SAMPLES + 1, items.size());
+		assertEquals(OnOffType.ON, items.get(0).getState());
+		assertEquals(new DecimalType(99), items.get(1).getState());
+	}
+
+	@Test
+	public void testUnknownItem() {
+		assertFalse(service.query(new FilterCriteria().setItemName("Unknown")).iterator().hasNext());
+		assertFalse(new File(service.folder, "Unknown" + TsdbPersistenceService.FILE_SUFFIX).exists());
+	}
+
+	@Test
+	public void testStreaming() {
+		Iterator<HistoricItem> iterator = service.query(new FilterCriteria().setItemName("Temperature")).iterator();
+		assertTrue(iterator.hasNext());
+		// samples stored after the query has been started are not part of a descending result
+		service.store("Temperature", START + SAMPLES * 1000L, new DecimalType(-1));
+		assertEquals(new DecimalType(99), iterator.next().getState());
+	}
+
+	@Test
+	public void testExactDecimals() {
+		DecimalType precise = new DecimalType("1234567890.123456789");
+		service.store("Meter", START, new DecimalType("21.5"));
+		service.store("Meter", START + 1000L, precise);
+		service.store("Meter", START + 2000L, new PercentType("33.333333333333333333"));
+
+		List<HistoricItem> items = toList(service.query(new FilterCriteria().setItemName("Meter")
+				.setOrdering(Ordering.ASCENDING)));
+		assertEquals(3, items.size());
+		assertEquals(new DecimalType("21.5"), items.get(0).getState());
+		assertEquals(precise.toString(), items.get(1).getState().toString());
+		assertEquals(new PercentType("33.333333333333333333"), items.get(2).getState());
+	}
+
+	@Test
+	public void testFileNamesAreEscaped() {
+		assertEquals("Temperature_1", TsdbPersistenceService.toFileName("Temperature_1"));
+		assertEquals("%2E%2E%2Fx", TsdbPersistenceService.toFileName("../x"));
+		assertEquals("K%C3%BCche", TsdbPersistenceService.toFileName("K\u00fcche"));
+
+		service.store("../outside", START, new DecimalType(1));
+		assertFalse(new File(service.folder, "../outside" + TsdbPersistenceService.FILE_SUFFIX).exists());
+		assertTrue(new File(service.folder, "%2E%2E%2Foutside" + TsdbPersistenceService.FILE_SUFFIX).exists());
+		assertEquals(1, toList(service.query(new FilterCriteria().setItemName("../outside"))).size());
+	}
+
+	private static List<HistoricItem> toList(Iterable<HistoricItem> iterable) {
+		List<HistoricItem> items = new ArrayList<HistoricItem>();
+		for (HistoricItem item : iterable) {
+			items.add(item);
+		}
+		return items;
+	}
+
+}
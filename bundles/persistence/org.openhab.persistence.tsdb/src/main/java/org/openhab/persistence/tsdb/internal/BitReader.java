@@ -0,0 +1,48 @@
+/**
+ * Copyright (c) 2010-2014, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.persistence.tsdb.internal;
+
+/**
+ * Reads bits written by a {@link BitWriter}.
+ * 
+ * @author Kai Kreuzer
+ * @since 1.5.0
+ */
+class BitReader {
+
+	private final byte[] bytes;
+
+	private int position = 0;
+
+	BitReader(byte[] bytes) {
+		this.bytes = bytes;
+	}
+
+	long read(int count) {
+		long value = 0;
+		for (int i = 0; i < count; i++) {
+			value = (value << 1) | ((bytes[position >>> 3] >>> (7 - (position & 7))) & 1);
+			position++;
+		}
+		return value;
+	}
+
+	boolean readBit() {
+		return read(1) != 0;
+	}
+
+	/**
+	 * Reads <code>count</code> bits as a two's complement number.
+	 */
+	long readSigned(int count) {
+		long value = read(count);
+		return (value << (64 - count)) >> (64 - count);
+	}
+
+}
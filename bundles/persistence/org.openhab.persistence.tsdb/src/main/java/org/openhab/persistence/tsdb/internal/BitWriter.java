@@ -0,0 +1,72 @@
+/**
+ * Copyright (c) 2010-2014, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.persistence.tsdb.internal;
+
+/**
+ * Writes bits into a byte array of a fixed size, most significant bit first.
+ * 
+ * @author Kai Kreuzer
+ * @since 1.5.0
+ */
+class BitWriter {
+
+	private final byte[] bytes;
+
+	private int position = 0;
+
+	BitWriter(int size) {
+		bytes = new byte[size];
+	}
+
+	/**
+	 * Writes the lowest <code>count</code> bits of <code>value</code>.
+	 * 
+	 * @return <code>false</code> if the bits do not fit, in which case the
+	 *         content is undefined behind the current position
+	 */
+	boolean write(long value, int count) {
+		if (position + count > bytes.length * 8) {
+			return false;
+		}
+		for (int i = count - 1; i >= 0; i--) {
+			int index = position >>> 3;
+			int bit = 7 - (position & 7);
+			if (((value >>> i) & 1) != 0) {
+				bytes[index] |= 1 << bit;
+			} else {
+				bytes[index] &= ~(1 << bit);
+			}
+			position++;
+		}
+		return true;
+	}
+
+	boolean writeBit(boolean bit) {
+		return write(bit ? 1 : 0, 1);
+	}
+
+	/**
+	 * @return the number of bits written
+	 */
+	int getPosition() {
+		return position;
+	}
+
+	/**
+	 * Moves back to a previous position, discarding the bits behind it.
+	 */
+	void reset(int position) {
+		this.position = position;
+	}
+
+	byte[] getBytes() {
+		return bytes;
+	}
+
+}
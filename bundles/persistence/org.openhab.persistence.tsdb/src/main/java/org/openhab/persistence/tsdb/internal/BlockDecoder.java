@@ -0,0 +1,126 @@
+/**
+ * Copyright (c) 2010-2014, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.persistence.tsdb.internal;
+
+import java.nio.ByteBuffer;
+
+import org.openhab.core.types.State;
+
+/**
+ * Decodes the samples of a block written by a {@link BlockEncoder}.
+ * 
+ * @author Kai Kreuzer
+ * @since 1.5.0
+ */
+class BlockDecoder {
+
+	private final BitReader reader;
+
+	private final int count;
+
+	private int index = 0;
+
+	private long timestamp = 0;
+
+	private long delta = 0;
+
+	private int type = -1;
+
+	private long bits = 0;
+
+	private int leading = 0;
+
+	private int trailing = 0;
+
+	private State state;
+
+	/**
+	 * @param bytes the encoded block
+	 * @param count the number of samples in the block
+	 */
+	BlockDecoder(byte[] bytes, int count) {
+		this.reader = new BitReader(bytes);
+		this.count = count;
+	}
+
+	/**
+	 * Decodes the next sample, which is then available by
+	 * {@link #getTimestamp()} and {@link #getState()}.
+	 * 
+	 * @return <code>false</code> if there are no more samples
+	 */
+	boolean next() {
+		if (index >= count) {
+			return false;
+		}
+		if (index == 0) {
+			timestamp = reader.read(64);
+		} else {
+			delta += readDeltaOfDelta();
+			timestamp += delta;
+		}
+
+		if (reader.readBit()) {
+			type = (int) reader.read(StateCodec.TYPE_BITS);
+		}
+
+		if (StateCodec.isText(type)) {
+			int length = (int) reader.read(16);
+			byte[] text = new byte[length];
+			for (int i = 0; i < length; i++) {
+				text[i] = (byte) reader.read(8);
+			}
+			state = StateCodec.toState(type, BlockEncoder.UTF8.decode(ByteBuffer.wrap(text)).toString());
+		} else {
+			if (reader.readBit()) {
+				if (reader.readBit()) {
+					leading = (int) reader.read(5);
+					int meaningful = (int) reader.read(6) + 1;
+					trailing = 64 - leading - meaningful;
+				}
+				bits ^= reader.read(64 - leading - trailing) << trailing;
+			}
+			state = StateCodec.toState(type, bits);
+		}
+		index++;
+		return true;
+	}
+
+	private long readDeltaOfDelta() {
+		if (!reader.readBit()) {
+			return 0;
+		} else if (!reader.readBit()) {
+			return reader.readSigned(7);
+		} else if (!reader.readBit()) {
+			return reader.readSigned(9);
+		} else if (!reader.readBit()) {
+			return reader.readSigned(12);
+		} else if (!reader.readBit()) {
+			return reader.readSigned(32);
+		} else {
+			return reader.read(64);
+		}
+	}
+
+	/**
+	 * @return the number of samples in the block
+	 */
+	int getCount() {
+		return count;
+	}
+
+	long getTimestamp() {
+		return timestamp;
+	}
+
+	State getState() {
+		return state;
+	}
+
+}
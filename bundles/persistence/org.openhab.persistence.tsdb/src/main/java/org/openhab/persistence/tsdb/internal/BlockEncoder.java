@@ -0,0 +1,191 @@
+/**
+ * Copyright (c) 2010-2014, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.persistence.tsdb.internal;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
+import org.openhab.core.types.State;
+
+/**
+ * Encodes the samples of a block into a bit stream, following the
+ * compression scheme of Facebook's Gorilla time series database:
+ * <ul>
+ * <li>The first timestamp is written in full (64 bits), every further one as
+ * the difference of its delta to the previous delta (delta-of-delta) with a
+ * variable length prefix: <code>0</code> for an unchanged delta,
+ * <code>10</code>, <code>110</code>, <code>1110</code> for 7, 9 and 12 bits,
+ * <code>11110</code> for 32 bits and <code>11111</code> for 64 bits.</li>
+ * <li>The type code (see {@link StateCodec}) follows as <code>0</code> if it
+ * is the same as before, otherwise as <code>1</code> and 5 bits.</li>
+ * <li>A numeric value is XORed with the previous numeric value:
+ * <code>0</code> if it is the same, <code>10</code> if the meaningful bits of
+ * the XOR fit into the window of the previous one, followed by these bits,
+ * otherwise <code>11</code>, the number of leading zeros (5 bits), the number
+ * of meaningful bits - 1 (6 bits) and the meaningful bits.</li>
+ * <li>A text value is written as its UTF-8 length (16 bits) and bytes.</li>
+ * </ul>
+ * 
+ * @author Kai Kreuzer
+ * @since 1.5.0
+ */
+class BlockEncoder {
+
+	static final Charset UTF8 = Charset.forName("UTF-8");
+
+	private static final int MAX_TEXT_LENGTH = 0xFFFF;
+
+	private final BitWriter writer;
+
+	private int count = 0;
+
+	private long firstTimestamp;
+
+	private long previousTimestamp;
+
+	private long previousDelta = 0;
+
+	private int previousType = -1;
+
+	private long previousBits = 0;
+
+	private int previousLeading = -1;
+
+	private int previousTrailing = 0;
+
+	/**
+	 * @param size the maximum size of the encoded block in bytes
+	 */
+	BlockEncoder(int size) {
+		writer = new BitWriter(size);
+	}
+
+	/**
+	 * Appends a sample to the block.
+	 * 
+	 * @param timestamp the timestamp, which must not be before the previous one
+	 * @param state the state
+	 * @return <code>false</code> if the sample does not fit into the block,
+	 *         which is left unchanged in that case
+	 */
+	boolean append(long timestamp, State state) {
+		int position = writer.getPosition();
+		long delta = timestamp - previousTimestamp;
+		int leading = previousLeading;
+		int trailing = previousTrailing;
+		long bits = previousBits;
+
+		boolean fits;
+		if (count == 0) {
+			fits = writer.write(timestamp, 64);
+		} else {
+			fits = writeDeltaOfDelta(delta - previousDelta);
+		}
+
+		int type = StateCodec.getType(state);
+		if (type == previousType) {
+			fits &= writer.writeBit(false);
+		} else {
+			fits &= writer.writeBit(true) && writer.write(type, StateCodec.TYPE_BITS);
+		}
+
+		if (StateCodec.isText(type)) {
+			fits &= writeText(state.toString());
+		} else {
+			bits = StateCodec.toBits(type, state);
+			long xor = bits ^ previousBits;
+			if (xor == 0) {
+				fits &= writer.writeBit(false);
+			} else {
+				int newLeading = Math.min(31, Long.numberOfLeadingZeros(xor));
+				int newTrailing = Long.numberOfTrailingZeros(xor);
+				if (leading >= 0 && newLeading >= leading && newTrailing >= trailing) {
+					fits &= writer.write(2, 2) && writer.write(xor >>> trailing, 64 - leading - trailing);
+				} else {
+					leading = newLeading;
+					trailing = newTrailing;
+					int meaningful = 64 - leading - trailing;
+					fits &= writer.write(3, 2) && writer.write(leading, 5) && writer.write(meaningful - 1, 6)
+							&& writer.write(xor >>> trailing, meaningful);
+				}
+			}
+		}
+
+		if (!fits) {
+			writer.reset(position);
+			return false;
+		}
+		if (count == 0) {
+			firstTimestamp = timestamp;
+		} else {
+			previousDelta = delta;
+		}
+		previousTimestamp = timestamp;
+		previousType = type;
+		previousBits = bits;
+		previousLeading = leading;
+		previousTrailing = trailing;
+		count++;
+		return true;
+	}
+
+	private boolean writeDeltaOfDelta(long dod) {
+		if (dod == 0) {
+			return writer.writeBit(false);
+		} else if (dod >= -64 && dod <= 63) {
+			return writer.write(2, 2) && writer.write(dod, 7);
+		} else if (dod >= -256 && dod <= 255) {
+			return writer.write(6, 3) && writer.write(dod, 9);
+		} else if (dod >= -2048 && dod <= 2047) {
+			return writer.write(14, 4) && writer.write(dod, 12);
+		} else if (dod >= Integer.MIN_VALUE && dod <= Integer.MAX_VALUE) {
+			return writer.write(30, 5) && writer.write(dod, 32);
+		} else {
+			return writer.write(31, 5) && writer.write(dod, 64);
+		}
+	}
+
+	private boolean writeText(String text) {
+		ByteBuffer bytes = UTF8.encode(text);
+		int length = Math.min(bytes.remaining(), MAX_TEXT_LENGTH);
+		if (!writer.write(length, 16)) {
+			return false;
+		}
+		for (int i = 0; i < length; i++) {
+			if (!writer.write(bytes.get(), 8)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	int getCount() {
+		return count;
+	}
+
+	long getFirstTimestamp() {
+		return firstTimestamp;
+	}
+
+	long getLastTimestamp() {
+		return previousTimestamp;
+	}
+
+	/**
+	 * @return the number of bits written
+	 */
+	int getBitLength() {
+		return writer.getPosition();
+	}
+
+	byte[] getBytes() {
+		return writer.getBytes();
+	}
+
+}
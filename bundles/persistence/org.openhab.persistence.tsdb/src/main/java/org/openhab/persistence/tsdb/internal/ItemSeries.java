@@ -0,0 +1,236 @@
+/**
+ * Copyright (c) 2010-2014, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.persistence.tsdb.internal;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+import org.openhab.core.types.State;
+
+/**
+ * The time series of a single item, stored in a memory-mapped file of
+ * fixed-size blocks. Each block has a header (first and last timestamp, number
+ * of samples, number of bits) and the samples encoded by a
+ * {@link BlockEncoder}. Samples are only appended to the last block; a block
+ * which is full is never changed again.
+ * <p>
+ * The first and last timestamps of all blocks are kept in memory as block
+ * index, so the block containing a timestamp is found by a binary search. The
+ * file grows by doubling its number of blocks, up to
+ * {@link #MAX_GROWTH_BLOCKS} at a time.
+ * 
+ * @author Kai Kreuzer
+ * @since 1.5.0
+ */
+class ItemSeries {
+
+	static final int BLOCK_SIZE = 4096;
+
+	static final int HEADER_SIZE = 8 + 8 + 4 + 4;
+
+	static final int MAX_GROWTH_BLOCKS = 32;
+
+	private final File file;
+
+	private MappedByteBuffer buffer;
+
+	private int mappedBlocks;
+
+	/** the number of blocks containing samples */
+	private int blockCount = 0;
+
+	private long[] firstTimestamps = new long[16];
+
+	private long[] lastTimestamps = new long[16];
+
+	/** the encoder of the last block, null if a new block has to be started */
+	private BlockEncoder encoder = null;
+
+	/** the number of bytes of the last block which have been copied to the file */
+	private int writtenBytes = 0;
+
+	/**
+	 * Opens the series stored in the given file, which is created if it does
+	 * not exist. Appended samples always start a new block.
+	 */
+	ItemSeries(File file) throws IOException {
+		this.file = file;
+		RandomAccessFile raf = new RandomAccessFile(file, "rw");
+		try {
+			mappedBlocks = (int) (raf.length() / BLOCK_SIZE);
+			if (mappedBlocks == 0) {
+				mappedBlocks = 1;
+				raf.setLength(BLOCK_SIZE);
+			}
+			// the mapping stays valid when the file is closed
+			buffer = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, (long) mappedBlocks * BLOCK_SIZE);
+		} finally {
+			raf.close();
+		}
+		while (blockCount < mappedBlocks && buffer.getInt(blockCount * BLOCK_SIZE + 16) > 0) {
+			addToIndex(buffer.getLong(blockCount * BLOCK_SIZE), buffer.getLong(blockCount * BLOCK_SIZE + 8));
+		}
+	}
+
+	private void addToIndex(long firstTimestamp, long lastTimestamp) {
+		if (blockCount == firstTimestamps.length) {
+			long[] newFirst = new long[blockCount * 2];
+			long[] newLast = new long[blockCount * 2];
+			System.arraycopy(firstTimestamps, 0, newFirst, 0, blockCount);
+			System.arraycopy(lastTimestamps, 0, newLast, 0, blockCount);
+			firstTimestamps = newFirst;
+			lastTimestamps = newLast;
+		}
+		firstTimestamps[blockCount] = firstTimestamp;
+		lastTimestamps[blockCount] = lastTimestamp;
+		blockCount++;
+	}
+
+	/**
+	 * Appends a sample. A timestamp before the last one (e.g. after the clock
+	 * has been set back) is replaced by the last one.
+	 * 
+	 * @return <code>false</code> if the sample is too large for a block
+	 * @throws IOException if the file cannot be extended
+	 */
+	synchronized boolean append(long timestamp, State state) throws IOException {
+		if (blockCount > 0 && timestamp < lastTimestamps[blockCount - 1]) {
+			timestamp = lastTimestamps[blockCount - 1];
+		}
+		if (encoder == null || !encoder.append(timestamp, state)) {
+			BlockEncoder newEncoder = new BlockEncoder(BLOCK_SIZE - HEADER_SIZE);
+			if (!newEncoder.append(timestamp, state)) {
+				return false;
+			}
+			if (blockCount == mappedBlocks) {
+				grow();
+			}
+			encoder = newEncoder;
+			writtenBytes = 0;
+			addToIndex(timestamp, timestamp);
+		}
+		writeLastBlock();
+		return true;
+	}
+
+	private void grow() throws IOException {
+		int newBlocks = mappedBlocks + Math.min(mappedBlocks, MAX_GROWTH_BLOCKS);
+		RandomAccessFile raf = new RandomAccessFile(file, "rw");
+		try {
+			raf.setLength((long) newBlocks * BLOCK_SIZE);
+			buffer = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, (long) newBlocks * BLOCK_SIZE);
+			mappedBlocks = newBlocks;
+		} finally {
+			raf.close();
+		}
+	}
+
+	private void writeLastBlock() {
+		int block = blockCount - 1;
+		int offset = block * BLOCK_SIZE;
+		// the last byte written before may have been incomplete
+		int from = Math.max(0, writtenBytes - 1);
+		int to = (encoder.getBitLength() + 7) / 8;
+		ByteBuffer target = buffer.duplicate();
+		target.position(offset + HEADER_SIZE + from);
+		target.put(encoder.getBytes(), from, to - from);
+		writtenBytes = to;
+		lastTimestamps[block] = encoder.getLastTimestamp();
+		buffer.putLong(offset, encoder.getFirstTimestamp());
+		buffer.putLong(offset + 8, encoder.getLastTimestamp());
+		buffer.putInt(offset + 20, encoder.getBitLength());
+		// the count is written last, a block without samples is treated as unused
+		buffer.putInt(offset + 16, encoder.getCount());
+	}
+
+	/**
+	 * @return the number of blocks containing samples
+	 */
+	synchronized int getBlockCount() {
+		return blockCount;
+	}
+
+	synchronized long getFirstTimestamp(int block) {
+		return firstTimestamps[block];
+	}
+
+	synchronized long getLastTimestamp(int block) {
+		return lastTimestamps[block];
+	}
+
+	/**
+	 * @return the index of the first block containing samples at or after
+	 *         <code>timestamp</code>, or the number of blocks if there is none
+	 */
+	synchronized int findFirstBlock(long timestamp) {
+		int low = 0;
+		int high = blockCount;
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (lastTimestamps[middle] < timestamp) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * @return the index of the last block containing samples at or before
+	 *         <code>timestamp</code>, or -1 if there is none
+	 */
+	synchronized int findLastBlock(long timestamp) {
+		int low = 0;
+		int high = blockCount;
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (firstTimestamps[middle] <= timestamp) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		return low - 1;
+	}
+
+	/**
+	 * Creates a decoder of a block. The encoded samples are copied, so the
+	 * decoder is not affected by samples appended later on.
+	 */
+	synchronized BlockDecoder getDecoder(int block) {
+		int offset = block * BLOCK_SIZE;
+		int count = buffer.getInt(offset + 16);
+		int length = (buffer.getInt(offset + 20) + 7) / 8;
+		byte[] bytes = new byte[length];
+		ByteBuffer source = buffer.duplicate();
+		source.position(offset + HEADER_SIZE);
+		source.get(bytes);
+		return new BlockDecoder(bytes, count);
+	}
+
+	/**
+	 * Writes all changes to the disk.
+	 */
+	synchronized void flush() {
+		buffer.force();
+	}
+
+	/**
+	 * @return the size of the file in bytes
+	 */
+	synchronized long getSize() {
+		return (long) mappedBlocks * BLOCK_SIZE;
+	}
+
+}
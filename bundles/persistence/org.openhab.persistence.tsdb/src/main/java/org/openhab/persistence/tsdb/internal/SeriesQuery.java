@@ -0,0 +1,176 @@
+/**
+ * Copyright (c) 2010-2014, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.persistence.tsdb.internal;
+
+import java.util.Date;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import org.openhab.core.library.types.DecimalType;
+import org.openhab.core.persistence.FilterCriteria;
+import org.openhab.core.persistence.FilterCriteria.Ordering;
+import org.openhab.core.persistence.HistoricItem;
+import org.openhab.core.types.State;
+
+/**
+ * The result of a query on an {@link ItemSeries}. The samples are not
+ * collected in advance, but decoded block by block while iterating, starting
+ * with the block found by the block index. Every iterator runs the query
+ * again.
+ * 
+ * @author Kai Kreuzer
+ * @since 1.5.0
+ */
+class SeriesQuery implements Iterable<HistoricItem> {
+
+	private final String name;
+
+	private final ItemSeries series;
+
+	private final FilterCriteria filter;
+
+	SeriesQuery(String name, ItemSeries series, FilterCriteria filter) {
+		this.name = name;
+		this.series = series;
+		this.filter = filter;
+	}
+
+	public Iterator<HistoricItem> iterator() {
+		return new SampleIterator();
+	}
+
+	private boolean matches(State state) {
+		State filterState = filter.getState();
+		if (filterState == null || filter.getOperator() == null) {
+			return true;
+		}
+		switch (filter.getOperator()) {
+		case EQ:
+			return state.equals(filterState);
+		case NEQ:
+			return !state.equals(filterState);
+		default:
+			if (!(state instanceof DecimalType) || !(filterState instanceof DecimalType)) {
+				return false;
+			}
+			int comparison = ((DecimalType) state).compareTo((DecimalType) filterState);
+			switch (filter.getOperator()) {
+			case GT:
+				return comparison > 0;
+			case GTE:
+				return comparison >= 0;
+			case LT:
+				return comparison < 0;
+			default:
+				return comparison <= 0;
+			}
+		}
+	}
+
+	private class SampleIterator implements Iterator<HistoricItem> {
+
+		private final long from;
+
+		private final long to;
+
+		private final boolean ascending;
+
+		/** the number of matching samples to skip for the requested page */
+		private long skip;
+
+		/** the number of samples which may still be returned */
+		private long remaining;
+
+		/** the next block to decode */
+		private int block;
+
+		/** the decoded samples of the current block, in ascending order */
+		private long[] timestamps = new long[0];
+
+		private State[] states = new State[0];
+
+		private int index = 0;
+
+		private HistoricItem next = null;
+
+		SampleIterator() {
+			from = filter.getBeginDate() == null ? Long.MIN_VALUE : filter.getBeginDate().getTime();
+			to = filter.getEndDate() == null ? Long.MAX_VALUE : filter.getEndDate().getTime();
+			ascending = filter.getOrdering() == Ordering.ASCENDING;
+			skip = (long) filter.getPageNumber() * filter.getPageSize();
+			remaining = filter.getPageSize();
+			block = ascending ? series.findFirstBlock(from) : series.findLastBlock(to);
+		}
+
+		public boolean hasNext() {
+			if (next == null) {
+				next = advance();
+			}
+			return next != null;
+		}
+
+		public HistoricItem next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			HistoricItem item = next;
+			next = null;
+			return item;
+		}
+
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+
+		private HistoricItem advance() {
+			while (remaining > 0) {
+				if (index >= timestamps.length) {
+					if (!decodeNextBlock()) {
+						return null;
+					}
+					continue;
+				}
+				int i = ascending ? index : timestamps.length - 1 - index;
+				index++;
+				long timestamp = timestamps[i];
+				if (ascending ? timestamp > to : timestamp < from) {
+					remaining = 0;
+					return null;
+				}
+				if ((ascending ? timestamp < from : timestamp > to) || !matches(states[i])) {
+					continue;
+				}
+				if (skip > 0) {
+					skip--;
+					continue;
+				}
+				remaining--;
+				return new TsdbItem(name, states[i], new Date(timestamp));
+			}
+			return null;
+		}
+
+		private boolean decodeNextBlock() {
+			if (block < 0 || block >= series.getBlockCount()) {
+				return false;
+			}
+			BlockDecoder decoder = series.getDecoder(block);
+			timestamps = new long[decoder.getCount()];
+			states = new State[timestamps.length];
+			for (int i = 0; i < timestamps.length && decoder.next(); i++) {
+				timestamps[i] = decoder.getTimestamp();
+				states[i] = decoder.getState();
+			}
+			block += ascending ? 1 : -1;
+			index = 0;
+			return true;
+		}
+	}
+
+}
@@ -0,0 +1,150 @@
+/**
+ * Copyright (c) 2010-2014, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.persistence.tsdb.internal;
+
+import java.math.BigDecimal;
+import java.util.Calendar;
+
+import org.openhab.core.library.types.DateTimeType;
+import org.openhab.core.library.types.DecimalType;
+import org.openhab.core.library.types.HSBType;
+import org.openhab.core.library.types.OnOffType;
+import org.openhab.core.library.types.OpenClosedType;
+import org.openhab.core.library.types.PercentType;
+import org.openhab.core.library.types.StringType;
+import org.openhab.core.library.types.UpDownType;
+import org.openhab.core.types.State;
+import org.openhab.core.types.UnDefType;
+
+/**
+ * Maps states to a type code and either a numeric value (stored as the bits of
+ * a double) or a text. Numbers, enums and dates are numeric, so they are
+ * compressed by the XOR encoding of the {@link BlockEncoder}. Decimals which a
+ * double cannot hold exactly, e.g. with more than 15 significant digits,
+ * are stored as text instead. All other states are stored as their string
+ * representation and restored as {@link StringType} if their type is unknown.
+ * 
+ * @author Kai Kreuzer
+ * @since 1.5.0
+ */
+final class StateCodec {
+
+	static final int DECIMAL = 0;
+	static final int PERCENT = 1;
+	static final int ON_OFF = 2;
+	static final int OPEN_CLOSED = 3;
+	static final int UP_DOWN = 4;
+	static final int UNDEF = 5;
+	static final int DATE_TIME = 6;
+	static final int STRING = 7;
+	static final int HSB = 8;
+	static final int DECIMAL_TEXT = 9;
+	static final int PERCENT_TEXT = 10;
+
+	/** the number of bits of a type code */
+	static final int TYPE_BITS = 5;
+
+	private StateCodec() {
+	}
+
+	static int getType(State state) {
+		// HSBType extends PercentType, which extends DecimalType
+		if (state instanceof HSBType) {
+			return HSB;
+		} else if (state instanceof PercentType) {
+			return isExact((DecimalType) state) ? PERCENT : PERCENT_TEXT;
+		} else if (state instanceof DecimalType) {
+			return isExact((DecimalType) state) ? DECIMAL : DECIMAL_TEXT;
+		} else if (state instanceof OnOffType) {
+			return ON_OFF;
+		} else if (state instanceof OpenClosedType) {
+			return OPEN_CLOSED;
+		} else if (state instanceof UpDownType) {
+			return UP_DOWN;
+		} else if (state instanceof UnDefType) {
+			return UNDEF;
+		} else if (state instanceof DateTimeType) {
+			return DATE_TIME;
+		} else {
+			return STRING;
+		}
+	}
+
+	static boolean isText(int type) {
+		return type == STRING || type == HSB || type == DECIMAL_TEXT || type == PERCENT_TEXT;
+	}
+
+	/**
+	 * @return true, if the value is restored from the bits of a double without loss
+	 */
+	private static boolean isExact(DecimalType state) {
+		BigDecimal value = state.toBigDecimal();
+		double doubleValue = value.doubleValue();
+		return !Double.isInfinite(doubleValue) && toBigDecimal(doubleValue).compareTo(value) == 0;
+	}
+
+	static long toBits(int type, State state) {
+		double value;
+		switch (type) {
+		case DECIMAL:
+		case PERCENT:
+			value = ((DecimalType) state).toBigDecimal().doubleValue();
+			break;
+		case DATE_TIME:
+			value = ((DateTimeType) state).getCalendar().getTimeInMillis();
+			break;
+		default:
+			value = ((Enum<?>) state).ordinal();
+		}
+		return Double.doubleToLongBits(value);
+	}
+
+	static State toState(int type, long bits) {
+		double value = Double.longBitsToDouble(bits);
+		switch (type) {
+		case DECIMAL:
+			return new DecimalType(toBigDecimal(value));
+		case PERCENT:
+			return new PercentType(toBigDecimal(value));
+		case DATE_TIME:
+			Calendar calendar = Calendar.getInstance();
+			calendar.setTimeInMillis((long) value);
+			return new DateTimeType(calendar);
+		case ON_OFF:
+			return OnOffType.values()[(int) value];
+		case OPEN_CLOSED:
+			return OpenClosedType.values()[(int) value];
+		case UP_DOWN:
+			return UpDownType.values()[(int) value];
+		default:
+			return UnDefType.values()[(int) value];
+		}
+	}
+
+	private static BigDecimal toBigDecimal(double value) {
+		// integers are restored without a fraction, i.e. as '20' instead of '20.0'
+		if (value == Math.rint(value) && Math.abs(value) < 1L << 53) {
+			return BigDecimal.valueOf((long) value);
+		}
+		return BigDecimal.valueOf(value);
+	}
+
+	static State toState(int type, String text) {
+		switch (type) {
+		case HSB:
+			return new HSBType(text);
+		case DECIMAL_TEXT:
+			return new DecimalType(text);
+		case PERCENT_TEXT:
+			return new PercentType(text);
+		}
+		return new StringType(text);
+	}
+
+}
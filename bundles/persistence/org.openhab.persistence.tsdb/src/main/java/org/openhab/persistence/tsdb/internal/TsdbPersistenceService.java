@@ -0,0 +1,176 @@
+/**
+ * Copyright (c) 2010-2014, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.persistence.tsdb.internal;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.openhab.core.items.Item;
+import org.openhab.core.persistence.FilterCriteria;
+import org.openhab.core.persistence.HistoricItem;
+import org.openhab.core.persistence.PersistenceService;
+import org.openhab.core.persistence.QueryablePersistenceService;
+import org.openhab.core.types.State;
+import org.openhab.core.types.UnDefType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * This is a {@link PersistenceService} implementation, which stores the
+ * states of each item as a compressed time series in a file of its own (see
+ * {@link ItemSeries}). It needs no external server and keeps all values
+ * without loss (see {@link StateCodec}). The files are named after the items
+ * or aliases, where all characters other than letters, digits, '_' and '-'
+ * are escaped.
+ * 
+ * @author Kai Kreuzer
+ * @since 1.5.0
+ */
+public class TsdbPersistenceService implements QueryablePersistenceService {
+
+	private static final Logger logger = LoggerFactory.getLogger(TsdbPersistenceService.class);
+
+	private static final String SERVICE_NAME = "tsdb";
+
+	protected static final String DB_FOLDER = "etc/tsdb";
+
+	static final String FILE_SUFFIX = ".tsdb";
+
+	private static final char[] HEX_DIGITS = "0123456789ABCDEF".toCharArray();
+
+	protected File folder = new File(DB_FOLDER);
+
+	/** item name or alias - series */
+	private final Map<String, ItemSeries> series = new ConcurrentHashMap<String, ItemSeries>();
+
+	public String getName() {
+		return SERVICE_NAME;
+	}
+
+	public void activate() {
+		if (!folder.exists() && !folder.mkdirs()) {
+			logger.error("Could not create the tsdb folder '{}'", folder.getAbsolutePath());
+		}
+	}
+
+	public void deactivate() {
+		synchronized (series) {
+			for (ItemSeries itemSeries : series.values()) {
+				itemSeries.flush();
+			}
+			series.clear();
+		}
+	}
+
+	/**
+	 * @{inheritDoc}
+	 */
+	public void store(Item item) {
+		store(item, null);
+	}
+
+	/**
+	 * @{inheritDoc}
+	 */
+	public void store(Item item, String alias) {
+		String name = alias == null ? item.getName() : alias;
+		State state = item.getState();
+		if (state instanceof UnDefType) {
+			logger.trace("Not storing undefined state of item '{}'", name);
+			return;
+		}
+		store(name, System.currentTimeMillis(), state);
+	}
+
+	void store(String name, long timestamp, State state) {
+		try {
+			ItemSeries itemSeries = getSeries(name, true);
+			if (itemSeries.append(timestamp, state)) {
+				logger.debug("Stored '{}' with state '{}' in tsdb", name, state);
+			} else {
+				logger.warn("State of item '{}' is too large to be stored in tsdb", name);
+			}
+		} catch (IOException e) {
+			logger.warn("Could not persist '{}' to tsdb: {}", name, e.getMessage());
+		}
+	}
+
+	/**
+	 * @{inheritDoc}
+	 */
+	public Iterable<HistoricItem> query(FilterCriteria filter) {
+		String name = filter.getItemName();
+		if (name == null) {
+			logger.debug("tsdb only supports queries for a single item");
+			return Collections.emptyList();
+		}
+		try {
+			ItemSeries itemSeries = getSeries(name, false);
+			if (itemSeries != null) {
+				return new SeriesQuery(name, itemSeries, filter);
+			}
+		} catch (IOException e) {
+			logger.warn("Could not query tsdb for item '{}': {}", name, e.getMessage());
+		}
+		return Collections.emptyList();
+	}
+
+	/**
+	 * Returns the series of an item, which is opened on first access.
+	 * 
+	 * @param name the name or alias of the item
+	 * @param create whether the series file is created if it does not exist
+	 * @return the series or <code>null</code> if it does not exist and
+	 *         <code>create</code> is <code>false</code>
+	 */
+	private ItemSeries getSeries(String name, boolean create) throws IOException {
+		ItemSeries itemSeries = series.get(name);
+		if (itemSeries == null) {
+			synchronized (series) {
+				itemSeries = series.get(name);
+				if (itemSeries == null) {
+					File file = new File(folder, toFileName(name) + FILE_SUFFIX);
+					if (!create && !file.exists()) {
+						return null;
+					}
+					itemSeries = new ItemSeries(file);
+					series.put(name, itemSeries);
+				}
+			}
+		}
+		return itemSeries;
+	}
+
+	/**
+	 * Escapes the name of an item or alias, so that it can be used as a file
+	 * name in the tsdb folder. Path separators and dots are escaped as well,
+	 * so an alias like '../x' cannot point outside of the folder.
+	 * 
+	 * @param name the name or alias of the item
+	 * @return the file name of the series without suffix
+	 */
+	static String toFileName(String name) {
+		StringBuilder fileName = new StringBuilder(name.length());
+		ByteBuffer bytes = BlockEncoder.UTF8.encode(name);
+		while (bytes.hasRemaining()) {
+			char c = (char) (bytes.get() & 0xff);
+			if ((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '_' || c == '-') {
+				fileName.append(c);
+			} else {
+				fileName.append('%').append(HEX_DIGITS[c >> 4]).append(HEX_DIGITS[c & 0xf]);
+			}
+		}
+		return fileName.toString();
+	}
+
+}